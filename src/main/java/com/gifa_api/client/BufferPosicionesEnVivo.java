@@ -0,0 +1,163 @@
+package com.gifa_api.client;
+
+import com.gifa_api.dto.traccar.PosicionRequestDTO;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Ultimas posiciones de cada dispositivo en anillos de arreglos primitivos de tamanio fijo. El anillo
+// se reserva una sola vez por dispositivo y guardar una posicion solo pisa valores, asi retener
+// cientos de posiciones por vehiculo no crea objetos ni depende de los mapas de atributos de Traccar.
+@Component
+public class BufferPosicionesEnVivo {
+
+    @Getter
+    private final int capacidad;
+
+    private final Map<Integer, Anillo> anillos = new ConcurrentHashMap<>();
+
+    public BufferPosicionesEnVivo(@Value("${traccar.en-vivo.capacidad:128}") int capacidad) {
+        this.capacidad = capacidad;
+    }
+
+    // Devuelve false si la posicion no es mas nueva que la ultima guardada (Traccar reenvia posiciones viejas al reconectar)
+    public boolean agregar(PosicionRequestDTO posicion) {
+        OffsetDateTime fixTime = posicion.getFixTime();
+        long fechaHora = fixTime.toEpochSecond() * 1000 + fixTime.getNano() / 1_000_000;
+        return anillos.computeIfAbsent(posicion.getDeviceId(), deviceId -> new Anillo(capacidad))
+                .agregar(posicion.getId(), fechaHora, posicion.getLatitude(), posicion.getLongitude(),
+                        posicion.getSpeed(), posicion.getCourse());
+    }
+
+    public Optional<PosicionRequestDTO> ultima(Integer deviceId) {
+        Anillo anillo = anillos.get(deviceId);
+        return anillo != null ? Optional.ofNullable(anillo.ultima(deviceId)) : Optional.empty();
+    }
+
+    public List<PosicionRequestDTO> ultimas() {
+        List<PosicionRequestDTO> ultimas = new ArrayList<>(anillos.size());
+        anillos.forEach((deviceId, anillo) -> {
+            PosicionRequestDTO ultima = anillo.ultima(deviceId);
+            if (ultima != null) {
+                ultimas.add(ultima);
+            }
+        });
+        return ultimas;
+    }
+
+    // Copia de las ultimas posiciones del dispositivo, de la mas vieja a la mas nueva
+    public Ventana recientes(Integer deviceId, int cantidad) {
+        Anillo anillo = anillos.get(deviceId);
+        return anillo != null ? anillo.copiar(Math.min(cantidad, capacidad)) : Ventana.VACIA;
+    }
+
+    public int tamanio() {
+        return anillos.size();
+    }
+
+    private static class Anillo {
+        private final int[] ids;
+        private final long[] fechas;
+        private final double[] latitudes;
+        private final double[] longitudes;
+        private final double[] velocidades;
+        private final double[] rumbos;
+        private int siguiente;
+        private int cantidad;
+
+        private Anillo(int capacidad) {
+            ids = new int[capacidad];
+            fechas = new long[capacidad];
+            latitudes = new double[capacidad];
+            longitudes = new double[capacidad];
+            velocidades = new double[capacidad];
+            rumbos = new double[capacidad];
+        }
+
+        private synchronized boolean agregar(int id, long fechaHora, double latitud, double longitud, double velocidad, double rumbo) {
+            if (cantidad > 0 && fechaHora <= fechas[ultimoIndice()]) {
+                return false;
+            }
+            ids[siguiente] = id;
+            fechas[siguiente] = fechaHora;
+            latitudes[siguiente] = latitud;
+            longitudes[siguiente] = longitud;
+            velocidades[siguiente] = velocidad;
+            rumbos[siguiente] = rumbo;
+            siguiente = (siguiente + 1) % ids.length;
+            if (cantidad < ids.length) {
+                cantidad++;
+            }
+            return true;
+        }
+
+        private synchronized PosicionRequestDTO ultima(int deviceId) {
+            if (cantidad == 0) {
+                return null;
+            }
+            int i = ultimoIndice();
+            return PosicionRequestDTO.builder()
+                    .id(ids[i])
+                    .deviceId(deviceId)
+                    .fixTime(OffsetDateTime.ofInstant(Instant.ofEpochMilli(fechas[i]), ZoneOffset.UTC))
+                    .latitude(latitudes[i])
+                    .longitude(longitudes[i])
+                    .speed(velocidades[i])
+                    .course(rumbos[i])
+                    .build();
+        }
+
+        private synchronized Ventana copiar(int maximo) {
+            int n = Math.min(maximo, cantidad);
+            Ventana ventana = new Ventana(n);
+            int inicio = (siguiente - n + ids.length) % ids.length;
+            for (int k = 0; k < n; k++) {
+                int i = (inicio + k) % ids.length;
+                ventana.ids[k] = ids[i];
+                ventana.fechas[k] = fechas[i];
+                ventana.latitudes[k] = latitudes[i];
+                ventana.longitudes[k] = longitudes[i];
+                ventana.velocidades[k] = velocidades[i];
+                ventana.rumbos[k] = rumbos[i];
+            }
+            return ventana;
+        }
+
+        private int ultimoIndice() {
+            return (siguiente - 1 + ids.length) % ids.length;
+        }
+    }
+
+    // Fechas en epoch millis; la posicion k esta en el indice k de cada arreglo
+    @Getter
+    public static class Ventana {
+        private static final Ventana VACIA = new Ventana(0);
+
+        private final int cantidad;
+        private final int[] ids;
+        private final long[] fechas;
+        private final double[] latitudes;
+        private final double[] longitudes;
+        private final double[] velocidades;
+        private final double[] rumbos;
+
+        private Ventana(int cantidad) {
+            this.cantidad = cantidad;
+            ids = new int[cantidad];
+            fechas = new long[cantidad];
+            latitudes = new double[cantidad];
+            longitudes = new double[cantidad];
+            velocidades = new double[cantidad];
+            rumbos = new double[cantidad];
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.gifa_api.client;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+
+// Suscripciones SSE compartidas por las posiciones en vivo y los eventos de geocercas.
+// Cada cliente tiene su propia cola acotada y se vacia en su propio turno de envio: un cliente lento
+// solo se atrasa a si mismo, y si llena la cola se lo desconecta para que reconecte y arranque de nuevo.
+@Slf4j
+public class DifusorSse<T> {
+
+    public static final int PENDIENTES_POR_SUSCRIPCION = 256;
+
+    private final String evento;
+    private final int pendientesMaximos;
+    private final List<Suscripcion<T>> suscripciones = new CopyOnWriteArrayList<>();
+    private final ExecutorService envios;
+
+    // Los hilos viven solo mientras hay algo para mandar, uno por cliente a lo sumo
+    public DifusorSse(String nombreHilo, String evento) {
+        this(evento, PENDIENTES_POR_SUSCRIPCION, Executors.newCachedThreadPool(new CustomizableThreadFactory(nombreHilo)));
+    }
+
+    public DifusorSse(String evento, int pendientesMaximos, ExecutorService envios) {
+        this.evento = evento;
+        this.pendientesMaximos = pendientesMaximos;
+        this.envios = envios;
+    }
+
+    public boolean haySuscripciones() {
+        return !suscripciones.isEmpty();
+    }
+
+    // El cliente arranca con lo que ya se conoce y despues recibe solo lo que pase el filtro
+    public SseEmitter suscribir(long timeoutMs, Predicate<T> filtro, List<T> iniciales) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Suscripcion<T> suscripcion = new Suscripcion<>(emitter, filtro, new ArrayBlockingQueue<>(pendientesMaximos));
+        emitter.onCompletion(() -> suscripciones.remove(suscripcion));
+        emitter.onTimeout(() -> suscripciones.remove(suscripcion));
+        emitter.onError(error -> suscripciones.remove(suscripcion));
+        suscripciones.add(suscripcion);
+        // Si lo conocido no entra en la cola solo se manda lo mas reciente
+        List<T> aEncolar = iniciales.size() > pendientesMaximos
+                ? iniciales.subList(iniciales.size() - pendientesMaximos, iniciales.size())
+                : iniciales;
+        aEncolar.forEach(dato -> encolar(suscripcion, SseEmitter.event().name(evento).data(dato)));
+        return emitter;
+    }
+
+    public void publicar(List<T> datos) {
+        for (Suscripcion<T> suscripcion : suscripciones) {
+            for (T dato : datos) {
+                if (suscripcion.getFiltro().test(dato)) {
+                    encolar(suscripcion, SseEmitter.event().name(evento).data(dato));
+                }
+            }
+        }
+    }
+
+    // Comentario periodico para detectar conexiones cerradas y que los proxies no corten el stream
+    public void mantenerConexiones() {
+        for (Suscripcion<T> suscripcion : suscripciones) {
+            encolar(suscripcion, SseEmitter.event().comment("ping"));
+        }
+    }
+
+    public void cerrar() {
+        envios.shutdownNow();
+        suscripciones.forEach(suscripcion -> suscripcion.getEmitter().complete());
+    }
+
+    private void encolar(Suscripcion<T> suscripcion, SseEmitter.SseEventBuilder mensaje) {
+        if (suscripcion.getDescartada().get()) {
+            return;
+        }
+        if (!suscripcion.getPendientes().offer(mensaje)) {
+            log.warn("Cliente SSE de '{}' con {} mensajes sin enviar, se lo desconecta", evento, pendientesMaximos);
+            descartar(suscripcion);
+            return;
+        }
+        if (suscripcion.getEnviando().compareAndSet(false, true)) {
+            envios.execute(() -> vaciar(suscripcion));
+        }
+    }
+
+    private void vaciar(Suscripcion<T> suscripcion) {
+        do {
+            SseEmitter.SseEventBuilder mensaje;
+            while ((mensaje = suscripcion.getPendientes().poll()) != null) {
+                try {
+                    suscripcion.getEmitter().send(mensaje);
+                } catch (IOException | IllegalStateException e) {
+                    descartar(suscripcion);
+                    return;
+                }
+            }
+            suscripcion.getEnviando().set(false);
+            // Un mensaje encolado justo despues del ultimo poll no tuvo quien lo mande
+        } while (!suscripcion.getPendientes().isEmpty() && suscripcion.getEnviando().compareAndSet(false, true));
+    }
+
+    private void descartar(Suscripcion<T> suscripcion) {
+        if (!suscripcion.getDescartada().compareAndSet(false, true)) {
+            return;
+        }
+        suscripciones.remove(suscripcion);
+        suscripcion.getPendientes().clear();
+        suscripcion.getEmitter().completeWithError(new IOException("Cliente SSE desconectado"));
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    private static class Suscripcion<T> {
+        private final SseEmitter emitter;
+        private final Predicate<T> filtro;
+        private final BlockingQueue<SseEmitter.SseEventBuilder> pendientes;
+        private final AtomicBoolean enviando = new AtomicBoolean();
+        private final AtomicBoolean descartada = new AtomicBoolean();
+    }
+}
@@ -0,0 +1,6 @@
+package com.gifa_api.client;
+
+// Origen de las posiciones en vivo: el socket de Traccar o, con el perfil "simulador", el simulador
+public interface IFuentePosicionesEnVivo {
+    boolean estaConectado();
+}
@@ -8,12 +8,22 @@ import com.gifa_api.model.Dispositivo;
 
 import java.time.OffsetDateTime;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface ITraccarCliente {
+    // Cantidad de deviceId que se mandan como maximo en una misma consulta a /reports
+    int MAX_DISPOSITIVOS_POR_CONSULTA = 100;
+
     public CrearDispositivoResponseDTO postCrearDispositivoTraccar(Dispositivo  dispositivo) ;
     List<PosicionRequestDTO> getPosicionesDispositivoTraccar(Integer deviceId, OffsetDateTime from , OffsetDateTime to);
+    // Entrega las posiciones a medida que se leen de la respuesta
+    void recorrerPosiciones(Integer deviceId, OffsetDateTime from, OffsetDateTime to, Consumer<PosicionRequestDTO> consumidor);
+    // /positions sin deviceId devuelve la ultima posicion de cada dispositivo
+    List<PosicionRequestDTO> getUltimasPosiciones();
     List<DispositivoResponseDTO> getDispositivos();
+    // null si Traccar no tiene un dispositivo con ese uniqueId
     DispositivoResponseDTO obtenerDispositivoByUniqueId(String uniqueId);
     KilometrosResponseDTO getKilometros(Integer deviceId,OffsetDateTime from, OffsetDateTime to);
+    List<KilometrosResponseDTO> getKilometrosDeDispositivos(List<Integer> deviceIds, OffsetDateTime from, OffsetDateTime to);
 
 }
@@ -0,0 +1,11 @@
+package com.gifa_api.client;
+
+import com.gifa_api.dto.traccar.PosicionRequestDTO;
+import reactor.core.publisher.Flux;
+
+import java.time.OffsetDateTime;
+
+// Version no bloqueante de las consultas de lectura a Traccar
+public interface ITraccarClienteReactivo {
+    Flux<PosicionRequestDTO> getPosiciones(Integer deviceId, OffsetDateTime from, OffsetDateTime to);
+}
@@ -0,0 +1,167 @@
+package com.gifa_api.client;
+
+import com.gifa_api.dto.traccar.PosicionRequestDTO;
+import com.gifa_api.utils.GeoUtils;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+// Grilla uniforme en grados con la ultima posicion de cada dispositivo. Una consulta solo recorre
+// las celdas que toca el area pedida, sin importar cuantos vehiculos tenga la flota.
+@Component
+public class IndiceEspacialPosiciones {
+
+    private final double celdaGrados;
+
+    private final Map<Long, Set<Integer>> celdas = new ConcurrentHashMap<>();
+    private final Map<Integer, Ubicacion> ubicaciones = new ConcurrentHashMap<>();
+
+    public IndiceEspacialPosiciones(@Value("${traccar.indice.celda-grados:0.05}") double celdaGrados) {
+        this.celdaGrados = celdaGrados;
+    }
+
+    // Las escrituras se serializan; las lecturas no se bloquean y ven el indice con consistencia debil
+    public synchronized void actualizar(PosicionRequestDTO posicion) {
+        Integer deviceId = posicion.getDeviceId();
+        Ubicacion actual = ubicaciones.get(deviceId);
+        // El refresco desde Traccar y el feed pueden cruzarse: nunca se retrocede a una posicion mas vieja
+        if (actual != null && posicion.getFixTime() != null && actual.getPosicion().getFixTime() != null
+                && posicion.getFixTime().isBefore(actual.getPosicion().getFixTime())) {
+            return;
+        }
+        long celda = celdaDe(posicion.getLatitude(), posicion.getLongitude());
+        Ubicacion anterior = ubicaciones.put(deviceId, new Ubicacion(posicion, celda));
+        if (anterior != null && anterior.getCelda() != celda) {
+            quitarDeCelda(anterior.getCelda(), deviceId);
+        }
+        celdas.computeIfAbsent(celda, clave -> ConcurrentHashMap.newKeySet()).add(deviceId);
+    }
+
+    public synchronized void quitar(Integer deviceId) {
+        Ubicacion anterior = ubicaciones.remove(deviceId);
+        if (anterior != null) {
+            quitarDeCelda(anterior.getCelda(), deviceId);
+        }
+    }
+
+    // Dispositivos a menos de radioMetros del punto, del mas cercano al mas lejano
+    public List<Cercano> cercanos(double latitud, double longitud, double radioMetros, int limite) {
+        return cercanos(latitud, longitud, radioMetros, limite, posicion -> true);
+    }
+
+    // El filtro se aplica antes de cortar en limite, asi los descartados no ocupan lugar
+    public List<Cercano> cercanos(double latitud, double longitud, double radioMetros, int limite, Predicate<PosicionRequestDTO> filtro) {
+        double margenLatitud = radioMetros / GeoUtils.METROS_POR_GRADO;
+        double cosLatitud = Math.max(0.01, Math.cos(Math.toRadians(latitud)));
+        double margenLongitud = Math.min(180, radioMetros / (GeoUtils.METROS_POR_GRADO * cosLatitud));
+
+        List<Cercano> encontrados = new ArrayList<>();
+        recorrer(latitud - margenLatitud, longitud - margenLongitud, latitud + margenLatitud, longitud + margenLongitud,
+                (deviceId, ubicacion) -> {
+                    PosicionRequestDTO posicion = ubicacion.getPosicion();
+                    double distancia = GeoUtils.distanciaMetros(latitud, longitud, posicion.getLatitude(), posicion.getLongitude());
+                    if (distancia <= radioMetros && filtro.test(posicion)) {
+                        encontrados.add(new Cercano(posicion, distancia));
+                    }
+                });
+        encontrados.sort(Comparator.comparingDouble(Cercano::getDistanciaMetros));
+        return encontrados.size() > limite ? encontrados.subList(0, limite) : encontrados;
+    }
+
+    // Dispositivos dentro del rectangulo; no cubre rectangulos que cruzan el antimeridiano
+    public List<PosicionRequestDTO> enRectangulo(double latitudMinima, double longitudMinima, double latitudMaxima, double longitudMaxima) {
+        List<PosicionRequestDTO> encontrados = new ArrayList<>();
+        recorrer(latitudMinima, longitudMinima, latitudMaxima, longitudMaxima, (deviceId, ubicacion) -> {
+            PosicionRequestDTO posicion = ubicacion.getPosicion();
+            if (posicion.getLatitude() >= latitudMinima && posicion.getLatitude() <= latitudMaxima
+                    && posicion.getLongitude() >= longitudMinima && posicion.getLongitude() <= longitudMaxima) {
+                encontrados.add(posicion);
+            }
+        });
+        return encontrados;
+    }
+
+    public int tamanio() {
+        return ubicaciones.size();
+    }
+
+    private void recorrer(double latitudMinima, double longitudMinima, double latitudMaxima, double longitudMaxima,
+                          Visitante visitante) {
+        int filaMinima = fila(Math.max(-90, latitudMinima));
+        int filaMaxima = fila(Math.min(90, latitudMaxima));
+        int columnaMinima = columna(Math.max(-180, longitudMinima));
+        int columnaMaxima = columna(Math.min(180, longitudMaxima));
+
+        // Si el area abarca mas celdas que dispositivos hay, es mas barato revisar todos
+        long celdasDelArea = (long) (filaMaxima - filaMinima + 1) * (columnaMaxima - columnaMinima + 1);
+        if (celdasDelArea > ubicaciones.size()) {
+            ubicaciones.forEach(visitante::visitar);
+            return;
+        }
+
+        for (int fila = filaMinima; fila <= filaMaxima; fila++) {
+            for (int columna = columnaMinima; columna <= columnaMaxima; columna++) {
+                Set<Integer> dispositivos = celdas.get(clave(fila, columna));
+                if (dispositivos == null) {
+                    continue;
+                }
+                for (Integer deviceId : dispositivos) {
+                    Ubicacion ubicacion = ubicaciones.get(deviceId);
+                    if (ubicacion != null) {
+                        visitante.visitar(deviceId, ubicacion);
+                    }
+                }
+            }
+        }
+    }
+
+    private void quitarDeCelda(long celda, Integer deviceId) {
+        celdas.computeIfPresent(celda, (clave, dispositivos) -> {
+            dispositivos.remove(deviceId);
+            return dispositivos.isEmpty() ? null : dispositivos;
+        });
+    }
+
+    private long celdaDe(double latitud, double longitud) {
+        return clave(fila(latitud), columna(longitud));
+    }
+
+    private int fila(double latitud) {
+        return (int) Math.floor((latitud + 90) / celdaGrados);
+    }
+
+    private int columna(double longitud) {
+        return (int) Math.floor((longitud + 180) / celdaGrados);
+    }
+
+    private static long clave(int fila, int columna) {
+        return ((long) fila << 32) | (columna & 0xffffffffL);
+    }
+
+    private interface Visitante {
+        void visitar(Integer deviceId, Ubicacion ubicacion);
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    private static class Ubicacion {
+        private final PosicionRequestDTO posicion;
+        private final long celda;
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    public static class Cercano {
+        private final PosicionRequestDTO posicion;
+        private final double distanciaMetros;
+    }
+}
@@ -0,0 +1,195 @@
+package com.gifa_api.client;
+
+import com.gifa_api.dto.traccar.PosicionRequestDTO;
+import com.gifa_api.utils.enums.TipoEventoGeocerca;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Evalua cada posicion contra las geocercas en una sola pasada: la grilla devuelve solo los
+// poligonos cuya caja toca la celda del punto y el estado por dispositivo es un arreglo ordenado
+// de ids, asi detectar entradas y salidas es un merge sin objetos intermedios.
+@Component
+public class MotorGeocercas {
+
+    private static final int[] NINGUNA = new int[0];
+
+    private final double celdaGrados;
+
+    // Se reemplaza entera al recargar; las evaluaciones en curso terminan con la anterior
+    private volatile Indice indice = new Indice(Map.of(), Set.of());
+    private final Map<Integer, Estado> estados = new HashMap<>();
+
+    public MotorGeocercas(@Value("${geocercas.celda-grados:0.05}") double celdaGrados) {
+        this.celdaGrados = celdaGrados;
+    }
+
+    public void recargar(List<Poligono> poligonos) {
+        Map<Long, List<Poligono>> porCelda = new HashMap<>();
+        Set<Integer> ids = new HashSet<>();
+        for (Poligono poligono : poligonos) {
+            ids.add(poligono.getId());
+            for (int fila = fila(poligono.latitudMinima); fila <= fila(poligono.latitudMaxima); fila++) {
+                for (int columna = columna(poligono.longitudMinima); columna <= columna(poligono.longitudMaxima); columna++) {
+                    porCelda.computeIfAbsent(clave(fila, columna), celda -> new ArrayList<>()).add(poligono);
+                }
+            }
+        }
+        Map<Long, Poligono[]> celdas = new HashMap<>();
+        porCelda.forEach((celda, lista) -> celdas.put(celda, lista.toArray(new Poligono[0])));
+        indice = new Indice(celdas, ids);
+    }
+
+    // La primera posicion de un dispositivo solo fija su estado; las transiciones salen de las siguientes
+    public synchronized List<Transicion> evaluar(PosicionRequestDTO posicion, Integer vehiculoId) {
+        if (posicion.getFixTime() == null) {
+            return List.of();
+        }
+        long fix = posicion.getFixTime().toInstant().toEpochMilli();
+        Indice actual = indice;
+        int[] dentro = contenedoras(actual, posicion.getLatitude(), posicion.getLongitude(), vehiculoId);
+
+        Estado estado = estados.get(posicion.getDeviceId());
+        if (estado == null) {
+            estados.put(posicion.getDeviceId(), new Estado(fix, dentro));
+            return List.of();
+        }
+        // Las posiciones atrasadas no cambian el estado
+        if (fix < estado.fix) {
+            return List.of();
+        }
+
+        int[] antes = estado.dentro;
+        estado.fix = fix;
+        estado.dentro = dentro;
+        if (Arrays.equals(antes, dentro)) {
+            return List.of();
+        }
+
+        List<Transicion> transiciones = new ArrayList<>(2);
+        int i = 0;
+        int j = 0;
+        while (i < dentro.length || j < antes.length) {
+            if (j == antes.length || (i < dentro.length && dentro[i] < antes[j])) {
+                transiciones.add(new Transicion(dentro[i++], TipoEventoGeocerca.ENTRADA, posicion));
+            } else if (i == dentro.length || antes[j] < dentro[i]) {
+                // Una geocerca borrada desaparece del estado sin generar salida
+                if (actual.ids.contains(antes[j])) {
+                    transiciones.add(new Transicion(antes[j], TipoEventoGeocerca.SALIDA, posicion));
+                }
+                j++;
+            } else {
+                i++;
+                j++;
+            }
+        }
+        return transiciones;
+    }
+
+    public synchronized void olvidar(Integer deviceId) {
+        estados.remove(deviceId);
+    }
+
+    private int[] contenedoras(Indice actual, double latitud, double longitud, Integer vehiculoId) {
+        Poligono[] candidatos = actual.celdas.get(clave(fila(latitud), columna(longitud)));
+        if (candidatos == null) {
+            return NINGUNA;
+        }
+        int[] encontradas = null;
+        int cantidad = 0;
+        for (Poligono poligono : candidatos) {
+            if ((poligono.vehiculoId == null || poligono.vehiculoId.equals(vehiculoId)) && poligono.contiene(latitud, longitud)) {
+                if (encontradas == null) {
+                    encontradas = new int[candidatos.length];
+                }
+                encontradas[cantidad++] = poligono.id;
+            }
+        }
+        if (cantidad == 0) {
+            return NINGUNA;
+        }
+        int[] resultado = Arrays.copyOf(encontradas, cantidad);
+        Arrays.sort(resultado);
+        return resultado;
+    }
+
+    private int fila(double latitud) {
+        return (int) Math.floor((latitud + 90) / celdaGrados);
+    }
+
+    private int columna(double longitud) {
+        return (int) Math.floor((longitud + 180) / celdaGrados);
+    }
+
+    private static long clave(int fila, int columna) {
+        return ((long) fila << 32) | (columna & 0xffffffffL);
+    }
+
+    @RequiredArgsConstructor
+    private static class Indice {
+        private final Map<Long, Poligono[]> celdas;
+        private final Set<Integer> ids;
+    }
+
+    @AllArgsConstructor
+    private static class Estado {
+        private long fix;
+        private int[] dentro;
+    }
+
+    @Getter
+    public static class Poligono {
+        private final int id;
+        private final Integer vehiculoId;
+        private final double[] latitudes;
+        private final double[] longitudes;
+        private final double latitudMinima;
+        private final double latitudMaxima;
+        private final double longitudMinima;
+        private final double longitudMaxima;
+
+        public Poligono(int id, Integer vehiculoId, double[] latitudes, double[] longitudes) {
+            this.id = id;
+            this.vehiculoId = vehiculoId;
+            this.latitudes = latitudes;
+            this.longitudes = longitudes;
+            this.latitudMinima = Arrays.stream(latitudes).min().orElse(0);
+            this.latitudMaxima = Arrays.stream(latitudes).max().orElse(0);
+            this.longitudMinima = Arrays.stream(longitudes).min().orElse(0);
+            this.longitudMaxima = Arrays.stream(longitudes).max().orElse(0);
+        }
+
+        // Ray casting sobre el plano lat/lon, valido para poligonos que no cruzan el antimeridiano
+        boolean contiene(double latitud, double longitud) {
+            if (latitud < latitudMinima || latitud > latitudMaxima || longitud < longitudMinima || longitud > longitudMaxima) {
+                return false;
+            }
+            boolean dentro = false;
+            for (int i = 0, j = latitudes.length - 1; i < latitudes.length; j = i++) {
+                if ((latitudes[i] > latitud) != (latitudes[j] > latitud)
+                        && longitud < (longitudes[j] - longitudes[i]) * (latitud - latitudes[i]) / (latitudes[j] - latitudes[i]) + longitudes[i]) {
+                    dentro = !dentro;
+                }
+            }
+            return dentro;
+        }
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    public static class Transicion {
+        private final int geocercaId;
+        private final TipoEventoGeocerca tipo;
+        private final PosicionRequestDTO posicion;
+    }
+}
@@ -0,0 +1,116 @@
+package com.gifa_api.client;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+// Proximo sondeo de cada dispositivo, ordenado en una cola de prioridad por fecha. Un dispositivo
+// en movimiento o con el motor encendido se vuelve a sondear al intervalo activo; uno quieto
+// duplica su espera en cada sondeo hasta el maximo, asi la carga sobre Traccar sigue a la parte
+// de la flota que realmente se mueve.
+@Component
+public class PlanificadorSondeoTraccar {
+
+    private final long intervaloActivoMs;
+    private final long intervaloInactivoMaximoMs;
+
+    private final PriorityQueue<Turno> cola = new PriorityQueue<>(Comparator.comparingLong(Turno::getProximoSondeo));
+    private final Map<Integer, Turno> turnos = new HashMap<>();
+
+    public PlanificadorSondeoTraccar(@Value("${traccar.sondeo.intervalo-activo-ms:30000}") long intervaloActivoMs,
+                                     @Value("${traccar.sondeo.intervalo-inactivo-maximo-ms:1800000}") long intervaloInactivoMaximoMs) {
+        this.intervaloActivoMs = intervaloActivoMs;
+        this.intervaloInactivoMaximoMs = intervaloInactivoMaximoMs;
+    }
+
+    // Agrega los dispositivos nuevos (se sondean enseguida) y descarta los que ya no estan
+    public synchronized void sincronizar(Collection<Integer> deviceIds, long ahora) {
+        Set<Integer> vigentes = new HashSet<>(deviceIds);
+        turnos.values().removeIf(turno -> {
+            boolean sobra = !vigentes.contains(turno.deviceId);
+            // El turno puede seguir en la cola: se lo saltea al salir
+            turno.cancelado |= sobra;
+            return sobra;
+        });
+        for (Integer deviceId : vigentes) {
+            if (!turnos.containsKey(deviceId)) {
+                Turno turno = new Turno(deviceId, ahora, intervaloActivoMs);
+                turnos.put(deviceId, turno);
+                encolar(turno);
+            }
+        }
+    }
+
+    // Saca de la cola hasta maximo dispositivos vencidos. Quedan afuera hasta que se los reprograme.
+    public synchronized List<Integer> vencidos(long ahora, int maximo) {
+        List<Integer> vencidos = new ArrayList<>();
+        while (vencidos.size() < maximo && !cola.isEmpty() && cola.peek().proximoSondeo <= ahora) {
+            Turno turno = cola.poll();
+            turno.enCola = false;
+            if (!turno.cancelado) {
+                vencidos.add(turno.deviceId);
+            }
+        }
+        return vencidos;
+    }
+
+    public synchronized void reprogramar(Integer deviceId, boolean activo, long ahora) {
+        Turno turno = turnos.get(deviceId);
+        // Solo se reprograma lo que salio de la cola; cambiar la fecha de un turno encolado rompe el orden
+        if (turno == null || turno.enCola) {
+            return;
+        }
+        turno.espera = activo
+                ? intervaloActivoMs
+                : Math.min(intervaloInactivoMaximoMs, Math.max(intervaloActivoMs, turno.espera * 2));
+        turno.proximoSondeo = ahora + turno.espera;
+        encolar(turno);
+    }
+
+    // Un sondeo fallido no dice nada del dispositivo: se repite con la misma espera, sin duplicarla,
+    // asi una caida de Traccar no manda a toda la flota a la espera maxima
+    public synchronized void reintentar(Integer deviceId, long ahora) {
+        Turno turno = turnos.get(deviceId);
+        if (turno == null || turno.enCola) {
+            return;
+        }
+        turno.proximoSondeo = ahora + turno.espera;
+        encolar(turno);
+    }
+
+    private void encolar(Turno turno) {
+        turno.enCola = true;
+        cola.add(turno);
+    }
+
+    public synchronized int pendientes() {
+        return cola.size();
+    }
+
+    private static final class Turno {
+        private final Integer deviceId;
+        private long proximoSondeo;
+        private long espera;
+        private boolean cancelado;
+        private boolean enCola;
+
+        private Turno(Integer deviceId, long proximoSondeo, long espera) {
+            this.deviceId = deviceId;
+            this.proximoSondeo = proximoSondeo;
+            this.espera = espera;
+        }
+
+        private long getProximoSondeo() {
+            return proximoSondeo;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.gifa_api.client;
+
+import com.gifa_api.dto.traccar.PosicionRequestDTO;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.List;
+
+@Getter
+@RequiredArgsConstructor
+public class PosicionesRecibidasEvent {
+    private final List<PosicionRequestDTO> posiciones;
+}
@@ -0,0 +1,129 @@
+package com.gifa_api.client;
+
+import com.gifa_api.dto.traccar.DispositivoResponseDTO;
+import com.gifa_api.exception.NotFoundException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Copia local de los dispositivos de Traccar indexada por uniqueId y por deviceId,
+// para no tener que consultar /devices antes de cada pedido de posiciones o reportes.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RegistroDispositivosTraccar {
+
+    private final ITraccarCliente traccarCliente;
+
+    private volatile Map<String, DispositivoResponseDTO> porUnicoId = Map.of();
+    private volatile Map<Integer, DispositivoResponseDTO> porDeviceId = Map.of();
+    private volatile boolean inicializado = false;
+
+    // uniqueId -> hasta cuando (nanoTime) se responde que no existe sin volver a consultar Traccar
+    private final Map<String, Long> inexistentes = new ConcurrentHashMap<>();
+
+    @Value("${traccar.dispositivos.ttl-inexistente-ms:30000}")
+    private long ttlInexistenteMs;
+
+    @Scheduled(fixedDelay = 300000)
+    public void refrescar() {
+        try {
+            reemplazar(traccarCliente.getDispositivos());
+        } catch (RuntimeException e) {
+            log.warn("No se pudo refrescar el registro de dispositivos de Traccar: {}", e.getMessage());
+        }
+    }
+
+    public Optional<DispositivoResponseDTO> buscarPorUnicoId(String unicoId) {
+        inicializarSiHaceFalta();
+        return Optional.ofNullable(porUnicoId.get(unicoId));
+    }
+
+    public Optional<DispositivoResponseDTO> buscarPorDeviceId(Integer deviceId) {
+        inicializarSiHaceFalta();
+        return Optional.ofNullable(porDeviceId.get(deviceId));
+    }
+
+    // Si no esta en el registro se consulta solo ese uniqueId y se agrega. Solo un resultado vacio es
+    // NotFoundException (y se recuerda un rato); una caida de Traccar se propaga tal cual
+    public Integer obtenerDeviceId(String unicoId) {
+        Optional<DispositivoResponseDTO> dispositivo = buscarPorUnicoId(unicoId);
+        if (dispositivo.isPresent()) {
+            return dispositivo.get().getId();
+        }
+        Long vence = inexistentes.get(unicoId);
+        if (vence != null && System.nanoTime() - vence < 0) {
+            throw noEncontrado(unicoId);
+        }
+        return consultarTraccar(unicoId)
+                .map(DispositivoResponseDTO::getId)
+                .orElseThrow(() -> noEncontrado(unicoId));
+    }
+
+    // Va siempre a Traccar, sin mirar el registro ni los inexistentes recordados
+    public Optional<DispositivoResponseDTO> consultarTraccar(String unicoId) {
+        DispositivoResponseDTO encontrado = traccarCliente.obtenerDispositivoByUniqueId(unicoId);
+        if (encontrado == null) {
+            inexistentes.put(unicoId, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ttlInexistenteMs));
+            return Optional.empty();
+        }
+        registrar(encontrado);
+        return Optional.of(encontrado);
+    }
+
+    public boolean existe(String unicoId) {
+        return buscarPorUnicoId(unicoId).isPresent();
+    }
+
+    public Collection<DispositivoResponseDTO> todos() {
+        inicializarSiHaceFalta();
+        return porUnicoId.values();
+    }
+
+    public synchronized void registrar(DispositivoResponseDTO dispositivo) {
+        Map<String, DispositivoResponseDTO> nuevosPorUnicoId = new HashMap<>(porUnicoId);
+        Map<Integer, DispositivoResponseDTO> nuevosPorDeviceId = new HashMap<>(porDeviceId);
+        nuevosPorUnicoId.put(dispositivo.getUniqueId(), dispositivo);
+        nuevosPorDeviceId.put(dispositivo.getId(), dispositivo);
+        porUnicoId = nuevosPorUnicoId;
+        porDeviceId = nuevosPorDeviceId;
+        inexistentes.remove(dispositivo.getUniqueId());
+    }
+
+    private synchronized void reemplazar(List<DispositivoResponseDTO> dispositivos) {
+        Map<String, DispositivoResponseDTO> nuevosPorUnicoId = new HashMap<>();
+        Map<Integer, DispositivoResponseDTO> nuevosPorDeviceId = new HashMap<>();
+        for (DispositivoResponseDTO dispositivo : dispositivos) {
+            nuevosPorUnicoId.put(dispositivo.getUniqueId(), dispositivo);
+            nuevosPorDeviceId.put(dispositivo.getId(), dispositivo);
+        }
+        porUnicoId = nuevosPorUnicoId;
+        porDeviceId = nuevosPorDeviceId;
+        inexistentes.keySet().removeAll(nuevosPorUnicoId.keySet());
+        inicializado = true;
+    }
+
+    private NotFoundException noEncontrado(String unicoId) {
+        return new NotFoundException("No se encontró el dispositivo en Traccar con uniqueId: " + unicoId);
+    }
+
+    private void inicializarSiHaceFalta() {
+        if (!inicializado) {
+            synchronized (this) {
+                if (!inicializado) {
+                    reemplazar(traccarCliente.getDispositivos());
+                }
+            }
+        }
+    }
+}
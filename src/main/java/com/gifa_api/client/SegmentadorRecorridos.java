@@ -0,0 +1,221 @@
+package com.gifa_api.client;
+
+import com.gifa_api.model.Posicion;
+import com.gifa_api.utils.GeoUtils;
+import com.gifa_api.utils.enums.TipoSegmento;
+import lombok.Builder;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+// Maquina de estados de una sola pasada que corta las posiciones de cada dispositivo en viajes y paradas.
+// Un viaje termina cuando el vehiculo queda detenido (velocidad baja o motor apagado) durante la
+// permanencia minima; una parada termina cuando se aleja mas de la distancia minima, asi el ruido
+// del GPS estacionado no genera viajes. Solo se usa desde la tarea de segmentacion, sin concurrencia.
+@Component
+public class SegmentadorRecorridos {
+
+    private final double velocidadMinimaNudos;
+    private final long permanenciaMs;
+    private final double distanciaMinimaMetros;
+
+    private final Map<Integer, Estado> estados = new HashMap<>();
+
+    public SegmentadorRecorridos(@Value("${viajes.velocidad-minima-nudos:3}") double velocidadMinimaNudos,
+                                 @Value("${viajes.permanencia-parada-segundos:300}") long permanenciaSegundos,
+                                 @Value("${viajes.distancia-minima-metros:200}") double distanciaMinimaMetros) {
+        this.velocidadMinimaNudos = velocidadMinimaNudos;
+        this.permanenciaMs = permanenciaSegundos * 1000;
+        this.distanciaMinimaMetros = distanciaMinimaMetros;
+    }
+
+    public boolean conoce(Integer deviceId) {
+        return estados.containsKey(deviceId);
+    }
+
+    public void reiniciar() {
+        estados.clear();
+    }
+
+    // Devuelve el segmento que se cierra con esta posicion, si lo hay. Las posiciones que no avanzan se ignoran.
+    public Optional<Segmento> procesar(Posicion posicion) {
+        Estado estado = estados.get(posicion.getDeviceId());
+        if (estado == null) {
+            estado = new Estado();
+            estado.enViaje = enMovimiento(posicion);
+            estado.inicio = posicion;
+            estado.ultima = posicion;
+            estados.put(posicion.getDeviceId(), estado);
+            return Optional.empty();
+        }
+        if (posicion.getFechaHora() <= estado.ultima.getFechaHora()) {
+            return Optional.empty();
+        }
+        return estado.enViaje ? enViaje(estado, posicion) : enParada(estado, posicion);
+    }
+
+    // Cierra los viajes de dispositivos que dejaron de reportar (por ejemplo al apagar el motor)
+    public List<Segmento> cerrarVencidos(long ahora) {
+        List<Segmento> cerrados = new ArrayList<>();
+        for (Estado estado : estados.values()) {
+            if (estado.enViaje && ahora - estado.ultima.getFechaHora() >= permanenciaMs) {
+                cerrados.add(cerrarViaje(estado, estado.candidata != null ? estado.candidata : estado.ultima));
+            }
+        }
+        return cerrados;
+    }
+
+    private Optional<Segmento> enViaje(Estado estado, Posicion posicion) {
+        long intervalo = posicion.getFechaHora() - estado.ultima.getFechaHora();
+
+        // Sin posiciones durante la permanencia minima (equipo apagado o sin senal): el viaje termino en la ultima conocida
+        if (intervalo >= permanenciaMs) {
+            Segmento viaje = cerrarViaje(estado, estado.candidata != null ? estado.candidata : estado.ultima);
+            enParada(estado, posicion);
+            return Optional.of(viaje);
+        }
+
+        Posicion anterior = estado.ultima;
+        estado.distancia += distancia(anterior, posicion);
+        estado.ultima = posicion;
+        if (enMovimiento(posicion)) {
+            estado.velocidadMaxima = Math.max(estado.velocidadMaxima, posicion.getVelocidad());
+            estado.candidata = null;
+            return Optional.empty();
+        }
+
+        if (!enMovimiento(anterior) && encendido(anterior, posicion)) {
+            estado.ralentiMs += intervalo;
+        }
+        if (estado.candidata == null) {
+            estado.candidata = posicion;
+            estado.distanciaCandidata = estado.distancia;
+            estado.ralentiCandidata = estado.ralentiMs;
+        }
+        if (posicion.getFechaHora() - estado.candidata.getFechaHora() >= permanenciaMs) {
+            return Optional.of(cerrarViaje(estado, estado.candidata));
+        }
+        return Optional.empty();
+    }
+
+    private Optional<Segmento> enParada(Estado estado, Posicion posicion) {
+        Posicion anterior = estado.ultima;
+        long intervalo = posicion.getFechaHora() - anterior.getFechaHora();
+        // Despues de un hueco sin posiciones no se sabe por donde anduvo: se arranca desde esta
+        boolean hueco = intervalo >= permanenciaMs;
+        estado.ultima = posicion;
+
+        if (!enMovimiento(posicion)) {
+            // Se movio menos que la distancia minima y volvio a detenerse: sigue la misma parada
+            estado.candidata = null;
+            if (!hueco && encendido(anterior, posicion)) {
+                estado.ralentiMs += intervalo;
+            }
+            return Optional.empty();
+        }
+
+        if (estado.candidata == null || hueco) {
+            estado.candidata = hueco ? posicion : anterior;
+            estado.distanciaCandidata = 0;
+            estado.velocidadMaximaCandidata = 0;
+        }
+        if (!hueco) {
+            estado.distanciaCandidata += distancia(anterior, posicion);
+        }
+        estado.velocidadMaximaCandidata = Math.max(estado.velocidadMaximaCandidata, posicion.getVelocidad());
+        if (estado.distanciaCandidata < distanciaMinimaMetros) {
+            return Optional.empty();
+        }
+
+        Segmento parada = segmento(TipoSegmento.PARADA, posicion.getDeviceId(), estado.inicio, estado.candidata, 0, estado.ralentiMs, 0);
+        estado.enViaje = true;
+        estado.inicio = estado.candidata;
+        estado.distancia = estado.distanciaCandidata;
+        estado.velocidadMaxima = estado.velocidadMaximaCandidata;
+        estado.ralentiMs = 0;
+        estado.candidata = null;
+        return Optional.of(parada);
+    }
+
+    // El viaje termina en la primera posicion detenida; lo que paso despues ya es parte de la parada
+    private Segmento cerrarViaje(Estado estado, Posicion fin) {
+        boolean enCandidata = fin == estado.candidata;
+        double distancia = enCandidata ? estado.distanciaCandidata : estado.distancia;
+        long ralenti = enCandidata ? estado.ralentiCandidata : estado.ralentiMs;
+        Segmento viaje = segmento(TipoSegmento.VIAJE, fin.getDeviceId(), estado.inicio, fin, distancia, ralenti, estado.velocidadMaxima);
+
+        estado.enViaje = false;
+        estado.inicio = fin;
+        estado.ralentiMs = estado.ralentiMs - ralenti;
+        estado.distancia = 0;
+        estado.velocidadMaxima = 0;
+        estado.candidata = null;
+        return viaje;
+    }
+
+    private Segmento segmento(TipoSegmento tipo, Integer deviceId, Posicion inicio, Posicion fin,
+                              double distancia, long ralentiMs, double velocidadMaxima) {
+        return Segmento.builder()
+                .tipo(tipo)
+                .deviceId(deviceId)
+                .inicio(inicio.getFechaHora())
+                .fin(fin.getFechaHora())
+                .distanciaMetros(distancia)
+                .ralentiMs(ralentiMs)
+                .velocidadMaximaNudos(velocidadMaxima)
+                .latitudInicio(inicio.getLatitud())
+                .longitudInicio(inicio.getLongitud())
+                .latitudFin(fin.getLatitud())
+                .longitudFin(fin.getLongitud())
+                .build();
+    }
+
+    private boolean enMovimiento(Posicion posicion) {
+        return posicion.getVelocidad() >= velocidadMinimaNudos && !Boolean.FALSE.equals(posicion.getEncendido());
+    }
+
+    // Ralenti: detenido con el motor encendido en los dos extremos del intervalo
+    private boolean encendido(Posicion anterior, Posicion posicion) {
+        return Boolean.TRUE.equals(anterior.getEncendido()) && Boolean.TRUE.equals(posicion.getEncendido());
+    }
+
+    private double distancia(Posicion desde, Posicion hasta) {
+        return GeoUtils.distanciaMetros(desde.getLatitud(), desde.getLongitud(), hasta.getLatitud(), hasta.getLongitud());
+    }
+
+    private static class Estado {
+        private boolean enViaje;
+        private Posicion inicio;
+        private Posicion ultima;
+        private double distancia;
+        private long ralentiMs;
+        private double velocidadMaxima;
+        // Posicion donde podria empezar el proximo segmento, con los acumulados hasta ese punto
+        private Posicion candidata;
+        private double distanciaCandidata;
+        private long ralentiCandidata;
+        private double velocidadMaximaCandidata;
+    }
+
+    @Getter
+    @Builder
+    public static class Segmento {
+        private final TipoSegmento tipo;
+        private final Integer deviceId;
+        private final long inicio;
+        private final long fin;
+        private final double distanciaMetros;
+        private final long ralentiMs;
+        private final double velocidadMaximaNudos;
+        private final double latitudInicio;
+        private final double longitudInicio;
+        private final double latitudFin;
+        private final double longitudFin;
+    }
+}
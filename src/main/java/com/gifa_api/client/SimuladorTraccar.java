@@ -0,0 +1,354 @@
+package com.gifa_api.client;
+
+import com.gifa_api.dto.traccar.CrearDispositivoResponseDTO;
+import com.gifa_api.dto.traccar.DispositivoResponseDTO;
+import com.gifa_api.dto.traccar.KilometrosResponseDTO;
+import com.gifa_api.dto.traccar.PosicionRequestDTO;
+import com.gifa_api.model.Dispositivo;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+// Traccar simulado para pruebas de carga (perfil "simulador"). Cada dispositivo da vueltas a una
+// circunferencia propia alternando tramos en movimiento y detenido. Posiciones y resumenes salen
+// de una formula cerrada sobre (dispositivo, muestra), asi son deterministas y no se guarda nada
+// por posicion. La latencia y los errores inyectados si son aleatorios.
+@Slf4j
+@Component
+@Profile("simulador")
+public class SimuladorTraccar implements ITraccarCliente, IFuentePosicionesEnVivo {
+
+    private static final double METROS_POR_GRADO = 111_320;
+    private static final double MS_A_NUDOS = 3.6 / 1.852;
+    // Origen de los odometros
+    private static final long EPOCA = OffsetDateTime.parse("2024-01-01T00:00:00Z").toEpochSecond();
+    // Lugar reservado para los dispositivos que cree la aplicacion, asi no chocan los ids de posicion
+    private static final int DISPOSITIVOS_RESERVADOS = 1024;
+
+    private final ApplicationEventPublisher publisher;
+    private final int intervaloSegundos;
+    private final long latenciaMs;
+    private final long latenciaVariacionMs;
+    private final double tasaError;
+    private final double latitudCentro;
+    private final double longitudCentro;
+    private final long semilla;
+    private final int capacidad;
+    // Los ids de posicion se cuentan desde esta muestra (el arranque menos el historial que se puede
+    // pedir hacia atras), asi caben en un int sin dar la vuelta ni repetirse
+    private final long muestraOrigenIds;
+    private final long muestrasConIds;
+
+    private final Map<Integer, Recorrido> recorridos = new ConcurrentHashMap<>();
+    private final Map<String, Integer> idsPorUnicoId = new ConcurrentHashMap<>();
+    private final AtomicInteger siguienteId = new AtomicInteger();
+
+    @Autowired
+    public SimuladorTraccar(ApplicationEventPublisher publisher,
+                            @Value("${traccar.simulador.dispositivos:1000}") int dispositivos,
+                            @Value("${traccar.simulador.intervalo-posiciones-s:30}") int intervaloSegundos,
+                            @Value("${traccar.simulador.latencia-ms:0}") long latenciaMs,
+                            @Value("${traccar.simulador.latencia-variacion-ms:0}") long latenciaVariacionMs,
+                            @Value("${traccar.simulador.tasa-error:0}") double tasaError,
+                            @Value("${traccar.simulador.latitud-centro:-34.6037}") double latitudCentro,
+                            @Value("${traccar.simulador.longitud-centro:-58.3816}") double longitudCentro,
+                            @Value("${traccar.simulador.semilla:42}") long semilla,
+                            @Value("${traccar.simulador.historial-dias:30}") int historialDias) {
+        this(publisher, dispositivos, intervaloSegundos, latenciaMs, latenciaVariacionMs, tasaError,
+                latitudCentro, longitudCentro, semilla, OffsetDateTime.now(ZoneOffset.UTC).minusDays(historialDias));
+    }
+
+    public SimuladorTraccar(ApplicationEventPublisher publisher, int dispositivos, int intervaloSegundos, long latenciaMs,
+                            long latenciaVariacionMs, double tasaError, double latitudCentro, double longitudCentro,
+                            long semilla, OffsetDateTime origenIds) {
+        this.publisher = publisher;
+        this.intervaloSegundos = intervaloSegundos;
+        this.latenciaMs = latenciaMs;
+        this.latenciaVariacionMs = latenciaVariacionMs;
+        this.tasaError = tasaError;
+        this.latitudCentro = latitudCentro;
+        this.longitudCentro = longitudCentro;
+        this.semilla = semilla;
+        this.capacidad = dispositivos + DISPOSITIVOS_RESERVADOS;
+        this.muestraOrigenIds = Math.floorDiv(origenIds.toEpochSecond() - EPOCA, intervaloSegundos);
+        this.muestrasConIds = (Integer.MAX_VALUE - capacidad) / capacidad;
+        for (int i = 0; i < dispositivos; i++) {
+            agregar(patente(i));
+        }
+        log.info("Simulador de Traccar con {} dispositivos, una posicion cada {} s", dispositivos, intervaloSegundos);
+    }
+
+    @Override
+    public CrearDispositivoResponseDTO postCrearDispositivoTraccar(Dispositivo dispositivo) {
+        simularRed();
+        Recorrido recorrido = recorridos.get(agregar(dispositivo.getUnicoId()));
+        return CrearDispositivoResponseDTO.builder()
+                .id(recorrido.id)
+                .name(dispositivo.getNombre())
+                .uniqueId(recorrido.unicoId)
+                .status("online")
+                .build();
+    }
+
+    @Override
+    public List<PosicionRequestDTO> getPosicionesDispositivoTraccar(Integer deviceId, OffsetDateTime from, OffsetDateTime to) {
+        List<PosicionRequestDTO> posiciones = new ArrayList<>();
+        recorrerPosiciones(deviceId, from, to, posiciones::add);
+        return posiciones;
+    }
+
+    @Override
+    public void recorrerPosiciones(Integer deviceId, OffsetDateTime from, OffsetDateTime to, Consumer<PosicionRequestDTO> consumidor) {
+        simularRed();
+        generarPosiciones(deviceId, from, to, consumidor);
+    }
+
+    @Override
+    public List<PosicionRequestDTO> getUltimasPosiciones() {
+        simularRed();
+        return posicionesActuales();
+    }
+
+    @Override
+    public List<DispositivoResponseDTO> getDispositivos() {
+        simularRed();
+        List<DispositivoResponseDTO> dispositivos = new ArrayList<>(recorridos.size());
+        for (Recorrido recorrido : recorridos.values()) {
+            dispositivos.add(dispositivo(recorrido));
+        }
+        return dispositivos;
+    }
+
+    @Override
+    public DispositivoResponseDTO obtenerDispositivoByUniqueId(String uniqueId) {
+        simularRed();
+        Integer id = idsPorUnicoId.get(uniqueId);
+        return id != null ? dispositivo(recorridos.get(id)) : null;
+    }
+
+    @Override
+    public KilometrosResponseDTO getKilometros(Integer deviceId, OffsetDateTime from, OffsetDateTime to) {
+        simularRed();
+        Recorrido recorrido = recorridos.get(deviceId);
+        return recorrido != null ? resumen(recorrido, from, to) : null;
+    }
+
+    @Override
+    public List<KilometrosResponseDTO> getKilometrosDeDispositivos(List<Integer> deviceIds, OffsetDateTime from, OffsetDateTime to) {
+        simularRed();
+        return generarResumenes(deviceIds, from, to);
+    }
+
+    @Override
+    public boolean estaConectado() {
+        return true;
+    }
+
+    // Hace las veces del socket de Traccar: en cada muestra se publica la posicion de toda la flota
+    @Scheduled(fixedDelayString = "${traccar.simulador.intervalo-en-vivo-ms:30000}")
+    public void emitirPosicionesEnVivo() {
+        publisher.publishEvent(new PosicionesRecibidasEvent(posicionesActuales()));
+    }
+
+    void generarPosiciones(Integer deviceId, OffsetDateTime from, OffsetDateTime to, Consumer<PosicionRequestDTO> consumidor) {
+        Recorrido recorrido = recorridos.get(deviceId);
+        if (recorrido == null) {
+            return;
+        }
+        long desde = Math.floorDiv(from.toEpochSecond() - EPOCA + intervaloSegundos - 1, intervaloSegundos);
+        long hasta = Math.floorDiv(to.toEpochSecond() - EPOCA, intervaloSegundos);
+        // Antes del origen de los ids el simulador no tiene historial
+        for (long muestra = Math.max(muestraOrigenIds, desde); muestra <= hasta; muestra++) {
+            consumidor.accept(posicion(recorrido, muestra));
+        }
+    }
+
+    List<KilometrosResponseDTO> generarResumenes(List<Integer> deviceIds, OffsetDateTime from, OffsetDateTime to) {
+        List<KilometrosResponseDTO> resumenes = new ArrayList<>(deviceIds.size());
+        for (Integer deviceId : deviceIds) {
+            Recorrido recorrido = recorridos.get(deviceId);
+            if (recorrido != null) {
+                resumenes.add(resumen(recorrido, from, to));
+            }
+        }
+        return resumenes;
+    }
+
+    long demoraMs() {
+        return latenciaVariacionMs > 0
+                ? latenciaMs + ThreadLocalRandom.current().nextLong(latenciaVariacionMs + 1)
+                : latenciaMs;
+    }
+
+    boolean debeFallar() {
+        return tasaError > 0 && ThreadLocalRandom.current().nextDouble() < tasaError;
+    }
+
+    private void simularRed() {
+        long demora = demoraMs();
+        if (demora > 0) {
+            try {
+                Thread.sleep(demora);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (debeFallar()) {
+            throw new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE, "Error simulado de Traccar");
+        }
+    }
+
+    private List<PosicionRequestDTO> posicionesActuales() {
+        long muestra = Math.floorDiv(Instant.now().getEpochSecond() - EPOCA, intervaloSegundos);
+        List<PosicionRequestDTO> posiciones = new ArrayList<>(recorridos.size());
+        for (Recorrido recorrido : recorridos.values()) {
+            posiciones.add(posicion(recorrido, muestra));
+        }
+        return posiciones;
+    }
+
+    private Integer agregar(String unicoId) {
+        return idsPorUnicoId.computeIfAbsent(unicoId, clave -> {
+            int id = siguienteId.incrementAndGet();
+            // La semilla por uniqueId hace que el mismo vehiculo repita siempre el mismo recorrido
+            SplittableRandom azar = new SplittableRandom(semilla ^ clave.hashCode());
+            int ciclo = 20 + azar.nextInt(100);
+            Recorrido recorrido = new Recorrido(
+                    id,
+                    clave,
+                    latitudCentro + (azar.nextDouble() - 0.5) * 0.3,
+                    longitudCentro + (azar.nextDouble() - 0.5) * 0.3,
+                    500 + azar.nextDouble() * 4500,
+                    (20 + azar.nextDouble() * 50) / 3.6,
+                    ciclo,
+                    (int) (ciclo * (0.4 + azar.nextDouble() * 0.4)),
+                    azar.nextInt(ciclo));
+            recorridos.put(id, recorrido);
+            return id;
+        });
+    }
+
+    private PosicionRequestDTO posicion(Recorrido recorrido, long muestra) {
+        double odometro = odometro(recorrido, muestra);
+        double angulo = odometro / recorrido.radioMetros;
+        double latitud = recorrido.latitudCentro + recorrido.radioMetros * Math.sin(angulo) / METROS_POR_GRADO;
+        double longitud = recorrido.longitudCentro + recorrido.radioMetros * Math.cos(angulo)
+                / (METROS_POR_GRADO * Math.cos(Math.toRadians(recorrido.latitudCentro)));
+        boolean enMovimiento = enMovimiento(recorrido, muestra);
+        // Se recorre en sentido antihorario: el rumbo es la tangente (-sen, cos) medida desde el norte
+        double rumbo = (Math.toDegrees(Math.atan2(-Math.sin(angulo), Math.cos(angulo))) + 360) % 360;
+        OffsetDateTime fecha = Instant.ofEpochSecond(EPOCA + muestra * intervaloSegundos).atOffset(ZoneOffset.UTC);
+
+        return PosicionRequestDTO.builder()
+                .id(idPosicion(recorrido, muestra))
+                .deviceId(recorrido.id)
+                .protocol("simulador")
+                .deviceTime(fecha)
+                .fixTime(fecha)
+                .serverTime(fecha)
+                .valid(true)
+                .latitude(latitud)
+                .longitude(longitud)
+                .speed(enMovimiento ? recorrido.velocidadMs * MS_A_NUDOS : 0)
+                .course(rumbo)
+                .attributes(Map.<String, Object>of("ignition", enMovimiento, "motion", enMovimiento, "odometer", odometro))
+                .build();
+    }
+
+    private KilometrosResponseDTO resumen(Recorrido recorrido, OffsetDateTime from, OffsetDateTime to) {
+        long desde = Math.max(0, Math.floorDiv(from.toEpochSecond() - EPOCA, intervaloSegundos));
+        long hasta = Math.max(0, Math.floorDiv(to.toEpochSecond() - EPOCA, intervaloSegundos));
+        long muestrasEnMovimiento = muestrasEnMovimiento(recorrido, hasta) - muestrasEnMovimiento(recorrido, desde);
+        double inicio = odometro(recorrido, desde);
+        double fin = odometro(recorrido, hasta);
+        long segundos = Math.max(1, (hasta - desde) * intervaloSegundos);
+        return KilometrosResponseDTO.builder()
+                .deviceId(recorrido.id)
+                .deviceName(recorrido.unicoId)
+                .distance((int) Math.round(fin - inicio))
+                .maxSpeed(muestrasEnMovimiento > 0 ? (int) Math.round(recorrido.velocidadMs * MS_A_NUDOS) : 0)
+                .averageSpeed((int) Math.round((fin - inicio) / segundos * MS_A_NUDOS))
+                .engineHours((int) (muestrasEnMovimiento * intervaloSegundos * 1000))
+                .startOdometer(inicio)
+                .endOdometer(fin)
+                .build();
+    }
+
+    private boolean enMovimiento(Recorrido recorrido, long muestra) {
+        return Math.floorMod(muestra + recorrido.fase, recorrido.ciclo) < recorrido.muestrasMovimiento;
+    }
+
+    // Muestras en movimiento en [0, muestra), en forma cerrada para no iterar meses de historial
+    private long muestrasEnMovimiento(Recorrido recorrido, long muestra) {
+        return acumuladas(recorrido, muestra + recorrido.fase) - acumuladas(recorrido, recorrido.fase);
+    }
+
+    private long acumuladas(Recorrido recorrido, long n) {
+        return (n / recorrido.ciclo) * recorrido.muestrasMovimiento + Math.min(n % recorrido.ciclo, recorrido.muestrasMovimiento);
+    }
+
+    private double odometro(Recorrido recorrido, long muestra) {
+        return muestrasEnMovimiento(recorrido, muestra) * recorrido.velocidadMs * intervaloSegundos;
+    }
+
+    // Traccar usa ids int: se intercalan los dispositivos en cada muestra contada desde el origen
+    private int idPosicion(Recorrido recorrido, long muestra) {
+        long relativa = muestra - muestraOrigenIds;
+        if (relativa > muestrasConIds) {
+            throw new IllegalStateException("El simulador agoto los ids de posicion, hay que reiniciarlo");
+        }
+        return (int) (relativa * capacidad + recorrido.id);
+    }
+
+    private DispositivoResponseDTO dispositivo(Recorrido recorrido) {
+        return DispositivoResponseDTO.builder()
+                .id(recorrido.id)
+                .name(recorrido.unicoId)
+                .uniqueId(recorrido.unicoId)
+                .status("online")
+                .build();
+    }
+
+    // Patentes con formato AA000AA, que son validas para registrar vehiculos contra estos dispositivos
+    static String patente(int indice) {
+        char[] letras = new char[4];
+        int resto = indice / 1000;
+        for (int i = 3; i >= 0; i--) {
+            letras[i] = (char) ('A' + resto % 26);
+            resto /= 26;
+        }
+        return "" + letras[0] + letras[1] + String.format("%03d", indice % 1000) + letras[2] + letras[3];
+    }
+
+    @RequiredArgsConstructor
+    private static final class Recorrido {
+        private final int id;
+        private final String unicoId;
+        private final double latitudCentro;
+        private final double longitudCentro;
+        private final double radioMetros;
+        private final double velocidadMs;
+        private final int ciclo;
+        private final int muestrasMovimiento;
+        private final int fase;
+    }
+}
@@ -0,0 +1,42 @@
+package com.gifa_api.client;
+
+import com.gifa_api.dto.traccar.PosicionRequestDTO;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+
+// Via reactiva del simulador: mismos datos que SimuladorTraccar, con la demora como timer en vez de sleep
+@Component
+@Profile("simulador")
+@RequiredArgsConstructor
+public class SimuladorTraccarReactivo implements ITraccarClienteReactivo {
+
+    private final SimuladorTraccar simulador;
+
+    @Override
+    public Flux<PosicionRequestDTO> getPosiciones(Integer deviceId, OffsetDateTime from, OffsetDateTime to) {
+        return simularRed().thenMany(Flux.create(sink -> {
+            simulador.generarPosiciones(deviceId, from, to, sink::next);
+            sink.complete();
+        }));
+    }
+
+    private Mono<Void> simularRed() {
+        return Mono.defer(() -> {
+            long demora = simulador.demoraMs();
+            Mono<Void> espera = demora > 0 ? Mono.delay(Duration.ofMillis(demora)).then() : Mono.empty();
+            if (simulador.debeFallar()) {
+                return espera.then(Mono.error(WebClientResponseException.create(HttpStatus.SERVICE_UNAVAILABLE.value(),
+                        "Error simulado de Traccar", null, null, null)));
+            }
+            return espera;
+        });
+    }
+}
@@ -0,0 +1,192 @@
+package com.gifa_api.client;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.gifa_api.dto.traccar.MensajeSocketTraccarDTO;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.WebSocket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Una sola suscripcion del backend a /api/socket de Traccar. Cada posicion recibida se publica
+// como PosicionesRecibidasEvent; si la conexion se cae se reintenta con espera creciente.
+@Slf4j
+@Component
+@Profile("!simulador")
+public class SocketPosicionesTraccar implements IFuentePosicionesEnVivo {
+
+    private static final long ESPERA_MAXIMA_SEGUNDOS = 60;
+
+    private final ApplicationEventPublisher publisher;
+    private final ObjectReader lectorMensajes;
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+    private final ScheduledExecutorService reconexion =
+            Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("traccar-socket-"));
+
+    private String username = System.getenv("TRACCAR_USERNAME");
+
+    private String password = System.getenv("TRACCAR_PASSWORD");
+
+    private String baseUrl = System.getenv("TRACCAR_BASE_URL");
+
+    private volatile WebSocket webSocket;
+    private volatile boolean conectado;
+    private volatile boolean cerrando;
+    private int intentos;
+
+    public SocketPosicionesTraccar(ApplicationEventPublisher publisher, ObjectMapper objectMapper) {
+        this.publisher = publisher;
+        this.lectorMensajes = objectMapper.readerFor(MensajeSocketTraccarDTO.class)
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void iniciar() {
+        if (baseUrl == null || username == null || password == null) {
+            log.info("Traccar no esta configurado, no se abre la suscripcion de posiciones en vivo");
+            return;
+        }
+        reconexion.execute(this::conectar);
+    }
+
+    @Override
+    public boolean estaConectado() {
+        return conectado;
+    }
+
+    private void conectar() {
+        if (cerrando) {
+            return;
+        }
+        try {
+            String cookie = abrirSesion();
+            httpClient.newWebSocketBuilder()
+                    .header("Cookie", cookie)
+                    .buildAsync(URI.create(baseUrl.replaceFirst("^http", "ws") + "/socket"), new Escucha())
+                    .whenComplete((socket, error) -> {
+                        if (error != null) {
+                            log.warn("No se pudo abrir el socket de Traccar: {}", error.getMessage());
+                            programarReconexion();
+                        } else {
+                            webSocket = socket;
+                        }
+                    });
+        } catch (IOException | RuntimeException e) {
+            log.warn("No se pudo iniciar sesion en Traccar para el socket: {}", e.getMessage());
+            programarReconexion();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // /api/socket solo acepta la cookie de sesion, no Basic auth
+    private String abrirSesion() throws IOException, InterruptedException {
+        String formulario = "email=" + URLEncoder.encode(username, StandardCharsets.UTF_8)
+                + "&password=" + URLEncoder.encode(password, StandardCharsets.UTF_8);
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/session"))
+                .timeout(Duration.ofSeconds(10))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(formulario))
+                .build();
+        HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Traccar respondio " + response.statusCode() + " al iniciar sesion");
+        }
+        return response.headers().firstValue("Set-Cookie")
+                .map(cookie -> cookie.split(";", 2)[0])
+                .orElseThrow(() -> new IllegalStateException("Traccar no devolvio la cookie de sesion"));
+    }
+
+    private synchronized void programarReconexion() {
+        conectado = false;
+        if (cerrando || reconexion.isShutdown()) {
+            return;
+        }
+        long espera = Math.min(ESPERA_MAXIMA_SEGUNDOS, 1L << Math.min(intentos, 6));
+        intentos++;
+        reconexion.schedule(this::conectar, espera, TimeUnit.SECONDS);
+    }
+
+    private void procesar(String texto) {
+        try {
+            MensajeSocketTraccarDTO mensaje = lectorMensajes.readValue(texto);
+            if (mensaje.getPositions() != null && !mensaje.getPositions().isEmpty()) {
+                publisher.publishEvent(new PosicionesRecibidasEvent(mensaje.getPositions()));
+            }
+        } catch (IOException e) {
+            log.warn("Mensaje de Traccar no reconocido: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        cerrando = true;
+        reconexion.shutdownNow();
+        WebSocket socket = webSocket;
+        if (socket != null) {
+            socket.abort();
+        }
+    }
+
+    private class Escucha implements WebSocket.Listener {
+
+        // Un mensaje grande puede llegar partido en varios frames
+        private final StringBuilder buffer = new StringBuilder();
+
+        @Override
+        public void onOpen(WebSocket socket) {
+            synchronized (SocketPosicionesTraccar.this) {
+                intentos = 0;
+            }
+            conectado = true;
+            log.info("Suscripcion a posiciones de Traccar abierta");
+            socket.request(1);
+        }
+
+        @Override
+        public CompletionStage<?> onText(WebSocket socket, CharSequence data, boolean last) {
+            buffer.append(data);
+            if (last) {
+                String texto = buffer.toString();
+                buffer.setLength(0);
+                procesar(texto);
+            }
+            socket.request(1);
+            return null;
+        }
+
+        @Override
+        public CompletionStage<?> onClose(WebSocket socket, int statusCode, String reason) {
+            log.warn("Traccar cerro el socket de posiciones ({} {})", statusCode, reason);
+            programarReconexion();
+            return null;
+        }
+
+        @Override
+        public void onError(WebSocket socket, Throwable error) {
+            log.warn("Error en el socket de posiciones de Traccar: {}", error.getMessage());
+            programarReconexion();
+        }
+    }
+}
@@ -1,31 +1,53 @@
 package com.gifa_api.client;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.gifa_api.dto.traccar.*;
 import com.gifa_api.model.Dispositivo;
+import io.github.resilience4j.bulkhead.annotation.Bulkhead;
+import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
+import io.github.resilience4j.retry.annotation.Retry;
 import lombok.RequiredArgsConstructor;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.time.OffsetDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Base64;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
 
 @Component
+@Profile("!simulador")
 @RequiredArgsConstructor
 public class TraccarClient implements ITraccarCliente {
 
+    // Instancia de resilience4j (retry, circuit breaker y bulkhead) configurada en application.yml
+    private static final String TRACCAR = "traccar";
+
+    // Atributos de Traccar que se conservan al leer posiciones
+    private static final Set<String> ATRIBUTOS_USADOS = Set.of("ignition", "motion");
+
     private final RestTemplate restTemplate;
+    private final ObjectMapper objectMapper;
 
     private String username = System.getenv("TRACCAR_USERNAME");
 
@@ -34,6 +56,8 @@ public class TraccarClient implements ITraccarCliente {
     private String baseUrl = System.getenv("TRACCAR_BASE_URL");
 
     @Override
+    @CircuitBreaker(name = TRACCAR)
+    @Bulkhead(name = TRACCAR)
     public CrearDispositivoResponseDTO postCrearDispositivoTraccar(Dispositivo dispositivo) {
         // Crear la entidad que encapsula los encabezados y el cuerpo
         CrearDispositivoRequestDTO request = CrearDispositivoRequestDTO.builder().name(dispositivo.getNombre()).uniqueId(dispositivo.getUnicoId()).build();
@@ -58,12 +82,21 @@ public class TraccarClient implements ITraccarCliente {
     }
 
     @Override
+    @Retry(name = TRACCAR)
+    @CircuitBreaker(name = TRACCAR)
+    @Bulkhead(name = TRACCAR)
     public List<PosicionRequestDTO> getPosicionesDispositivoTraccar(Integer deviceId, OffsetDateTime from, OffsetDateTime to) {
-        HttpHeaders headers = getHeaders();
-        HttpEntity<CrearDispositivoRequestDTO> entity = new HttpEntity<>(headers);
-
-        // Formatear los tiempos para que estén en ISO-8601, como "1963-11-22T18:30:00Z"
+        List<PosicionRequestDTO> posiciones = new ArrayList<>();
+        recorrerPosiciones(deviceId, from, to, posiciones::add);
+        return posiciones;
+    }
 
+    // Lee el arreglo de /positions de a una posicion, sin armar el arreglo completo en memoria.
+    // De cada posicion se descartan network, geofenceIds y los atributos que no se usan.
+    @Override
+    @CircuitBreaker(name = TRACCAR)
+    @Bulkhead(name = TRACCAR)
+    public void recorrerPosiciones(Integer deviceId, OffsetDateTime from, OffsetDateTime to, Consumer<PosicionRequestDTO> consumidor) {
         UriComponentsBuilder builder = UriComponentsBuilder.fromHttpUrl(baseUrl + "/positions");
         if (deviceId != null) {
             builder.queryParam("deviceId", deviceId);
@@ -71,24 +104,85 @@ public class TraccarClient implements ITraccarCliente {
             builder.queryParam("to", to);
         }
 
-        ResponseEntity<PosicionRequestDTO[]> response = restTemplate.exchange(
+        restTemplate.execute(
                 builder.toUriString(),
                 HttpMethod.GET,
-                entity,
-                PosicionRequestDTO[].class
+                request -> {
+                    request.getHeaders().putAll(getHeaders());
+                    request.getHeaders().setAccept(List.of(MediaType.APPLICATION_JSON));
+                },
+                response -> {
+                    if (response.getStatusCode() != HttpStatus.OK) {
+                        throw new RuntimeException("Error al obtener las posiciones: " + response.getStatusCode());
+                    }
+                    try (JsonParser parser = objectMapper.getFactory().createParser(response.getBody())) {
+                        if (parser.nextToken() != JsonToken.START_ARRAY) {
+                            throw new RuntimeException("Respuesta inesperada de Traccar al obtener las posiciones");
+                        }
+                        while (parser.nextToken() == JsonToken.START_OBJECT) {
+                            consumidor.accept(leerPosicion(parser));
+                        }
+                    }
+                    return null;
+                }
         );
+    }
 
-        if (response.getStatusCode() == HttpStatus.OK) {
-            return Arrays.asList(response.getBody());
-        } else {
-            // Manejar el caso de error si es necesario
-            throw new RuntimeException("Error al obtener las posiciones: " + response.getStatusCode());
+    private PosicionRequestDTO leerPosicion(JsonParser parser) throws IOException {
+        PosicionRequestDTO.PosicionRequestDTOBuilder posicion = PosicionRequestDTO.builder();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String campo = parser.getCurrentName();
+            if (parser.nextToken() == JsonToken.VALUE_NULL) {
+                continue;
+            }
+            switch (campo) {
+                case "id" -> posicion.id(parser.getIntValue());
+                case "deviceId" -> posicion.deviceId(parser.getIntValue());
+                case "protocol" -> posicion.protocol(parser.getText());
+                case "deviceTime" -> posicion.deviceTime(OffsetDateTime.parse(parser.getText()));
+                case "fixTime" -> posicion.fixTime(OffsetDateTime.parse(parser.getText()));
+                case "serverTime" -> posicion.serverTime(OffsetDateTime.parse(parser.getText()));
+                case "outdated" -> posicion.outdated(parser.getBooleanValue());
+                case "valid" -> posicion.valid(parser.getBooleanValue());
+                case "latitude" -> posicion.latitude(parser.getDoubleValue());
+                case "longitude" -> posicion.longitude(parser.getDoubleValue());
+                case "altitude" -> posicion.altitude(parser.getDoubleValue());
+                case "speed" -> posicion.speed(parser.getDoubleValue());
+                case "course" -> posicion.course(parser.getDoubleValue());
+                case "accuracy" -> posicion.accuracy(parser.getDoubleValue());
+                case "attributes" -> posicion.attributes(leerAtributos(parser));
+                default -> parser.skipChildren();
+            }
         }
+        return posicion.build();
     }
 
+    private Map<String, Object> leerAtributos(JsonParser parser) throws IOException {
+        Map<String, Object> atributos = new HashMap<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String nombre = parser.getCurrentName();
+            JsonToken valor = parser.nextToken();
+            if (ATRIBUTOS_USADOS.contains(nombre) && valor.isScalarValue()) {
+                atributos.put(nombre, valor.isBoolean() ? parser.getBooleanValue() : parser.getText());
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return atributos;
+    }
 
+    @Override
+    @Retry(name = TRACCAR)
+    @CircuitBreaker(name = TRACCAR)
+    @Bulkhead(name = TRACCAR)
+    public List<PosicionRequestDTO> getUltimasPosiciones() {
+        return getPosicionesDispositivoTraccar(null, null, null);
+    }
 
     @Override
+    @Retry(name = TRACCAR)
+    @CircuitBreaker(name = TRACCAR)
+    @Bulkhead(name = TRACCAR)
     public List<DispositivoResponseDTO> getDispositivos() {
         HttpHeaders headers = getHeaders();
         HttpEntity<Void> entity = new HttpEntity<>(headers);
@@ -111,6 +205,9 @@ public class TraccarClient implements ITraccarCliente {
     }
 
     @Override
+    @Retry(name = TRACCAR)
+    @CircuitBreaker(name = TRACCAR)
+    @Bulkhead(name = TRACCAR)
     public DispositivoResponseDTO obtenerDispositivoByUniqueId(String uniqueId) {
         HttpHeaders headers = getHeaders();
         HttpEntity<Void> entity = new HttpEntity<>(headers);
@@ -126,11 +223,8 @@ public class TraccarClient implements ITraccarCliente {
 
         if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
             DispositivoResponseDTO[] dispositivos = response.getBody();
-            if (dispositivos.length > 0) {
-                return dispositivos[0];  // Retornar el primer dispositivo encontrado con el uniqueId
-            } else {
-                throw new RuntimeException("No se encontró el dispositivo con uniqueId: " + uniqueId);
-            }
+            // Sin dispositivo con ese uniqueId se devuelve null; los errores de Traccar siguen siendo excepciones
+            return dispositivos.length > 0 ? dispositivos[0] : null;
         } else {
             throw new RuntimeException("Error al obtener los dispositivos: " + response.getStatusCode());
         }
@@ -138,6 +232,9 @@ public class TraccarClient implements ITraccarCliente {
 
 
     @Override
+    @Retry(name = TRACCAR)
+    @CircuitBreaker(name = TRACCAR)
+    @Bulkhead(name = TRACCAR)
     public KilometrosResponseDTO getKilometros(Integer deviceId, OffsetDateTime from, OffsetDateTime to) {
         // Crear encabezados HTTP necesarios para la solicitud
         HttpHeaders headers = getHeaders();
@@ -178,6 +275,45 @@ public class TraccarClient implements ITraccarCliente {
     }
 
 
+    @Override
+    @Retry(name = TRACCAR)
+    @CircuitBreaker(name = TRACCAR)
+    @Bulkhead(name = TRACCAR)
+    public List<KilometrosResponseDTO> getKilometrosDeDispositivos(List<Integer> deviceIds, OffsetDateTime from, OffsetDateTime to) {
+        List<KilometrosResponseDTO> resumenes = new ArrayList<>();
+        // Se parte en lotes para no superar el largo maximo de URL con los deviceId repetidos
+        for (int inicio = 0; inicio < deviceIds.size(); inicio += MAX_DISPOSITIVOS_POR_CONSULTA) {
+            List<Integer> lote = deviceIds.subList(inicio, Math.min(inicio + MAX_DISPOSITIVOS_POR_CONSULTA, deviceIds.size()));
+            resumenes.addAll(getKilometrosDeLote(lote, from, to));
+        }
+        return resumenes;
+    }
+
+    private List<KilometrosResponseDTO> getKilometrosDeLote(List<Integer> deviceIds, OffsetDateTime from, OffsetDateTime to) {
+        HttpHeaders headers = getHeaders();
+        HttpEntity<Void> entity = new HttpEntity<>(headers);
+
+        UriComponentsBuilder builder = UriComponentsBuilder.fromHttpUrl(baseUrl + "/reports/summary")
+                .queryParam("from", from)
+                .queryParam("to", to)
+                .queryParam("deviceId", deviceIds.toArray());
+
+        ResponseEntity<List<KilometrosResponseDTO>> response = restTemplate.exchange(
+                builder.toUriString(),
+                HttpMethod.GET,
+                entity,
+                new ParameterizedTypeReference<List<KilometrosResponseDTO>>() {
+                }
+        );
+
+        if (response.getStatusCode() == HttpStatus.OK) {
+            return response.getBody() != null ? response.getBody() : List.of();
+        } else {
+            throw new RuntimeException("Error al obtener los kilómetros de los dispositivos: " + deviceIds + ". Código de respuesta: " + response.getStatusCode());
+        }
+    }
+
+
     private String getBasicAuthHeader() {
         String auth = this.username + ":" + this.password;
         byte[] encodedAuth = Base64.getEncoder().encode(auth.getBytes(StandardCharsets.US_ASCII));
@@ -0,0 +1,94 @@
+package com.gifa_api.client;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gifa_api.dto.traccar.PosicionRequestDTO;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.List;
+
+// Cliente de Traccar sobre WebClient. Comparte con TraccarClient el circuit breaker, el bulkhead
+// y la configuracion de reintentos "traccar", asi las dos vias cuentan contra el mismo limite.
+@Component
+@Profile("!simulador")
+public class TraccarClienteReactivo implements ITraccarClienteReactivo {
+
+    private static final String TRACCAR = "traccar";
+
+    private final WebClient webClient;
+    private final CircuitBreakerRegistry circuitBreakerRegistry;
+    private final BulkheadRegistry bulkheadRegistry;
+
+    private String username = System.getenv("TRACCAR_USERNAME");
+
+    private String password = System.getenv("TRACCAR_PASSWORD");
+
+    private String baseUrl = System.getenv("TRACCAR_BASE_URL");
+
+    public TraccarClienteReactivo(WebClient.Builder builder,
+                                  ObjectMapper objectMapper,
+                                  CircuitBreakerRegistry circuitBreakerRegistry,
+                                  BulkheadRegistry bulkheadRegistry,
+                                  @Value("${traccar.http.conexiones-maximas:50}") int conexionesMaximas,
+                                  @Value("${traccar.http.timeout-conexion-ms:2000}") int timeoutConexionMs,
+                                  @Value("${traccar.http.timeout-lectura-ms:15000}") long timeoutLecturaMs) {
+        this.circuitBreakerRegistry = circuitBreakerRegistry;
+        this.bulkheadRegistry = bulkheadRegistry;
+
+        HttpClient httpClient = HttpClient.create(ConnectionProvider.builder("traccar")
+                        .maxConnections(conexionesMaximas)
+                        .pendingAcquireTimeout(Duration.ofSeconds(5))
+                        .maxIdleTime(Duration.ofSeconds(30))
+                        .build())
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, timeoutConexionMs)
+                .responseTimeout(Duration.ofMillis(timeoutLecturaMs));
+
+        // Traccar agrega campos segun la version; no se corta la lectura por uno desconocido
+        ObjectMapper lector = objectMapper.copy().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+        WebClient.Builder configurado = builder.clone()
+                .baseUrl(baseUrl != null ? baseUrl : "")
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .codecs(codecs -> {
+                    codecs.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(lector));
+                    codecs.defaultCodecs().maxInMemorySize(4 * 1024 * 1024);
+                })
+                .defaultHeaders(headers -> headers.setAccept(List.of(MediaType.APPLICATION_JSON)));
+        if (username != null && password != null) {
+            configurado.defaultHeaders(headers -> headers.setBasicAuth(username, password));
+        }
+        this.webClient = configurado.build();
+    }
+
+    // Las posiciones se emiten a medida que se decodifican, por eso no se reintenta:
+    // un reintento repetiria las ya entregadas
+    @Override
+    public Flux<PosicionRequestDTO> getPosiciones(Integer deviceId, OffsetDateTime from, OffsetDateTime to) {
+        return webClient.get()
+                .uri(uri -> uri.path("/positions")
+                        .queryParam("deviceId", deviceId)
+                        .queryParam("from", "{from}")
+                        .queryParam("to", "{to}")
+                        .build(from.toString(), to.toString()))
+                .retrieve()
+                .bodyToFlux(PosicionRequestDTO.class)
+                .transformDeferred(BulkheadOperator.of(bulkheadRegistry.bulkhead(TRACCAR)))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreakerRegistry.circuitBreaker(TRACCAR)));
+    }
+}
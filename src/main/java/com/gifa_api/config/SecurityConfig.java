@@ -72,7 +72,8 @@ public class SecurityConfig {
         configuration.setAllowedMethods(List.of("GET", "POST", "PUT", "DELETE", "OPTIONS", "PATCH"));
         configuration.setAllowedHeaders(List.of("Authorization", "Content-Type"));
         configuration.setAllowCredentials(true);
-        configuration.setExposedHeaders(List.of("Authorization", "Access-Control-Allow-Origin"));
+        configuration.setExposedHeaders(List.of("Authorization", "Access-Control-Allow-Origin", "X-Puntos-Originales", "X-Puntos-Conservados",
+                "X-Reporte-Parcial", "X-Cantidad-Patentes-Sin-Datos", "X-Patentes-Sin-Datos"));
 
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
         source.registerCorsConfiguration("/**", configuration);
@@ -84,7 +85,11 @@ public class SecurityConfig {
                 .requestMatchers(HttpMethod.POST, "/auth/login").permitAll()
                 .requestMatchers("/h2-console/**").permitAll()
                 .requestMatchers("/ping").permitAll()
+                // Lo llama Traccar, que se autentica con el secreto compartido y no con JWT
+                .requestMatchers(HttpMethod.POST, "/traccar/ingest").permitAll()
                 .requestMatchers("/v3/api-docs/**", "/swagger-ui/**", "/swagger-ui.html").permitAll()
+                .requestMatchers(HttpMethod.GET, "/actuator/health").permitAll()
+                .requestMatchers(HttpMethod.GET, "/actuator/**").hasRole(ADMINISTRADOR)
                 .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll();
     }
 
@@ -94,7 +99,8 @@ public class SecurityConfig {
                 .requestMatchers(HttpMethod.GET, "/vehiculo/verAll").hasAnyRole(ADMINISTRADOR, SUPERVISOR)
                 .requestMatchers(HttpMethod.PATCH, "/vehiculo/habilitar/{id}").hasRole(ADMINISTRADOR)
                 .requestMatchers(HttpMethod.PATCH, "/vehiculo/inhabilitar/{id}").hasRole(ADMINISTRADOR)
-                .requestMatchers(HttpMethod.GET, "/vehiculo/historialVehiculo/{patente}").hasRole(OPERADOR);
+                .requestMatchers(HttpMethod.GET, "/vehiculo/historialVehiculo/{patente}").hasRole(OPERADOR)
+                .requestMatchers(HttpMethod.GET, "/vehiculo/viajes/{patente}").hasAnyRole(ADMINISTRADOR, SUPERVISOR);
     }
 
     private void configureChoferEndpoints(AuthorizeHttpRequestsConfigurer<HttpSecurity>.AuthorizationManagerRequestMatcherRegistry authRequest) {
@@ -162,7 +168,24 @@ public class SecurityConfig {
                 .requestMatchers(HttpMethod.GET, "/traccar/getDispositivos").hasRole(ADMINISTRADOR)
                 .requestMatchers(HttpMethod.GET, "/traccar/verInconsistenciasDeCombustible").hasRole(ADMINISTRADOR)
                 .requestMatchers(HttpMethod.GET, "/traccar/getPosicionesEnVivo/{unicoId}").hasRole(ADMINISTRADOR)
-                .requestMatchers(HttpMethod.GET, "/traccar/getPosicionesEnRangoDeFechas/{unicoId}").hasRole(ADMINISTRADOR);
+                .requestMatchers(HttpMethod.GET, "/traccar/posicionesEnVivo/stream").hasRole(ADMINISTRADOR)
+                .requestMatchers(HttpMethod.GET, "/traccar/posicionesEnVivo/recientes/{unicoId}").hasRole(ADMINISTRADOR)
+                .requestMatchers(HttpMethod.GET, "/traccar/flota/posiciones").hasRole(ADMINISTRADOR)
+                .requestMatchers(HttpMethod.GET, "/traccar/flota/cercanos").hasRole(ADMINISTRADOR)
+                .requestMatchers(HttpMethod.GET, "/traccar/flota/enRectangulo").hasRole(ADMINISTRADOR)
+                .requestMatchers(HttpMethod.GET, "/traccar/flota/mapaCalor").hasRole(ADMINISTRADOR)
+                .requestMatchers(HttpMethod.GET, "/traccar/getPosicionesEnRangoDeFechas/{unicoId}").hasRole(ADMINISTRADOR)
+                .requestMatchers(HttpMethod.GET, "/traccar/getKilometrosEnRangoDeFechas/{unicoId}").hasRole(ADMINISTRADOR)
+                .requestMatchers(HttpMethod.GET, "/traccar/sincronizacion/estadisticas").hasRole(ADMINISTRADOR)
+                .requestMatchers(HttpMethod.GET, "/traccar/getPosicionesPaginadas/{unicoId}").hasRole(ADMINISTRADOR)
+                .requestMatchers(HttpMethod.GET, "/traccar/streamPosicionesEnRangoDeFechas/{unicoId}").hasRole(ADMINISTRADOR)
+                .requestMatchers(HttpMethod.GET, "/traccar/reactivo/verInconsistenciasDeCombustible").hasRole(ADMINISTRADOR)
+                .requestMatchers(HttpMethod.GET, "/traccar/reactivo/getPosicionesEnRangoDeFechas/{unicoId}").hasRole(ADMINISTRADOR)
+                .requestMatchers(HttpMethod.POST, "/geocerca/registrar").hasRole(ADMINISTRADOR)
+                .requestMatchers(HttpMethod.GET, "/geocerca/verAll").hasRole(ADMINISTRADOR)
+                .requestMatchers(HttpMethod.DELETE, "/geocerca/eliminar/{id}").hasRole(ADMINISTRADOR)
+                .requestMatchers(HttpMethod.GET, "/geocerca/eventos/stream").hasRole(ADMINISTRADOR)
+                .requestMatchers(HttpMethod.GET, "/geocerca/eventos/{id}").hasRole(ADMINISTRADOR);
 
 
     }
@@ -0,0 +1,42 @@
+package com.gifa_api.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class TraccarExecutorConfig {
+
+    // Limita cuantas llamadas a Traccar se hacen en paralelo desde los reportes
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService traccarExecutor(@Value("${traccar.reportes.paralelismo:8}") int paralelismo) {
+        return Executors.newFixedThreadPool(paralelismo, new CustomizableThreadFactory("traccar-"));
+    }
+
+    // Workers de la sincronizacion de kilometraje: cada uno procesa un shard de dispositivos
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService sincronizacionExecutor(@Value("${traccar.sincronizacion.paralelismo:4}") int paralelismo) {
+        return Executors.newFixedThreadPool(paralelismo, new CustomizableThreadFactory("sincronizacion-km-"));
+    }
+
+    // Lectores de tramos del historial de posiciones. Se bloquean hasta que el cliente lee la respuesta,
+    // por eso tienen su propio pool sin cola: lleno, el historial sigue con menos tramos en paralelo
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService tramosExecutor(@Value("${traccar.posiciones.hilos-tramos:8}") int hilos) {
+        return new ThreadPoolExecutor(hilos, hilos, 60, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                new CustomizableThreadFactory("tramos-posiciones-"));
+    }
+
+    // Un solo hilo: los dias que un pedido no alcanza a calcular se completan de a uno
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService mapaCalorExecutor() {
+        return Executors.newSingleThreadExecutor(new CustomizableThreadFactory("mapa-calor-"));
+    }
+}
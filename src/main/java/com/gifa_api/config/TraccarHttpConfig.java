@@ -0,0 +1,69 @@
+package com.gifa_api.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+// Transporte HTTP hacia Traccar: conexiones reutilizadas y todos los tiempos de espera acotados,
+// para que una demora de Traccar no deje hilos de Tomcat bloqueados sin limite.
+@Configuration
+public class TraccarHttpConfig {
+
+    @Bean(destroyMethod = "close")
+    public PoolingHttpClientConnectionManager traccarConexiones(
+            @Value("${traccar.http.conexiones-maximas:50}") int conexionesMaximas,
+            @Value("${traccar.http.timeout-conexion-ms:2000}") long timeoutConexionMs,
+            @Value("${traccar.http.timeout-lectura-ms:15000}") long timeoutLecturaMs,
+            MeterRegistry meterRegistry) {
+        PoolingHttpClientConnectionManager conexiones = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(conexionesMaximas)
+                // Todas las llamadas van al mismo host
+                .setMaxConnPerRoute(conexionesMaximas)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(timeoutConexionMs))
+                        .setSocketTimeout(Timeout.ofMilliseconds(timeoutLecturaMs))
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(10))
+                        .setTimeToLive(TimeValue.ofMinutes(5))
+                        .build())
+                .build();
+        new PoolingHttpClientConnectionManagerMetricsBinder(conexiones, "traccar").bindTo(meterRegistry);
+        return conexiones;
+    }
+
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient traccarHttpClient(
+            PoolingHttpClientConnectionManager traccarConexiones,
+            @Value("${traccar.http.espera-conexion-libre-ms:1000}") long esperaConexionLibreMs,
+            @Value("${traccar.http.timeout-lectura-ms:15000}") long timeoutLecturaMs) {
+        return HttpClients.custom()
+                .setConnectionManager(traccarConexiones)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.ofMilliseconds(esperaConexionLibreMs))
+                        .setResponseTimeout(Timeout.ofMilliseconds(timeoutLecturaMs))
+                        .build())
+                .evictIdleConnections(TimeValue.ofSeconds(30))
+                // Los reintentos los maneja resilience4j, solo sobre los GET
+                .disableAutomaticRetries()
+                .build();
+    }
+
+    @Bean
+    public RestTemplate restTemplate(RestTemplateBuilder builder, CloseableHttpClient traccarHttpClient) {
+        return builder
+                .requestFactory(() -> new HttpComponentsClientHttpRequestFactory(traccarHttpClient))
+                .build();
+    }
+}
@@ -21,6 +21,8 @@ import java.io.IOException;
 @RequiredArgsConstructor
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
+    private static final String PARAMETRO_TOKEN = "access_token";
+
     private final JwtService jwtService;
     private final UserDetailsService userDetailsService;
 
@@ -64,8 +66,15 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         if (StringUtils.hasText(authHeader) && authHeader.startsWith("Bearer ")) {
             return authHeader.substring(7);
-        } else {
-            return null;
         }
+        // EventSource del navegador no puede mandar headers: los streams SSE aceptan el token como parametro
+        if (esStreamSse(request) && StringUtils.hasText(request.getParameter(PARAMETRO_TOKEN))) {
+            return request.getParameter(PARAMETRO_TOKEN);
+        }
+        return null;
+    }
+
+    private boolean esStreamSse(HttpServletRequest request) {
+        return "GET".equals(request.getMethod()) && request.getRequestURI().endsWith("/stream");
     }
 }
\ No newline at end of file
@@ -0,0 +1,45 @@
+package com.gifa_api.controller;
+
+import com.gifa_api.dto.geocerca.RegistrarGeocercaDTO;
+import com.gifa_api.service.IGeocercaService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.OffsetDateTime;
+
+@RestController
+@RequestMapping("/geocerca")
+@RequiredArgsConstructor
+public class GeocercaController {
+    private final IGeocercaService geocercaService;
+
+    @PostMapping("/registrar")
+    public ResponseEntity<?> registrar(@RequestBody RegistrarGeocercaDTO registrarGeocercaDTO) {
+        return new ResponseEntity<>(geocercaService.registrar(registrarGeocercaDTO), HttpStatus.CREATED);
+    }
+
+    @GetMapping("/verAll")
+    public ResponseEntity<?> verGeocercas() {
+        return new ResponseEntity<>(geocercaService.obtenerGeocercas(), HttpStatus.OK);
+    }
+
+    @DeleteMapping("/eliminar/{id}")
+    public ResponseEntity<?> eliminar(@PathVariable Integer id) {
+        geocercaService.eliminar(id);
+        return new ResponseEntity<>(HttpStatus.OK);
+    }
+
+    @GetMapping("/eventos/{id}")
+    public ResponseEntity<?> verEventos(@PathVariable Integer id, @RequestParam OffsetDateTime from, @RequestParam OffsetDateTime to) {
+        return new ResponseEntity<>(geocercaService.obtenerEventos(id, from, to), HttpStatus.OK);
+    }
+
+    @GetMapping(value = "/eventos/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamEventos() {
+        return geocercaService.suscribirEventos();
+    }
+}
@@ -1,31 +1,74 @@
 package com.gifa_api.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.gifa_api.dto.traccar.PosicionResponseDTO;
+import com.gifa_api.dto.traccar.RecorridoResponseDTO;
+import com.gifa_api.dto.traccar.ReporteInconsistenciasResponseDTO;
 import com.gifa_api.service.IDispositivoService;
+import com.gifa_api.service.IFlotaPosicionesService;
+import com.gifa_api.service.IIngestaTraccarService;
+import com.gifa_api.service.IMapaCalorService;
+import com.gifa_api.service.IProximidadVehiculosService;
+import com.gifa_api.service.ISincronizacionKilometrajeService;
 import com.gifa_api.service.ITraccarService;
+import com.gifa_api.utils.enums.FormatoRecorrido;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import reactor.core.publisher.Flux;
 
 import java.time.LocalDate;
 import java.time.OffsetDateTime;
+import java.util.List;
 
 @RestController
 @RequiredArgsConstructor
 @RequestMapping("/traccar")
 public class TraccarController {
+    private static final int MAXIMO_PATENTES_EN_HEADER = 100;
+
     private final ITraccarService traccarService;
     private  final IDispositivoService dispositivoService;
+    private final IFlotaPosicionesService flotaPosicionesService;
+    private final IIngestaTraccarService ingestaTraccarService;
+    private final ISincronizacionKilometrajeService sincronizacionKilometrajeService;
+    private final IProximidadVehiculosService proximidadVehiculosService;
+    private final IMapaCalorService mapaCalorService;
+
 
+    // Destino de forward.url / event.forward.url de Traccar, autenticado con el header configurado en forward.header
+    @PostMapping("/ingest")
+    public ResponseEntity<?> ingerir(@RequestHeader(value = "X-Traccar-Secreto", required = false) String secreto, @RequestBody JsonNode cuerpo){
+        if (!ingestaTraccarService.secretoValido(secreto)) {
+            return new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
+        }
+        if (!ingestaTraccarService.encolar(cuerpo)) {
+            return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        return new ResponseEntity<>(HttpStatus.ACCEPTED);
+    }
 
     @GetMapping("/getDispositivos")
     public ResponseEntity<?> getDispositivos(){
         return new ResponseEntity<>(traccarService.obtenerDispositivos(),HttpStatus.OK);
     }
 
+    // El cuerpo sigue siendo el arreglo de inconsistencias; si algun vehiculo quedo sin datos se avisa por headers
     @GetMapping("/verInconsistenciasDeCombustible")
     public ResponseEntity<?> verInconsistenciasDeCombustible(@RequestParam OffsetDateTime from,  @RequestParam OffsetDateTime to) {
-        return new ResponseEntity<>(traccarService.getInconsistencias(from, to), HttpStatus.OK);
+        ReporteInconsistenciasResponseDTO reporte = traccarService.getInconsistencias(from, to);
+        return conHeadersDeReporte(ResponseEntity.ok(), reporte).body(reporte.getInconsistencias());
+    }
+
+    @GetMapping("/reactivo/getPosicionesEnRangoDeFechas/{unicoId}")
+    public Flux<PosicionResponseDTO> obtenerPosicionesEnRangoDeFechasReactivo(@PathVariable String unicoId, @RequestParam OffsetDateTime from, @RequestParam OffsetDateTime to){
+        return traccarService.obtenerPosicionesReactivo(unicoId, from, to);
     }
 
     @GetMapping("/getPosicionesEnVivo/{unicoId}")
@@ -33,9 +76,95 @@ public class TraccarController {
         return new ResponseEntity<>(traccarService.obtenerPosicionesEnVivo(unicoId),HttpStatus.OK);
     }
 
+    @GetMapping("/flota/posiciones")
+    public ResponseEntity<?> obtenerPosicionesDeFlota(){
+        return new ResponseEntity<>(flotaPosicionesService.obtenerPosicionesDeFlota(),HttpStatus.OK);
+    }
+
+    @GetMapping("/flota/cercanos")
+    public ResponseEntity<?> obtenerVehiculosCercanos(@RequestParam double latitud, @RequestParam double longitud,
+                                                      @RequestParam double radioMetros, @RequestParam(required = false) Integer limite){
+        return new ResponseEntity<>(proximidadVehiculosService.buscarEnRadio(latitud,longitud,radioMetros,limite),HttpStatus.OK);
+    }
+
+    @GetMapping("/flota/enRectangulo")
+    public ResponseEntity<?> obtenerVehiculosEnRectangulo(@RequestParam double latitudMinima, @RequestParam double longitudMinima,
+                                                          @RequestParam double latitudMaxima, @RequestParam double longitudMaxima){
+        return new ResponseEntity<>(proximidadVehiculosService.buscarEnRectangulo(latitudMinima,longitudMinima,latitudMaxima,longitudMaxima),HttpStatus.OK);
+    }
+
+    // Sin patentes se arma el mapa de toda la flota
+    @GetMapping("/flota/mapaCalor")
+    public ResponseEntity<?> obtenerMapaCalor(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+                                              @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+                                              @RequestParam(required = false) List<String> patentes){
+        return new ResponseEntity<>(mapaCalorService.obtenerMapaCalor(desde,hasta,patentes),HttpStatus.OK);
+    }
+
+    @GetMapping(value = "/posicionesEnVivo/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamPosicionesEnVivo(@RequestParam(required = false) String unicoId){
+        return traccarService.suscribirPosicionesEnVivo(unicoId);
+    }
+
+    @GetMapping(value = "/posicionesEnVivo/recientes/{unicoId}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> posicionesRecientes(@PathVariable String unicoId, @RequestParam(required = false) Integer cantidad){
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(traccarService.streamPosicionesRecientes(unicoId,cantidad));
+    }
+
+    // Con Accept application/vnd.gifa.polilinea+json o application/vnd.gifa.recorrido se responde en formato compacto
     @GetMapping("/getPosicionesEnRangoDeFechas/{unicoId}")
-    public ResponseEntity<?> obtenerPosicionesEnRangoDeFechas(@PathVariable String unicoId, @RequestParam OffsetDateTime from, @RequestParam OffsetDateTime to){
-        return new ResponseEntity<>(traccarService.obtenerPosicionesEnRangoDeFechas(unicoId,from,to),HttpStatus.OK);
+    public ResponseEntity<?> obtenerPosicionesEnRangoDeFechas(@PathVariable String unicoId, @RequestParam OffsetDateTime from, @RequestParam OffsetDateTime to,
+                                                              @RequestParam(required = false) Double tolerancia, @RequestParam(required = false) Integer zoom,
+                                                              @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept){
+        FormatoRecorrido formato = FormatoRecorrido.desdeAccept(accept);
+        RecorridoResponseDTO recorrido = traccarService.obtenerRecorrido(unicoId,from,to,tolerancia,zoom,formato);
+        ResponseEntity.BodyBuilder respuesta = ResponseEntity.ok()
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+                .header("X-Puntos-Originales", String.valueOf(recorrido.getPuntosOriginales()))
+                .header("X-Puntos-Conservados", String.valueOf(recorrido.getPuntosConservados()));
+        return switch (formato) {
+            case POLILINEA -> respuesta.contentType(formato.getMediaType()).body(recorrido.getCodificado());
+            case BINARIO -> respuesta.contentType(formato.getMediaType()).body(recorrido.getBinario());
+            default -> respuesta.body(recorrido.getPosiciones());
+        };
+    }
+
+    @GetMapping(value = "/streamPosicionesEnRangoDeFechas/{unicoId}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamPosicionesEnRangoDeFechas(@PathVariable String unicoId, @RequestParam OffsetDateTime from, @RequestParam OffsetDateTime to){
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(traccarService.streamPosicionesEnRangoDeFechas(unicoId,from,to));
+    }
+
+    @GetMapping("/getPosicionesPaginadas/{unicoId}")
+    public ResponseEntity<?> obtenerPosicionesPaginadas(@PathVariable String unicoId, @RequestParam OffsetDateTime from, @RequestParam OffsetDateTime to,
+                                                        @RequestParam(required = false) String cursor, @RequestParam(defaultValue = "1000") int limite){
+        return new ResponseEntity<>(traccarService.obtenerPaginaDePosiciones(unicoId,from,to,cursor,limite),HttpStatus.OK);
+    }
+
+    @GetMapping("/sincronizacion/estadisticas")
+    public ResponseEntity<?> obtenerEstadisticasDeSincronizacion(){
+        return sincronizacionKilometrajeService.obtenerUltimaEjecucion()
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> new ResponseEntity<>(HttpStatus.NO_CONTENT));
+    }
+
+    @GetMapping("/getKilometrosEnRangoDeFechas/{unicoId}")
+    public ResponseEntity<?> obtenerKilometrosEnRangoDeFechas(@PathVariable String unicoId, @RequestParam OffsetDateTime from, @RequestParam OffsetDateTime to){
+        return new ResponseEntity<>(traccarService.obtenerKilometrosEnRangoDeFechas(unicoId,from,to),HttpStatus.OK);
+    }
+
+    private ResponseEntity.BodyBuilder conHeadersDeReporte(ResponseEntity.BodyBuilder respuesta, ReporteInconsistenciasResponseDTO reporte) {
+        List<String> patentes = reporte.getPatentesSinDatos() != null ? reporte.getPatentesSinDatos() : List.of();
+        respuesta.header("X-Reporte-Parcial", String.valueOf(reporte.isParcial()))
+                .header("X-Cantidad-Patentes-Sin-Datos", String.valueOf(patentes.size()));
+        if (!patentes.isEmpty()) {
+            // Acotado para no pasar el limite de tamanio de headers con una flota grande
+            respuesta.header("X-Patentes-Sin-Datos", String.join(",", patentes.subList(0, Math.min(patentes.size(), MAXIMO_PATENTES_EN_HEADER))));
+        }
+        return respuesta;
     }
 
 }
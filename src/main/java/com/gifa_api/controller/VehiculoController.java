@@ -3,6 +3,7 @@ package com.gifa_api.controller;
 import com.gifa_api.dto.vehiculo.ListaVehiculosResponseDTO;
 import com.gifa_api.dto.vehiculo.RegistarVehiculoDTO;
 import com.gifa_api.exception.BadRequestException;
+import com.gifa_api.service.ISegmentacionRecorridosService;
 import com.gifa_api.service.IVehiculoService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
@@ -10,12 +11,14 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDate;
+import java.time.OffsetDateTime;
 
 @RestController
 @RequestMapping("/vehiculo")
 @RequiredArgsConstructor
 public class VehiculoController {
     private final IVehiculoService vehiculoService;
+    private final ISegmentacionRecorridosService segmentacionRecorridosService;
 
     @GetMapping("/verAll")
     public ResponseEntity<ListaVehiculosResponseDTO> verVehiculos() {
@@ -44,5 +47,11 @@ public class VehiculoController {
         return new ResponseEntity<>(vehiculoService.obtenerHistorialDeVehiculo(patente), HttpStatus.OK);
     }
 
+    @GetMapping("/viajes/{patente}")
+    public ResponseEntity<?> viajes(@PathVariable String patente, @RequestParam OffsetDateTime from, @RequestParam OffsetDateTime to,
+                                    @RequestParam(defaultValue = "false") boolean incluirParadas) {
+        return new ResponseEntity<>(segmentacionRecorridosService.obtenerViajes(patente, from, to, incluirParadas), HttpStatus.OK);
+    }
+
 
     }
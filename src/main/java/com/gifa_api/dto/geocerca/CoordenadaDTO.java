@@ -0,0 +1,15 @@
+package com.gifa_api.dto.geocerca;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class CoordenadaDTO {
+    private Double latitud;
+    private Double longitud;
+}
@@ -0,0 +1,29 @@
+package com.gifa_api.dto.geocerca;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.gifa_api.utils.enums.TipoEventoGeocerca;
+import com.gifa_api.utils.enums.TipoGeocerca;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.OffsetDateTime;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class EventoGeocercaResponseDTO {
+    private Long id;
+    private Integer geocercaId;
+    private String geocerca;
+    private TipoGeocerca tipoGeocerca;
+    private Integer deviceId;
+    private TipoEventoGeocerca tipo;
+    private double latitud;
+    private double longitud;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
+    private OffsetDateTime fechaHora;
+}
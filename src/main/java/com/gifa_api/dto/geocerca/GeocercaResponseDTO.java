@@ -0,0 +1,21 @@
+package com.gifa_api.dto.geocerca;
+
+import com.gifa_api.utils.enums.TipoGeocerca;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class GeocercaResponseDTO {
+    private Integer id;
+    private String nombre;
+    private TipoGeocerca tipo;
+    private List<CoordenadaDTO> vertices;
+    private Integer vehiculoId;
+}
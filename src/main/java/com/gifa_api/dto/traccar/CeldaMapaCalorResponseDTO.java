@@ -0,0 +1,18 @@
+package com.gifa_api.dto.traccar;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class CeldaMapaCalorResponseDTO {
+    // Centro de la celda
+    private double latitud;
+    private double longitud;
+    private long cantidad;
+    private long permanenciaSegundos;
+}
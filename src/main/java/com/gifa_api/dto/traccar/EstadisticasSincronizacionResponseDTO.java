@@ -0,0 +1,27 @@
+package com.gifa_api.dto.traccar;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.OffsetDateTime;
+
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class EstadisticasSincronizacionResponseDTO {
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
+    private OffsetDateTime inicio;
+    private long duracionMs;
+    private int shardsEjecutados;
+    // Shards sin dispositivos, tomados por otro nodo o por encima del limite de este nodo
+    private int shardsOmitidos;
+    private int dispositivosSincronizados;
+    private int dispositivosFallidos;
+    // Antiguedad de la marca de sincronizacion de los dispositivos al empezar la ejecucion
+    private long retrasoMaximoSegundos;
+    private long retrasoPromedioSegundos;
+}
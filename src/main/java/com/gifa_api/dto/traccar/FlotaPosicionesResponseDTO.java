@@ -0,0 +1,20 @@
+package com.gifa_api.dto.traccar;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class FlotaPosicionesResponseDTO {
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
+    private OffsetDateTime generado;
+    private List<PosicionEnVivoResponseDTO> posiciones;
+}
@@ -19,4 +19,6 @@ public class KilometrosResponseDTO {
     Integer distance;
     Integer spentFuel;
     Integer engineHours;
+    Double startOdometer;
+    Double endOdometer;
 }
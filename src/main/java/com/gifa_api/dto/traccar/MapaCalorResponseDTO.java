@@ -0,0 +1,25 @@
+package com.gifa_api.dto.traccar;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class MapaCalorResponseDTO {
+    private LocalDate desde;
+    private LocalDate hasta;
+    private double celdaGrados;
+    private int dispositivos;
+    // Dias cerrados que superaron el calculo por pedido; se completan en segundo plano y faltan en las celdas
+    private boolean parcial;
+    private int diasPendientes;
+    // De mayor a menor permanencia
+    private List<CeldaMapaCalorResponseDTO> celdas;
+}
@@ -0,0 +1,17 @@
+package com.gifa_api.dto.traccar;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Mensaje de /api/socket. Traccar manda tambien devices y events, que por ahora no se usan.
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class MensajeSocketTraccarDTO {
+    private List<PosicionRequestDTO> positions;
+}
@@ -0,0 +1,18 @@
+package com.gifa_api.dto.traccar;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class PaginaPosicionesResponseDTO {
+    private List<PosicionResponseDTO> posiciones;
+    // null cuando no quedan mas posiciones en el rango
+    private String siguienteCursor;
+}
@@ -0,0 +1,26 @@
+package com.gifa_api.dto.traccar;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.OffsetDateTime;
+
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class PosicionEnVivoResponseDTO {
+    private Integer deviceId;
+    private String unicoId;
+    private String patente;
+    private double latitude;
+    private double longitude;
+    private double speed;
+    private double course;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
+    private OffsetDateTime fechaHora;
+}
@@ -1,6 +1,7 @@
 package com.gifa_api.dto.traccar;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.gifa_api.model.Dispositivo;
 import jakarta.persistence.Column;
 import jakarta.persistence.FetchType;
@@ -26,4 +27,8 @@ public class PosicionResponseDTO {
 
 
     LocalDate fechaHora;
+
+    // Fecha exacta en epoch millis para los formatos compactos; el JSON sigue exponiendo solo fechaHora
+    @JsonIgnore
+    long fechaHoraMs;
 }
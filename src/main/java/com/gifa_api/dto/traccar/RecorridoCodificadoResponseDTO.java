@@ -0,0 +1,17 @@
+package com.gifa_api.dto.traccar;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class RecorridoCodificadoResponseDTO {
+    // Polilinea codificada de Google con precision de 5 decimales
+    private String polilinea;
+    // Epoch millis del primer punto y, para los siguientes, la diferencia con el anterior
+    private long[] fechas;
+}
@@ -0,0 +1,21 @@
+package com.gifa_api.dto.traccar;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class RecorridoResponseDTO {
+    private int puntosOriginales;
+    private int puntosConservados;
+    private List<PosicionResponseDTO> posiciones;
+    // Segun el formato pedido se completa uno solo de posiciones, codificado o binario
+    private RecorridoCodificadoResponseDTO codificado;
+    private byte[] binario;
+}
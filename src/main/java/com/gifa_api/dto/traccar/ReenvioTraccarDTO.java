@@ -0,0 +1,19 @@
+package com.gifa_api.dto.traccar;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+// Cuerpo que manda Traccar con forward.url (position + device) o event.forward.url (event + position + device)
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class ReenvioTraccarDTO {
+    private PosicionRequestDTO position;
+    private DispositivoResponseDTO device;
+    private Map<String, Object> event;
+}
@@ -0,0 +1,20 @@
+package com.gifa_api.dto.traccar;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ReporteInconsistenciasResponseDTO {
+
+    List<InconsistenciasKMconCombustiblesResponseDTO> inconsistencias;
+    // true si algun dispositivo no respondio a tiempo y el reporte esta incompleto
+    boolean parcial;
+    List<String> patentesSinDatos;
+}
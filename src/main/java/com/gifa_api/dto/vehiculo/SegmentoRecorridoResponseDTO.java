@@ -0,0 +1,34 @@
+package com.gifa_api.dto.vehiculo;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.gifa_api.utils.enums.TipoSegmento;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.OffsetDateTime;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class SegmentoRecorridoResponseDTO {
+    private Long id;
+    private TipoSegmento tipo;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
+    private OffsetDateTime inicio;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
+    private OffsetDateTime fin;
+
+    private long duracionSegundos;
+    private double distanciaKilometros;
+    private long ralentiSegundos;
+    private double velocidadMaximaKmh;
+    private double latitudInicio;
+    private double longitudInicio;
+    private double latitudFin;
+    private double longitudFin;
+}
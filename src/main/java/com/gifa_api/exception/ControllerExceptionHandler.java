@@ -1,5 +1,7 @@
 package com.gifa_api.exception;
 
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -37,6 +39,17 @@ public class ControllerExceptionHandler {
         return ResponseEntity.status(apiError.getStatus()).body(apiError);
     }
 
+    // Traccar no disponible (circuito abierto o demasiadas llamadas en curso): se corta rapido con 503
+    @ExceptionHandler({CallNotPermittedException.class, BulkheadFullException.class})
+    protected ResponseEntity<ApiError> handleTraccarNoDisponible(RuntimeException e){
+        ApiError apiError = ApiError.builder()
+                .error("service_unavailable")
+                .message(e.getMessage())
+                .status(HttpStatus.SERVICE_UNAVAILABLE.value())
+                .build();
+        return ResponseEntity.status(apiError.getStatus()).body(apiError);
+    }
+
     @ExceptionHandler(BadRequestException.class)
     protected ResponseEntity<ApiError> handleBadRequestException(BadRequestException e){
         ApiError apiError = ApiError.builder()
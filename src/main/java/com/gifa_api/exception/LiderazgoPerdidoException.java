@@ -0,0 +1,7 @@
+package com.gifa_api.exception;
+
+public class LiderazgoPerdidoException extends RuntimeException {
+    public LiderazgoPerdidoException(String message) {
+        super(message);
+    }
+}
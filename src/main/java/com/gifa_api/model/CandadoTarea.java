@@ -0,0 +1,29 @@
+package com.gifa_api.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+// Lease de una tarea programada. Solo el nodo duenio la ejecuta mientras no venza; cada vez que
+// cambia de manos el token aumenta y sirve de fencing para las escrituras del duenio anterior.
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "candado_tarea")
+public class CandadoTarea {
+    @Id
+    @Column(name = "nombre", nullable = false, length = 100)
+    private String nombre;
+
+    @Column(name = "duenio", length = 200)
+    private String duenio;
+
+    // Epoch millis
+    @Column(name = "expira", nullable = false)
+    private long expira;
+
+    @Column(name = "token", nullable = false)
+    private long token;
+}
@@ -0,0 +1,46 @@
+package com.gifa_api.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+
+// Posiciones y tiempo de permanencia de un dispositivo en una celda de la grilla durante un dia cerrado
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "celda_mapa_calor",
+        indexes = @Index(name = "idx_celda_mapa_calor_fecha_dispositivo", columnList = "fecha, device_id, resolucion"))
+public class CeldaMapaCalor {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id", nullable = false)
+    private Long id;
+
+    // Id del dispositivo en Traccar
+    @Column(name = "device_id", nullable = false)
+    private Integer deviceId;
+
+    @Column(name = "fecha", nullable = false)
+    private LocalDate fecha;
+
+    // Tamanio de celda en millonesimas de grado
+    @Column(name = "resolucion", nullable = false)
+    private int resolucion;
+
+    // Indice de la celda: floor(grado * 1e6 / resolucion)
+    @Column(name = "celda_latitud", nullable = false)
+    private int celdaLatitud;
+
+    @Column(name = "celda_longitud", nullable = false)
+    private int celdaLongitud;
+
+    @Column(name = "cantidad", nullable = false)
+    private long cantidad;
+
+    @Column(name = "permanencia_segundos", nullable = false)
+    private long permanenciaSegundos;
+}
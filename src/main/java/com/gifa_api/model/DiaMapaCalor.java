@@ -0,0 +1,34 @@
+package com.gifa_api.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+
+// Marca que el mapa de calor del dispositivo para ese dia cerrado ya esta en celda_mapa_calor,
+// aunque no haya tenido posiciones
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "dia_mapa_calor",
+        uniqueConstraints = @UniqueConstraint(name = "uk_dia_mapa_calor_dispositivo_fecha", columnNames = {"device_id", "fecha", "resolucion"}))
+public class DiaMapaCalor {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id", nullable = false)
+    private Long id;
+
+    // Id del dispositivo en Traccar
+    @Column(name = "device_id", nullable = false)
+    private Integer deviceId;
+
+    @Column(name = "fecha", nullable = false)
+    private LocalDate fecha;
+
+    // Tamanio de celda en millonesimas de grado
+    @Column(name = "resolucion", nullable = false)
+    private int resolucion;
+}
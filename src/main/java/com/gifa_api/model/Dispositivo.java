@@ -3,6 +3,7 @@ package com.gifa_api.model;
 import jakarta.persistence.*;
 import lombok.*;
 
+import java.time.OffsetDateTime;
 import java.util.Set;
 
 @Getter
@@ -29,4 +30,11 @@ public class Dispositivo {
     @JoinColumn(name = "vehiculo_id")
     private Vehiculo vehiculo;
 
+    // Marca de agua de la ultima sincronizacion de kilometraje exitosa contra Traccar
+    @Column(name = "ultima_sincronizacion")
+    private OffsetDateTime ultimaSincronizacion;
+
+    @Column(name = "ultimo_odometro")
+    private Double ultimoOdometro;
+
 }
@@ -0,0 +1,43 @@
+package com.gifa_api.model;
+
+import com.gifa_api.utils.enums.TipoEventoGeocerca;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.OffsetDateTime;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "evento_geocerca",
+        indexes = @Index(name = "idx_evento_geocerca_geocerca_fecha", columnList = "geocerca_id, fecha_hora"),
+        uniqueConstraints = @UniqueConstraint(name = "uk_evento_geocerca", columnNames = {"geocerca_id", "device_id", "tipo", "fecha_hora"}))
+public class EventoGeocerca {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id", nullable = false)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "geocerca_id", nullable = false)
+    private Geocerca geocerca;
+
+    @Column(name = "device_id", nullable = false)
+    private Integer deviceId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "tipo", nullable = false)
+    private TipoEventoGeocerca tipo;
+
+    @Column(name = "fecha_hora", nullable = false)
+    private OffsetDateTime fechaHora;
+
+    @Column(name = "latitud", nullable = false)
+    private double latitud;
+
+    @Column(name = "longitud", nullable = false)
+    private double longitud;
+}
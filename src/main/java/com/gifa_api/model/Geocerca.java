@@ -0,0 +1,39 @@
+package com.gifa_api.model;
+
+import com.gifa_api.utils.enums.TipoGeocerca;
+import jakarta.persistence.*;
+import lombok.*;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "geocerca")
+public class Geocerca {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id", nullable = false)
+    private Integer id;
+
+    @Column(name = "nombre", nullable = false, length = 100)
+    private String nombre;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "tipo", nullable = false)
+    private TipoGeocerca tipo;
+
+    // Vertices del poligono como "latitud longitud" separados por coma
+    @Column(name = "vertices", nullable = false, length = 8000)
+    private String vertices;
+
+    // Sin vehiculo la geocerca aplica a toda la flota
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "vehiculo_id")
+    private Vehiculo vehiculo;
+
+    // Las geocercas dadas de baja dejan de evaluarse pero conservan su historial de eventos
+    @Column(name = "eliminada", nullable = false)
+    private boolean eliminada;
+}
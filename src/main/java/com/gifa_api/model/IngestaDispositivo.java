@@ -0,0 +1,24 @@
+package com.gifa_api.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+// Ultimo reenvio de Traccar recibido por dispositivo, en cualquier nodo. El nodo que sondea lo
+// lee para no pedir posiciones que ya llegan reenviadas a otro nodo.
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "ingesta_dispositivo")
+public class IngestaDispositivo {
+    // Id del dispositivo en Traccar
+    @Id
+    @Column(name = "device_id", nullable = false)
+    private Integer deviceId;
+
+    // Epoch millis
+    @Column(name = "ultimo_reenvio", nullable = false)
+    private long ultimoReenvio;
+}
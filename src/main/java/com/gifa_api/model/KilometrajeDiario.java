@@ -0,0 +1,31 @@
+package com.gifa_api.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "kilometraje_diario",
+        uniqueConstraints = @UniqueConstraint(name = "uk_kilometraje_diario_dispositivo_fecha", columnNames = {"device_id", "fecha"}))
+public class KilometrajeDiario {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id", nullable = false)
+    private Integer id;
+
+    // Id del dispositivo en Traccar
+    @Column(name = "device_id", nullable = false)
+    private Integer deviceId;
+
+    @Column(name = "fecha", nullable = false)
+    private LocalDate fecha;
+
+    @Column(name = "distancia", nullable = false)
+    private double distancia;
+}
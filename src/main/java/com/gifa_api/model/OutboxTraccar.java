@@ -0,0 +1,53 @@
+package com.gifa_api.model;
+
+import com.gifa_api.utils.enums.EstadoOutbox;
+import com.gifa_api.utils.enums.TipoOperacionOutbox;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.OffsetDateTime;
+
+// Operacion pendiente contra Traccar, guardada en la misma transaccion que la entidad que la origina
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "outbox_traccar",
+        indexes = @Index(name = "idx_outbox_traccar_estado_proximo", columnList = "estado, proximo_intento"))
+public class OutboxTraccar {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id", nullable = false)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "tipo", nullable = false)
+    private TipoOperacionOutbox tipo;
+
+    @Column(name = "unico_id", nullable = false)
+    private String unicoId;
+
+    @Column(name = "nombre")
+    private String nombre;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "estado", nullable = false)
+    private EstadoOutbox estado;
+
+    @Column(name = "intentos", nullable = false)
+    private int intentos;
+
+    @Column(name = "proximo_intento", nullable = false)
+    private OffsetDateTime proximoIntento;
+
+    @Column(name = "creado", nullable = false)
+    private OffsetDateTime creado;
+
+    @Column(name = "enviado")
+    private OffsetDateTime enviado;
+
+    @Column(name = "ultimo_error", length = 500)
+    private String ultimoError;
+}
@@ -0,0 +1,46 @@
+package com.gifa_api.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+// Copia compacta de una posicion de Traccar. La fecha se guarda en epoch millis para que el
+// indice (device_id, fecha_hora) sea chico y no dependa de la zona horaria de la base.
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "posicion",
+        indexes = @Index(name = "idx_posicion_dispositivo_fecha", columnList = "device_id, fecha_hora"),
+        uniqueConstraints = @UniqueConstraint(name = "uk_posicion_traccar_id", columnNames = "traccar_id"))
+public class Posicion {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id", nullable = false)
+    private Long id;
+
+    @Column(name = "traccar_id", nullable = false)
+    private Long traccarId;
+
+    @Column(name = "device_id", nullable = false)
+    private Integer deviceId;
+
+    @Column(name = "fecha_hora", nullable = false)
+    private long fechaHora;
+
+    @Column(name = "latitud", nullable = false)
+    private double latitud;
+
+    @Column(name = "longitud", nullable = false)
+    private double longitud;
+
+    @Column(name = "velocidad")
+    private double velocidad;
+
+    @Column(name = "rumbo")
+    private double rumbo;
+
+    @Column(name = "encendido")
+    private Boolean encendido;
+}
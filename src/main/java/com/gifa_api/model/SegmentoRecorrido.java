@@ -0,0 +1,69 @@
+package com.gifa_api.model;
+
+import com.gifa_api.utils.enums.TipoSegmento;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.OffsetDateTime;
+
+// Viaje o parada ya cerrado; se calcula una sola vez a partir de las posiciones guardadas
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "segmento_recorrido",
+        indexes = {
+                @Index(name = "idx_segmento_vehiculo_inicio", columnList = "vehiculo_id, inicio"),
+                @Index(name = "idx_segmento_dispositivo_fin", columnList = "device_id, fin")
+        })
+public class SegmentoRecorrido {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id", nullable = false)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "tipo", nullable = false)
+    private TipoSegmento tipo;
+
+    @Column(name = "device_id", nullable = false)
+    private Integer deviceId;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "vehiculo_id")
+    private Vehiculo vehiculo;
+
+    @Column(name = "inicio", nullable = false)
+    private OffsetDateTime inicio;
+
+    @Column(name = "fin", nullable = false)
+    private OffsetDateTime fin;
+
+    @Column(name = "duracion_segundos", nullable = false)
+    private long duracionSegundos;
+
+    @Column(name = "distancia_metros", nullable = false)
+    private double distanciaMetros;
+
+    // Tiempo detenido con el motor encendido
+    @Column(name = "ralenti_segundos", nullable = false)
+    private long ralentiSegundos;
+
+    // En km/h
+    @Column(name = "velocidad_maxima")
+    private double velocidadMaxima;
+
+    @Column(name = "latitud_inicio")
+    private double latitudInicio;
+
+    @Column(name = "longitud_inicio")
+    private double longitudInicio;
+
+    @Column(name = "latitud_fin")
+    private double latitudFin;
+
+    @Column(name = "longitud_fin")
+    private double longitudFin;
+}
@@ -0,0 +1,43 @@
+package com.gifa_api.repository;
+
+import com.gifa_api.model.CandadoTarea;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+public interface ICandadoTareaRepository extends JpaRepository<CandadoTarea, String> {
+
+    // Solo se puede tomar un lease vencido; tomarlo incrementa el token
+    @Transactional
+    @Modifying
+    @Query("UPDATE CandadoTarea c SET c.duenio = :duenio, c.expira = :expira, c.token = c.token + 1 " +
+            "WHERE c.nombre = :nombre AND c.expira < :ahora")
+    int tomar(@Param("nombre") String nombre, @Param("duenio") String duenio,
+              @Param("ahora") long ahora, @Param("expira") long expira);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE CandadoTarea c SET c.expira = :expira " +
+            "WHERE c.nombre = :nombre AND c.duenio = :duenio AND c.token = :token AND c.expira >= :ahora")
+    int renovar(@Param("nombre") String nombre, @Param("duenio") String duenio, @Param("token") long token,
+                @Param("ahora") long ahora, @Param("expira") long expira);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE CandadoTarea c SET c.expira = 0 WHERE c.nombre = :nombre AND c.duenio = :duenio AND c.token = :token")
+    int liberar(@Param("nombre") String nombre, @Param("duenio") String duenio, @Param("token") long token);
+
+    @Query("SELECT c.token FROM CandadoTarea c WHERE c.nombre = :nombre AND c.duenio = :duenio")
+    Optional<Long> findTokenByNombreAndDuenio(@Param("nombre") String nombre, @Param("duenio") String duenio);
+
+    // Bloquea la fila hasta el fin de la transaccion: mientras tanto nadie puede tomar el lease
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM CandadoTarea c WHERE c.nombre = :nombre")
+    Optional<CandadoTarea> bloquear(@Param("nombre") String nombre);
+}
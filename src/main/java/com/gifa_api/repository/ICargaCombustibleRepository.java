@@ -23,4 +23,10 @@ public interface ICargaCombustibleRepository extends JpaRepository<CargaCombusti
             @Param("fechaFin") OffsetDateTime fechaFin
     );
 
+    @Query("SELECT c.tarjeta.numero, SUM(c.cantidadLitros) FROM CargaCombustible c WHERE c.fechaHora > :fechaInicio AND c.fechaHora < :fechaFin GROUP BY c.tarjeta.numero")
+    public List<Object[]> sumarLitrosPorTarjetaEntreFechas(
+            @Param("fechaInicio") OffsetDateTime fechaInicio,
+            @Param("fechaFin") OffsetDateTime fechaFin
+    );
+
 }
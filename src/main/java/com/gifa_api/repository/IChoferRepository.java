@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,6 +16,9 @@ public interface IChoferRepository extends JpaRepository<Chofer, Integer> {
     @Query("SELECT c.nombre FROM Chofer c WHERE c.vehiculo.id = :idVehiculo")
     public List<String> obtenerNombreDeChofersDeVehiculo(@Param("idVehiculo") Integer idVehiculo);
 
+    @Query("SELECT c.vehiculo.id, c.nombre FROM Chofer c WHERE c.vehiculo.id IN :idsVehiculos")
+    public List<Object[]> obtenerNombreDeChofersDeVehiculos(@Param("idsVehiculos") Collection<Integer> idsVehiculos);
+
     @Query("SELECT c FROM Chofer c JOIN FETCH c.vehiculo WHERE c.id = :id")
     Optional<Chofer> findByIdWithVehiculo(@Param("id") Integer id);
 
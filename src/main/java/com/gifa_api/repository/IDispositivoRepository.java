@@ -3,9 +3,13 @@ package com.gifa_api.repository;
 import com.gifa_api.model.Dispositivo;
 import com.gifa_api.model.Vehiculo;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.OffsetDateTime;
+import java.util.List;
 import java.util.Optional;
 
 public interface IDispositivoRepository extends JpaRepository<Dispositivo, Integer> {
@@ -15,6 +19,24 @@ public interface IDispositivoRepository extends JpaRepository<Dispositivo, Integ
     @Query("select d.vehiculo from Dispositivo d where d.unicoId=:unicoId")
     public Optional<Vehiculo> findVehiculoDeDispositivo(@Param("unicoId") String unicoId);
 
+    @Query("select d from Dispositivo d join fetch d.vehiculo")
+    public List<Dispositivo> findAllConVehiculo();
+
+    // [unicoId, patente] de cada dispositivo asignado a un vehiculo
+    @Query("select d.unicoId, v.patente from Dispositivo d join d.vehiculo v")
+    public List<Object[]> findPatentesPorUnicoId();
+
+    // [unicoId, id del vehiculo] de cada dispositivo asignado a un vehiculo
+    @Query("select d.unicoId, v.id from Dispositivo d join d.vehiculo v")
+    public List<Object[]> findVehiculoIdsPorUnicoId();
+
+    @Transactional
+    @Modifying
+    @Query("update Dispositivo d set d.ultimaSincronizacion = :fecha, d.ultimoOdometro = :odometro where d.id = :id")
+    public void actualizarMarcaDeSincronizacion(@Param("id") Integer id,
+                                                @Param("fecha") OffsetDateTime fecha,
+                                                @Param("odometro") Double odometro);
+
 
     boolean existsByUnicoId(String unicoId);
 }
@@ -0,0 +1,17 @@
+package com.gifa_api.repository;
+
+import com.gifa_api.model.EventoGeocerca;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+public interface IEventoGeocercaRepository extends JpaRepository<EventoGeocerca, Long> {
+
+    @Query("SELECT e FROM EventoGeocerca e WHERE e.geocerca.id = :geocercaId AND e.fechaHora >= :desde AND e.fechaHora <= :hasta ORDER BY e.fechaHora, e.id")
+    List<EventoGeocerca> findByGeocercaEntreFechas(@Param("geocercaId") Integer geocercaId,
+                                                   @Param("desde") OffsetDateTime desde,
+                                                   @Param("hasta") OffsetDateTime hasta);
+}
@@ -0,0 +1,10 @@
+package com.gifa_api.repository;
+
+import com.gifa_api.model.Geocerca;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface IGeocercaRepository extends JpaRepository<Geocerca, Integer> {
+    List<Geocerca> findByEliminadaFalse();
+}
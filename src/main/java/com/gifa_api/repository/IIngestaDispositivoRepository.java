@@ -0,0 +1,10 @@
+package com.gifa_api.repository;
+
+import java.util.Map;
+
+public interface IIngestaDispositivoRepository {
+    // deviceId -> epoch millis del ultimo reenvio recibido
+    void registrarReenvios(Map<Integer, Long> reenvios);
+    // Dispositivos con un reenvio posterior a desde
+    Map<Integer, Long> buscarReenviosDesde(long desde);
+}
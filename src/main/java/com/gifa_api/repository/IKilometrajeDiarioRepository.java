@@ -0,0 +1,17 @@
+package com.gifa_api.repository;
+
+import com.gifa_api.model.KilometrajeDiario;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+public interface IKilometrajeDiarioRepository extends JpaRepository<KilometrajeDiario, Integer> {
+    @Query("SELECT k FROM KilometrajeDiario k WHERE k.deviceId IN :deviceIds AND k.fecha >= :desde AND k.fecha <= :hasta")
+    List<KilometrajeDiario> findByDeviceIdsAndFechaBetween(@Param("deviceIds") Collection<Integer> deviceIds,
+                                                           @Param("desde") LocalDate desde,
+                                                           @Param("hasta") LocalDate hasta);
+}
@@ -0,0 +1,15 @@
+package com.gifa_api.repository;
+
+import com.gifa_api.model.KilometrajeVehiculo;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+
+public interface IKilometrajeLoteRepository {
+    void insertarLote(List<KilometrajeVehiculo> kilometrajes);
+    // Suma a cada vehiculo los kilometros de su registro
+    void sumarKilometrajesRecorridos(List<KilometrajeVehiculo> kilometrajes);
+    // Avanza la marca de sincronizacion de cada dispositivo con su ultimo odometro conocido
+    void actualizarMarcasDeSincronizacion(Map<Integer, Double> odometroPorDispositivo, OffsetDateTime fecha);
+}
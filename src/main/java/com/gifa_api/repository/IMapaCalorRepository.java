@@ -0,0 +1,21 @@
+package com.gifa_api.repository;
+
+import com.gifa_api.model.CeldaMapaCalor;
+import com.gifa_api.model.DiaMapaCalor;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public interface IMapaCalorRepository {
+    // Dispositivos con el dia ya calculado, por fecha
+    Map<LocalDate, Set<Integer>> findDiasCalculados(Collection<Integer> deviceIds, LocalDate desde, LocalDate hasta, int resolucion);
+    void insertarDias(List<DiaMapaCalor> dias);
+    void insertarCeldas(List<CeldaMapaCalor> celdas);
+    // Borra el dia calculado y sus celdas para volver a insertarlo
+    void borrarDia(Collection<Integer> deviceIds, LocalDate fecha, int resolucion);
+    // Celdas sumadas para todos los dispositivos y dias del rango; deviceId y fecha quedan en null
+    List<CeldaMapaCalor> sumarCeldas(Collection<Integer> deviceIds, LocalDate desde, LocalDate hasta, int resolucion);
+}
@@ -0,0 +1,26 @@
+package com.gifa_api.repository;
+
+import com.gifa_api.model.OutboxTraccar;
+import com.gifa_api.utils.enums.EstadoOutbox;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+public interface IOutboxTraccarRepository extends JpaRepository<OutboxTraccar, Long> {
+
+    @Query("SELECT o FROM OutboxTraccar o WHERE o.estado = :estado AND o.proximoIntento <= :ahora ORDER BY o.id")
+    List<OutboxTraccar> findListosParaEnviar(@Param("estado") EstadoOutbox estado,
+                                             @Param("ahora") OffsetDateTime ahora,
+                                             Pageable pageable);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM OutboxTraccar o WHERE o.estado = :estado AND o.enviado < :antesDe")
+    int borrarEnviadosAntesDe(@Param("estado") EstadoOutbox estado, @Param("antesDe") OffsetDateTime antesDe);
+}
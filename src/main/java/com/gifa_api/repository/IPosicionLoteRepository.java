@@ -0,0 +1,16 @@
+package com.gifa_api.repository;
+
+import com.gifa_api.model.Posicion;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+public interface IPosicionLoteRepository {
+    // Las posiciones con un traccar_id ya guardado se saltean
+    void insertarLote(List<Posicion> posiciones);
+    // Recorre las posiciones ordenadas por fecha sin cargarlas todas en memoria
+    void recorrerEntreFechas(Integer deviceId, long desde, long hasta, Consumer<Posicion> consumidor);
+    // Posiciones con id mayor al dado, en orden de insercion
+    List<Posicion> buscarDesdeId(long desdeId, int limite);
+    long maximoId();
+}
@@ -0,0 +1,26 @@
+package com.gifa_api.repository;
+
+import com.gifa_api.model.Posicion;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface IPosicionRepository extends JpaRepository<Posicion, Long> {
+
+    // Paginacion por clave (fechaHora, id): la siguiente pagina arranca despues de la ultima posicion devuelta
+    @Query("SELECT p FROM Posicion p WHERE p.deviceId = :deviceId AND p.fechaHora <= :hasta " +
+            "AND (p.fechaHora > :fechaHoraCursor OR (p.fechaHora = :fechaHoraCursor AND p.id > :idCursor)) " +
+            "ORDER BY p.fechaHora, p.id")
+    List<Posicion> findPaginaByDeviceId(@Param("deviceId") Integer deviceId,
+                                        @Param("fechaHoraCursor") long fechaHoraCursor,
+                                        @Param("idCursor") long idCursor,
+                                        @Param("hasta") long hasta,
+                                        Pageable pageable);
+
+    // deviceId, primera y ultima fecha ingerida
+    @Query("SELECT p.deviceId, MIN(p.fechaHora), MAX(p.fechaHora) FROM Posicion p GROUP BY p.deviceId")
+    List<Object[]> findRangoFechaHoraPorDispositivo();
+}
@@ -0,0 +1,25 @@
+package com.gifa_api.repository;
+
+import com.gifa_api.model.SegmentoRecorrido;
+import com.gifa_api.utils.enums.TipoSegmento;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface ISegmentoRecorridoRepository extends JpaRepository<SegmentoRecorrido, Long> {
+
+    @Query("SELECT MAX(s.fin) FROM SegmentoRecorrido s WHERE s.deviceId = :deviceId")
+    Optional<OffsetDateTime> findUltimoFin(@Param("deviceId") Integer deviceId);
+
+    @Query("SELECT s FROM SegmentoRecorrido s WHERE s.vehiculo.id = :vehiculoId AND s.tipo IN :tipos " +
+            "AND s.inicio >= :desde AND s.inicio <= :hasta ORDER BY s.inicio")
+    List<SegmentoRecorrido> findByVehiculoEntreFechas(@Param("vehiculoId") Integer vehiculoId,
+                                                      @Param("tipos") Collection<TipoSegmento> tipos,
+                                                      @Param("desde") OffsetDateTime desde,
+                                                      @Param("hasta") OffsetDateTime hasta);
+}
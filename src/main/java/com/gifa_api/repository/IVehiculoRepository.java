@@ -2,8 +2,10 @@ package com.gifa_api.repository;
 
 import com.gifa_api.model.Vehiculo;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -14,6 +16,14 @@ public interface IVehiculoRepository extends JpaRepository<Vehiculo, Integer> {
     @Query("select v from Vehiculo v where v.patente=:patente")
     public Optional<Vehiculo> findByPatente(@Param("patente") String patente);
 
+    @Query("select v from Vehiculo v join fetch v.dispositivo left join fetch v.tarjeta")
+    public List<Vehiculo> findAllConDispositivoYTarjeta();
+
+    @Transactional
+    @Modifying
+    @Query("update Vehiculo v set v.kilometrajeRecorrido = v.kilometrajeRecorrido + :kilometros where v.id = :id")
+    public void sumarKilometrajeRecorrido(@Param("id") Integer id, @Param("kilometros") double kilometros);
+
 
 
 }
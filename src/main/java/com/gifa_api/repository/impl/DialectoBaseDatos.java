@@ -0,0 +1,27 @@
+package com.gifa_api.repository.impl;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+// Las pocas sentencias que cambian entre MySQL (produccion) y H2 (local y tests) se eligen segun
+// la base a la que apunta el datasource, que se consulta una sola vez
+@Component
+@RequiredArgsConstructor
+public class DialectoBaseDatos {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private volatile Boolean mySql;
+
+    public boolean esMySql() {
+        Boolean valor = mySql;
+        if (valor == null) {
+            String producto = jdbcTemplate.execute((ConnectionCallback<String>) conexion -> conexion.getMetaData().getDatabaseProductName());
+            valor = producto != null && producto.toLowerCase().contains("mysql");
+            mySql = valor;
+        }
+        return valor;
+    }
+}
@@ -0,0 +1,47 @@
+package com.gifa_api.repository.impl;
+
+import com.gifa_api.repository.IIngestaDispositivoRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+@RequiredArgsConstructor
+public class IngestaDispositivoRepository implements IIngestaDispositivoRepository {
+
+    private static final String UPSERT_MYSQL = "INSERT INTO ingesta_dispositivo (device_id, ultimo_reenvio) VALUES (?, ?) " +
+            "ON DUPLICATE KEY UPDATE ultimo_reenvio = GREATEST(ultimo_reenvio, VALUES(ultimo_reenvio))";
+
+    private static final String UPSERT_H2 = "MERGE INTO ingesta_dispositivo (device_id, ultimo_reenvio) KEY (device_id) VALUES (?, ?)";
+
+    private static final String SELECT_DESDE = "SELECT device_id, ultimo_reenvio FROM ingesta_dispositivo WHERE ultimo_reenvio > ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DialectoBaseDatos dialecto;
+
+    @Override
+    public void registrarReenvios(Map<Integer, Long> reenvios) {
+        if (reenvios.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<Integer, Long>> filas = new ArrayList<>(reenvios.entrySet());
+        jdbcTemplate.batchUpdate(dialecto.esMySql() ? UPSERT_MYSQL : UPSERT_H2, filas, filas.size(), (ps, fila) -> {
+            ps.setInt(1, fila.getKey());
+            ps.setLong(2, fila.getValue());
+        });
+    }
+
+    @Override
+    public Map<Integer, Long> buscarReenviosDesde(long desde) {
+        Map<Integer, Long> reenvios = new HashMap<>();
+        RowCallbackHandler porFila = rs -> reenvios.put(rs.getInt("device_id"), rs.getLong("ultimo_reenvio"));
+        jdbcTemplate.query(SELECT_DESDE, porFila, desde);
+        return reenvios;
+    }
+}
@@ -0,0 +1,70 @@
+package com.gifa_api.repository.impl;
+
+import com.gifa_api.model.KilometrajeVehiculo;
+import com.gifa_api.repository.IKilometrajeLoteRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Types;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// Escrituras por lotes JDBC de la sincronizacion de kilometraje: una sentencia por tabla y por lote de dispositivos
+@Repository
+@RequiredArgsConstructor
+public class KilometrajeLoteRepository implements IKilometrajeLoteRepository {
+
+    private static final String INSERT = "INSERT INTO kilometraje_vehiculo " +
+            "(kilometros_recorridos, fecha_inicio, vehiculo_id) VALUES (?, ?, ?)";
+
+    private static final String SUMAR_KILOMETRAJE = "UPDATE vehiculo " +
+            "SET kilometraje_recorrido = kilometraje_recorrido + ? WHERE id = ?";
+
+    private static final String ACTUALIZAR_MARCA = "UPDATE dispositivo " +
+            "SET ultima_sincronizacion = ?, ultimo_odometro = ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void insertarLote(List<KilometrajeVehiculo> kilometrajes) {
+        if (kilometrajes.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT, kilometrajes, kilometrajes.size(), (ps, kilometraje) -> {
+            ps.setDouble(1, kilometraje.getKilometrosRecorridos());
+            ps.setObject(2, kilometraje.getFecha());
+            ps.setInt(3, kilometraje.getVehiculo().getId());
+        });
+    }
+
+    @Override
+    public void sumarKilometrajesRecorridos(List<KilometrajeVehiculo> kilometrajes) {
+        if (kilometrajes.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(SUMAR_KILOMETRAJE, kilometrajes, kilometrajes.size(), (ps, kilometraje) -> {
+            ps.setDouble(1, kilometraje.getKilometrosRecorridos());
+            ps.setInt(2, kilometraje.getVehiculo().getId());
+        });
+    }
+
+    @Override
+    public void actualizarMarcasDeSincronizacion(Map<Integer, Double> odometroPorDispositivo, OffsetDateTime fecha) {
+        if (odometroPorDispositivo.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<Integer, Double>> marcas = new ArrayList<>(odometroPorDispositivo.entrySet());
+        jdbcTemplate.batchUpdate(ACTUALIZAR_MARCA, marcas, marcas.size(), (ps, marca) -> {
+            ps.setObject(1, fecha);
+            if (marca.getValue() != null) {
+                ps.setDouble(2, marca.getValue());
+            } else {
+                ps.setNull(2, Types.DOUBLE);
+            }
+            ps.setInt(3, marca.getKey());
+        });
+    }
+}
@@ -0,0 +1,118 @@
+package com.gifa_api.repository.impl;
+
+import com.gifa_api.model.CeldaMapaCalor;
+import com.gifa_api.model.DiaMapaCalor;
+import com.gifa_api.repository.IMapaCalorRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Acceso JDBC al mapa de calor: las celdas de un dia de toda la flota se insertan en un solo lote
+// y los rangos se suman en la base, que devuelve una fila por celda y no por dispositivo y dia
+@Repository
+@RequiredArgsConstructor
+public class MapaCalorRepository implements IMapaCalorRepository {
+
+    private static final String INSERT_DIA = "INSERT INTO dia_mapa_calor (device_id, fecha, resolucion) VALUES (?, ?, ?)";
+
+    private static final String INSERT_CELDA = "INSERT INTO celda_mapa_calor " +
+            "(device_id, fecha, resolucion, celda_latitud, celda_longitud, cantidad, permanencia_segundos) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public Map<LocalDate, Set<Integer>> findDiasCalculados(Collection<Integer> deviceIds, LocalDate desde, LocalDate hasta, int resolucion) {
+        Map<LocalDate, Set<Integer>> calculados = new HashMap<>();
+        if (deviceIds.isEmpty()) {
+            return calculados;
+        }
+        String sql = "SELECT device_id, fecha FROM dia_mapa_calor " +
+                "WHERE fecha >= ? AND fecha <= ? AND resolucion = ? AND device_id IN (" + marcadores(deviceIds.size()) + ")";
+        RowCallbackHandler porFila = rs -> calculados
+                .computeIfAbsent(rs.getObject("fecha", LocalDate.class), fecha -> new HashSet<>())
+                .add(rs.getInt("device_id"));
+        jdbcTemplate.query(sql, porFila, parametros(desde, hasta, resolucion, deviceIds));
+        return calculados;
+    }
+
+    @Override
+    public void insertarDias(List<DiaMapaCalor> dias) {
+        if (dias.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_DIA, dias, dias.size(), (ps, dia) -> {
+            ps.setInt(1, dia.getDeviceId());
+            ps.setObject(2, dia.getFecha());
+            ps.setInt(3, dia.getResolucion());
+        });
+    }
+
+    @Override
+    public void insertarCeldas(List<CeldaMapaCalor> celdas) {
+        if (celdas.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_CELDA, celdas, celdas.size(), (ps, celda) -> {
+            ps.setInt(1, celda.getDeviceId());
+            ps.setObject(2, celda.getFecha());
+            ps.setInt(3, celda.getResolucion());
+            ps.setInt(4, celda.getCeldaLatitud());
+            ps.setInt(5, celda.getCeldaLongitud());
+            ps.setLong(6, celda.getCantidad());
+            ps.setLong(7, celda.getPermanenciaSegundos());
+        });
+    }
+
+    @Override
+    public void borrarDia(Collection<Integer> deviceIds, LocalDate fecha, int resolucion) {
+        if (deviceIds.isEmpty()) {
+            return;
+        }
+        String filtro = " WHERE fecha >= ? AND fecha <= ? AND resolucion = ? AND device_id IN (" + marcadores(deviceIds.size()) + ")";
+        Object[] parametros = parametros(fecha, fecha, resolucion, deviceIds);
+        jdbcTemplate.update("DELETE FROM celda_mapa_calor" + filtro, parametros);
+        jdbcTemplate.update("DELETE FROM dia_mapa_calor" + filtro, parametros);
+    }
+
+    @Override
+    public List<CeldaMapaCalor> sumarCeldas(Collection<Integer> deviceIds, LocalDate desde, LocalDate hasta, int resolucion) {
+        if (deviceIds.isEmpty()) {
+            return List.of();
+        }
+        String sql = "SELECT celda_latitud, celda_longitud, SUM(cantidad) AS cantidad, SUM(permanencia_segundos) AS permanencia " +
+                "FROM celda_mapa_calor WHERE fecha >= ? AND fecha <= ? AND resolucion = ? " +
+                "AND device_id IN (" + marcadores(deviceIds.size()) + ") GROUP BY celda_latitud, celda_longitud";
+        return jdbcTemplate.query(sql, (rs, fila) -> CeldaMapaCalor.builder()
+                .resolucion(resolucion)
+                .celdaLatitud(rs.getInt("celda_latitud"))
+                .celdaLongitud(rs.getInt("celda_longitud"))
+                .cantidad(rs.getLong("cantidad"))
+                .permanenciaSegundos(rs.getLong("permanencia"))
+                .build(), parametros(desde, hasta, resolucion, deviceIds));
+    }
+
+    private String marcadores(int cantidad) {
+        return String.join(", ", Collections.nCopies(cantidad, "?"));
+    }
+
+    private Object[] parametros(LocalDate desde, LocalDate hasta, int resolucion, Collection<Integer> deviceIds) {
+        List<Object> parametros = new ArrayList<>(deviceIds.size() + 3);
+        parametros.add(desde);
+        parametros.add(hasta);
+        parametros.add(resolucion);
+        parametros.addAll(deviceIds);
+        return parametros.toArray();
+    }
+}
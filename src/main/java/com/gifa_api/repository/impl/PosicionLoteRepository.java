@@ -0,0 +1,117 @@
+package com.gifa_api.repository.impl;
+
+import com.gifa_api.model.Posicion;
+import com.gifa_api.repository.IPosicionLoteRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Insercion por lotes JDBC: con ids IDENTITY Hibernate no agrupa los inserts de saveAll
+@Repository
+@RequiredArgsConstructor
+public class PosicionLoteRepository implements IPosicionLoteRepository {
+
+    // Una posicion ya guardada (reenviada a otro nodo, sondeada dos veces, reintento de Traccar) se
+    // saltea sin error: un duplicado no puede hacer fallar el lote entero por uk_posicion_traccar_id
+    private static final String INSERT_MYSQL = "INSERT INTO posicion " +
+            "(traccar_id, device_id, fecha_hora, latitud, longitud, velocidad, rumbo, encendido) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE traccar_id = traccar_id";
+
+    private static final String INSERT_H2 = "MERGE INTO posicion " +
+            "(traccar_id, device_id, fecha_hora, latitud, longitud, velocidad, rumbo, encendido) KEY (traccar_id) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String SELECT_ENTRE_FECHAS = "SELECT id, traccar_id, device_id, fecha_hora, latitud, longitud, velocidad, rumbo, encendido " +
+            "FROM posicion WHERE device_id = ? AND fecha_hora >= ? AND fecha_hora <= ? ORDER BY fecha_hora, id";
+
+    private static final String SELECT_DESDE_ID = "SELECT id, traccar_id, device_id, fecha_hora, latitud, longitud, velocidad, rumbo, encendido " +
+            "FROM posicion WHERE id > ? ORDER BY id LIMIT ?";
+
+    private static final String SELECT_MAXIMO_ID = "SELECT COALESCE(MAX(id), 0) FROM posicion";
+
+    private static final int FILAS_POR_LECTURA = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DialectoBaseDatos dialecto;
+
+    @Override
+    public void insertarLote(List<Posicion> posiciones) {
+        if (posiciones.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(dialecto.esMySql() ? INSERT_MYSQL : INSERT_H2, posiciones, posiciones.size(), (ps, posicion) -> {
+            ps.setLong(1, posicion.getTraccarId());
+            ps.setInt(2, posicion.getDeviceId());
+            ps.setLong(3, posicion.getFechaHora());
+            ps.setDouble(4, posicion.getLatitud());
+            ps.setDouble(5, posicion.getLongitud());
+            ps.setDouble(6, posicion.getVelocidad());
+            ps.setDouble(7, posicion.getRumbo());
+            if (posicion.getEncendido() != null) {
+                ps.setBoolean(8, posicion.getEncendido());
+            } else {
+                ps.setNull(8, Types.BOOLEAN);
+            }
+        });
+    }
+
+    @Override
+    public void recorrerEntreFechas(Integer deviceId, long desde, long hasta, Consumer<Posicion> consumidor) {
+        jdbcTemplate.query(conexion -> {
+            PreparedStatement ps = conexion.prepareStatement(SELECT_ENTRE_FECHAS, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(filasPorLectura(conexion.getMetaData()));
+            ps.setInt(1, deviceId);
+            ps.setLong(2, desde);
+            ps.setLong(3, hasta);
+            return ps;
+        }, (RowCallbackHandler) rs -> consumidor.accept(toPosicion(rs)));
+    }
+
+    // Connector/J ignora el fetch size y trae todo el resultado a memoria, salvo con useCursorFetch=true
+    // en la url (cursor del servidor, de a FILAS_POR_LECTURA filas). Sin esa opcion la unica forma de
+    // no cargarlo entero es Integer.MIN_VALUE, que lo transmite fila a fila.
+    private static int filasPorLectura(DatabaseMetaData metaData) throws SQLException {
+        String producto = metaData.getDatabaseProductName();
+        String url = metaData.getURL();
+        if (producto != null && producto.toLowerCase().contains("mysql")
+                && (url == null || !url.contains("useCursorFetch=true"))) {
+            return Integer.MIN_VALUE;
+        }
+        return FILAS_POR_LECTURA;
+    }
+
+    @Override
+    public List<Posicion> buscarDesdeId(long desdeId, int limite) {
+        return jdbcTemplate.query(SELECT_DESDE_ID, (rs, fila) -> toPosicion(rs), desdeId, limite);
+    }
+
+    @Override
+    public long maximoId() {
+        Long maximo = jdbcTemplate.queryForObject(SELECT_MAXIMO_ID, Long.class);
+        return maximo != null ? maximo : 0;
+    }
+
+    private Posicion toPosicion(ResultSet rs) throws SQLException {
+        boolean encendido = rs.getBoolean("encendido");
+        return Posicion.builder()
+                .id(rs.getLong("id"))
+                .traccarId(rs.getLong("traccar_id"))
+                .deviceId(rs.getInt("device_id"))
+                .fechaHora(rs.getLong("fecha_hora"))
+                .latitud(rs.getDouble("latitud"))
+                .longitud(rs.getDouble("longitud"))
+                .velocidad(rs.getDouble("velocidad"))
+                .rumbo(rs.getDouble("rumbo"))
+                .encendido(rs.wasNull() ? null : encendido)
+                .build();
+    }
+}
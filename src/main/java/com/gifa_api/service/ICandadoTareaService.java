@@ -0,0 +1,11 @@
+package com.gifa_api.service;
+
+import java.util.Optional;
+
+public interface ICandadoTareaService {
+    Optional<Long> tomar(String tarea);
+    void validarToken(String tarea, long token);
+    void renovar();
+    void liberar(String tarea);
+    void liberarTodo();
+}
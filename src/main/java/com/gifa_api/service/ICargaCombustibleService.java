@@ -5,9 +5,11 @@ import com.gifa_api.dto.gestionDeCombustilble.CargaCombustibleRequestDTO;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.OffsetDateTime;
+import java.util.Map;
 
 public interface ICargaCombustibleService {
 
     void cargarCombustible(CargaCombustibleRequestDTO cargaCombustibleRequestDTO);
     public double combustibleCargadoEntreFechas(Integer numeroTarjeta, OffsetDateTime from ,OffsetDateTime to) ;
+    Map<Integer, Double> combustibleCargadoPorTarjetaEntreFechas(OffsetDateTime from, OffsetDateTime to);
 }
@@ -0,0 +1,7 @@
+package com.gifa_api.service;
+
+import com.gifa_api.dto.traccar.FlotaPosicionesResponseDTO;
+
+public interface IFlotaPosicionesService {
+    FlotaPosicionesResponseDTO obtenerPosicionesDeFlota();
+}
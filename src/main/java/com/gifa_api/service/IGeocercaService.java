@@ -0,0 +1,18 @@
+package com.gifa_api.service;
+
+import com.gifa_api.dto.geocerca.EventoGeocercaResponseDTO;
+import com.gifa_api.dto.geocerca.GeocercaResponseDTO;
+import com.gifa_api.dto.geocerca.RegistrarGeocercaDTO;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+public interface IGeocercaService {
+    GeocercaResponseDTO registrar(RegistrarGeocercaDTO registrarGeocercaDTO);
+    List<GeocercaResponseDTO> obtenerGeocercas();
+    void eliminar(Integer id);
+    List<EventoGeocercaResponseDTO> obtenerEventos(Integer geocercaId, OffsetDateTime desde, OffsetDateTime hasta);
+    SseEmitter suscribirEventos();
+    void recargar();
+}
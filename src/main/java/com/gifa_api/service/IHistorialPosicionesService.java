@@ -0,0 +1,20 @@
+package com.gifa_api.service;
+
+import com.gifa_api.dto.traccar.PaginaPosicionesResponseDTO;
+import com.gifa_api.dto.traccar.PosicionRequestDTO;
+import com.gifa_api.dto.traccar.PosicionResponseDTO;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+public interface IHistorialPosicionesService {
+    void ingerirPosiciones();
+    void guardarPosiciones(List<PosicionRequestDTO> posiciones);
+    List<PosicionResponseDTO> obtenerPosiciones(Integer deviceId, OffsetDateTime from, OffsetDateTime to);
+    void recorrerPosiciones(Integer deviceId, OffsetDateTime from, OffsetDateTime to, Consumer<PosicionResponseDTO> consumidor);
+    void escribirPosiciones(Integer deviceId, OffsetDateTime from, OffsetDateTime to, OutputStream salida) throws IOException;
+    PaginaPosicionesResponseDTO obtenerPagina(Integer deviceId, OffsetDateTime from, OffsetDateTime to, String cursor, int limite);
+}
@@ -0,0 +1,10 @@
+package com.gifa_api.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+public interface IIngestaTraccarService {
+    boolean secretoValido(String secreto);
+    boolean encolar(JsonNode cuerpo);
+    boolean activa();
+    void vaciar();
+}
@@ -0,0 +1,9 @@
+package com.gifa_api.service;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+
+public interface IKilometrajeDiarioService {
+    Map<Integer, Double> kilometrosEntreFechas(List<Integer> deviceIds, OffsetDateTime from, OffsetDateTime to);
+}
@@ -0,0 +1,11 @@
+package com.gifa_api.service;
+
+import com.gifa_api.dto.traccar.MapaCalorResponseDTO;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface IMapaCalorService {
+    MapaCalorResponseDTO obtenerMapaCalor(LocalDate desde, LocalDate hasta, List<String> patentes);
+    void completarDiaAnterior();
+}
@@ -0,0 +1,8 @@
+package com.gifa_api.service;
+
+import com.gifa_api.model.Dispositivo;
+
+public interface IOutboxTraccarService {
+    void registrarCreacionDeDispositivo(Dispositivo dispositivo);
+    void despachar();
+}
@@ -0,0 +1,19 @@
+package com.gifa_api.service;
+
+import com.gifa_api.dto.traccar.PosicionEnVivoResponseDTO;
+import com.gifa_api.dto.traccar.PosicionRequestDTO;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.Optional;
+
+public interface IPosicionesEnVivoService {
+    boolean disponible();
+    Optional<PosicionRequestDTO> ultimaPosicion(Integer deviceId);
+    Collection<PosicionRequestDTO> ultimasPosiciones();
+    void escribirRecientes(Integer deviceId, int cantidad, OutputStream salida) throws IOException;
+    SseEmitter suscribir(Integer deviceId);
+    PosicionEnVivoResponseDTO toPosicionEnVivo(PosicionRequestDTO posicion);
+}
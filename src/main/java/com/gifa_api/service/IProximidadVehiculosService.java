@@ -0,0 +1,10 @@
+package com.gifa_api.service;
+
+import com.gifa_api.dto.traccar.VehiculoCercanoResponseDTO;
+
+import java.util.List;
+
+public interface IProximidadVehiculosService {
+    List<VehiculoCercanoResponseDTO> buscarEnRadio(double latitud, double longitud, double radioMetros, Integer limite);
+    List<VehiculoCercanoResponseDTO> buscarEnRectangulo(double latitudMinima, double longitudMinima, double latitudMaxima, double longitudMaxima);
+}
@@ -0,0 +1,11 @@
+package com.gifa_api.service;
+
+import com.gifa_api.dto.vehiculo.SegmentoRecorridoResponseDTO;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+public interface ISegmentacionRecorridosService {
+    void segmentar();
+    List<SegmentoRecorridoResponseDTO> obtenerViajes(String patente, OffsetDateTime desde, OffsetDateTime hasta, boolean incluirParadas);
+}
@@ -0,0 +1,10 @@
+package com.gifa_api.service;
+
+import com.gifa_api.dto.traccar.EstadisticasSincronizacionResponseDTO;
+
+import java.util.Optional;
+
+public interface ISincronizacionKilometrajeService {
+    void sincronizarKilometraje();
+    Optional<EstadisticasSincronizacionResponseDTO> obtenerUltimaEjecucion();
+}
@@ -3,8 +3,16 @@ package com.gifa_api.service;
 import com.gifa_api.dto.traccar.InconsistenciasKMconCombustiblesResponseDTO;
 import com.gifa_api.dto.traccar.DispositivoResponseDTO;
 import com.gifa_api.dto.traccar.KilometrosResponseDTO;
+import com.gifa_api.dto.traccar.PaginaPosicionesResponseDTO;
 import com.gifa_api.dto.traccar.PosicionResponseDTO;
+import com.gifa_api.dto.traccar.RecorridoResponseDTO;
+import com.gifa_api.dto.traccar.ReporteInconsistenciasResponseDTO;
 import com.gifa_api.model.Dispositivo;
+import com.gifa_api.utils.enums.FormatoRecorrido;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import reactor.core.publisher.Flux;
 
 import java.time.LocalDate;
 import java.time.OffsetDateTime;
@@ -16,10 +24,17 @@ public interface ITraccarService {
 
     List<DispositivoResponseDTO> obtenerDispositivos();
 
-    List<InconsistenciasKMconCombustiblesResponseDTO> getInconsistencias(OffsetDateTime from, OffsetDateTime to);
+    ReporteInconsistenciasResponseDTO getInconsistencias(OffsetDateTime from, OffsetDateTime to);
 
     KilometrosResponseDTO getKilometros(Integer deviceId, OffsetDateTime from, OffsetDateTime to);
+    KilometrosResponseDTO obtenerKilometrosEnRangoDeFechas(String uniqueId, OffsetDateTime from, OffsetDateTime to);
     List<PosicionResponseDTO> obtenerPosicionesEnVivo(String uniqueId);
+    SseEmitter suscribirPosicionesEnVivo(String uniqueId);
     List<PosicionResponseDTO> obtenerPosicionesEnRangoDeFechas(String uniqueId, OffsetDateTime from,OffsetDateTime to);
+    Flux<PosicionResponseDTO> obtenerPosicionesReactivo(String uniqueId, OffsetDateTime from, OffsetDateTime to);
+    StreamingResponseBody streamPosicionesEnRangoDeFechas(String uniqueId, OffsetDateTime from, OffsetDateTime to);
+    StreamingResponseBody streamPosicionesRecientes(String uniqueId, Integer cantidad);
+    RecorridoResponseDTO obtenerRecorrido(String uniqueId, OffsetDateTime from, OffsetDateTime to, Double tolerancia, Integer zoom, FormatoRecorrido formato);
+    PaginaPosicionesResponseDTO obtenerPaginaDePosiciones(String uniqueId, OffsetDateTime from, OffsetDateTime to, String cursor, int limite);
 
 }
@@ -0,0 +1,155 @@
+package com.gifa_api.service.impl;
+
+import com.gifa_api.exception.LiderazgoPerdidoException;
+import com.gifa_api.model.CandadoTarea;
+import com.gifa_api.repository.ICandadoTareaRepository;
+import com.gifa_api.service.ICandadoTareaService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Leases en base para que cada tarea programada corra en un solo nodo. El nodo que toma una tarea
+// la conserva renovandola en segundo plano; si se cae, el lease vence y otro la toma en su
+// proxima ejecucion con un token mayor. La renovacion corre en un hilo propio y no en el
+// planificador de @Scheduled, donde una tarea larga la demoraria hasta que el lease venza.
+@Slf4j
+@Service
+public class CandadoTareaServiceImpl implements ICandadoTareaService {
+
+    private final ICandadoTareaRepository candadoRepository;
+    private final long duracionMs;
+    private final long renovacionMs;
+    private final String nodo;
+    private final ScheduledExecutorService renovador =
+            Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("renovacion-leases-"));
+
+    // tarea -> token con el que este nodo la tiene tomada
+    private final Map<String, Long> tomadas = new ConcurrentHashMap<>();
+
+    public CandadoTareaServiceImpl(ICandadoTareaRepository candadoRepository,
+                                   @Value("${tareas.lease-ms:60000}") long duracionMs,
+                                   @Value("${tareas.renovacion-ms:20000}") long renovacionMs) {
+        this.candadoRepository = candadoRepository;
+        this.duracionMs = duracionMs;
+        this.renovacionMs = renovacionMs;
+        this.nodo = nombreDeHost() + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        renovador.scheduleWithFixedDelay(this::renovar, renovacionMs, renovacionMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Optional<Long> tomar(String tarea) {
+        long ahora = System.currentTimeMillis();
+        Long token = tomadas.get(tarea);
+        if (token != null) {
+            if (candadoRepository.renovar(tarea, nodo, token, ahora, ahora + duracionMs) == 1) {
+                return Optional.of(token);
+            }
+            tomadas.remove(tarea);
+            log.warn("El nodo {} perdio la tarea {}", nodo, tarea);
+        }
+
+        crearSiNoExiste(tarea);
+        if (candadoRepository.tomar(tarea, nodo, ahora, ahora + duracionMs) == 0) {
+            return Optional.empty();
+        }
+        Optional<Long> nuevo = candadoRepository.findTokenByNombreAndDuenio(tarea, nodo);
+        nuevo.ifPresent(valor -> {
+            tomadas.put(tarea, valor);
+            log.info("El nodo {} tomo la tarea {} con token {}", nodo, tarea, valor);
+        });
+        return nuevo;
+    }
+
+    // Se llama dentro de la transaccion que escribe: bloquea la fila del lease, asi ningun otro
+    // nodo puede tomarlo hasta el commit, y rechaza la escritura si el token ya no es el vigente
+    @Override
+    public void validarToken(String tarea, long token) {
+        CandadoTarea candado = candadoRepository.bloquear(tarea)
+                .orElseThrow(() -> new LiderazgoPerdidoException("No existe el lease de la tarea " + tarea));
+        if (candado.getToken() != token || !nodo.equals(candado.getDuenio())) {
+            throw new LiderazgoPerdidoException("El token " + token + " de la tarea " + tarea + " ya no es el vigente");
+        }
+    }
+
+    // Las tareas largas o diarias no vuelven a llamar a tomar hasta su proxima ejecucion
+    @Override
+    public void renovar() {
+        long ahora = System.currentTimeMillis();
+        tomadas.forEach((tarea, token) -> {
+            try {
+                if (candadoRepository.renovar(tarea, nodo, token, ahora, ahora + duracionMs) == 0) {
+                    tomadas.remove(tarea, token);
+                    log.warn("El nodo {} perdio la tarea {}", nodo, tarea);
+                }
+            } catch (RuntimeException e) {
+                log.warn("No se pudo renovar la tarea {}: {}", tarea, e.getMessage());
+            }
+        });
+    }
+
+    // Para tareas que se reparten entre nodos: al soltarla otro nodo la puede tomar sin esperar a que venza
+    @Override
+    public void liberar(String tarea) {
+        Long token = tomadas.remove(tarea);
+        if (token == null) {
+            return;
+        }
+        try {
+            candadoRepository.liberar(tarea, nodo, token);
+        } catch (RuntimeException e) {
+            log.warn("No se pudo liberar la tarea {}: {}", tarea, e.getMessage());
+        }
+    }
+
+    // Al apagar se liberan los leases para que otro nodo no tenga que esperar a que venzan
+    @Override
+    @PreDestroy
+    public void liberarTodo() {
+        renovador.shutdownNow();
+        tomadas.forEach((tarea, token) -> {
+            try {
+                candadoRepository.liberar(tarea, nodo, token);
+            } catch (RuntimeException e) {
+                log.warn("No se pudo liberar la tarea {}: {}", tarea, e.getMessage());
+            }
+        });
+        tomadas.clear();
+    }
+
+    private void crearSiNoExiste(String tarea) {
+        if (candadoRepository.existsById(tarea)) {
+            return;
+        }
+        try {
+            candadoRepository.saveAndFlush(CandadoTarea.builder().nombre(tarea).expira(0).token(0).build());
+        } catch (DataIntegrityViolationException e) {
+            // Otro nodo la creo al mismo tiempo
+        }
+    }
+
+    private static String nombreDeHost() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "nodo";
+        }
+    }
+}
@@ -22,8 +22,10 @@ import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
 import java.time.format.TextStyle;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import org.springframework.stereotype.Service;
 
 
@@ -133,6 +135,15 @@ public class CargaCombustibleServiceImpl implements ICargaCombustibleService {
         return cargaTotal;
     }
 
+    @Override
+    public Map<Integer, Double> combustibleCargadoPorTarjetaEntreFechas(OffsetDateTime from, OffsetDateTime to) {
+        Map<Integer, Double> litrosPorTarjeta = new HashMap<>();
+        for (Object[] fila : cargaCombustibleRepository.sumarLitrosPorTarjetaEntreFechas(from, to)) {
+            litrosPorTarjeta.put((Integer) fila[0], ((Number) fila[1]).doubleValue());
+        }
+        return litrosPorTarjeta;
+    }
+
     private void validarCargaCombustibleRequestDTO(CargaCombustibleRequestDTO cargaCombustibleRequestDTO) {
         if (cargaCombustibleRequestDTO.getCantidadLitros() == null || cargaCombustibleRequestDTO.getCantidadLitros() <= 0) {
             throw new BadRequestException("La cantidad de litros debe ser mayor a cero.");
@@ -1,32 +1,22 @@
 package com.gifa_api.service.impl;
 
 import com.gifa_api.dto.traccar.CrearDispositivoRequestDTO;
-import com.gifa_api.dto.traccar.DispositivoResponseDTO;
 import com.gifa_api.exception.BadRequestException;
 import com.gifa_api.exception.NotFoundException;
 import com.gifa_api.model.Dispositivo;
 import com.gifa_api.model.Vehiculo;
 import com.gifa_api.repository.IDispositivoRepository;
-import com.gifa_api.repository.IKilometrajeVehiculoRepository;
 import com.gifa_api.repository.IVehiculoRepository;
 import com.gifa_api.service.IDispositivoService;
-import com.gifa_api.service.IKilometrajeVehiculoService;
-import com.gifa_api.service.ITraccarService;
 import lombok.RequiredArgsConstructor;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.time.OffsetDateTime;
-import java.util.List;
 
 @Service
 @RequiredArgsConstructor
 public class DispositivoServiceImpl implements IDispositivoService {
     private final IDispositivoRepository dispositivoRepository;
     private final IVehiculoRepository vehiculoRepository;
-    private final IKilometrajeVehiculoService kilometrajeVehiculoService;
-    private final ITraccarService traccarService;
-    private final IKilometrajeVehiculoRepository kilometrajeVehiculoRepository;
 
     @Override
     public void crearDispositivo(CrearDispositivoRequestDTO crearDispositivoRequestDTO, Integer idVehiculo) {
@@ -53,25 +43,6 @@ public class DispositivoServiceImpl implements IDispositivoService {
     }
 
 
-    @Scheduled(fixedRate = 8640)
-    private void actualizarKilometrajeDeVehiculos() {
-        for (DispositivoResponseDTO dispositivoResponseDTO : traccarService.obtenerDispositivos()) {
-
-            OffsetDateTime from = OffsetDateTime.parse("1970-01-01T00:00:00Z");
-            OffsetDateTime to = OffsetDateTime.parse("2100-01-01T00:00:00Z");
-            Integer kmActual = traccarService.getKilometros(dispositivoResponseDTO.getId(), from, to).getDistance();
-            Vehiculo vehiculo = dispositivoRepository.findVehiculoDeDispositivo(dispositivoResponseDTO.getUniqueId())
-                    .orElseThrow(() -> new NotFoundException("No se encontró el vehiculo con id: " + dispositivoResponseDTO.getUniqueId()));
-
-            double kilometrosAgregados = kmActual - vehiculo.getKilometrajeRecorrido();
-
-            kilometrajeVehiculoService.addKilometrajeVehiculo(kilometrosAgregados, OffsetDateTime.now(), vehiculo.getId());
-            vehiculo.setKilometrajeRecorrido(kmActual);
-            vehiculoRepository.save(vehiculo);
-
-        }
-    }
-
     private void validarCrearDispositivoRequestDTO(CrearDispositivoRequestDTO crearDispositivoRequestDTO) {
         if (crearDispositivoRequestDTO.getName() == null || crearDispositivoRequestDTO.getName().trim().isEmpty()) {
             throw new BadRequestException("El nombre del dispositivo no puede estar vacío.");
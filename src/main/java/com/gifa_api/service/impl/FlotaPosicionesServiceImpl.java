@@ -0,0 +1,131 @@
+package com.gifa_api.service.impl;
+
+import com.gifa_api.client.ITraccarCliente;
+import com.gifa_api.dto.traccar.FlotaPosicionesResponseDTO;
+import com.gifa_api.dto.traccar.PosicionEnVivoResponseDTO;
+import com.gifa_api.dto.traccar.PosicionRequestDTO;
+import com.gifa_api.repository.IDispositivoRepository;
+import com.gifa_api.service.IFlotaPosicionesService;
+import com.gifa_api.service.IPosicionesEnVivoService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Ultima posicion de todos los vehiculos en una sola respuesta. La foto se reutiliza durante
+// unos segundos y, si varios pedidos llegan juntos con la foto vencida, solo uno la rearma
+// y el resto espera ese mismo resultado.
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class FlotaPosicionesServiceImpl implements IFlotaPosicionesService {
+
+    private final ITraccarCliente traccarCliente;
+    private final IPosicionesEnVivoService posicionesEnVivoService;
+    private final IDispositivoRepository dispositivoRepository;
+
+    private final AtomicReference<CompletableFuture<FlotaPosicionesResponseDTO>> enCurso = new AtomicReference<>();
+    private volatile FlotaPosicionesResponseDTO ultimaFoto;
+    private volatile long venceNanos;
+
+    @Value("${traccar.flota.ttl-ms:5000}")
+    private long ttlMs;
+
+    @Override
+    public FlotaPosicionesResponseDTO obtenerPosicionesDeFlota() {
+        FlotaPosicionesResponseDTO foto = fotoVigente();
+        if (foto != null) {
+            return foto;
+        }
+
+        CompletableFuture<FlotaPosicionesResponseDTO> nueva = new CompletableFuture<>();
+        CompletableFuture<FlotaPosicionesResponseDTO> existente = enCurso.compareAndExchange(null, nueva);
+        if (existente != null) {
+            return esperar(existente);
+        }
+
+        try {
+            // Otro pedido pudo haber terminado de armarla entre la primera consulta y el CAS
+            foto = fotoVigente();
+            if (foto == null) {
+                foto = armarFoto();
+                ultimaFoto = foto;
+                venceNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ttlMs);
+            }
+            nueva.complete(foto);
+            return foto;
+        } catch (RuntimeException e) {
+            nueva.completeExceptionally(e);
+            return fotoAnteriorO(e);
+        } finally {
+            enCurso.set(null);
+        }
+    }
+
+    private FlotaPosicionesResponseDTO fotoVigente() {
+        FlotaPosicionesResponseDTO foto = ultimaFoto;
+        return foto != null && System.nanoTime() - venceNanos < 0 ? foto : null;
+    }
+
+    private FlotaPosicionesResponseDTO esperar(CompletableFuture<FlotaPosicionesResponseDTO> enCurso) {
+        try {
+            return enCurso.join();
+        } catch (CompletionException e) {
+            RuntimeException causa = e.getCause() instanceof RuntimeException
+                    ? (RuntimeException) e.getCause()
+                    : new RuntimeException(e.getCause());
+            return fotoAnteriorO(causa);
+        }
+    }
+
+    // Si Traccar falla se devuelve la ultima foto aunque este vencida; sin foto previa se propaga el error
+    private FlotaPosicionesResponseDTO fotoAnteriorO(RuntimeException error) {
+        FlotaPosicionesResponseDTO anterior = ultimaFoto;
+        if (anterior == null) {
+            throw error;
+        }
+        log.warn("No se pudo actualizar la foto de la flota, se devuelve la anterior: {}", error.getMessage());
+        return anterior;
+    }
+
+    private FlotaPosicionesResponseDTO armarFoto() {
+        Map<String, String> patentes = new HashMap<>();
+        for (Object[] fila : dispositivoRepository.findPatentesPorUnicoId()) {
+            patentes.put((String) fila[0], (String) fila[1]);
+        }
+
+        // Con el socket conectado las ultimas posiciones ya estan en memoria
+        Collection<PosicionRequestDTO> ultimas = posicionesEnVivoService.disponible()
+                ? posicionesEnVivoService.ultimasPosiciones()
+                : traccarCliente.getUltimasPosiciones();
+
+        List<PosicionEnVivoResponseDTO> posiciones = new ArrayList<>();
+        for (PosicionRequestDTO ultima : ultimas) {
+            PosicionEnVivoResponseDTO posicion = posicionesEnVivoService.toPosicionEnVivo(ultima);
+            String patente = patentes.get(posicion.getUnicoId());
+            if (patente != null) {
+                posicion.setPatente(patente);
+                posiciones.add(posicion);
+            }
+        }
+        posiciones.sort(Comparator.comparing(PosicionEnVivoResponseDTO::getPatente));
+
+        return FlotaPosicionesResponseDTO.builder()
+                .generado(OffsetDateTime.now(ZoneOffset.UTC))
+                .posiciones(posiciones)
+                .build();
+    }
+}
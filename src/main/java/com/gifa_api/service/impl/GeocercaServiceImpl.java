@@ -0,0 +1,222 @@
+package com.gifa_api.service.impl;
+
+import com.gifa_api.client.DifusorSse;
+import com.gifa_api.client.MotorGeocercas;
+import com.gifa_api.client.PosicionesRecibidasEvent;
+import com.gifa_api.client.RegistroDispositivosTraccar;
+import com.gifa_api.dto.geocerca.CoordenadaDTO;
+import com.gifa_api.dto.geocerca.EventoGeocercaResponseDTO;
+import com.gifa_api.dto.geocerca.GeocercaResponseDTO;
+import com.gifa_api.dto.geocerca.RegistrarGeocercaDTO;
+import com.gifa_api.dto.traccar.PosicionRequestDTO;
+import com.gifa_api.exception.BadRequestException;
+import com.gifa_api.exception.NotFoundException;
+import com.gifa_api.model.EventoGeocerca;
+import com.gifa_api.model.Geocerca;
+import com.gifa_api.model.Vehiculo;
+import com.gifa_api.repository.IDispositivoRepository;
+import com.gifa_api.repository.IEventoGeocercaRepository;
+import com.gifa_api.repository.IGeocercaRepository;
+import com.gifa_api.repository.IVehiculoRepository;
+import com.gifa_api.service.IGeocercaService;
+import com.gifa_api.utils.mappers.GeocercaMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Geocercas propias de GIFA evaluadas sobre el mismo feed que las posiciones en vivo.
+// Las entradas y salidas se guardan y se empujan por SSE a los tableros suscriptos.
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class GeocercaServiceImpl implements IGeocercaService {
+
+    private static final int MAXIMO_VERTICES = 250;
+
+    private final IGeocercaRepository geocercaRepository;
+    private final IEventoGeocercaRepository eventoGeocercaRepository;
+    private final IVehiculoRepository vehiculoRepository;
+    private final IDispositivoRepository dispositivoRepository;
+    private final RegistroDispositivosTraccar registroDispositivos;
+    private final MotorGeocercas motorGeocercas;
+    private final GeocercaMapper geocercaMapper;
+
+    // Fotos que arma recargar(): geocercas por id y vehiculo de cada deviceId de Traccar
+    private volatile Map<Integer, Geocerca> geocercas = Map.of();
+    private volatile Map<Integer, Integer> vehiculoPorDeviceId = Map.of();
+
+    private final DifusorSse<EventoGeocercaResponseDTO> difusor = new DifusorSse<>("sse-geocercas-", "geocerca");
+
+    @Value("${traccar.socket.sse-timeout-ms:1800000}")
+    private long sseTimeoutMs;
+
+    @Override
+    @Transactional
+    public GeocercaResponseDTO registrar(RegistrarGeocercaDTO registrarGeocercaDTO) {
+        validarRegistrarGeocercaDTO(registrarGeocercaDTO);
+
+        Vehiculo vehiculo = null;
+        if (registrarGeocercaDTO.getVehiculoId() != null) {
+            vehiculo = vehiculoRepository.findById(registrarGeocercaDTO.getVehiculoId())
+                    .orElseThrow(() -> new NotFoundException("No se encontró el vehículo con id: " + registrarGeocercaDTO.getVehiculoId()));
+        }
+
+        Geocerca geocerca = geocercaRepository.save(Geocerca.builder()
+                .nombre(registrarGeocercaDTO.getNombre())
+                .tipo(registrarGeocercaDTO.getTipo())
+                .vertices(geocercaMapper.toVertices(registrarGeocercaDTO.getVertices()))
+                .vehiculo(vehiculo)
+                .build());
+        recargar();
+        return geocercaMapper.toGeocercaResponseDTO(geocerca);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<GeocercaResponseDTO> obtenerGeocercas() {
+        return geocercaRepository.findByEliminadaFalse().stream()
+                .map(geocercaMapper::toGeocercaResponseDTO)
+                .toList();
+    }
+
+    @Override
+    @Transactional
+    public void eliminar(Integer id) {
+        Geocerca geocerca = geocercaRepository.findById(id)
+                .filter(existente -> !existente.isEliminada())
+                .orElseThrow(() -> new NotFoundException("No se encontró la geocerca con id: " + id));
+        // Se da de baja sin borrar: el historial de entradas y salidas se sigue pudiendo consultar
+        geocerca.setEliminada(true);
+        geocercaRepository.save(geocerca);
+        recargar();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<EventoGeocercaResponseDTO> obtenerEventos(Integer geocercaId, OffsetDateTime desde, OffsetDateTime hasta) {
+        if (desde.isAfter(hasta)) {
+            throw new BadRequestException("La fecha desde no puede ser posterior a la fecha hasta");
+        }
+        if (!geocercaRepository.existsById(geocercaId)) {
+            throw new NotFoundException("No se encontró la geocerca con id: " + geocercaId);
+        }
+        return eventoGeocercaRepository.findByGeocercaEntreFechas(geocercaId, desde, hasta).stream()
+                .map(geocercaMapper::toEventoGeocercaResponseDTO)
+                .toList();
+    }
+
+    // Tambien toma las geocercas creadas desde otros nodos y los dispositivos asignados despues del arranque
+    @Override
+    @Scheduled(fixedDelayString = "${geocercas.refresco-ms:60000}")
+    public void recargar() {
+        Map<Integer, Geocerca> nuevas = new HashMap<>();
+        List<MotorGeocercas.Poligono> poligonos = new ArrayList<>();
+        for (Geocerca geocerca : geocercaRepository.findByEliminadaFalse()) {
+            nuevas.put(geocerca.getId(), geocerca);
+            poligonos.add(geocercaMapper.toPoligono(geocerca));
+        }
+
+        Map<Integer, Integer> vehiculos = new HashMap<>();
+        for (Object[] fila : dispositivoRepository.findVehiculoIdsPorUnicoId()) {
+            registroDispositivos.buscarPorUnicoId((String) fila[0])
+                    .ifPresent(dispositivo -> vehiculos.put(dispositivo.getId(), (Integer) fila[1]));
+        }
+
+        motorGeocercas.recargar(poligonos);
+        geocercas = nuevas;
+        vehiculoPorDeviceId = vehiculos;
+    }
+
+    @EventListener
+    public void onPosicionesRecibidas(PosicionesRecibidasEvent event) {
+        Map<Integer, Geocerca> actuales = geocercas;
+        if (actuales.isEmpty()) {
+            return;
+        }
+
+        List<EventoGeocerca> eventos = new ArrayList<>();
+        for (PosicionRequestDTO posicion : event.getPosiciones()) {
+            for (MotorGeocercas.Transicion transicion : motorGeocercas.evaluar(posicion, vehiculoPorDeviceId.get(posicion.getDeviceId()))) {
+                Geocerca geocerca = actuales.get(transicion.getGeocercaId());
+                if (geocerca == null) {
+                    continue;
+                }
+                eventos.add(EventoGeocerca.builder()
+                        .geocerca(geocerca)
+                        .deviceId(posicion.getDeviceId())
+                        .tipo(transicion.getTipo())
+                        .fechaHora(posicion.getFixTime())
+                        .latitud(posicion.getLatitude())
+                        .longitud(posicion.getLongitude())
+                        .build());
+            }
+        }
+        if (eventos.isEmpty()) {
+            return;
+        }
+
+        // Con varios nodos cada socket ve las mismas transiciones: la clave unica deja guardar una sola vez
+        // cada evento. Cada tablero esta conectado a un unico nodo, asi que igual lo recibe una sola vez.
+        for (EventoGeocerca evento : eventos) {
+            try {
+                eventoGeocercaRepository.save(evento);
+            } catch (DataIntegrityViolationException e) {
+                log.debug("Evento de geocerca {} ya guardado por otro nodo", evento.getGeocerca().getId());
+            } catch (RuntimeException e) {
+                // El estado del motor ya avanzo: el evento se pierde en la base pero igual se avisa a los tableros
+                log.warn("No se pudo guardar el evento de la geocerca {}: {}", evento.getGeocerca().getId(), e.getMessage());
+            }
+        }
+        if (difusor.haySuscripciones()) {
+            difusor.publicar(eventos.stream().map(geocercaMapper::toEventoGeocercaResponseDTO).toList());
+        }
+    }
+
+    @Override
+    public SseEmitter suscribirEventos() {
+        return difusor.suscribir(sseTimeoutMs, evento -> true, List.of());
+    }
+
+    @Scheduled(fixedDelay = 15000)
+    public void mantenerConexiones() {
+        difusor.mantenerConexiones();
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        difusor.cerrar();
+    }
+
+    private void validarRegistrarGeocercaDTO(RegistrarGeocercaDTO registrarGeocercaDTO) {
+        if (registrarGeocercaDTO.getNombre() == null || registrarGeocercaDTO.getNombre().isBlank()) {
+            throw new BadRequestException("El nombre de la geocerca no puede estar vacío");
+        }
+        if (registrarGeocercaDTO.getTipo() == null) {
+            throw new BadRequestException("El tipo de la geocerca es obligatorio");
+        }
+        List<CoordenadaDTO> vertices = registrarGeocercaDTO.getVertices();
+        if (vertices == null || vertices.size() < 3 || vertices.size() > MAXIMO_VERTICES) {
+            throw new BadRequestException("La geocerca debe tener entre 3 y " + MAXIMO_VERTICES + " vértices");
+        }
+        for (CoordenadaDTO vertice : vertices) {
+            if (vertice.getLatitud() == null || vertice.getLongitud() == null
+                    || vertice.getLatitud() < -90 || vertice.getLatitud() > 90
+                    || vertice.getLongitud() < -180 || vertice.getLongitud() > 180) {
+                throw new BadRequestException("Vértice fuera de rango");
+            }
+        }
+    }
+}
@@ -0,0 +1,537 @@
+package com.gifa_api.service.impl;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.gifa_api.client.ITraccarCliente;
+import com.gifa_api.client.PlanificadorSondeoTraccar;
+import com.gifa_api.client.RegistroDispositivosTraccar;
+import com.gifa_api.dto.traccar.DispositivoResponseDTO;
+import com.gifa_api.dto.traccar.PaginaPosicionesResponseDTO;
+import com.gifa_api.dto.traccar.PosicionRequestDTO;
+import com.gifa_api.dto.traccar.PosicionResponseDTO;
+import com.gifa_api.exception.BadRequestException;
+import com.gifa_api.exception.LiderazgoPerdidoException;
+import com.gifa_api.model.Posicion;
+import com.gifa_api.repository.IIngestaDispositivoRepository;
+import com.gifa_api.repository.IPosicionLoteRepository;
+import com.gifa_api.repository.IPosicionRepository;
+import com.gifa_api.service.ICandadoTareaService;
+import com.gifa_api.service.IHistorialPosicionesService;
+import com.gifa_api.utils.mappers.PosicionMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// Las posiciones se copian de Traccar a la tabla posicion hacia adelante, desde la ultima
+// fecha ingerida de cada dispositivo. Llegan por reenvio de Traccar (/traccar/ingest, a cualquier
+// nodo) y el sondeo (ritmo adaptativo, ver PlanificadorSondeoTraccar) solo cubre a los que dejaron de
+// reenviarse; los reenvios se anotan en ingesta_dispositivo para que el nodo que sondea los vea. El
+// historial se responde desde la base entre la primera y la ultima posicion ingerida de cada dispositivo;
+// lo anterior (la ingesta arranca con horas-historial-inicial) y lo posterior se piden en vivo a Traccar.
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class HistorialPosicionesServiceImpl implements IHistorialPosicionesService {
+
+    static final int LIMITE_MAXIMO_PAGINA = 5000;
+    static final String TAREA_SONDEO = "sondeo-posiciones";
+    static final int INTENTOS_POR_TRAMO = 3;
+    private static final long ESPERA_COLA_MS = 100;
+
+    private final ITraccarCliente traccarCliente;
+    private final IPosicionRepository posicionRepository;
+    private final IPosicionLoteRepository posicionLoteRepository;
+    private final IIngestaDispositivoRepository ingestaDispositivoRepository;
+    private final RegistroDispositivosTraccar registroDispositivos;
+    private final PosicionMapper posicionMapper;
+    private final ObjectMapper objectMapper;
+    private final PlanificadorSondeoTraccar planificador;
+    private final ExecutorService traccarExecutor;
+    private final ExecutorService tramosExecutor;
+    private final ICandadoTareaService candadoTareaService;
+    private final TransactionTemplate transactionTemplate;
+
+    // deviceId -> fecha (epoch millis) de la ultima posicion ingerida
+    private final Map<Integer, Long> ultimaIngerida = new ConcurrentHashMap<>();
+    // deviceId -> fecha (epoch millis) de la primera posicion ingerida; antes de esa fecha la base no tiene nada
+    private final Map<Integer, Long> primeraIngerida = new ConcurrentHashMap<>();
+    // deviceId -> ultimo reenvio anotado por este nodo en ingesta_dispositivo, para no escribirlo en cada lote
+    private final Map<Integer, Long> reenvioAnotado = new ConcurrentHashMap<>();
+    private volatile boolean marcasCargadas;
+    // Token del lease de sondeo con el que se cargaron las marcas
+    private volatile long tokenSondeo = -1;
+
+    @Value("${traccar.posiciones.horas-historial-inicial:24}")
+    private long horasHistorialInicial;
+
+    @Value("${traccar.ingesta.ventana-push-ms:120000}")
+    private long ventanaPushMs;
+
+    @Value("${traccar.sondeo.maximo-por-tick:50}")
+    private int maximoPorTick;
+
+    @Value("${traccar.sondeo.concurrencia:4}")
+    private int concurrenciaSondeo;
+
+    @Value("${traccar.posiciones.horas-por-tramo:24}")
+    private long horasPorTramo;
+
+    @Value("${traccar.posiciones.tramos-en-paralelo:4}")
+    private int tramosEnParalelo;
+
+    @Value("${traccar.posiciones.en-memoria-por-tramo:2000}")
+    private int posicionesEnMemoriaPorTramo;
+
+    // Si el cliente no lee la respuesta en este tiempo se abandona la lectura del tramo y se libera el hilo
+    @Value("${traccar.posiciones.espera-cliente-ms:30000}")
+    private long esperaClienteMs;
+
+    // Cada tick sondea solo los dispositivos vencidos segun el planificador, con tope por tick
+    // (ritmo) y tope de llamadas en curso (concurrencia)
+    @Override
+    @Scheduled(fixedDelayString = "${traccar.sondeo.tick-ms:1000}")
+    public void ingerirPosiciones() {
+        Optional<Long> token = candadoTareaService.tomar(TAREA_SONDEO);
+        if (token.isEmpty()) {
+            return;
+        }
+        if (token.get() != tokenSondeo) {
+            // Recien tomado (o retomado): mientras sondeaba otro nodo las marcas en memoria quedaron viejas
+            recargarMarcas();
+            tokenSondeo = token.get();
+        }
+        cargarMarcasSiHaceFalta();
+        long ahora = System.currentTimeMillis();
+        planificador.sincronizar(registroDispositivos.todos().stream().map(DispositivoResponseDTO::getId).toList(), ahora);
+        List<Integer> vencidos = planificador.vencidos(ahora, maximoPorTick);
+        if (vencidos.isEmpty()) {
+            return;
+        }
+
+        // Reenvios recibidos por cualquier nodo dentro de la ventana
+        Map<Integer, Long> reenvios = ingestaDispositivoRepository.buscarReenviosDesde(ahora - ventanaPushMs);
+        OffsetDateTime hasta = OffsetDateTime.now(ZoneOffset.UTC);
+        Semaphore enCurso = new Semaphore(concurrenciaSondeo);
+        List<CompletableFuture<Void>> sondeos = new ArrayList<>(vencidos.size());
+        for (Integer deviceId : vencidos) {
+            enCurso.acquireUninterruptibly();
+            sondeos.add(CompletableFuture.runAsync(() -> {
+                Boolean activo = null;
+                try {
+                    activo = ingerirDispositivo(deviceId, hasta, reenvios, token.get());
+                } catch (LiderazgoPerdidoException e) {
+                    log.warn("Se descarta el sondeo del dispositivo {}: {}", deviceId, e.getMessage());
+                } catch (RuntimeException e) {
+                    log.warn("No se pudieron ingerir las posiciones del dispositivo {}: {}", deviceId, e.getMessage());
+                } finally {
+                    if (activo != null) {
+                        planificador.reprogramar(deviceId, activo, System.currentTimeMillis());
+                    } else {
+                        planificador.reintentar(deviceId, System.currentTimeMillis());
+                    }
+                    enCurso.release();
+                }
+            }, traccarExecutor));
+        }
+        CompletableFuture.allOf(sondeos.toArray(new CompletableFuture[0])).join();
+    }
+
+    // Devuelve si el dispositivo se esta moviendo o tiene el motor encendido
+    private boolean ingerirDispositivo(Integer deviceId, OffsetDateTime hasta, Map<Integer, Long> reenvios, long token) {
+        // Si Traccar nos esta reenviando las posiciones de este dispositivo no hace falta pedirlas;
+        // se lo sigue mirando seguido para retomar el sondeo apenas se corte el reenvio
+        if (reenvios.containsKey(deviceId)) {
+            return true;
+        }
+
+        Long marca = ultimaIngerida.get(deviceId);
+        OffsetDateTime desde = marca != null
+                ? aFecha(marca)
+                : hasta.minusHours(horasHistorialInicial);
+
+        List<Posicion> recibidas = new ArrayList<>();
+        boolean activo = false;
+        for (PosicionRequestDTO posicion : traccarCliente.getPosicionesDispositivoTraccar(deviceId, desde, hasta)) {
+            if (posicion.getFixTime() != null) {
+                Posicion local = posicionMapper.toPosicionFromPosicionRequest(posicion);
+                recibidas.add(local);
+                // Solo cuenta lo nuevo: el extremo from repite la ultima posicion ya ingerida
+                if (marca == null || local.getFechaHora() > marca) {
+                    activo |= local.getVelocidad() > 0 || Boolean.TRUE.equals(local.getEncendido());
+                }
+            }
+        }
+        if (!recibidas.isEmpty()) {
+            escribir(Map.of(deviceId, recibidas), token);
+        }
+        return activo;
+    }
+
+    @Override
+    public void guardarPosiciones(List<PosicionRequestDTO> posiciones) {
+        cargarMarcasSiHaceFalta();
+        long ahora = System.currentTimeMillis();
+        Map<Integer, List<Posicion>> porDispositivo = new HashMap<>();
+        for (PosicionRequestDTO posicion : posiciones) {
+            if (posicion.getFixTime() == null) {
+                continue;
+            }
+            porDispositivo.computeIfAbsent(posicion.getDeviceId(), k -> new ArrayList<>())
+                    .add(posicionMapper.toPosicionFromPosicionRequest(posicion));
+        }
+        if (porDispositivo.isEmpty()) {
+            return;
+        }
+        escribir(porDispositivo, null);
+
+        // Se anota despues de guardar: si el lote fallo, el nodo que sondea tiene que seguir pidiendolas
+        Map<Integer, Long> anotar = new HashMap<>();
+        for (Integer deviceId : porDispositivo.keySet()) {
+            Long anotado = reenvioAnotado.get(deviceId);
+            if (anotado == null || ahora - anotado >= ventanaPushMs / 4) {
+                anotar.put(deviceId, ahora);
+            }
+        }
+        if (!anotar.isEmpty()) {
+            ingestaDispositivoRepository.registrarReenvios(anotar);
+            reenvioAnotado.putAll(anotar);
+        }
+    }
+
+    // Unico punto de escritura para el sondeo y el reenvio: inserta en un solo lote JDBC y recien
+    // despues avanza las marcas. La marca solo decide desde donde sondear, no filtra: una posicion
+    // atrasada (buffer del equipo tras una zona sin senal, reintento de Traccar) tambien se guarda.
+    // Los duplicados los descarta el insert por traccar_id, asi que al terminar el lote todo lo
+    // recibido esta guardado y la marca puede avanzar hasta la ultima fecha del lote. Lo sondeado se guarda solo con el token vigente
+    // del lease de sondeo; el reenvio llega a cualquier nodo y no depende del lease.
+    private synchronized void escribir(Map<Integer, List<Posicion>> porDispositivo, Long token) {
+        List<Posicion> nuevas = new ArrayList<>();
+        Map<Integer, Long> marcasNuevas = new HashMap<>();
+        Map<Integer, Long> primerasNuevas = new HashMap<>();
+        porDispositivo.forEach((deviceId, recibidas) -> {
+            recibidas.sort(Comparator.comparingLong(Posicion::getFechaHora));
+            Set<Long> vistas = new HashSet<>();
+            for (Posicion posicion : recibidas) {
+                // Traccar puede reenviar la misma posicion mas de una vez en un lote
+                if (vistas.add(posicion.getTraccarId())) {
+                    nuevas.add(posicion);
+                    marcasNuevas.merge(deviceId, posicion.getFechaHora(), Math::max);
+                    primerasNuevas.merge(deviceId, posicion.getFechaHora(), Math::min);
+                }
+            }
+        });
+        if (nuevas.isEmpty()) {
+            return;
+        }
+
+        if (token != null) {
+            transactionTemplate.executeWithoutResult(status -> {
+                candadoTareaService.validarToken(TAREA_SONDEO, token);
+                posicionLoteRepository.insertarLote(nuevas);
+            });
+        } else {
+            posicionLoteRepository.insertarLote(nuevas);
+        }
+        marcasNuevas.forEach((deviceId, fecha) -> ultimaIngerida.merge(deviceId, fecha, Math::max));
+        primerasNuevas.forEach((deviceId, fecha) -> primeraIngerida.merge(deviceId, fecha, Math::min));
+    }
+
+    @Override
+    public List<PosicionResponseDTO> obtenerPosiciones(Integer deviceId, OffsetDateTime from, OffsetDateTime to) {
+        List<PosicionResponseDTO> posiciones = new ArrayList<>();
+        recorrerPosiciones(deviceId, from, to, posiciones::add);
+        return posiciones;
+    }
+
+    @Override
+    public void recorrerPosiciones(Integer deviceId, OffsetDateTime from, OffsetDateTime to, Consumer<PosicionResponseDTO> consumidor) {
+        cargarMarcasSiHaceFalta();
+        long desde = from.toInstant().toEpochMilli();
+        long hasta = to.toInstant().toEpochMilli();
+        Long marca = ultimaIngerida.get(deviceId);
+        Long primera = primeraIngerida.get(deviceId);
+
+        if (marca == null || primera == null || marca < desde || hasta < primera) {
+            recorrerDesdeTraccar(deviceId, from, to,
+                    posicion -> consumidor.accept(posicionMapper.toPoscicionResponseFromPosicionRequest(posicion)));
+            return;
+        }
+
+        if (desde < primera) {
+            // Tramo anterior a la ingesta: la base no lo tiene y se pide a Traccar hasta la primera ingerida
+            recorrerDesdeTraccar(deviceId, from, aFecha(primera), posicion -> {
+                if (posicion.getFixTime() != null && posicion.getFixTime().toInstant().toEpochMilli() < primera) {
+                    consumidor.accept(posicionMapper.toPoscicionResponseFromPosicionRequest(posicion));
+                }
+            });
+        }
+
+        posicionLoteRepository.recorrerEntreFechas(deviceId, Math.max(desde, primera), Math.min(hasta, marca),
+                posicion -> consumidor.accept(posicionMapper.toPosicionResponseFromPosicion(posicion)));
+
+        if (hasta > marca) {
+            // Tramo todavia no ingerido: se pide a Traccar solo lo posterior a la marca
+            recorrerDesdeTraccar(deviceId, aFecha(marca), to, posicion -> {
+                if (posicion.getFixTime() != null && posicion.getFixTime().toInstant().toEpochMilli() > marca) {
+                    consumidor.accept(posicionMapper.toPoscicionResponseFromPosicionRequest(posicion));
+                }
+            });
+        }
+    }
+
+    // Un rango largo en una sola llamada a /positions suele cortarse por timeout: se parte en tramos
+    // que se piden en paralelo (acotado) y se entregan en orden. Cada tramo se transmite a una cola
+    // acotada en vez de juntarse en una lista, asi la memoria no crece con el largo del rango; el
+    // tramo mas viejo se entrega a medida que llega y los siguientes esperan con la cola llena.
+    private void recorrerDesdeTraccar(Integer deviceId, OffsetDateTime from, OffsetDateTime to, Consumer<PosicionRequestDTO> consumidor) {
+        Duration tramo = Duration.ofHours(horasPorTramo);
+        if (horasPorTramo <= 0 || !from.plus(tramo).isBefore(to)) {
+            traccarCliente.recorrerPosiciones(deviceId, from, to, consumidor);
+            return;
+        }
+
+        List<OffsetDateTime> cortes = new ArrayList<>();
+        for (OffsetDateTime corte = from; corte.isBefore(to); corte = corte.plus(tramo)) {
+            cortes.add(corte);
+        }
+        cortes.add(to);
+        int tramos = cortes.size() - 1;
+
+        // Como mucho tramosEnParalelo pedidos a la vez; el siguiente sale cuando se entrega el mas viejo.
+        // Con tramosExecutor lleno se sigue con menos paralelismo, y sin ningun tramo en curso se lee en este hilo
+        Deque<Tramo> enCurso = new ArrayDeque<>();
+        int siguiente = 0;
+        try {
+            while (siguiente < tramos || !enCurso.isEmpty()) {
+                while (enCurso.size() < Math.max(1, tramosEnParalelo) && siguiente < tramos) {
+                    Tramo pedido = pedirTramo(deviceId, cortes.get(siguiente), cortes.get(siguiente + 1), siguiente == tramos - 1);
+                    if (pedido == null) {
+                        break;
+                    }
+                    enCurso.add(pedido);
+                    siguiente++;
+                }
+                if (enCurso.isEmpty()) {
+                    recorrerTramo(deviceId, cortes.get(siguiente), cortes.get(siguiente + 1), siguiente == tramos - 1, consumidor);
+                    siguiente++;
+                    continue;
+                }
+                enCurso.peek().entregar(consumidor);
+                enCurso.poll();
+            }
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException causa ? causa : e;
+        } finally {
+            enCurso.forEach(Tramo::cancelar);
+        }
+    }
+
+    // Los lectores corren en tramosExecutor y no en traccarExecutor: quedan bloqueados mientras el cliente
+    // no lee, y no pueden dejar sin hilos al sondeo ni a los reportes. null si el pool esta lleno
+    private Tramo pedirTramo(Integer deviceId, OffsetDateTime desde, OffsetDateTime hasta, boolean ultimo) {
+        Tramo tramo = new Tramo(Math.max(1, posicionesEnMemoriaPorTramo), esperaClienteMs);
+        try {
+            tramo.pedido = CompletableFuture.runAsync(() -> {
+                for (int intento = 1; ; intento++) {
+                    try {
+                        recorrerTramo(deviceId, desde, hasta, ultimo, tramo::poner);
+                        return;
+                    } catch (RuntimeException e) {
+                        // Solo se reintenta si todavia no se entrego nada del tramo, para no repetir posiciones
+                        if (tramo.cancelado || tramo.puestas > 0 || intento >= INTENTOS_POR_TRAMO) {
+                            throw e;
+                        }
+                        log.debug("Reintento {} del tramo {} - {} del dispositivo {}: {}", intento, desde, hasta, deviceId, e.getMessage());
+                    }
+                }
+            }, tramosExecutor);
+        } catch (RejectedExecutionException e) {
+            return null;
+        }
+        return tramo;
+    }
+
+    private void recorrerTramo(Integer deviceId, OffsetDateTime desde, OffsetDateTime hasta, boolean ultimo, Consumer<PosicionRequestDTO> consumidor) {
+        traccarCliente.recorrerPosiciones(deviceId, desde, hasta, posicion -> {
+            // Traccar incluye los dos extremos: el borde queda para el tramo siguiente
+            if (posicion.getFixTime() != null && (ultimo || posicion.getFixTime().isBefore(hasta))) {
+                consumidor.accept(posicion);
+            }
+        });
+    }
+
+    // Escribe el arreglo JSON a medida que llegan las posiciones, sin juntarlas en una lista
+    @Override
+    public void escribirPosiciones(Integer deviceId, OffsetDateTime from, OffsetDateTime to, OutputStream salida) throws IOException {
+        // Sin flush por cada posicion: el buffer del generador decide cuando escribir
+        ObjectWriter escritor = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try (JsonGenerator generador = objectMapper.getFactory().createGenerator(salida)) {
+            generador.writeStartArray();
+            recorrerPosiciones(deviceId, from, to, posicion -> {
+                try {
+                    escritor.writeValue(generador, posicion);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            generador.writeEndArray();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    // Pagina solo sobre lo ingerido. El cursor es "fechaHora_id" de la ultima posicion devuelta.
+    @Override
+    public PaginaPosicionesResponseDTO obtenerPagina(Integer deviceId, OffsetDateTime from, OffsetDateTime to, String cursor, int limite) {
+        if (limite <= 0 || limite > LIMITE_MAXIMO_PAGINA) {
+            throw new BadRequestException("El limite debe estar entre 1 y " + LIMITE_MAXIMO_PAGINA);
+        }
+
+        long fechaHoraCursor = from.toInstant().toEpochMilli();
+        long idCursor = -1;
+        if (cursor != null && !cursor.isBlank()) {
+            String[] partes = cursor.split("_");
+            try {
+                fechaHoraCursor = Long.parseLong(partes[0]);
+                idCursor = Long.parseLong(partes[1]);
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                throw new BadRequestException("Cursor invalido: " + cursor);
+            }
+        } else {
+            // Sin cursor se incluye la primera posicion con fecha igual a from
+            fechaHoraCursor -= 1;
+        }
+
+        List<Posicion> pagina = posicionRepository.findPaginaByDeviceId(
+                deviceId, fechaHoraCursor, idCursor, to.toInstant().toEpochMilli(), PageRequest.of(0, limite));
+
+        String siguienteCursor = null;
+        if (pagina.size() == limite) {
+            Posicion ultima = pagina.get(pagina.size() - 1);
+            siguienteCursor = ultima.getFechaHora() + "_" + ultima.getId();
+        }
+
+        return PaginaPosicionesResponseDTO.builder()
+                .posiciones(posicionMapper.mapPosicionesToPosicionesResponseDTO(pagina))
+                .siguienteCursor(siguienteCursor)
+                .build();
+    }
+
+    private synchronized void recargarMarcas() {
+        ultimaIngerida.clear();
+        primeraIngerida.clear();
+        marcasCargadas = false;
+    }
+
+    private void cargarMarcasSiHaceFalta() {
+        if (marcasCargadas) {
+            return;
+        }
+        synchronized (this) {
+            if (marcasCargadas) {
+                return;
+            }
+            for (Object[] fila : posicionRepository.findRangoFechaHoraPorDispositivo()) {
+                primeraIngerida.merge((Integer) fila[0], ((Number) fila[1]).longValue(), Math::min);
+                ultimaIngerida.merge((Integer) fila[0], ((Number) fila[2]).longValue(), Math::max);
+            }
+            marcasCargadas = true;
+        }
+    }
+
+    private OffsetDateTime aFecha(long epochMillis) {
+        return Instant.ofEpochMilli(epochMillis).atOffset(ZoneOffset.UTC);
+    }
+
+    // Cola acotada entre el hilo que lee un tramo de Traccar y el que lo entrega en orden
+    private static class Tramo {
+        private final BlockingQueue<PosicionRequestDTO> posiciones;
+        private final long esperaMaximaMs;
+        private volatile CompletableFuture<Void> pedido;
+        private volatile boolean cancelado;
+        private volatile int puestas;
+
+        private Tramo(int capacidad, long esperaMaximaMs) {
+            this.posiciones = new ArrayBlockingQueue<>(capacidad);
+            this.esperaMaximaMs = esperaMaximaMs;
+        }
+
+        private void poner(PosicionRequestDTO posicion) {
+            long limite = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(esperaMaximaMs);
+            try {
+                while (!posiciones.offer(posicion, ESPERA_COLA_MS, TimeUnit.MILLISECONDS)) {
+                    if (cancelado) {
+                        throw new CancellationException("Tramo cancelado");
+                    }
+                    if (System.nanoTime() - limite > 0) {
+                        // El cliente dejo de leer: se corta la descarga de Traccar en vez de retener el hilo
+                        cancelado = true;
+                        throw new CancellationException("El cliente no leyo el tramo en " + esperaMaximaMs + " ms");
+                    }
+                }
+                puestas++;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Tramo interrumpido");
+            }
+        }
+
+        // Entrega hasta que el pedido termina y la cola queda vacia; si el pedido fallo, propaga el error
+        private void entregar(Consumer<PosicionRequestDTO> consumidor) {
+            try {
+                while (true) {
+                    PosicionRequestDTO posicion = posiciones.poll(ESPERA_COLA_MS, TimeUnit.MILLISECONDS);
+                    if (posicion != null) {
+                        consumidor.accept(posicion);
+                    } else if (pedido.isDone() && posiciones.isEmpty()) {
+                        break;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Entrega interrumpida");
+            }
+            pedido.join();
+        }
+
+        private void cancelar() {
+            cancelado = true;
+            posiciones.clear();
+        }
+    }
+}
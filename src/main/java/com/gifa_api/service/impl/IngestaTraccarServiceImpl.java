@@ -0,0 +1,118 @@
+package com.gifa_api.service.impl;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.gifa_api.client.PosicionesRecibidasEvent;
+import com.gifa_api.dto.traccar.PosicionRequestDTO;
+import com.gifa_api.dto.traccar.ReenvioTraccarDTO;
+import com.gifa_api.exception.BadRequestException;
+import com.gifa_api.service.IHistorialPosicionesService;
+import com.gifa_api.service.IIngestaTraccarService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+// Recibe lo que Traccar reenvia por HTTP y lo deja en un buffer circular acotado. Un solo hilo lo
+// vacia cada pocos cientos de ms: primero a la cache en vivo y despues a la tabla posicion en lote.
+@Slf4j
+@Service
+public class IngestaTraccarServiceImpl implements IIngestaTraccarService {
+
+    private final IHistorialPosicionesService historialPosicionesService;
+    private final ApplicationEventPublisher publisher;
+    private final ObjectReader lectorReenvio;
+    private final BlockingQueue<PosicionRequestDTO> buffer;
+    private final int tamanioLote;
+    private final byte[] secreto;
+    private final long ventanaActivaMs;
+
+    private volatile long ultimaRecepcion;
+
+    public IngestaTraccarServiceImpl(IHistorialPosicionesService historialPosicionesService,
+                                     ApplicationEventPublisher publisher,
+                                     ObjectMapper objectMapper,
+                                     @Value("${traccar.ingesta.secreto:}") String secreto,
+                                     @Value("${traccar.ingesta.capacidad-buffer:20000}") int capacidadBuffer,
+                                     @Value("${traccar.ingesta.tamanio-lote:1000}") int tamanioLote,
+                                     @Value("${traccar.ingesta.ventana-push-ms:120000}") long ventanaActivaMs) {
+        this.historialPosicionesService = historialPosicionesService;
+        this.publisher = publisher;
+        this.lectorReenvio = objectMapper.readerFor(ReenvioTraccarDTO.class)
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        this.buffer = new ArrayBlockingQueue<>(capacidadBuffer);
+        this.tamanioLote = tamanioLote;
+        this.secreto = secreto.getBytes(StandardCharsets.UTF_8);
+        this.ventanaActivaMs = ventanaActivaMs;
+    }
+
+    // Sin secreto configurado el endpoint queda cerrado
+    @Override
+    public boolean secretoValido(String secreto) {
+        return this.secreto.length > 0 && secreto != null
+                && MessageDigest.isEqual(this.secreto, secreto.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Acepta un reenvio suelto o un arreglo. Si el lote no entra se rechaza entero para que Traccar lo reintente.
+    @Override
+    public boolean encolar(JsonNode cuerpo) {
+        List<PosicionRequestDTO> posiciones = new ArrayList<>();
+        if (cuerpo.isArray()) {
+            cuerpo.forEach(nodo -> agregarPosicion(nodo, posiciones));
+        } else {
+            agregarPosicion(cuerpo, posiciones);
+        }
+
+        if (buffer.remainingCapacity() < posiciones.size()) {
+            log.warn("Buffer de ingesta lleno, se rechazan {} posiciones", posiciones.size());
+            return false;
+        }
+        posiciones.forEach(buffer::offer);
+        ultimaRecepcion = System.currentTimeMillis();
+        return true;
+    }
+
+    @Override
+    public boolean activa() {
+        return ultimaRecepcion > 0 && System.currentTimeMillis() - ultimaRecepcion < ventanaActivaMs;
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${traccar.ingesta.intervalo-vaciado-ms:250}")
+    public void vaciar() {
+        List<PosicionRequestDTO> lote = new ArrayList<>(Math.min(tamanioLote, buffer.size()));
+        while (buffer.drainTo(lote, tamanioLote) > 0) {
+            publisher.publishEvent(new PosicionesRecibidasEvent(lote));
+            try {
+                historialPosicionesService.guardarPosiciones(lote);
+            } catch (RuntimeException e) {
+                log.error("No se pudo guardar un lote de {} posiciones reenviadas: {}", lote.size(), e.getMessage());
+            }
+            lote = new ArrayList<>(Math.min(tamanioLote, buffer.size()));
+        }
+    }
+
+    private void agregarPosicion(JsonNode nodo, List<PosicionRequestDTO> posiciones) {
+        ReenvioTraccarDTO reenvio;
+        try {
+            reenvio = lectorReenvio.readValue(nodo);
+        } catch (IOException e) {
+            throw new BadRequestException("Reenvio de Traccar invalido: " + e.getMessage());
+        }
+        // Los eventos sin posicion (por ejemplo deviceOnline) no aportan nada al historial
+        if (reenvio.getPosition() != null && reenvio.getPosition().getFixTime() != null) {
+            posiciones.add(reenvio.getPosition());
+        }
+    }
+}
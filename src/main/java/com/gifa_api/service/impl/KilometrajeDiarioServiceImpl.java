@@ -0,0 +1,211 @@
+package com.gifa_api.service.impl;
+
+import com.gifa_api.client.ITraccarCliente;
+import com.gifa_api.client.RegistroDispositivosTraccar;
+import com.gifa_api.dto.traccar.DispositivoResponseDTO;
+import com.gifa_api.dto.traccar.KilometrosResponseDTO;
+import com.gifa_api.exception.LiderazgoPerdidoException;
+import com.gifa_api.model.KilometrajeDiario;
+import com.gifa_api.repository.IKilometrajeDiarioRepository;
+import com.gifa_api.service.ICandadoTareaService;
+import com.gifa_api.service.IKilometrajeDiarioService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// La distancia de un dia cerrado se guarda una vez por dispositivo y dia; la tarea nocturna
+// vuelve a pedir los ultimos dias para corregir lo que cambio por posiciones atrasadas.
+// Un rango se responde sumando los dias guardados y consultando a Traccar solo los tramos
+// que no cubren un dia cerrado completo (los bordes del rango y el dia de hoy).
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class KilometrajeDiarioServiceImpl implements IKilometrajeDiarioService {
+
+    static final String TAREA = "kilometraje-diario";
+
+    private final ITraccarCliente traccarCliente;
+    private final IKilometrajeDiarioRepository kilometrajeDiarioRepository;
+    private final RegistroDispositivosTraccar registroDispositivos;
+    private final ICandadoTareaService candadoTareaService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${traccar.zona-horaria:America/Argentina/Buenos_Aires}")
+    private String zonaHoraria;
+
+    // Dias hacia atras (contando ayer) que se vuelven a pedir cada noche
+    @Value("${traccar.kilometraje-diario.dias-recalculados:3}")
+    private int diasRecalculados;
+
+    @Override
+    public Map<Integer, Double> kilometrosEntreFechas(List<Integer> deviceIds, OffsetDateTime from, OffsetDateTime to) {
+        Map<Integer, Double> kilometros = new HashMap<>();
+        if (deviceIds.isEmpty() || !from.isBefore(to)) {
+            return kilometros;
+        }
+
+        ZoneId zona = ZoneId.of(zonaHoraria);
+        LocalDate primerDiaCompleto = from.atZoneSameInstant(zona).toLocalDate();
+        if (!inicioDelDia(primerDiaCompleto, zona).isEqual(from)) {
+            primerDiaCompleto = primerDiaCompleto.plusDays(1);
+        }
+        LocalDate ultimoDiaCompleto = to.atZoneSameInstant(zona).toLocalDate().minusDays(1);
+        LocalDate ayer = LocalDate.now(zona).minusDays(1);
+        if (ultimoDiaCompleto.isAfter(ayer)) {
+            ultimoDiaCompleto = ayer;
+        }
+
+        if (primerDiaCompleto.isAfter(ultimoDiaCompleto)) {
+            sumar(kilometros, consultarTraccar(deviceIds, from, to));
+            return kilometros;
+        }
+
+        OffsetDateTime inicioDiasCerrados = inicioDelDia(primerDiaCompleto, zona);
+        OffsetDateTime finDiasCerrados = inicioDelDia(ultimoDiaCompleto.plusDays(1), zona);
+        if (from.isBefore(inicioDiasCerrados)) {
+            sumar(kilometros, consultarTraccar(deviceIds, from, inicioDiasCerrados));
+        }
+        sumar(kilometros, kilometrosDeDiasCerrados(deviceIds, primerDiaCompleto, ultimoDiaCompleto, zona, null));
+        if (finDiasCerrados.isBefore(to)) {
+            sumar(kilometros, consultarTraccar(deviceIds, finDiasCerrados, to));
+        }
+        return kilometros;
+    }
+
+    // Cierra ayer y recalcula los dias anteriores de la ventana: las posiciones que le llegan tarde
+    // a Traccar (equipos sin senal que descargan al reconectar) cambian la distancia de un dia ya guardado
+    @Scheduled(cron = "0 30 0 * * *", zone = "${traccar.zona-horaria:America/Argentina/Buenos_Aires}")
+    public void completarDiaAnterior() {
+        Optional<Long> token = candadoTareaService.tomar(TAREA);
+        if (token.isEmpty()) {
+            return;
+        }
+        ZoneId zona = ZoneId.of(zonaHoraria);
+        LocalDate ayer = LocalDate.now(zona).minusDays(1);
+        List<Integer> deviceIds = registroDispositivos.todos().stream()
+                .map(DispositivoResponseDTO::getId)
+                .collect(Collectors.toList());
+        if (deviceIds.isEmpty()) {
+            return;
+        }
+        for (LocalDate dia = ayer.minusDays(Math.max(0, diasRecalculados - 1)); !dia.isAfter(ayer); dia = dia.plusDays(1)) {
+            try {
+                recalcularDia(deviceIds, dia, zona, token.get());
+            } catch (LiderazgoPerdidoException e) {
+                log.warn("Se interrumpe el kilometraje diario del {}: {}", dia, e.getMessage());
+                return;
+            } catch (RuntimeException e) {
+                log.warn("No se pudo completar el kilometraje diario del {}: {}", dia, e.getMessage());
+            }
+        }
+    }
+
+    // token es el del lease de la tarea nocturna; en un pedido es null y no se valida
+    private Map<Integer, Double> kilometrosDeDiasCerrados(List<Integer> deviceIds, LocalDate desde, LocalDate hasta, ZoneId zona, Long token) {
+        Map<Integer, Double> kilometros = new HashMap<>();
+        Map<LocalDate, Set<Integer>> dispositivosGuardadosPorDia = new HashMap<>();
+        for (KilometrajeDiario dia : kilometrajeDiarioRepository.findByDeviceIdsAndFechaBetween(deviceIds, desde, hasta)) {
+            kilometros.merge(dia.getDeviceId(), dia.getDistancia(), Double::sum);
+            dispositivosGuardadosPorDia.computeIfAbsent(dia.getFecha(), fecha -> new HashSet<>()).add(dia.getDeviceId());
+        }
+
+        for (LocalDate dia = desde; !dia.isAfter(hasta); dia = dia.plusDays(1)) {
+            Set<Integer> guardados = dispositivosGuardadosPorDia.getOrDefault(dia, Set.of());
+            List<Integer> faltantes = deviceIds.stream()
+                    .filter(deviceId -> !guardados.contains(deviceId))
+                    .collect(Collectors.toList());
+            if (!faltantes.isEmpty()) {
+                sumar(kilometros, completarDia(faltantes, dia, zona, token));
+            }
+        }
+        return kilometros;
+    }
+
+    private Map<Integer, Double> completarDia(List<Integer> deviceIds, LocalDate dia, ZoneId zona, Long token) {
+        Map<Integer, Double> kilometros = consultarTraccar(deviceIds, inicioDelDia(dia, zona), inicioDelDia(dia.plusDays(1), zona));
+
+        List<KilometrajeDiario> nuevos = new ArrayList<>();
+        for (Integer deviceId : deviceIds) {
+            nuevos.add(KilometrajeDiario
+                    .builder()
+                    .deviceId(deviceId)
+                    .fecha(dia)
+                    .distancia(kilometros.getOrDefault(deviceId, 0.0))
+                    .build());
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (token != null) {
+                    candadoTareaService.validarToken(TAREA, token);
+                }
+                kilometrajeDiarioRepository.saveAll(nuevos);
+            });
+        } catch (DataIntegrityViolationException e) {
+            // Otro pedido guardo el mismo dia en paralelo, el valor es el mismo
+            log.debug("Kilometraje diario del {} ya guardado: {}", dia, e.getMessage());
+        }
+        return kilometros;
+    }
+
+    // Pisa la distancia guardada con la que informa Traccar ahora y agrega los dispositivos que faltaban
+    private void recalcularDia(List<Integer> deviceIds, LocalDate dia, ZoneId zona, long token) {
+        Map<Integer, Double> kilometros = consultarTraccar(deviceIds, inicioDelDia(dia, zona), inicioDelDia(dia.plusDays(1), zona));
+        Map<Integer, KilometrajeDiario> guardados = new HashMap<>();
+        for (KilometrajeDiario guardado : kilometrajeDiarioRepository.findByDeviceIdsAndFechaBetween(deviceIds, dia, dia)) {
+            guardados.put(guardado.getDeviceId(), guardado);
+        }
+
+        List<KilometrajeDiario> cambios = new ArrayList<>();
+        for (Integer deviceId : deviceIds) {
+            double distancia = kilometros.getOrDefault(deviceId, 0.0);
+            KilometrajeDiario guardado = guardados.get(deviceId);
+            if (guardado == null) {
+                cambios.add(KilometrajeDiario.builder().deviceId(deviceId).fecha(dia).distancia(distancia).build());
+            } else if (guardado.getDistancia() != distancia) {
+                guardado.setDistancia(distancia);
+                cambios.add(guardado);
+            }
+        }
+        if (cambios.isEmpty()) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            candadoTareaService.validarToken(TAREA, token);
+            kilometrajeDiarioRepository.saveAll(cambios);
+        });
+    }
+
+    private Map<Integer, Double> consultarTraccar(List<Integer> deviceIds, OffsetDateTime from, OffsetDateTime to) {
+        Map<Integer, Double> kilometros = new HashMap<>();
+        for (KilometrosResponseDTO resumen : traccarCliente.getKilometrosDeDispositivos(deviceIds, from, to)) {
+            if (resumen.getDistance() != null) {
+                kilometros.merge(resumen.getDeviceId(), resumen.getDistance().doubleValue(), Double::sum);
+            }
+        }
+        return kilometros;
+    }
+
+    private OffsetDateTime inicioDelDia(LocalDate dia, ZoneId zona) {
+        return dia.atStartOfDay(zona).toOffsetDateTime();
+    }
+
+    private void sumar(Map<Integer, Double> total, Map<Integer, Double> parcial) {
+        parcial.forEach((deviceId, km) -> total.merge(deviceId, km, Double::sum));
+    }
+}
@@ -0,0 +1,383 @@
+package com.gifa_api.service.impl;
+
+import com.gifa_api.client.RegistroDispositivosTraccar;
+import com.gifa_api.dto.traccar.CeldaMapaCalorResponseDTO;
+import com.gifa_api.dto.traccar.DispositivoResponseDTO;
+import com.gifa_api.dto.traccar.MapaCalorResponseDTO;
+import com.gifa_api.exception.BadRequestException;
+import com.gifa_api.exception.LiderazgoPerdidoException;
+import com.gifa_api.exception.NotFoundException;
+import com.gifa_api.model.CeldaMapaCalor;
+import com.gifa_api.model.DiaMapaCalor;
+import com.gifa_api.repository.IDispositivoRepository;
+import com.gifa_api.repository.IMapaCalorRepository;
+import com.gifa_api.repository.IPosicionLoteRepository;
+import com.gifa_api.service.ICandadoTareaService;
+import com.gifa_api.service.IHistorialPosicionesService;
+import com.gifa_api.service.IMapaCalorService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+// Las posiciones guardadas se agrupan en una grilla de celdas de celdaGrados con cantidad de
+// posiciones y tiempo de permanencia. Un dia cerrado no cambia, asi que sus celdas se guardan
+// una vez por dispositivo y dia; un rango suma esas celdas en la base y solo recorre posiciones
+// de los dias que faltan calcular y del dia en curso. Los dias que se guardan se recorren con el historial,
+// que pide a Traccar lo que la ingesta no cubre; si no, un dia anterior a la ingesta quedaria guardado
+// vacio y la tarea nocturna solo lo corrige dentro de sus dias-recalculados. Un pedido calcula a lo sumo calculosPorPedido
+// dispositivo-dias y deja el resto a un hilo de fondo; la tarea nocturna recalcula los ultimos dias
+// por las posiciones que llegan despues del cierre.
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class MapaCalorServiceImpl implements IMapaCalorService {
+
+    static final String TAREA = "mapa-calor";
+
+    private static final double MICROGRADOS = 1e6;
+
+    private final IPosicionLoteRepository posicionLoteRepository;
+    private final IHistorialPosicionesService historialPosicionesService;
+    private final IMapaCalorRepository mapaCalorRepository;
+    private final IDispositivoRepository dispositivoRepository;
+    private final RegistroDispositivosTraccar registroDispositivos;
+    private final TransactionTemplate transactionTemplate;
+    private final ICandadoTareaService candadoTareaService;
+    private final ExecutorService mapaCalorExecutor;
+
+    // Dias ya encolados para el hilo de fondo, para no encolarlos una vez por pedido
+    private final Set<LocalDate> enCola = ConcurrentHashMap.newKeySet();
+
+    @Value("${traccar.zona-horaria:America/Argentina/Buenos_Aires}")
+    private String zonaHoraria;
+
+    @Value("${mapa-calor.celda-grados:0.01}")
+    private double celdaGrados;
+
+    // Un hueco entre posiciones mas largo que esto no se cuenta entero como permanencia
+    @Value("${mapa-calor.permanencia-maxima-segundos:900}")
+    private long permanenciaMaximaSegundos;
+
+    // Tiempo despues de medianoche para dar un dia por cerrado. Tiene que superar la espera maxima
+    // del sondeo de un dispositivo inactivo, si no el dia se guarda antes de que lleguen sus posiciones
+    @Value("${mapa-calor.margen-cierre-minutos:120}")
+    private long margenCierreMinutos;
+
+    @Value("${mapa-calor.dias-recalculados:3}")
+    private int diasRecalculados;
+
+    // Dispositivo-dias que un pedido calcula en el momento; siempre se calcula al menos un dia
+    @Value("${mapa-calor.calculos-por-pedido:200}")
+    private long calculosPorPedido;
+
+    @Value("${mapa-calor.dias-maximos:366}")
+    private long diasMaximos;
+
+    @Override
+    public MapaCalorResponseDTO obtenerMapaCalor(LocalDate desde, LocalDate hasta, List<String> patentes) {
+        if (desde.isAfter(hasta)) {
+            throw new BadRequestException("La fecha desde no puede ser posterior a la fecha hasta");
+        }
+        if (ChronoUnit.DAYS.between(desde, hasta) >= diasMaximos) {
+            throw new BadRequestException("El rango no puede superar los " + diasMaximos + " dias");
+        }
+
+        List<Integer> deviceIds = dispositivosDe(patentes);
+        ZoneId zona = ZoneId.of(zonaHoraria);
+        int resolucion = resolucion();
+        Map<Long, Acumulado> celdas = new HashMap<>();
+        List<LocalDate> pendientes = List.of();
+
+        if (!deviceIds.isEmpty()) {
+            LocalDate ultimoCerrado = ultimoDiaCerrado(zona);
+            LocalDate finCerrados = hasta.isAfter(ultimoCerrado) ? ultimoCerrado : hasta;
+            if (!desde.isAfter(finCerrados)) {
+                pendientes = completarDias(deviceIds, desde, finCerrados, zona, resolucion, calculosPorPedido);
+                pendientes.forEach(this::encolar);
+                for (CeldaMapaCalor celda : mapaCalorRepository.sumarCeldas(deviceIds, desde, finCerrados, resolucion)) {
+                    celdas.computeIfAbsent(clave(celda.getCeldaLatitud(), celda.getCeldaLongitud()), clave -> new Acumulado())
+                            .sumar(celda.getCantidad(), celda.getPermanenciaSegundos() * 1000);
+                }
+            }
+
+            // Dias abiertos (hoy, o ayer antes del margen): se calculan en el momento y no se guardan
+            LocalDate hoy = LocalDate.now(zona);
+            LocalDate ultimoAbierto = hasta.isAfter(hoy) ? hoy : hasta;
+            for (LocalDate dia = desde.isAfter(finCerrados) ? desde : finCerrados.plusDays(1); !dia.isAfter(ultimoAbierto); dia = dia.plusDays(1)) {
+                for (Integer deviceId : deviceIds) {
+                    agregarDia(deviceId, dia, zona, resolucion).forEach((clave, acumulado) ->
+                            celdas.computeIfAbsent(clave, c -> new Acumulado()).sumar(acumulado.cantidad, acumulado.permanenciaMs));
+                }
+            }
+        }
+
+        List<CeldaMapaCalorResponseDTO> respuesta = new ArrayList<>(celdas.size());
+        celdas.forEach((clave, acumulado) -> respuesta.add(CeldaMapaCalorResponseDTO.builder()
+                .latitud(centro(celdaLatitud(clave), resolucion))
+                .longitud(centro(celdaLongitud(clave), resolucion))
+                .cantidad(acumulado.cantidad)
+                .permanenciaSegundos(acumulado.permanenciaMs / 1000)
+                .build()));
+        respuesta.sort(Comparator.comparingLong(CeldaMapaCalorResponseDTO::getPermanenciaSegundos).reversed());
+
+        return MapaCalorResponseDTO.builder()
+                .desde(desde)
+                .hasta(hasta)
+                .celdaGrados(resolucion / MICROGRADOS)
+                .dispositivos(deviceIds.size())
+                .parcial(!pendientes.isEmpty())
+                .diasPendientes(pendientes.size())
+                .celdas(respuesta)
+                .build();
+    }
+
+    // Deja calculado el dia anterior de toda la flota, asi los pedidos solo suman celdas guardadas,
+    // y vuelve a calcular los dias previos de la ventana con las posiciones que llegaron tarde
+    @Override
+    @Scheduled(cron = "${mapa-calor.cron:0 0 3 * * *}", zone = "${traccar.zona-horaria:America/Argentina/Buenos_Aires}")
+    public void completarDiaAnterior() {
+        Optional<Long> token = candadoTareaService.tomar(TAREA);
+        if (token.isEmpty()) {
+            return;
+        }
+        ZoneId zona = ZoneId.of(zonaHoraria);
+        int resolucion = resolucion();
+        LocalDate ultimoCerrado = ultimoDiaCerrado(zona);
+        List<Integer> deviceIds = registroDispositivos.todos().stream()
+                .map(DispositivoResponseDTO::getId)
+                .toList();
+        if (deviceIds.isEmpty()) {
+            return;
+        }
+        for (LocalDate dia = ultimoCerrado.minusDays(Math.max(0, diasRecalculados - 1)); !dia.isAfter(ultimoCerrado); dia = dia.plusDays(1)) {
+            try {
+                guardarDia(deviceIds, dia, zona, resolucion, token.get());
+            } catch (LiderazgoPerdidoException e) {
+                log.warn("Se interrumpe el mapa de calor del {}: {}", dia, e.getMessage());
+                return;
+            } catch (RuntimeException e) {
+                log.warn("No se pudo completar el mapa de calor del {}: {}", dia, e.getMessage());
+            }
+        }
+    }
+
+    // Calcula los dispositivo-dias que faltan hasta calculosMaximos y devuelve los dias que quedaron sin calcular
+    private List<LocalDate> completarDias(List<Integer> deviceIds, LocalDate desde, LocalDate hasta, ZoneId zona, int resolucion, long calculosMaximos) {
+        Map<LocalDate, Set<Integer>> calculados = mapaCalorRepository.findDiasCalculados(deviceIds, desde, hasta, resolucion);
+        List<LocalDate> pendientes = new ArrayList<>();
+        long calculos = 0;
+        for (LocalDate dia = desde; !dia.isAfter(hasta); dia = dia.plusDays(1)) {
+            Set<Integer> guardados = calculados.getOrDefault(dia, Set.of());
+            List<Integer> faltantes = deviceIds.stream()
+                    .filter(deviceId -> !guardados.contains(deviceId))
+                    .toList();
+            if (faltantes.isEmpty()) {
+                continue;
+            }
+            if (calculos >= calculosMaximos) {
+                pendientes.add(dia);
+                continue;
+            }
+            calculos += faltantes.size();
+            try {
+                guardarDia(faltantes, dia, zona, resolucion, null);
+            } catch (DataIntegrityViolationException e) {
+                // Otro pedido o nodo guardo el mismo dia en paralelo; las celdas son las mismas
+                log.debug("Mapa de calor del {} ya guardado: {}", dia, e.getMessage());
+            } catch (RuntimeException e) {
+                // Traccar no respondio el tramo sin ingerir: el dia no se guarda y queda pendiente
+                log.warn("No se pudo calcular el mapa de calor del {}: {}", dia, e.getMessage());
+                pendientes.add(dia);
+            }
+        }
+        return pendientes;
+    }
+
+    // Completa el dia para toda la flota fuera del pedido, asi sirve para cualquier conjunto de patentes
+    private void encolar(LocalDate dia) {
+        if (!enCola.add(dia)) {
+            return;
+        }
+        try {
+            mapaCalorExecutor.execute(() -> {
+                try {
+                    List<Integer> deviceIds = registroDispositivos.todos().stream()
+                            .map(DispositivoResponseDTO::getId)
+                            .toList();
+                    completarDias(deviceIds, dia, dia, ZoneId.of(zonaHoraria), resolucion(), Long.MAX_VALUE);
+                } catch (RuntimeException e) {
+                    log.warn("No se pudo precalcular el mapa de calor del {}: {}", dia, e.getMessage());
+                } finally {
+                    enCola.remove(dia);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            enCola.remove(dia);
+        }
+    }
+
+    // token es el del lease de la tarea nocturna, que reemplaza lo guardado; en un pedido es null,
+    // no se valida y solo se insertan los dispositivos que faltaban
+    private void guardarDia(List<Integer> deviceIds, LocalDate dia, ZoneId zona, int resolucion, Long token) {
+        List<DiaMapaCalor> dias = new ArrayList<>();
+        List<CeldaMapaCalor> nuevas = new ArrayList<>();
+        for (Integer deviceId : deviceIds) {
+            dias.add(DiaMapaCalor.builder().deviceId(deviceId).fecha(dia).resolucion(resolucion).build());
+            agregarDiaCerrado(deviceId, dia, zona, resolucion).forEach((clave, acumulado) -> nuevas.add(CeldaMapaCalor.builder()
+                    .deviceId(deviceId)
+                    .fecha(dia)
+                    .resolucion(resolucion)
+                    .celdaLatitud(celdaLatitud(clave))
+                    .celdaLongitud(celdaLongitud(clave))
+                    .cantidad(acumulado.cantidad)
+                    .permanenciaSegundos(acumulado.permanenciaMs / 1000)
+                    .build()));
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            if (token != null) {
+                candadoTareaService.validarToken(TAREA, token);
+                mapaCalorRepository.borrarDia(deviceIds, dia, resolucion);
+            }
+            mapaCalorRepository.insertarDias(dias);
+            mapaCalorRepository.insertarCeldas(nuevas);
+        });
+    }
+
+    // Recorre las posiciones del dia en orden; cada posicion suma a su celda el tiempo hasta la siguiente.
+    // Los dias abiertos no se guardan, asi que alcanza con lo ingerido
+    private Map<Long, Acumulado> agregarDia(Integer deviceId, LocalDate dia, ZoneId zona, int resolucion) {
+        long inicio = dia.atStartOfDay(zona).toInstant().toEpochMilli();
+        long fin = dia.plusDays(1).atStartOfDay(zona).toInstant().toEpochMilli();
+        Agregador agregador = new Agregador(resolucion, permanenciaMaximaSegundos * 1000);
+        posicionLoteRepository.recorrerEntreFechas(deviceId, inicio, fin - 1,
+                posicion -> agregador.agregar(posicion.getFechaHora(), posicion.getLatitud(), posicion.getLongitud()));
+        return agregador.cerrar(Math.min(fin, System.currentTimeMillis()));
+    }
+
+    // Un dia que se guarda no se vuelve a calcular fuera de la ventana nocturna: se recorre con el
+    // historial, que completa desde Traccar lo anterior y lo posterior a la ingesta del dispositivo
+    private Map<Long, Acumulado> agregarDiaCerrado(Integer deviceId, LocalDate dia, ZoneId zona, int resolucion) {
+        long inicio = dia.atStartOfDay(zona).toInstant().toEpochMilli();
+        long fin = dia.plusDays(1).atStartOfDay(zona).toInstant().toEpochMilli();
+        Agregador agregador = new Agregador(resolucion, permanenciaMaximaSegundos * 1000);
+        historialPosicionesService.recorrerPosiciones(deviceId, aFecha(inicio, zona), aFecha(fin - 1, zona),
+                posicion -> agregador.agregar(posicion.getFechaHoraMs(), posicion.getLatitude(), posicion.getLongitude()));
+        return agregador.cerrar(fin);
+    }
+
+    private static OffsetDateTime aFecha(long epochMillis, ZoneId zona) {
+        return Instant.ofEpochMilli(epochMillis).atZone(zona).toOffsetDateTime();
+    }
+
+    private List<Integer> dispositivosDe(List<String> patentes) {
+        Map<String, String> unicoIdPorPatente = new HashMap<>();
+        for (Object[] fila : dispositivoRepository.findPatentesPorUnicoId()) {
+            unicoIdPorPatente.put((String) fila[1], (String) fila[0]);
+        }
+        boolean todas = patentes == null || patentes.isEmpty();
+        Collection<String> pedidas = todas ? unicoIdPorPatente.keySet() : patentes;
+
+        List<Integer> deviceIds = new ArrayList<>();
+        for (String patente : pedidas) {
+            String unicoId = unicoIdPorPatente.get(patente);
+            if (unicoId == null) {
+                throw new NotFoundException("No se encontró un dispositivo asignado al vehiculo con la patente : " + patente);
+            }
+            registroDispositivos.buscarPorUnicoId(unicoId)
+                    .map(DispositivoResponseDTO::getId)
+                    .ifPresent(deviceIds::add);
+        }
+        return deviceIds;
+    }
+
+    private LocalDate ultimoDiaCerrado(ZoneId zona) {
+        return ZonedDateTime.now(zona).minusMinutes(margenCierreMinutos).toLocalDate().minusDays(1);
+    }
+
+    private int resolucion() {
+        return (int) Math.round(celdaGrados * MICROGRADOS);
+    }
+
+    private static long clave(int celdaLatitud, int celdaLongitud) {
+        return ((long) celdaLatitud << 32) | (celdaLongitud & 0xffffffffL);
+    }
+
+    private static int celdaLatitud(long clave) {
+        return (int) (clave >> 32);
+    }
+
+    private static int celdaLongitud(long clave) {
+        return (int) clave;
+    }
+
+    private static int celda(double grados, int resolucion) {
+        return (int) Math.floorDiv(Math.round(grados * MICROGRADOS), (long) resolucion);
+    }
+
+    private static double centro(int celda, int resolucion) {
+        return (celda + 0.5) * resolucion / MICROGRADOS;
+    }
+
+    private static class Agregador {
+        private final int resolucion;
+        private final long permanenciaMaximaMs;
+        private final Map<Long, Acumulado> celdas = new HashMap<>();
+        private Acumulado actual;
+        private long fechaActual;
+
+        private Agregador(int resolucion, long permanenciaMaximaMs) {
+            this.resolucion = resolucion;
+            this.permanenciaMaximaMs = permanenciaMaximaMs;
+        }
+
+        private void agregar(long fechaHora, double latitud, double longitud) {
+            if (actual != null) {
+                actual.permanenciaMs += Math.min(fechaHora - fechaActual, permanenciaMaximaMs);
+            }
+            long clave = clave(celda(latitud, resolucion), celda(longitud, resolucion));
+            actual = celdas.computeIfAbsent(clave, c -> new Acumulado());
+            actual.cantidad++;
+            fechaActual = fechaHora;
+        }
+
+        // La ultima posicion suma hasta el fin del dia (o hasta ahora), con el mismo tope
+        private Map<Long, Acumulado> cerrar(long limite) {
+            if (actual != null && limite > fechaActual) {
+                actual.permanenciaMs += Math.min(limite - fechaActual, permanenciaMaximaMs);
+            }
+            return celdas;
+        }
+    }
+
+    private static class Acumulado {
+        private long cantidad;
+        private long permanenciaMs;
+
+        private void sumar(long cantidad, long permanenciaMs) {
+            this.cantidad += cantidad;
+            this.permanenciaMs += permanenciaMs;
+        }
+    }
+}
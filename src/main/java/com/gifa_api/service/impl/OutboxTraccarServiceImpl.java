@@ -0,0 +1,142 @@
+package com.gifa_api.service.impl;
+
+import com.gifa_api.exception.LiderazgoPerdidoException;
+import com.gifa_api.model.Dispositivo;
+import com.gifa_api.model.OutboxTraccar;
+import com.gifa_api.repository.IOutboxTraccarRepository;
+import com.gifa_api.service.ICandadoTareaService;
+import com.gifa_api.service.IOutboxTraccarService;
+import com.gifa_api.service.ITraccarService;
+import com.gifa_api.utils.enums.EstadoOutbox;
+import com.gifa_api.utils.enums.TipoOperacionOutbox;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OutboxTraccarServiceImpl implements IOutboxTraccarService {
+
+    static final String TAREA = "outbox-traccar";
+
+    private final IOutboxTraccarRepository outboxRepository;
+    private final ITraccarService traccarService;
+    private final ICandadoTareaService candadoTareaService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${traccar.outbox.tamanio-lote:50}")
+    private int tamanioLote;
+
+    @Value("${traccar.outbox.intentos-maximos:10}")
+    private int intentosMaximos;
+
+    @Value("${traccar.outbox.espera-base-ms:2000}")
+    private long esperaBaseMs;
+
+    @Value("${traccar.outbox.espera-maxima-ms:600000}")
+    private long esperaMaximaMs;
+
+    @Value("${traccar.outbox.dias-retencion:7}")
+    private int diasRetencion;
+
+    // Se llama dentro de la transaccion del registro del vehiculo: si el alta se revierte, la fila tambien
+    @Override
+    public void registrarCreacionDeDispositivo(Dispositivo dispositivo) {
+        OffsetDateTime ahora = OffsetDateTime.now();
+        outboxRepository.save(OutboxTraccar
+                .builder()
+                .tipo(TipoOperacionOutbox.CREAR_DISPOSITIVO)
+                .unicoId(dispositivo.getUnicoId())
+                .nombre(dispositivo.getNombre())
+                .estado(EstadoOutbox.PENDIENTE)
+                .intentos(0)
+                .proximoIntento(ahora)
+                .creado(ahora)
+                .build());
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${traccar.outbox.intervalo-ms:5000}")
+    public void despachar() {
+        Optional<Long> token = candadoTareaService.tomar(TAREA);
+        if (token.isEmpty()) {
+            return;
+        }
+        try {
+            List<OutboxTraccar> lote;
+            do {
+                lote = outboxRepository.findListosParaEnviar(EstadoOutbox.PENDIENTE, OffsetDateTime.now(),
+                        PageRequest.of(0, tamanioLote));
+                for (OutboxTraccar operacion : lote) {
+                    enviar(operacion);
+                }
+                List<OutboxTraccar> enviados = lote;
+                // Si otro nodo tomo el lease mientras se enviaba, el estado lo guarda el y no este
+                transactionTemplate.executeWithoutResult(status -> {
+                    candadoTareaService.validarToken(TAREA, token.get());
+                    outboxRepository.saveAll(enviados);
+                });
+                // Si el lote vino lleno puede haber mas pendientes listos; los que fallaron ya tienen proximoIntento futuro
+            } while (lote.size() == tamanioLote);
+
+            transactionTemplate.executeWithoutResult(status -> {
+                candadoTareaService.validarToken(TAREA, token.get());
+                outboxRepository.borrarEnviadosAntesDe(EstadoOutbox.ENVIADO, OffsetDateTime.now().minusDays(diasRetencion));
+            });
+        } catch (LiderazgoPerdidoException e) {
+            log.warn("Se interrumpe el despacho del outbox de Traccar: {}", e.getMessage());
+        }
+    }
+
+    private void enviar(OutboxTraccar operacion) {
+        try {
+            if (operacion.getTipo() == TipoOperacionOutbox.CREAR_DISPOSITIVO) {
+                // crearDispositivo es idempotente: no vuelve a crear un uniqueId que Traccar ya tiene
+                traccarService.crearDispositivo(Dispositivo
+                        .builder()
+                        .unicoId(operacion.getUnicoId())
+                        .nombre(operacion.getNombre())
+                        .build());
+            }
+            operacion.setEstado(EstadoOutbox.ENVIADO);
+            operacion.setEnviado(OffsetDateTime.now());
+            operacion.setUltimoError(null);
+        } catch (RuntimeException e) {
+            int intentos = operacion.getIntentos() + 1;
+            operacion.setIntentos(intentos);
+            operacion.setUltimoError(recortar(e.getMessage()));
+            if (intentos >= intentosMaximos) {
+                operacion.setEstado(EstadoOutbox.FALLIDO);
+                log.error("Operacion {} para {} descartada tras {} intentos: {}",
+                        operacion.getTipo(), operacion.getUnicoId(), intentos, e.getMessage());
+            } else {
+                operacion.setProximoIntento(OffsetDateTime.now().plusNanos(esperaMs(intentos) * 1_000_000L));
+                log.warn("Fallo {} para {} (intento {}), se reintenta: {}",
+                        operacion.getTipo(), operacion.getUnicoId(), intentos, e.getMessage());
+            }
+        }
+    }
+
+    // Backoff exponencial con jitter completo para no reintentar todo a la vez tras una caida de Traccar
+    long esperaMs(int intentos) {
+        long tope = Math.min(esperaMaximaMs, esperaBaseMs << Math.min(intentos - 1, 20));
+        return tope / 2 + ThreadLocalRandom.current().nextLong(tope / 2 + 1);
+    }
+
+    private String recortar(String mensaje) {
+        if (mensaje == null) {
+            return null;
+        }
+        return mensaje.length() > 500 ? mensaje.substring(0, 500) : mensaje;
+    }
+}
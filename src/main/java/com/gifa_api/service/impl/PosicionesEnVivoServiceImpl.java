@@ -0,0 +1,140 @@
+package com.gifa_api.service.impl;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gifa_api.client.BufferPosicionesEnVivo;
+import com.gifa_api.client.DifusorSse;
+import com.gifa_api.client.IFuentePosicionesEnVivo;
+import com.gifa_api.client.IndiceEspacialPosiciones;
+import com.gifa_api.client.PosicionesRecibidasEvent;
+import com.gifa_api.client.RegistroDispositivosTraccar;
+import com.gifa_api.dto.traccar.DispositivoResponseDTO;
+import com.gifa_api.dto.traccar.PosicionEnVivoResponseDTO;
+import com.gifa_api.dto.traccar.PosicionRequestDTO;
+import com.gifa_api.service.IIngestaTraccarService;
+import com.gifa_api.service.IPosicionesEnVivoService;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+// Ultimas posiciones de cada dispositivo, alimentadas por el socket y el reenvio de Traccar.
+// Los clientes se suscriben por SSE, asi la carga sobre Traccar no depende de cuantos miren el mapa.
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PosicionesEnVivoServiceImpl implements IPosicionesEnVivoService {
+
+    private final IFuentePosicionesEnVivo fuentePosiciones;
+    private final RegistroDispositivosTraccar registroDispositivos;
+    private final IIngestaTraccarService ingestaTraccarService;
+    private final IndiceEspacialPosiciones indiceEspacial;
+    private final BufferPosicionesEnVivo buffer;
+    private final ObjectMapper objectMapper;
+
+    // Los envios van en un hilo aparte para que un cliente lento no frene la lectura del socket
+    private final DifusorSse<PosicionEnVivoResponseDTO> difusor = new DifusorSse<>("sse-posiciones-", "posicion");
+
+    @Value("${traccar.socket.sse-timeout-ms:1800000}")
+    private long sseTimeoutMs;
+
+    @Override
+    public boolean disponible() {
+        return fuentePosiciones.estaConectado() || ingestaTraccarService.activa();
+    }
+
+    @Override
+    public Optional<PosicionRequestDTO> ultimaPosicion(Integer deviceId) {
+        return buffer.ultima(deviceId);
+    }
+
+    @Override
+    public Collection<PosicionRequestDTO> ultimasPosiciones() {
+        return buffer.ultimas();
+    }
+
+    // Se copia la ventana del anillo y se escribe campo por campo, sin armar un objeto por posicion
+    @Override
+    public void escribirRecientes(Integer deviceId, int cantidad, OutputStream salida) throws IOException {
+        BufferPosicionesEnVivo.Ventana ventana = buffer.recientes(deviceId, cantidad);
+        try (JsonGenerator generador = objectMapper.getFactory().createGenerator(salida)) {
+            generador.writeStartArray();
+            for (int i = 0; i < ventana.getCantidad(); i++) {
+                generador.writeStartObject();
+                generador.writeNumberField("id", ventana.getIds()[i]);
+                generador.writeNumberField("fechaHoraMs", ventana.getFechas()[i]);
+                generador.writeNumberField("latitude", ventana.getLatitudes()[i]);
+                generador.writeNumberField("longitude", ventana.getLongitudes()[i]);
+                generador.writeNumberField("speed", ventana.getVelocidades()[i]);
+                generador.writeNumberField("course", ventana.getRumbos()[i]);
+                generador.writeEndObject();
+            }
+            generador.writeEndArray();
+        }
+    }
+
+    @EventListener
+    public void onPosicionesRecibidas(PosicionesRecibidasEvent event) {
+        for (PosicionRequestDTO posicion : event.getPosiciones()) {
+            if (posicion.getFixTime() == null) {
+                continue;
+            }
+            // Traccar puede reenviar posiciones viejas (por ejemplo al reconectar); solo se avanza
+            if (!buffer.agregar(posicion)) {
+                continue;
+            }
+            indiceEspacial.actualizar(posicion);
+            if (difusor.haySuscripciones()) {
+                difusor.publicar(List.of(toPosicionEnVivo(posicion)));
+            }
+        }
+    }
+
+    @Override
+    public SseEmitter suscribir(Integer deviceId) {
+        // El cliente arranca con lo que ya se conoce y despues recibe solo los cambios
+        List<PosicionEnVivoResponseDTO> iniciales = (deviceId != null
+                ? ultimaPosicion(deviceId).stream()
+                : buffer.ultimas().stream())
+                .map(this::toPosicionEnVivo)
+                .toList();
+        return difusor.suscribir(sseTimeoutMs,
+                posicion -> deviceId == null || deviceId.equals(posicion.getDeviceId()),
+                iniciales);
+    }
+
+    @Scheduled(fixedDelay = 15000)
+    public void mantenerConexiones() {
+        difusor.mantenerConexiones();
+    }
+
+    @Override
+    public PosicionEnVivoResponseDTO toPosicionEnVivo(PosicionRequestDTO posicion) {
+        return PosicionEnVivoResponseDTO.builder()
+                .deviceId(posicion.getDeviceId())
+                .unicoId(registroDispositivos.buscarPorDeviceId(posicion.getDeviceId())
+                        .map(DispositivoResponseDTO::getUniqueId)
+                        .orElse(null))
+                .latitude(posicion.getLatitude())
+                .longitude(posicion.getLongitude())
+                .speed(posicion.getSpeed())
+                .course(posicion.getCourse())
+                .fechaHora(posicion.getFixTime())
+                .build();
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        difusor.cerrar();
+    }
+}
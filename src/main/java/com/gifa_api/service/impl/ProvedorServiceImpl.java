@@ -7,14 +7,17 @@ import com.gifa_api.exception.NotFoundException;
 import com.gifa_api.model.*;
 import com.gifa_api.repository.IPedidoRepository;
 import com.gifa_api.repository.IProveedorRepository;
+import com.gifa_api.service.ICandadoTareaService;
 import com.gifa_api.service.IProvedorService;
 import com.gifa_api.utils.enums.EstadoPedido;
 import com.gifa_api.utils.mappers.ProveedorMapper;
 import lombok.RequiredArgsConstructor;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.Random;
 
 @Service
@@ -24,6 +27,8 @@ public class ProvedorServiceImpl implements IProvedorService {
     private final IPedidoRepository pedidoRepository;
     private final Random random; // Inyecta Random como dependencia
     private final ProveedorMapper proveedorMapper;
+    private final ICandadoTareaService candadoTareaService;
+    private final TransactionTemplate transactionTemplate;
 
     @Override
     public void registrarProveedor(RegistroProveedorRequestDTO requestDTO) {
@@ -49,16 +54,24 @@ public class ProvedorServiceImpl implements IProvedorService {
 
     @Scheduled(fixedRate = 86400000)
     public void simulacionDeAceptacionORechazoProovedor() {
-        List<Pedido> pedidos = pedidoRepository.findPedidosByEstado(EstadoPedido.PENDIENTE);
-        for (Pedido pedido : pedidos) {
-            int decision = random.nextInt(100);  // Utiliza el Random inyectado
-            if (decision < 30) {
-                pedido.setEstadoPedido(EstadoPedido.RECHAZADO);
-            } else if (decision >= 30) {
-                pedido.setEstadoPedido(EstadoPedido.ACEPTADO);
-            }
-            pedidoRepository.save(pedido);
+        Optional<Long> token = candadoTareaService.tomar("simulacion-proveedores");
+        if (token.isEmpty()) {
+            return;
         }
+        transactionTemplate.executeWithoutResult(status -> {
+            // Si otro nodo tomo la tarea no se decide dos veces sobre los mismos pedidos
+            candadoTareaService.validarToken("simulacion-proveedores", token.get());
+            List<Pedido> pedidos = pedidoRepository.findPedidosByEstado(EstadoPedido.PENDIENTE);
+            for (Pedido pedido : pedidos) {
+                int decision = random.nextInt(100);  // Utiliza el Random inyectado
+                if (decision < 30) {
+                    pedido.setEstadoPedido(EstadoPedido.RECHAZADO);
+                } else if (decision >= 30) {
+                    pedido.setEstadoPedido(EstadoPedido.ACEPTADO);
+                }
+                pedidoRepository.save(pedido);
+            }
+        });
     }
 
     private void validarRegistroProveedorDTO(RegistroProveedorRequestDTO requestDTO) {
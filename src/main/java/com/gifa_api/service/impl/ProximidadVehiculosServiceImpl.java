@@ -0,0 +1,141 @@
+package com.gifa_api.service.impl;
+
+import com.gifa_api.client.ITraccarCliente;
+import com.gifa_api.client.IndiceEspacialPosiciones;
+import com.gifa_api.dto.traccar.PosicionEnVivoResponseDTO;
+import com.gifa_api.dto.traccar.PosicionRequestDTO;
+import com.gifa_api.dto.traccar.VehiculoCercanoResponseDTO;
+import com.gifa_api.exception.BadRequestException;
+import com.gifa_api.repository.IDispositivoRepository;
+import com.gifa_api.service.IPosicionesEnVivoService;
+import com.gifa_api.service.IProximidadVehiculosService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+// Consultas de cercania sobre el indice espacial que mantiene el feed en vivo. Sin socket ni
+// reenvio el indice se refresca con las ultimas posiciones de Traccar, como mucho una vez por ttl.
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ProximidadVehiculosServiceImpl implements IProximidadVehiculosService {
+
+    private static final int LIMITE_POR_DEFECTO = 50;
+
+    private final IndiceEspacialPosiciones indiceEspacial;
+    private final IPosicionesEnVivoService posicionesEnVivoService;
+    private final ITraccarCliente traccarCliente;
+    private final IDispositivoRepository dispositivoRepository;
+
+    // unicoId -> patente; se recarga periodicamente para no ir a la base en cada consulta
+    private volatile Map<String, String> patentes;
+    private volatile long refrescoNanos;
+
+    @Value("${traccar.indice.radio-maximo-metros:100000}")
+    private double radioMaximoMetros;
+
+    @Value("${traccar.flota.ttl-ms:5000}")
+    private long ttlMs;
+
+    @Override
+    public List<VehiculoCercanoResponseDTO> buscarEnRadio(double latitud, double longitud, double radioMetros, Integer limite) {
+        validarCoordenadas(latitud, longitud);
+        if (radioMetros <= 0 || radioMetros > radioMaximoMetros) {
+            throw new BadRequestException("El radio debe ser mayor a 0 y no superar " + (long) radioMaximoMetros + " metros");
+        }
+        int maximo = limite != null ? limite : LIMITE_POR_DEFECTO;
+        if (maximo <= 0) {
+            throw new BadRequestException("El limite debe ser mayor a 0");
+        }
+        asegurarIndice();
+
+        List<VehiculoCercanoResponseDTO> vehiculos = new ArrayList<>();
+        // Los dispositivos sin vehiculo se descartan antes del limite para no dejar lugares vacios
+        for (IndiceEspacialPosiciones.Cercano cercano : indiceEspacial.cercanos(latitud, longitud, radioMetros, maximo, this::asignado)) {
+            toVehiculoCercano(cercano.getPosicion()).ifPresent(vehiculo -> {
+                vehiculo.setDistanciaMetros(cercano.getDistanciaMetros());
+                vehiculos.add(vehiculo);
+            });
+        }
+        return vehiculos;
+    }
+
+    @Override
+    public List<VehiculoCercanoResponseDTO> buscarEnRectangulo(double latitudMinima, double longitudMinima, double latitudMaxima, double longitudMaxima) {
+        validarCoordenadas(latitudMinima, longitudMinima);
+        validarCoordenadas(latitudMaxima, longitudMaxima);
+        if (latitudMinima > latitudMaxima || longitudMinima > longitudMaxima) {
+            throw new BadRequestException("Los minimos del rectangulo no pueden superar a los maximos");
+        }
+        asegurarIndice();
+
+        List<VehiculoCercanoResponseDTO> vehiculos = new ArrayList<>();
+        for (PosicionRequestDTO posicion : indiceEspacial.enRectangulo(latitudMinima, longitudMinima, latitudMaxima, longitudMaxima)) {
+            toVehiculoCercano(posicion).ifPresent(vehiculos::add);
+        }
+        return vehiculos;
+    }
+
+    @Scheduled(fixedDelayString = "${traccar.indice.refresco-patentes-ms:60000}")
+    public void recargarPatentes() {
+        Map<String, String> nuevas = new HashMap<>();
+        for (Object[] fila : dispositivoRepository.findPatentesPorUnicoId()) {
+            nuevas.put((String) fila[0], (String) fila[1]);
+        }
+        patentes = nuevas;
+    }
+
+    private synchronized void asegurarIndice() {
+        if (posicionesEnVivoService.disponible() || System.nanoTime() - refrescoNanos < 0) {
+            return;
+        }
+        try {
+            traccarCliente.getUltimasPosiciones().forEach(indiceEspacial::actualizar);
+        } catch (RuntimeException e) {
+            // Se responde con lo que ya tenga el indice
+            log.warn("No se pudo refrescar el indice espacial desde Traccar: {}", e.getMessage());
+        }
+        refrescoNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ttlMs);
+    }
+
+    private boolean asignado(PosicionRequestDTO posicion) {
+        return toVehiculoCercano(posicion).isPresent();
+    }
+
+    // Solo se devuelven dispositivos asignados a un vehiculo
+    private Optional<VehiculoCercanoResponseDTO> toVehiculoCercano(PosicionRequestDTO posicion) {
+        if (patentes == null) {
+            recargarPatentes();
+        }
+        PosicionEnVivoResponseDTO enVivo = posicionesEnVivoService.toPosicionEnVivo(posicion);
+        return Optional.ofNullable(patentes.get(enVivo.getUnicoId()))
+                .map(patente -> toVehiculoCercano(enVivo, patente));
+    }
+
+    private VehiculoCercanoResponseDTO toVehiculoCercano(PosicionEnVivoResponseDTO posicion, String patente) {
+        return VehiculoCercanoResponseDTO.builder()
+                .deviceId(posicion.getDeviceId())
+                .unicoId(posicion.getUnicoId())
+                .patente(patente)
+                .latitude(posicion.getLatitude())
+                .longitude(posicion.getLongitude())
+                .speed(posicion.getSpeed())
+                .fechaHora(posicion.getFechaHora())
+                .build();
+    }
+
+    private void validarCoordenadas(double latitud, double longitud) {
+        if (latitud < -90 || latitud > 90 || longitud < -180 || longitud > 180) {
+            throw new BadRequestException("Coordenadas fuera de rango");
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.gifa_api.service.impl;
+
+import com.gifa_api.client.RegistroDispositivosTraccar;
+import com.gifa_api.client.SegmentadorRecorridos;
+import com.gifa_api.dto.traccar.DispositivoResponseDTO;
+import com.gifa_api.dto.vehiculo.SegmentoRecorridoResponseDTO;
+import com.gifa_api.exception.BadRequestException;
+import com.gifa_api.exception.LiderazgoPerdidoException;
+import com.gifa_api.exception.NotFoundException;
+import com.gifa_api.model.Posicion;
+import com.gifa_api.model.SegmentoRecorrido;
+import com.gifa_api.model.Vehiculo;
+import com.gifa_api.repository.IDispositivoRepository;
+import com.gifa_api.repository.IPosicionLoteRepository;
+import com.gifa_api.repository.ISegmentoRecorridoRepository;
+import com.gifa_api.repository.IVehiculoRepository;
+import com.gifa_api.service.ICandadoTareaService;
+import com.gifa_api.service.ISegmentacionRecorridosService;
+import com.gifa_api.utils.enums.TipoSegmento;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+// Recorre las posiciones guardadas en orden de id y las pasa por el segmentador, asi cada posicion
+// se procesa una sola vez y los viajes de un mes se leen del indice (vehiculo_id, inicio) sin
+// volver a escanear el historial. El estado abierto de cada dispositivo vive en memoria: cuando
+// el nodo toma la tarea lo reconstruye desde el fin del ultimo segmento guardado.
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SegmentacionRecorridosServiceImpl implements ISegmentacionRecorridosService {
+
+    static final String TAREA = "segmentacion-recorridos";
+
+    private static final double KMH_POR_NUDO = 1.852;
+
+    private final IPosicionLoteRepository posicionLoteRepository;
+    private final ISegmentoRecorridoRepository segmentoRecorridoRepository;
+    private final IVehiculoRepository vehiculoRepository;
+    private final IDispositivoRepository dispositivoRepository;
+    private final RegistroDispositivosTraccar registroDispositivos;
+    private final SegmentadorRecorridos segmentador;
+    private final TransactionTemplate transactionTemplate;
+    private final ICandadoTareaService candadoTareaService;
+
+    @Value("${viajes.tamanio-lote:5000}")
+    private int tamanioLote;
+
+    // Sin segmentos previos se reconstruye desde estas horas antes de la primera posicion nueva
+    @Value("${viajes.horas-reconstruccion:24}")
+    private long horasReconstruccion;
+
+    private long ultimoId = -1;
+    private long tokenActual = -1;
+
+    @Override
+    @Scheduled(fixedDelayString = "${viajes.intervalo-ms:30000}")
+    public synchronized void segmentar() {
+        Optional<Long> token = candadoTareaService.tomar(TAREA);
+        if (token.isEmpty()) {
+            return;
+        }
+        if (token.get() != tokenActual || ultimoId < 0) {
+            segmentador.reiniciar();
+            ultimoId = posicionLoteRepository.maximoId();
+            tokenActual = token.get();
+        }
+
+        try {
+            List<Posicion> lote;
+            do {
+                lote = posicionLoteRepository.buscarDesdeId(ultimoId, tamanioLote);
+                if (lote.isEmpty()) {
+                    break;
+                }
+                List<SegmentadorRecorridos.Segmento> cerrados = new ArrayList<>();
+                for (Posicion posicion : lote) {
+                    if (!segmentador.conoce(posicion.getDeviceId())) {
+                        reconstruir(posicion, cerrados);
+                    }
+                    segmentador.procesar(posicion).ifPresent(cerrados::add);
+                }
+                guardar(cerrados, token.get());
+                ultimoId = lote.get(lote.size() - 1).getId();
+            } while (lote.size() == tamanioLote);
+
+            guardar(segmentador.cerrarVencidos(System.currentTimeMillis()), token.get());
+        } catch (LiderazgoPerdidoException e) {
+            log.warn("Se interrumpe la segmentacion de recorridos: {}", e.getMessage());
+            ultimoId = -1;
+        } catch (RuntimeException e) {
+            // El estado en memoria pudo avanzar sin guardarse: se descarta y se reconstruye desde la base
+            log.warn("No se pudieron guardar los segmentos de recorrido: {}", e.getMessage());
+            ultimoId = -1;
+        }
+    }
+
+    @Override
+    public List<SegmentoRecorridoResponseDTO> obtenerViajes(String patente, OffsetDateTime desde, OffsetDateTime hasta, boolean incluirParadas) {
+        if (desde.isAfter(hasta)) {
+            throw new BadRequestException("La fecha desde no puede ser posterior a la fecha hasta");
+        }
+        Vehiculo vehiculo = vehiculoRepository.findByPatente(patente)
+                .orElseThrow(() -> new NotFoundException("No se encontró el vehiculo con la patente : " + patente));
+
+        EnumSet<TipoSegmento> tipos = incluirParadas ? EnumSet.allOf(TipoSegmento.class) : EnumSet.of(TipoSegmento.VIAJE);
+        return segmentoRecorridoRepository.findByVehiculoEntreFechas(vehiculo.getId(), tipos, desde, hasta).stream()
+                .map(this::toSegmentoRecorridoResponseDTO)
+                .toList();
+    }
+
+    // Repite las posiciones del dispositivo que quedaron entre el ultimo segmento guardado y la primera nueva
+    private void reconstruir(Posicion primera, List<SegmentadorRecorridos.Segmento> cerrados) {
+        long desde = segmentoRecorridoRepository.findUltimoFin(primera.getDeviceId())
+                .map(fin -> fin.toInstant().toEpochMilli())
+                .orElse(primera.getFechaHora() - TimeUnit.HOURS.toMillis(horasReconstruccion));
+        if (desde < primera.getFechaHora()) {
+            posicionLoteRepository.recorrerEntreFechas(primera.getDeviceId(), desde, primera.getFechaHora() - 1,
+                    posicion -> segmentador.procesar(posicion).ifPresent(cerrados::add));
+        }
+    }
+
+    private void guardar(List<SegmentadorRecorridos.Segmento> segmentos, long token) {
+        if (segmentos.isEmpty()) {
+            return;
+        }
+        Map<Integer, Optional<Vehiculo>> vehiculos = new HashMap<>();
+        List<SegmentoRecorrido> entidades = new ArrayList<>();
+        for (SegmentadorRecorridos.Segmento segmento : segmentos) {
+            if (segmento.getFin() <= segmento.getInicio()) {
+                continue;
+            }
+            Vehiculo vehiculo = vehiculos.computeIfAbsent(segmento.getDeviceId(), this::vehiculoDe).orElse(null);
+            entidades.add(toSegmentoRecorrido(segmento, vehiculo));
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            candadoTareaService.validarToken(TAREA, token);
+            segmentoRecorridoRepository.saveAll(entidades);
+        });
+    }
+
+    private Optional<Vehiculo> vehiculoDe(Integer deviceId) {
+        return registroDispositivos.buscarPorDeviceId(deviceId)
+                .map(DispositivoResponseDTO::getUniqueId)
+                .flatMap(dispositivoRepository::findVehiculoDeDispositivo);
+    }
+
+    private SegmentoRecorrido toSegmentoRecorrido(SegmentadorRecorridos.Segmento segmento, Vehiculo vehiculo) {
+        return SegmentoRecorrido.builder()
+                .tipo(segmento.getTipo())
+                .deviceId(segmento.getDeviceId())
+                .vehiculo(vehiculo)
+                .inicio(aFecha(segmento.getInicio()))
+                .fin(aFecha(segmento.getFin()))
+                .duracionSegundos((segmento.getFin() - segmento.getInicio()) / 1000)
+                .distanciaMetros(segmento.getDistanciaMetros())
+                .ralentiSegundos(segmento.getRalentiMs() / 1000)
+                .velocidadMaxima(segmento.getVelocidadMaximaNudos() * KMH_POR_NUDO)
+                .latitudInicio(segmento.getLatitudInicio())
+                .longitudInicio(segmento.getLongitudInicio())
+                .latitudFin(segmento.getLatitudFin())
+                .longitudFin(segmento.getLongitudFin())
+                .build();
+    }
+
+    private SegmentoRecorridoResponseDTO toSegmentoRecorridoResponseDTO(SegmentoRecorrido segmento) {
+        return SegmentoRecorridoResponseDTO.builder()
+                .id(segmento.getId())
+                .tipo(segmento.getTipo())
+                .inicio(segmento.getInicio())
+                .fin(segmento.getFin())
+                .duracionSegundos(segmento.getDuracionSegundos())
+                .distanciaKilometros(segmento.getDistanciaMetros() / 1000)
+                .ralentiSegundos(segmento.getRalentiSegundos())
+                .velocidadMaximaKmh(segmento.getVelocidadMaxima())
+                .latitudInicio(segmento.getLatitudInicio())
+                .longitudInicio(segmento.getLongitudInicio())
+                .latitudFin(segmento.getLatitudFin())
+                .longitudFin(segmento.getLongitudFin())
+                .build();
+    }
+
+    private OffsetDateTime aFecha(long epochMillis) {
+        return OffsetDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneOffset.UTC);
+    }
+}
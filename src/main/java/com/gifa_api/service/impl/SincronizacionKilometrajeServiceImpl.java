@@ -0,0 +1,275 @@
+package com.gifa_api.service.impl;
+
+import com.gifa_api.client.ITraccarCliente;
+import com.gifa_api.client.RegistroDispositivosTraccar;
+import com.gifa_api.dto.traccar.DispositivoResponseDTO;
+import com.gifa_api.dto.traccar.EstadisticasSincronizacionResponseDTO;
+import com.gifa_api.dto.traccar.KilometrosResponseDTO;
+import com.gifa_api.exception.LiderazgoPerdidoException;
+import com.gifa_api.model.Dispositivo;
+import com.gifa_api.model.KilometrajeVehiculo;
+import com.gifa_api.model.Vehiculo;
+import com.gifa_api.repository.IDispositivoRepository;
+import com.gifa_api.repository.IKilometrajeLoteRepository;
+import com.gifa_api.service.ICandadoTareaService;
+import com.gifa_api.service.ISincronizacionKilometrajeService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Cada dispositivo guarda la fecha de su ultima sincronizacion exitosa y solo se le pide
+// a Traccar el resumen de la ventana transcurrida desde entonces.
+// Los dispositivos se reparten en shards fijos (id mod shards); cada shard tiene su propio lease,
+// corre en un worker del pool y escribe cada lote de dispositivos en una sola transaccion.
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SincronizacionKilometrajeServiceImpl implements ISincronizacionKilometrajeService {
+
+    static final String TAREA = "sincronizacion-kilometraje";
+
+    // Solo se usa la primera vez que se sincroniza un dispositivo
+    private static final OffsetDateTime INICIO_HISTORIAL = OffsetDateTime.parse("1970-01-01T00:00:00Z");
+
+    private final ITraccarCliente traccarCliente;
+    private final RegistroDispositivosTraccar registroDispositivos;
+    private final IDispositivoRepository dispositivoRepository;
+    private final IKilometrajeLoteRepository kilometrajeLoteRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ICandadoTareaService candadoTareaService;
+    private final ExecutorService sincronizacionExecutor;
+
+    @Value("${traccar.sincronizacion.shards:8}")
+    private int shards;
+
+    // En 0 el nodo toma todos los shards cuyo lease este libre: los que ya corre otro nodo se saltean,
+    // asi varios nodos se reparten la flota y uno solo la recorre entera en cada ejecucion
+    @Value("${traccar.sincronizacion.shards-por-nodo:0}")
+    private int shardsPorNodo;
+
+    // Cada ejecucion arranca en otro shard, asi los nodos no compiten siempre por el mismo lease
+    // y con un tope por nodo se termina pasando por todos
+    private final AtomicInteger primerShard = new AtomicInteger();
+
+    private volatile EstadisticasSincronizacionResponseDTO ultimaEjecucion;
+
+    @Override
+    @Scheduled(fixedDelay = 8640)
+    public void sincronizarKilometraje() {
+        List<Dispositivo> dispositivos = dispositivoRepository.findAllConVehiculo();
+        if (dispositivos.isEmpty()) {
+            return;
+        }
+
+        long comienzo = System.currentTimeMillis();
+        OffsetDateTime hasta = OffsetDateTime.now(ZoneOffset.UTC);
+        Ejecucion ejecucion = new Ejecucion();
+
+        Map<Integer, List<Dispositivo>> dispositivosPorShard = new HashMap<>();
+        for (Dispositivo dispositivo : dispositivos) {
+            dispositivosPorShard.computeIfAbsent(shardDe(dispositivo), shard -> new ArrayList<>()).add(dispositivo);
+        }
+
+        int maximo = shardsPorNodo > 0 ? Math.min(shardsPorNodo, shards) : shards;
+        int avance = maximo < shards ? maximo : 1;
+        int inicio = primerShard.getAndUpdate(actual -> (actual + avance) % shards);
+        List<CompletableFuture<Void>> workers = new ArrayList<>();
+        for (int i = 0; i < shards; i++) {
+            int shard = (inicio + i) % shards;
+            List<Dispositivo> dispositivosDelShard = dispositivosPorShard.get(shard);
+            if (dispositivosDelShard == null || workers.size() >= maximo) {
+                ejecucion.shardsOmitidos.incrementAndGet();
+                continue;
+            }
+            String tarea = TAREA + "-" + shard;
+            Optional<Long> token = candadoTareaService.tomar(tarea);
+            if (token.isEmpty()) {
+                ejecucion.shardsOmitidos.incrementAndGet();
+                continue;
+            }
+            // Al terminar se suelta el lease: en la proxima ejecucion cualquier nodo puede tomar el shard
+            workers.add(CompletableFuture.runAsync(
+                    () -> sincronizarShard(dispositivosDelShard, hasta, tarea, token.get(), ejecucion), sincronizacionExecutor)
+                    .whenComplete((resultado, error) -> candadoTareaService.liberar(tarea)));
+        }
+        CompletableFuture.allOf(workers.toArray(new CompletableFuture[0])).join();
+
+        ultimaEjecucion = ejecucion.resumen(hasta, System.currentTimeMillis() - comienzo, workers.size());
+        log.info("Sincronizacion de kilometraje: {}", ultimaEjecucion);
+    }
+
+    @Override
+    public Optional<EstadisticasSincronizacionResponseDTO> obtenerUltimaEjecucion() {
+        return Optional.ofNullable(ultimaEjecucion);
+    }
+
+    private int shardDe(Dispositivo dispositivo) {
+        return Math.floorMod(dispositivo.getId(), shards);
+    }
+
+    private void sincronizarShard(List<Dispositivo> dispositivos, OffsetDateTime hasta, String tarea, long token, Ejecucion ejecucion) {
+        // Los dispositivos que se sincronizaron juntos comparten la misma ventana y se piden en un solo reporte
+        for (Map.Entry<Instant, Map<Integer, Dispositivo>> ventana : agruparPorUltimaSincronizacion(dispositivos, ejecucion).entrySet()) {
+            OffsetDateTime desde = OffsetDateTime.ofInstant(ventana.getKey(), ZoneOffset.UTC);
+            List<Integer> deviceIds = new ArrayList<>(ventana.getValue().keySet());
+
+            for (int inicio = 0; inicio < deviceIds.size(); inicio += ITraccarCliente.MAX_DISPOSITIVOS_POR_CONSULTA) {
+                List<Integer> lote = deviceIds.subList(inicio, Math.min(inicio + ITraccarCliente.MAX_DISPOSITIVOS_POR_CONSULTA, deviceIds.size()));
+                try {
+                    sincronizarLote(lote, ventana.getValue(), desde, hasta, tarea, token, ejecucion);
+                } catch (LiderazgoPerdidoException e) {
+                    // Otro nodo tomo el shard: se corta sin escribir nada mas
+                    log.warn("Se interrumpe la sincronizacion de kilometraje de {}: {}", tarea, e.getMessage());
+                    ejecucion.fallidos.addAndGet(lote.size());
+                    return;
+                }
+            }
+        }
+    }
+
+    private Map<Instant, Map<Integer, Dispositivo>> agruparPorUltimaSincronizacion(List<Dispositivo> dispositivos, Ejecucion ejecucion) {
+        Map<Instant, Map<Integer, Dispositivo>> ventanas = new LinkedHashMap<>();
+        for (Dispositivo dispositivo : dispositivos) {
+            Optional<DispositivoResponseDTO> dispositivoTraccar = registroDispositivos.buscarPorUnicoId(dispositivo.getUnicoId());
+            if (dispositivoTraccar.isEmpty()) {
+                continue;
+            }
+            OffsetDateTime desde = dispositivo.getUltimaSincronizacion() != null
+                    ? dispositivo.getUltimaSincronizacion()
+                    : INICIO_HISTORIAL;
+            ventanas.computeIfAbsent(desde.toInstant(), instante -> new LinkedHashMap<>())
+                    .put(dispositivoTraccar.get().getId(), dispositivo);
+        }
+        return ventanas;
+    }
+
+    private void sincronizarLote(List<Integer> deviceIds, Map<Integer, Dispositivo> dispositivosPorDeviceId,
+                                 OffsetDateTime desde, OffsetDateTime hasta, String tarea, long token, Ejecucion ejecucion) {
+        Map<Integer, KilometrosResponseDTO> resumenes = new HashMap<>();
+        try {
+            for (KilometrosResponseDTO resumen : traccarCliente.getKilometrosDeDispositivos(deviceIds, desde, hasta)) {
+                resumenes.put(resumen.getDeviceId(), resumen);
+            }
+        } catch (RuntimeException e) {
+            // Las marcas no avanzan, la ventana se vuelve a pedir en la proxima ejecucion
+            log.warn("No se pudo obtener el kilometraje de {} dispositivos: {}", deviceIds.size(), e.getMessage());
+            ejecucion.fallidos.addAndGet(deviceIds.size());
+            return;
+        }
+
+        List<KilometrajeVehiculo> kilometrajes = new ArrayList<>();
+        Map<Integer, Double> odometroPorDispositivo = new HashMap<>();
+        for (Integer deviceId : deviceIds) {
+            Dispositivo dispositivo = dispositivosPorDeviceId.get(deviceId);
+            KilometrosResponseDTO resumen = resumenes.getOrDefault(deviceId, KilometrosResponseDTO.builder().distance(0).build());
+            Vehiculo vehiculo = dispositivo.getVehiculo();
+
+            double kilometrosAgregados = calcularKilometrosAgregados(dispositivo, vehiculo, resumen);
+            if (kilometrosAgregados > 0) {
+                kilometrajes.add(KilometrajeVehiculo
+                        .builder()
+                        .kilometrosRecorridos(kilometrosAgregados)
+                        .fecha(hasta)
+                        .vehiculo(vehiculo)
+                        .build());
+            }
+            odometroPorDispositivo.put(dispositivo.getId(), tieneOdometro(resumen) ? resumen.getEndOdometer() : dispositivo.getUltimoOdometro());
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                candadoTareaService.validarToken(tarea, token);
+                kilometrajeLoteRepository.insertarLote(kilometrajes);
+                kilometrajeLoteRepository.sumarKilometrajesRecorridos(kilometrajes);
+                kilometrajeLoteRepository.actualizarMarcasDeSincronizacion(odometroPorDispositivo, hasta);
+            });
+        } catch (LiderazgoPerdidoException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            log.warn("No se pudo guardar el kilometraje de {} dispositivos: {}", deviceIds.size(), e.getMessage());
+            ejecucion.fallidos.addAndGet(deviceIds.size());
+            return;
+        }
+
+        for (Integer deviceId : deviceIds) {
+            Dispositivo dispositivo = dispositivosPorDeviceId.get(deviceId);
+            ejecucion.registrarSincronizado(dispositivo.getUltimaSincronizacion(), hasta);
+            dispositivo.setUltimaSincronizacion(hasta);
+            dispositivo.setUltimoOdometro(odometroPorDispositivo.get(dispositivo.getId()));
+        }
+    }
+
+    private double calcularKilometrosAgregados(Dispositivo dispositivo, Vehiculo vehiculo, KilometrosResponseDTO resumen) {
+        double distancia = resumen.getDistance() != null ? resumen.getDistance() : 0;
+
+        // Primera sincronizacion: el resumen cubre todo el historial del dispositivo
+        if (dispositivo.getUltimaSincronizacion() == null) {
+            return Math.max(0, distancia - vehiculo.getKilometrajeRecorrido());
+        }
+
+        // Con odometro se cubre tambien el tramo entre la ultima posicion de la ventana anterior y la primera de esta
+        if (dispositivo.getUltimoOdometro() != null && tieneOdometro(resumen)) {
+            return Math.max(0, resumen.getEndOdometer() - dispositivo.getUltimoOdometro());
+        }
+
+        return Math.max(0, distancia);
+    }
+
+    private boolean tieneOdometro(KilometrosResponseDTO resumen) {
+        return resumen.getEndOdometer() != null && resumen.getEndOdometer() > 0;
+    }
+
+    // Contadores compartidos por los workers de una ejecucion
+    private static class Ejecucion {
+        private final AtomicInteger shardsOmitidos = new AtomicInteger();
+        private final AtomicInteger sincronizados = new AtomicInteger();
+        private final AtomicInteger fallidos = new AtomicInteger();
+        private final AtomicInteger conRetraso = new AtomicInteger();
+        private final AtomicLong retrasoTotalSegundos = new AtomicLong();
+        private final AtomicLong retrasoMaximoSegundos = new AtomicLong();
+
+        void registrarSincronizado(OffsetDateTime ultimaSincronizacion, OffsetDateTime hasta) {
+            sincronizados.incrementAndGet();
+            // Los dispositivos nuevos no tienen marca previa y no cuentan para el retraso
+            if (ultimaSincronizacion == null) {
+                return;
+            }
+            long retraso = Math.max(0, Duration.between(ultimaSincronizacion, hasta).getSeconds());
+            conRetraso.incrementAndGet();
+            retrasoTotalSegundos.addAndGet(retraso);
+            retrasoMaximoSegundos.accumulateAndGet(retraso, Math::max);
+        }
+
+        EstadisticasSincronizacionResponseDTO resumen(OffsetDateTime inicio, long duracionMs, int shardsEjecutados) {
+            int medidos = conRetraso.get();
+            return EstadisticasSincronizacionResponseDTO.builder()
+                    .inicio(inicio)
+                    .duracionMs(duracionMs)
+                    .shardsEjecutados(shardsEjecutados)
+                    .shardsOmitidos(shardsOmitidos.get())
+                    .dispositivosSincronizados(sincronizados.get())
+                    .dispositivosFallidos(fallidos.get())
+                    .retrasoMaximoSegundos(retrasoMaximoSegundos.get())
+                    .retrasoPromedioSegundos(medidos > 0 ? retrasoTotalSegundos.get() / medidos : 0)
+                    .build();
+        }
+    }
+}
@@ -1,11 +1,20 @@
 package com.gifa_api.service.impl;
 
 import com.gifa_api.client.ITraccarCliente;
+import com.gifa_api.client.ITraccarClienteReactivo;
+import com.gifa_api.client.RegistroDispositivosTraccar;
+import com.gifa_api.dto.traccar.CrearDispositivoResponseDTO;
 import com.gifa_api.dto.traccar.InconsistenciasKMconCombustiblesResponseDTO;
 import com.gifa_api.dto.traccar.DispositivoResponseDTO;
 import com.gifa_api.dto.traccar.KilometrosResponseDTO;
+import com.gifa_api.dto.traccar.PaginaPosicionesResponseDTO;
+import com.gifa_api.dto.traccar.PosicionRequestDTO;
 import com.gifa_api.dto.traccar.PosicionResponseDTO;
+import com.gifa_api.dto.traccar.RecorridoResponseDTO;
+import com.gifa_api.dto.traccar.ReporteInconsistenciasResponseDTO;
 import com.gifa_api.dto.vehiculo.VehiculoResponseDTO;
+import com.gifa_api.exception.BadRequestException;
+import com.gifa_api.exception.NotFoundException;
 import com.gifa_api.model.Dispositivo;
 import com.gifa_api.model.Vehiculo;
 import com.gifa_api.repository.IChoferRepository;
@@ -14,12 +23,24 @@ import com.gifa_api.repository.IVehiculoRepository;
 import com.gifa_api.service.ICargaCombustibleService;
 import com.gifa_api.service.IDispositivoService;
 import com.gifa_api.service.IGestorOperacionalService;
+import com.gifa_api.service.IHistorialPosicionesService;
+import com.gifa_api.service.IKilometrajeDiarioService;
+import com.gifa_api.service.IPosicionesEnVivoService;
 import com.gifa_api.service.ITraccarService;
+import com.gifa_api.utils.enums.FormatoRecorrido;
 import com.gifa_api.utils.mappers.PosicionMapper;
 import com.gifa_api.utils.mappers.VehiculoMapper;
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
@@ -27,7 +48,19 @@ import java.time.LocalDate;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
 @Service
@@ -42,29 +75,59 @@ public class TraccarServiceImpl implements ITraccarService {
     private final PosicionMapper posicionMapper;
     private final VehiculoMapper vehiculoMapper;
     private final IGestorOperacionalService gestorOperacionalService;
+    private final RegistroDispositivosTraccar registroDispositivos;
+    private final ExecutorService traccarExecutor;
+    private final IKilometrajeDiarioService kilometrajeDiarioService;
+    private final IHistorialPosicionesService historialPosicionesService;
+    private final IPosicionesEnVivoService posicionesEnVivoService;
+    private final ITraccarClienteReactivo traccarClienteReactivo;
 
+    @Value("${traccar.reportes.timeout-segundos:30}")
+    private long timeoutSegundos;
 
 
+
+    // Idempotente para el outbox: un POST anterior pudo crear el dispositivo aunque la respuesta no llego,
+    // asi que antes de crear se busca en Traccar y un rechazo por uniqueId repetido cuenta como creado
     @Override
     public void crearDispositivo(Dispositivo dispositivo) {
-        if (!existeDispositivoEnTraccar(dispositivo.getUnicoId())) {
-            traccarCliente.postCrearDispositivoTraccar(dispositivo);
+        if (existeEnTraccar(dispositivo.getUnicoId())) {
+            return;
+        }
+        CrearDispositivoResponseDTO creado;
+        try {
+            creado = traccarCliente.postCrearDispositivoTraccar(dispositivo);
+        } catch (HttpClientErrorException e) {
+            // Se consulta de nuevo aunque el uniqueId haya quedado recordado como inexistente
+            if (registroDispositivos.consultarTraccar(dispositivo.getUnicoId()).isPresent()) {
+                return;
+            }
+            throw e;
+        }
+        if (creado != null) {
+            registroDispositivos.registrar(DispositivoResponseDTO
+                    .builder()
+                    .id(creado.getId())
+                    .name(creado.getName())
+                    .uniqueId(creado.getUniqueId())
+                    .status(creado.getStatus())
+                    .build());
         }
-
     }
 
-
-    private boolean existeDispositivoEnTraccar(String uniqueId) {
-        for (DispositivoResponseDTO dispositivo : obtenerDispositivos()) {
-            if (dispositivo.getUniqueId().equals(uniqueId))
-                return true;
+    // obtenerDeviceId consulta Traccar si no esta en el registro y lo agrega; una caida de Traccar se propaga
+    private boolean existeEnTraccar(String unicoId) {
+        try {
+            registroDispositivos.obtenerDeviceId(unicoId);
+            return true;
+        } catch (NotFoundException e) {
+            return false;
         }
-        return false;
     }
 
     @Override
     public List<DispositivoResponseDTO> obtenerDispositivos() {
-        List<DispositivoResponseDTO> todosLosDispositivos = traccarCliente.getDispositivos();
+        Collection<DispositivoResponseDTO> todosLosDispositivos = registroDispositivos.todos();
 
         // Filtrar dispositivos que estén en el repositorio de vehículos
         return todosLosDispositivos.stream()
@@ -73,68 +136,258 @@ public class TraccarServiceImpl implements ITraccarService {
     }
 
     @Override
-    public List<InconsistenciasKMconCombustiblesResponseDTO> getInconsistencias(OffsetDateTime from, OffsetDateTime to) {
+    public ReporteInconsistenciasResponseDTO getInconsistencias(OffsetDateTime from, OffsetDateTime to) {
+        DatosReporte datos = prepararReporte(from, to);
 
-        List<InconsistenciasKMconCombustiblesResponseDTO> inconsistencias = new ArrayList<>();
-        for (Vehiculo vehiculo : vehiculoRepository.findAll()) {
+        // Un reporte de Traccar por lote de dispositivos, los lotes corren en paralelo acotados por traccarExecutor
+        Map<List<Integer>, Future<Map<Integer, Double>>> kmPorLote = new LinkedHashMap<>();
+        for (List<Integer> lote : datos.lotesDeDispositivos()) {
+            kmPorLote.put(lote, traccarExecutor.submit(() -> calcularKmDeDispositivosEntreFechas(lote, from, to)));
+        }
+
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSegundos);
+        Map<Integer, Double> kmPorDeviceId = new HashMap<>();
+        Set<Integer> dispositivosSinDatos = new HashSet<>();
+        for (Map.Entry<List<Integer>, Future<Map<Integer, Double>>> entrada : kmPorLote.entrySet()) {
+            Optional<Map<Integer, Double>> kmDelLote = esperarResultado(entrada.getValue(), limite);
+            if (kmDelLote.isPresent()) {
+                kmPorDeviceId.putAll(kmDelLote.get());
+            } else {
+                dispositivosSinDatos.addAll(entrada.getKey());
+            }
+        }
 
+        return armarReporte(datos, kmPorDeviceId, dispositivosSinDatos);
+    }
 
-            double kmRecorridos = calcularKmDeDispositivoEntreFechas(vehiculo.getDispositivo().getUnicoId(), from, to);
-            double litrosCargados = cargaCombustibleService.combustibleCargadoEntreFechas(vehiculo.getTarjeta().getNumero(), from, to);
+    private DatosReporte prepararReporte(OffsetDateTime from, OffsetDateTime to) {
+        List<Vehiculo> vehiculos = vehiculoRepository.findAllConDispositivoYTarjeta();
+        Map<Integer, Double> litrosPorTarjeta = cargaCombustibleService.combustibleCargadoPorTarjetaEntreFechas(from, to);
+        int kmPorLitro = gestorOperacionalService.getGestorOperacional().getConsumoDeLitrosPorKm();
 
-            if (calculoDeCombustiblePorKilometro(kmRecorridos, litrosCargados)) {
+        Map<Integer, Vehiculo> vehiculosPorDeviceId = new LinkedHashMap<>();
+        List<String> patentesSinDispositivo = new ArrayList<>();
+        for (Vehiculo vehiculo : vehiculos) {
+            try {
+                vehiculosPorDeviceId.put(obtenerdeviceIdByUniqueId(vehiculo.getDispositivo().getUnicoId()), vehiculo);
+            } catch (NotFoundException e) {
+                patentesSinDispositivo.add(vehiculo.getPatente());
+            }
+        }
+        return new DatosReporte(vehiculosPorDeviceId, patentesSinDispositivo, litrosPorTarjeta, kmPorLitro);
+    }
 
-                List<String> nombreDeresponsables = choferRepository.obtenerNombreDeChofersDeVehiculo(vehiculo.getId());
-                VehiculoResponseDTO vehiculoResponseDTO = vehiculoMapper.toVehiculoResponseDTO(vehiculo);
+    private ReporteInconsistenciasResponseDTO armarReporte(DatosReporte datos, Map<Integer, Double> kmPorDeviceId, Set<Integer> dispositivosSinDatos) {
+        List<String> patentesSinDatos = new ArrayList<>(datos.getPatentesSinDispositivo());
+        Map<Vehiculo, Double> kmConInconsistencia = new LinkedHashMap<>();
 
-                InconsistenciasKMconCombustiblesResponseDTO inconsistencia = InconsistenciasKMconCombustiblesResponseDTO
-                        .builder()
-                        .litrosCargados(litrosCargados)
-                        .kilometrajeRecorrido(kmRecorridos)
-                        .nombresDeResponsables(nombreDeresponsables)
-                        .vehiculo(vehiculoResponseDTO)
-                        .litrosInconsistente(litrosCargados - kmRecorridos)
-                        .build();
-                inconsistencias.add(inconsistencia);
+        for (Map.Entry<Integer, Vehiculo> entrada : datos.getVehiculosPorDeviceId().entrySet()) {
+            Vehiculo vehiculo = entrada.getValue();
+            if (dispositivosSinDatos.contains(entrada.getKey())) {
+                patentesSinDatos.add(vehiculo.getPatente());
+                continue;
+            }
+            double kmRecorridos = kmPorDeviceId.getOrDefault(entrada.getKey(), 0.0);
+            double litrosCargados = litrosCargadosDe(vehiculo, datos.getLitrosPorTarjeta());
+            if (calculoDeCombustiblePorKilometro(kmRecorridos, litrosCargados, datos.getKmPorLitro())) {
+                kmConInconsistencia.put(vehiculo, kmRecorridos);
             }
         }
 
-        return inconsistencias;
+        Map<Integer, List<String>> responsablesPorVehiculo = obtenerResponsables(kmConInconsistencia.keySet());
+        List<InconsistenciasKMconCombustiblesResponseDTO> inconsistencias = new ArrayList<>();
+        for (Map.Entry<Vehiculo, Double> entrada : kmConInconsistencia.entrySet()) {
+            Vehiculo vehiculo = entrada.getKey();
+            double kmRecorridos = entrada.getValue();
+            double litrosCargados = litrosCargadosDe(vehiculo, datos.getLitrosPorTarjeta());
+            VehiculoResponseDTO vehiculoResponseDTO = vehiculoMapper.toVehiculoResponseDTO(vehiculo);
+
+            InconsistenciasKMconCombustiblesResponseDTO inconsistencia = InconsistenciasKMconCombustiblesResponseDTO
+                    .builder()
+                    .litrosCargados(litrosCargados)
+                    .kilometrajeRecorrido(kmRecorridos)
+                    .nombresDeResponsables(responsablesPorVehiculo.getOrDefault(vehiculo.getId(), List.of()))
+                    .vehiculo(vehiculoResponseDTO)
+                    .litrosInconsistente(litrosCargados - kmRecorridos)
+                    .build();
+            inconsistencias.add(inconsistencia);
+        }
+
+        return ReporteInconsistenciasResponseDTO
+                .builder()
+                .inconsistencias(inconsistencias)
+                .parcial(!patentesSinDatos.isEmpty())
+                .patentesSinDatos(patentesSinDatos)
+                .build();
     }
 
+    private <T> Optional<T> esperarResultado(Future<T> resultado, long limite) {
+        try {
+            return Optional.ofNullable(resultado.get(Math.max(0, limite - System.nanoTime()), TimeUnit.NANOSECONDS));
+        } catch (TimeoutException e) {
+            resultado.cancel(true);
+            return Optional.empty();
+        } catch (ExecutionException e) {
+            return Optional.empty();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            resultado.cancel(true);
+            return Optional.empty();
+        }
+    }
 
-    private double calcularKmDeDispositivoEntreFechas(String unicoIdDeDispositivo, OffsetDateTime from, OffsetDateTime to) {
-        Integer deviceId = obtenerdeviceIdByUniqueId(unicoIdDeDispositivo);
-        return getKilometros(deviceId, from, to).getDistance();
+    private double litrosCargadosDe(Vehiculo vehiculo, Map<Integer, Double> litrosPorTarjeta) {
+        if (vehiculo.getTarjeta() == null) {
+            return 0;
+        }
+        return litrosPorTarjeta.getOrDefault(vehiculo.getTarjeta().getNumero(), 0.0);
+    }
+
+    private Map<Integer, List<String>> obtenerResponsables(Collection<Vehiculo> vehiculos) {
+        Map<Integer, List<String>> responsables = new HashMap<>();
+        if (vehiculos.isEmpty()) {
+            return responsables;
+        }
+        List<Integer> idsVehiculos = vehiculos.stream().map(Vehiculo::getId).collect(Collectors.toList());
+        for (Object[] fila : choferRepository.obtenerNombreDeChofersDeVehiculos(idsVehiculos)) {
+            responsables.computeIfAbsent((Integer) fila[0], id -> new ArrayList<>()).add((String) fila[1]);
+        }
+        return responsables;
+    }
+
+
+    private Map<Integer, Double> calcularKmDeDispositivosEntreFechas(List<Integer> deviceIds, OffsetDateTime from, OffsetDateTime to) {
+        return kilometrajeDiarioService.kilometrosEntreFechas(deviceIds, from, to);
     }
 
     @Override
     public KilometrosResponseDTO getKilometros(Integer deviceId, OffsetDateTime from, OffsetDateTime to) {
-        return traccarCliente.getKilometros(deviceId, from, to);
+        double distancia = kilometrajeDiarioService.kilometrosEntreFechas(List.of(deviceId), from, to).getOrDefault(deviceId, 0.0);
+        return KilometrosResponseDTO
+                .builder()
+                .deviceId(deviceId)
+                .distance((int) Math.round(distancia))
+                .build();
+    }
+
+    @Override
+    public KilometrosResponseDTO obtenerKilometrosEnRangoDeFechas(String uniqueId, OffsetDateTime from, OffsetDateTime to) {
+        return getKilometros(obtenerdeviceIdByUniqueId(uniqueId), from, to);
     }
 
     @Override
     public List<PosicionResponseDTO> obtenerPosicionesEnVivo(String uniqueId) {
-        OffsetDateTime fromActual = OffsetDateTime.now(ZoneOffset.UTC).minusMinutes(1);
-        OffsetDateTime toHardcodeado = OffsetDateTime.parse("2030-12-31T23:59:59Z");
         Integer idDevice = obtenerdeviceIdByUniqueId(uniqueId);
-        return posicionMapper.mapPosicionesRequestToPosicionesResponseDTO(traccarCliente.getPosicionesDispositivoTraccar(idDevice, fromActual, toHardcodeado));
+        Optional<PosicionRequestDTO> enMemoria = posicionesEnVivoService.ultimaPosicion(idDevice);
+        if (enMemoria.isPresent()) {
+            return List.of(posicionMapper.toPoscicionResponseFromPosicionRequest(enMemoria.get()));
+        }
+        // Sin datos del socket se consulta el ultimo minuto a Traccar
+        OffsetDateTime ahora = OffsetDateTime.now(ZoneOffset.UTC);
+        return posicionMapper.mapPosicionesRequestToPosicionesResponseDTO(
+                traccarCliente.getPosicionesDispositivoTraccar(idDevice, ahora.minusMinutes(1), ahora.plusMinutes(1)));
+    }
+
+    @Override
+    public Flux<PosicionResponseDTO> obtenerPosicionesReactivo(String uniqueId, OffsetDateTime from, OffsetDateTime to) {
+        // Si el dispositivo no esta en el registro se consulta a Traccar de forma bloqueante
+        return Mono.fromCallable(() -> obtenerdeviceIdByUniqueId(uniqueId))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMapMany(idDevice -> traccarClienteReactivo.getPosiciones(idDevice, from, to))
+                .filter(posicion -> posicion.getFixTime() != null)
+                .map(posicionMapper::toPoscicionResponseFromPosicionRequest);
+    }
+
+    @Override
+    public SseEmitter suscribirPosicionesEnVivo(String uniqueId) {
+        Integer idDevice = uniqueId != null ? obtenerdeviceIdByUniqueId(uniqueId) : null;
+        return posicionesEnVivoService.suscribir(idDevice);
     }
 
     @Override
     public List<PosicionResponseDTO> obtenerPosicionesEnRangoDeFechas(String uniqueId, OffsetDateTime from, OffsetDateTime to) {
         Integer idDevice = obtenerdeviceIdByUniqueId(uniqueId);
-        return posicionMapper.mapPosicionesRequestToPosicionesResponseDTO(traccarCliente.getPosicionesDispositivoTraccar(idDevice, from, to));
+        return historialPosicionesService.obtenerPosiciones(idDevice, from, to);
+    }
+
+    @Override
+    public StreamingResponseBody streamPosicionesEnRangoDeFechas(String uniqueId, OffsetDateTime from, OffsetDateTime to) {
+        // El dispositivo se resuelve antes de empezar a escribir, para poder responder 404
+        Integer idDevice = obtenerdeviceIdByUniqueId(uniqueId);
+        return salida -> historialPosicionesService.escribirPosiciones(idDevice, from, to, salida);
+    }
+
+    @Override
+    public StreamingResponseBody streamPosicionesRecientes(String uniqueId, Integer cantidad) {
+        if (cantidad != null && cantidad <= 0) {
+            throw new BadRequestException("La cantidad debe ser mayor a 0");
+        }
+        Integer idDevice = obtenerdeviceIdByUniqueId(uniqueId);
+        // Sin cantidad se devuelve todo lo que guarda el buffer del dispositivo
+        int maximo = cantidad != null ? cantidad : Integer.MAX_VALUE;
+        return salida -> posicionesEnVivoService.escribirRecientes(idDevice, maximo, salida);
+    }
+
+    @Override
+    public RecorridoResponseDTO obtenerRecorrido(String uniqueId, OffsetDateTime from, OffsetDateTime to, Double tolerancia, Integer zoom, FormatoRecorrido formato) {
+        if (tolerancia != null && tolerancia < 0) {
+            throw new BadRequestException("La tolerancia no puede ser negativa");
+        }
+        if (zoom != null && (zoom < 0 || zoom > 22)) {
+            throw new BadRequestException("El zoom debe estar entre 0 y 22");
+        }
+
+        List<PosicionResponseDTO> posiciones = obtenerPosicionesEnRangoDeFechas(uniqueId, from, to);
+        List<PosicionResponseDTO> conservadas = posiciones;
+        if (!posiciones.isEmpty() && (tolerancia != null || zoom != null)) {
+            double toleranciaMetros = tolerancia != null
+                    ? tolerancia
+                    : posicionMapper.toleranciaParaZoom(zoom, posiciones.get(0).getLatitude());
+            conservadas = posicionMapper.simplificarRecorrido(posiciones, toleranciaMetros);
+        }
+
+        RecorridoResponseDTO.RecorridoResponseDTOBuilder recorrido = RecorridoResponseDTO.builder()
+                .puntosOriginales(posiciones.size())
+                .puntosConservados(conservadas.size());
+        switch (formato) {
+            case POLILINEA -> recorrido.codificado(posicionMapper.toRecorridoCodificado(conservadas));
+            case BINARIO -> recorrido.binario(posicionMapper.toRecorridoBinario(conservadas));
+            default -> recorrido.posiciones(conservadas);
+        }
+        return recorrido.build();
+    }
+
+    @Override
+    public PaginaPosicionesResponseDTO obtenerPaginaDePosiciones(String uniqueId, OffsetDateTime from, OffsetDateTime to, String cursor, int limite) {
+        Integer idDevice = obtenerdeviceIdByUniqueId(uniqueId);
+        return historialPosicionesService.obtenerPagina(idDevice, from, to, cursor, limite);
     }
 
     private Integer obtenerdeviceIdByUniqueId(String uniqueId) {
-        return traccarCliente.obtenerDispositivoByUniqueId(uniqueId).getId();
+        return registroDispositivos.obtenerDeviceId(uniqueId);
     }
 
-    private boolean calculoDeCombustiblePorKilometro(double kilometrajeRecorrido, double combustibleCargado) {
-        int kmPorLitro = gestorOperacionalService.getGestorOperacional().getConsumoDeLitrosPorKm();
+    private boolean calculoDeCombustiblePorKilometro(double kilometrajeRecorrido, double combustibleCargado, int kmPorLitro) {
         return kilometrajeRecorrido < combustibleCargado * kmPorLitro;
     }
 
 
+
+    @Getter
+    @RequiredArgsConstructor
+    private static class DatosReporte {
+        private final Map<Integer, Vehiculo> vehiculosPorDeviceId;
+        private final List<String> patentesSinDispositivo;
+        private final Map<Integer, Double> litrosPorTarjeta;
+        private final int kmPorLitro;
+
+        private List<List<Integer>> lotesDeDispositivos() {
+            List<Integer> deviceIds = new ArrayList<>(vehiculosPorDeviceId.keySet());
+            List<List<Integer>> lotes = new ArrayList<>();
+            for (int inicio = 0; inicio < deviceIds.size(); inicio += ITraccarCliente.MAX_DISPOSITIVOS_POR_CONSULTA) {
+                lotes.add(deviceIds.subList(inicio, Math.min(inicio + ITraccarCliente.MAX_DISPOSITIVOS_POR_CONSULTA, deviceIds.size())));
+            }
+            return lotes;
+        }
+    }
 }
@@ -15,9 +15,10 @@ import com.gifa_api.repository.IDispositivoRepository;
 import com.gifa_api.repository.ITarjetaRepository;
 import com.gifa_api.repository.IVehiculoRepository;
 import com.gifa_api.repository.ItemDeInventarioRepository;
+import com.gifa_api.service.ICandadoTareaService;
 import com.gifa_api.service.IDispositivoService;
 import com.gifa_api.service.IMantenimientoService;
-import com.gifa_api.service.ITraccarService;
+import com.gifa_api.service.IOutboxTraccarService;
 import com.gifa_api.service.IVehiculoService;
 import com.gifa_api.utils.enums.EstadoDeHabilitacion;
 import com.gifa_api.utils.enums.EstadoVehiculo;
@@ -31,6 +32,8 @@ import com.google.zxing.qrcode.QRCodeWriter;
 import lombok.RequiredArgsConstructor;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
@@ -39,6 +42,7 @@ import java.io.IOException;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.Random;
 
 @Service
@@ -49,8 +53,10 @@ public class VehiculoServiceImpl implements IVehiculoService {
     private final ITarjetaRepository tarjetaRepository;
     private final VehiculoMapper vehiculoMapper;
     private final VehiculoResponseConQrMapper vehiculoResponseConQrMapper;
-    private  final ITraccarService traccarService;
+    private final IOutboxTraccarService outboxTraccarService;
     private final IDispositivoRepository dispositivoRepository;
+    private final ICandadoTareaService candadoTareaService;
+    private final TransactionTemplate transactionTemplate;
 
 
     @Override
@@ -59,6 +65,7 @@ public class VehiculoServiceImpl implements IVehiculoService {
     }
 
     @Override
+    @Transactional
     public void registrar(RegistarVehiculoDTO vehiculoDTO) {
         validarRegistrarVehiculoDTO(vehiculoDTO);
 
@@ -94,7 +101,8 @@ public class VehiculoServiceImpl implements IVehiculoService {
         dispositivo.setVehiculo(vehiculo);
 
         vehiculoRepository.save(vehiculo);
-        traccarService.crearDispositivo(dispositivo);
+        // El alta en Traccar la hace el despachador del outbox, fuera de esta transaccion
+        outboxTraccarService.registrarCreacionDeDispositivo(dispositivo);
     }
 
     private byte[] obtenerQR(String id) {
@@ -155,17 +163,25 @@ public class VehiculoServiceImpl implements IVehiculoService {
 
     @Scheduled(fixedRate = 86400000)  // Ejecuta cada 24 horas (86400000 milisegundos)
     public void verificarFechaVencimiento() {
+        // Con varios nodos solo el que tiene el lease crea los mantenimientos
+        Optional<Long> token = candadoTareaService.tomar("vencimiento-vehiculos");
+        if (token.isEmpty()) {
+            return;
+        }
         LocalDate hoy = LocalDate.now();
-        List<Vehiculo> allVehiculos = vehiculoRepository.findAll();
-        for (Vehiculo vehiculo : allVehiculos) {
-            if (!vehiculo.getFechaVencimiento().isAfter(hoy)) {
-                iMantenimientoService.crearMantenimiento(RegistrarMantenimientoDTO
-                        .builder()
-                        .vehiculo_id(vehiculo.getId())
-                        .asunto("Revision periodica")
-                        .build());
+        transactionTemplate.executeWithoutResult(status -> {
+            candadoTareaService.validarToken("vencimiento-vehiculos", token.get());
+            List<Vehiculo> allVehiculos = vehiculoRepository.findAll();
+            for (Vehiculo vehiculo : allVehiculos) {
+                if (!vehiculo.getFechaVencimiento().isAfter(hoy)) {
+                    iMantenimientoService.crearMantenimiento(RegistrarMantenimientoDTO
+                            .builder()
+                            .vehiculo_id(vehiculo.getId())
+                            .asunto("Revision periodica")
+                            .build());
+                }
             }
-        }
+        });
 
     }
 
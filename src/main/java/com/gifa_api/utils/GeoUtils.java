@@ -0,0 +1,20 @@
+package com.gifa_api.utils;
+
+public final class GeoUtils {
+
+    public static final double RADIO_TIERRA_METROS = 6371008.8;
+    public static final double METROS_POR_GRADO = 111_320;
+
+    private GeoUtils() {
+    }
+
+    // Distancia sobre la esfera (haversine), suficiente para las escalas de una flota
+    public static double distanciaMetros(double latitud1, double longitud1, double latitud2, double longitud2) {
+        double dLatitud = Math.toRadians(latitud2 - latitud1);
+        double dLongitud = Math.toRadians(longitud2 - longitud1);
+        double a = Math.sin(dLatitud / 2) * Math.sin(dLatitud / 2)
+                + Math.cos(Math.toRadians(latitud1)) * Math.cos(Math.toRadians(latitud2))
+                * Math.sin(dLongitud / 2) * Math.sin(dLongitud / 2);
+        return 2 * RADIO_TIERRA_METROS * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+}
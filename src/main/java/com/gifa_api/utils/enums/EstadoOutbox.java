@@ -0,0 +1,7 @@
+package com.gifa_api.utils.enums;
+
+public enum EstadoOutbox {
+    PENDIENTE,
+    ENVIADO,
+    FALLIDO
+}
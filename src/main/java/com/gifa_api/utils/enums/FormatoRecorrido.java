@@ -0,0 +1,49 @@
+package com.gifa_api.utils.enums;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+@Getter
+@RequiredArgsConstructor
+public enum FormatoRecorrido {
+    JSON(MediaType.APPLICATION_JSON),
+    // Polilinea codificada de Google con las fechas en un arreglo paralelo de diferencias
+    POLILINEA(MediaType.parseMediaType("application/vnd.gifa.polilinea+json")),
+    // Diferencias en zigzag varint, ver PosicionMapper.toRecorridoBinario
+    BINARIO(MediaType.parseMediaType("application/vnd.gifa.recorrido"));
+
+    private final MediaType mediaType;
+
+    // Un formato compacto solo se usa si se pide explicitamente; comodines o un Accept invalido reciben JSON
+    public static FormatoRecorrido desdeAccept(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return JSON;
+        }
+        List<MediaType> aceptados;
+        try {
+            aceptados = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            return JSON;
+        }
+        // Mayor q primero; con la misma q decide el orden del header (el sort es estable)
+        aceptados = new ArrayList<>(aceptados);
+        aceptados.sort(Comparator.comparingDouble(MediaType::getQualityValue).reversed());
+        for (MediaType aceptado : aceptados) {
+            if (aceptado.getQualityValue() <= 0) {
+                continue;
+            }
+            for (FormatoRecorrido formato : values()) {
+                if (aceptado.equalsTypeAndSubtype(formato.mediaType)) {
+                    return formato;
+                }
+            }
+        }
+        return JSON;
+    }
+}
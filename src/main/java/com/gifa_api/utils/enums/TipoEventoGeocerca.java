@@ -0,0 +1,6 @@
+package com.gifa_api.utils.enums;
+
+public enum TipoEventoGeocerca {
+    ENTRADA,
+    SALIDA
+}
@@ -0,0 +1,6 @@
+package com.gifa_api.utils.enums;
+
+public enum TipoGeocerca {
+    DEPOSITO,
+    ZONA_PROHIBIDA
+}
@@ -0,0 +1,5 @@
+package com.gifa_api.utils.enums;
+
+public enum TipoOperacionOutbox {
+    CREAR_DISPOSITIVO
+}
@@ -0,0 +1,68 @@
+package com.gifa_api.utils.mappers;
+
+import com.gifa_api.client.MotorGeocercas;
+import com.gifa_api.dto.geocerca.CoordenadaDTO;
+import com.gifa_api.dto.geocerca.EventoGeocercaResponseDTO;
+import com.gifa_api.dto.geocerca.GeocercaResponseDTO;
+import com.gifa_api.model.EventoGeocerca;
+import com.gifa_api.model.Geocerca;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Component
+public class GeocercaMapper {
+
+    public GeocercaResponseDTO toGeocercaResponseDTO(Geocerca geocerca) {
+        return GeocercaResponseDTO.builder()
+                .id(geocerca.getId())
+                .nombre(geocerca.getNombre())
+                .tipo(geocerca.getTipo())
+                .vertices(toCoordenadas(geocerca.getVertices()))
+                .vehiculoId(geocerca.getVehiculo() != null ? geocerca.getVehiculo().getId() : null)
+                .build();
+    }
+
+    public EventoGeocercaResponseDTO toEventoGeocercaResponseDTO(EventoGeocerca evento) {
+        return EventoGeocercaResponseDTO.builder()
+                .id(evento.getId())
+                .geocercaId(evento.getGeocerca().getId())
+                .geocerca(evento.getGeocerca().getNombre())
+                .tipoGeocerca(evento.getGeocerca().getTipo())
+                .deviceId(evento.getDeviceId())
+                .tipo(evento.getTipo())
+                .latitud(evento.getLatitud())
+                .longitud(evento.getLongitud())
+                .fechaHora(evento.getFechaHora())
+                .build();
+    }
+
+    public String toVertices(List<CoordenadaDTO> coordenadas) {
+        return coordenadas.stream()
+                .map(coordenada -> coordenada.getLatitud() + " " + coordenada.getLongitud())
+                .collect(Collectors.joining(","));
+    }
+
+    public List<CoordenadaDTO> toCoordenadas(String vertices) {
+        List<CoordenadaDTO> coordenadas = new ArrayList<>();
+        for (String vertice : vertices.split(",")) {
+            String[] partes = vertice.trim().split(" ");
+            coordenadas.add(new CoordenadaDTO(Double.parseDouble(partes[0]), Double.parseDouble(partes[1])));
+        }
+        return coordenadas;
+    }
+
+    public MotorGeocercas.Poligono toPoligono(Geocerca geocerca) {
+        List<CoordenadaDTO> coordenadas = toCoordenadas(geocerca.getVertices());
+        double[] latitudes = new double[coordenadas.size()];
+        double[] longitudes = new double[coordenadas.size()];
+        for (int i = 0; i < coordenadas.size(); i++) {
+            latitudes[i] = coordenadas.get(i).getLatitud();
+            longitudes[i] = coordenadas.get(i).getLongitud();
+        }
+        return new MotorGeocercas.Poligono(geocerca.getId(), geocerca.getVehiculo() != null ? geocerca.getVehiculo().getId() : null,
+                latitudes, longitudes);
+    }
+}
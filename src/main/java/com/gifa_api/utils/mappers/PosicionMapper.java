@@ -2,14 +2,30 @@ package com.gifa_api.utils.mappers;
 
 
 import com.gifa_api.dto.traccar.PosicionRequestDTO;
+import com.gifa_api.dto.traccar.RecorridoCodificadoResponseDTO;
 import com.gifa_api.dto.traccar.PosicionResponseDTO;
+import com.gifa_api.model.Posicion;
 import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
 import java.util.stream.Collectors;
 
 @Component
 public class PosicionMapper {
 
+    private static final double RADIO_TIERRA_METROS = 6371008.8;
+    // Metros por pixel en el ecuador con zoom 0 (teselas de 256 px, Web Mercator)
+    private static final double METROS_POR_PIXEL_ZOOM_0 = 156543.03392;
+    private static final double ESCALA_POLILINEA = 1e5;
+    private static final double ESCALA_BINARIO = 1e6;
+    private static final int VERSION_BINARIO = 1;
+
 
     public PosicionResponseDTO toPoscicionResponseFromPosicionRequest(PosicionRequestDTO posicionRequestDTO) {
         return PosicionResponseDTO.builder()
@@ -17,6 +33,7 @@ public class PosicionMapper {
                 .latitude(posicionRequestDTO.getLatitude())
                 .longitude(posicionRequestDTO.getLongitude())
                 .fechaHora(posicionRequestDTO.getFixTime().toLocalDate()) // Convierte OffsetDateTime a LocalDate
+                .fechaHoraMs(posicionRequestDTO.getFixTime().toInstant().toEpochMilli())
                 .build();
     }
 
@@ -25,4 +42,168 @@ public class PosicionMapper {
                 .map(this:: toPoscicionResponseFromPosicionRequest)
                 .collect(Collectors.toList());
     }
-}
\ No newline at end of file
+
+    public Posicion toPosicionFromPosicionRequest(PosicionRequestDTO posicionRequestDTO) {
+        Object ignicion = posicionRequestDTO.getAttributes() != null ? posicionRequestDTO.getAttributes().get("ignition") : null;
+        return Posicion.builder()
+                .traccarId((long) posicionRequestDTO.getId())
+                .deviceId(posicionRequestDTO.getDeviceId())
+                .fechaHora(posicionRequestDTO.getFixTime().toInstant().toEpochMilli())
+                .latitud(posicionRequestDTO.getLatitude())
+                .longitud(posicionRequestDTO.getLongitude())
+                .velocidad(posicionRequestDTO.getSpeed())
+                .rumbo(posicionRequestDTO.getCourse())
+                .encendido(ignicion instanceof Boolean ? (Boolean) ignicion : null)
+                .build();
+    }
+
+    public PosicionResponseDTO toPosicionResponseFromPosicion(Posicion posicion) {
+        return PosicionResponseDTO.builder()
+                .id(posicion.getTraccarId().intValue())
+                .latitude(posicion.getLatitud())
+                .longitude(posicion.getLongitud())
+                .fechaHora(Instant.ofEpochMilli(posicion.getFechaHora()).atOffset(ZoneOffset.UTC).toLocalDate())
+                .fechaHoraMs(posicion.getFechaHora())
+                .build();
+    }
+
+    public List<PosicionResponseDTO> mapPosicionesToPosicionesResponseDTO(List<Posicion> posiciones) {
+        return posiciones.stream()
+                .map(this::toPosicionResponseFromPosicion)
+                .collect(Collectors.toList());
+    }
+
+    public RecorridoCodificadoResponseDTO toRecorridoCodificado(List<PosicionResponseDTO> posiciones) {
+        StringBuilder polilinea = new StringBuilder(posiciones.size() * 8);
+        long[] fechas = new long[posiciones.size()];
+        long latitudAnterior = 0;
+        long longitudAnterior = 0;
+        long fechaAnterior = 0;
+        for (int i = 0; i < posiciones.size(); i++) {
+            PosicionResponseDTO posicion = posiciones.get(i);
+            long latitud = Math.round(posicion.getLatitude() * ESCALA_POLILINEA);
+            long longitud = Math.round(posicion.getLongitude() * ESCALA_POLILINEA);
+            codificarPolilinea(latitud - latitudAnterior, polilinea);
+            codificarPolilinea(longitud - longitudAnterior, polilinea);
+            fechas[i] = posicion.getFechaHoraMs() - fechaAnterior;
+            latitudAnterior = latitud;
+            longitudAnterior = longitud;
+            fechaAnterior = posicion.getFechaHoraMs();
+        }
+        return RecorridoCodificadoResponseDTO.builder()
+                .polilinea(polilinea.toString())
+                .fechas(fechas)
+                .build();
+    }
+
+    // Version (1 byte), cantidad de puntos y por cada punto latitud y longitud en millonesimas de grado
+    // y fecha en epoch millis, como diferencia con el punto anterior (el primero absoluto), en zigzag varint
+    public byte[] toRecorridoBinario(List<PosicionResponseDTO> posiciones) {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream(posiciones.size() * 8 + 8);
+        salida.write(VERSION_BINARIO);
+        escribirVarint(posiciones.size(), salida);
+        long latitudAnterior = 0;
+        long longitudAnterior = 0;
+        long fechaAnterior = 0;
+        for (PosicionResponseDTO posicion : posiciones) {
+            long latitud = Math.round(posicion.getLatitude() * ESCALA_BINARIO);
+            long longitud = Math.round(posicion.getLongitude() * ESCALA_BINARIO);
+            escribirVarint(zigzag(latitud - latitudAnterior), salida);
+            escribirVarint(zigzag(longitud - longitudAnterior), salida);
+            escribirVarint(zigzag(posicion.getFechaHoraMs() - fechaAnterior), salida);
+            latitudAnterior = latitud;
+            longitudAnterior = longitud;
+            fechaAnterior = posicion.getFechaHoraMs();
+        }
+        return salida.toByteArray();
+    }
+
+    private void codificarPolilinea(long valor, StringBuilder salida) {
+        long restante = valor < 0 ? ~(valor << 1) : valor << 1;
+        while (restante >= 0x20) {
+            salida.append((char) ((0x20 | (restante & 0x1f)) + 63));
+            restante >>= 5;
+        }
+        salida.append((char) (restante + 63));
+    }
+
+    private void escribirVarint(long valor, ByteArrayOutputStream salida) {
+        while ((valor & ~0x7FL) != 0) {
+            salida.write((int) ((valor & 0x7F) | 0x80));
+            valor >>>= 7;
+        }
+        salida.write((int) valor);
+    }
+
+    private long zigzag(long valor) {
+        return (valor << 1) ^ (valor >> 63);
+    }
+
+    // Tolerancia equivalente a un pixel del mapa para ese zoom y latitud
+    public double toleranciaParaZoom(int zoom, double latitud) {
+        return METROS_POR_PIXEL_ZOOM_0 * Math.cos(Math.toRadians(latitud)) / Math.pow(2, zoom);
+    }
+
+    // Douglas-Peucker iterativo (sin recursion, para recorridos de decenas de miles de puntos).
+    // Conserva el primer y ultimo punto y todo punto que se aleje mas de la tolerancia del tramo simplificado.
+    public List<PosicionResponseDTO> simplificarRecorrido(List<PosicionResponseDTO> posiciones, double toleranciaMetros) {
+        int cantidad = posiciones.size();
+        if (cantidad < 3 || toleranciaMetros <= 0) {
+            return posiciones;
+        }
+
+        // Proyeccion equirectangular local: alcanza para las distancias de un recorrido
+        double cosLatitud = Math.cos(Math.toRadians(posiciones.get(0).getLatitude()));
+        double[] x = new double[cantidad];
+        double[] y = new double[cantidad];
+        for (int i = 0; i < cantidad; i++) {
+            x[i] = RADIO_TIERRA_METROS * Math.toRadians(posiciones.get(i).getLongitude()) * cosLatitud;
+            y[i] = RADIO_TIERRA_METROS * Math.toRadians(posiciones.get(i).getLatitude());
+        }
+
+        boolean[] conservar = new boolean[cantidad];
+        conservar[0] = true;
+        conservar[cantidad - 1] = true;
+        double tolerancia2 = toleranciaMetros * toleranciaMetros;
+
+        Deque<int[]> tramos = new ArrayDeque<>();
+        tramos.push(new int[]{0, cantidad - 1});
+        while (!tramos.isEmpty()) {
+            int[] tramo = tramos.pop();
+            int inicio = tramo[0];
+            int fin = tramo[1];
+            double maxima = -1;
+            int indiceMaximo = -1;
+            for (int i = inicio + 1; i < fin; i++) {
+                double distancia = distancia2AlSegmento(x[i], y[i], x[inicio], y[inicio], x[fin], y[fin]);
+                if (distancia > maxima) {
+                    maxima = distancia;
+                    indiceMaximo = i;
+                }
+            }
+            if (maxima > tolerancia2) {
+                conservar[indiceMaximo] = true;
+                tramos.push(new int[]{inicio, indiceMaximo});
+                tramos.push(new int[]{indiceMaximo, fin});
+            }
+        }
+
+        List<PosicionResponseDTO> simplificado = new ArrayList<>();
+        for (int i = 0; i < cantidad; i++) {
+            if (conservar[i]) {
+                simplificado.add(posiciones.get(i));
+            }
+        }
+        return simplificado;
+    }
+
+    private double distancia2AlSegmento(double px, double py, double ax, double ay, double bx, double by) {
+        double dx = bx - ax;
+        double dy = by - ay;
+        double largo2 = dx * dx + dy * dy;
+        double t = largo2 == 0 ? 0 : Math.max(0, Math.min(1, ((px - ax) * dx + (py - ay) * dy) / largo2));
+        double cx = ax + t * dx - px;
+        double cy = ay + t * dy - py;
+        return cx * cx + cy * cy;
+    }
+}
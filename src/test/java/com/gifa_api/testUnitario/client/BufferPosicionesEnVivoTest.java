@@ -0,0 +1,75 @@
+package com.gifa_api.testUnitario.client;
+
+import com.gifa_api.client.BufferPosicionesEnVivo;
+import com.gifa_api.dto.traccar.PosicionRequestDTO;
+import org.junit.jupiter.api.Test;
+
+import java.time.OffsetDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BufferPosicionesEnVivoTest {
+
+    private static final OffsetDateTime AHORA = OffsetDateTime.parse("2024-11-01T10:00:00Z");
+
+    private final BufferPosicionesEnVivo buffer = new BufferPosicionesEnVivo(3);
+
+    @Test
+    void agregar_soloAvanzaConPosicionesMasNuevas() {
+        assertTrue(buffer.agregar(posicion(1, 10, AHORA)));
+        assertFalse(buffer.agregar(posicion(2, 10, AHORA)));
+        assertFalse(buffer.agregar(posicion(3, 10, AHORA.minusMinutes(1))));
+
+        assertEquals(1, buffer.ultima(10).orElseThrow().getId());
+    }
+
+    @Test
+    void ultima_reconstruyeLaPosicionDesdeElAnillo() {
+        buffer.agregar(posicion(1, 10, AHORA));
+
+        PosicionRequestDTO ultima = buffer.ultima(10).orElseThrow();
+
+        assertEquals(10, ultima.getDeviceId());
+        assertEquals(AHORA, ultima.getFixTime());
+        assertEquals(-34.60, ultima.getLatitude());
+        assertEquals(40, ultima.getSpeed());
+        assertTrue(buffer.ultima(99).isEmpty());
+    }
+
+    @Test
+    void recientes_alLlenarseElAnilloPisaLasMasViejas() {
+        for (int i = 1; i <= 5; i++) {
+            buffer.agregar(posicion(i, 10, AHORA.plusSeconds(i)));
+        }
+
+        BufferPosicionesEnVivo.Ventana todas = buffer.recientes(10, 100);
+        BufferPosicionesEnVivo.Ventana dos = buffer.recientes(10, 2);
+
+        assertEquals(3, todas.getCantidad());
+        assertArrayEquals(new int[]{3, 4, 5}, todas.getIds());
+        assertArrayEquals(new int[]{4, 5}, dos.getIds());
+        assertEquals(AHORA.plusSeconds(5).toInstant().toEpochMilli(), dos.getFechas()[1]);
+        assertEquals(0, buffer.recientes(99, 10).getCantidad());
+    }
+
+    @Test
+    void ultimas_devuelveUnaPosicionPorDispositivo() {
+        buffer.agregar(posicion(1, 10, AHORA));
+        buffer.agregar(posicion(2, 10, AHORA.plusSeconds(30)));
+        buffer.agregar(posicion(3, 20, AHORA));
+
+        assertEquals(2, buffer.ultimas().size());
+        assertEquals(2, buffer.tamanio());
+    }
+
+    private PosicionRequestDTO posicion(int id, int deviceId, OffsetDateTime fixTime) {
+        return PosicionRequestDTO.builder()
+                .id(id)
+                .deviceId(deviceId)
+                .fixTime(fixTime)
+                .latitude(-34.60)
+                .longitude(-58.38)
+                .speed(40)
+                .build();
+    }
+}
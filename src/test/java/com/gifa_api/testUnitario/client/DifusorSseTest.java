@@ -0,0 +1,56 @@
+package com.gifa_api.testUnitario.client;
+
+import com.gifa_api.client.DifusorSse;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DifusorSseTest {
+
+    // Un ejecutor que nunca corre los envios simula clientes que no leen
+    @Mock
+    private ExecutorService envios;
+
+    @Test
+    void publicar_desconectaSoloAlClienteQueLlenoSuCola() {
+        DifusorSse<Integer> difusor = new DifusorSse<>("posicion", 2, envios);
+        difusor.suscribir(60000, dato -> true, List.of());
+        difusor.suscribir(60000, dato -> dato == 1, List.of());
+
+        difusor.publicar(List.of(1, 2, 3));
+
+        assertTrue(difusor.haySuscripciones());
+        difusor.publicar(List.of(1));
+        difusor.publicar(List.of(1));
+        assertFalse(difusor.haySuscripciones());
+    }
+
+    @Test
+    void publicar_programaUnSoloVaciadoMientrasHayEnvioPendiente() {
+        DifusorSse<Integer> difusor = new DifusorSse<>("posicion", 10, envios);
+        difusor.suscribir(60000, dato -> true, List.of());
+
+        difusor.publicar(List.of(1, 2, 3));
+        difusor.mantenerConexiones();
+
+        verify(envios, times(1)).execute(any());
+    }
+
+    @Test
+    void suscribir_conMasInicialesQueLaColaMandaSoloLosUltimos() {
+        DifusorSse<Integer> difusor = new DifusorSse<>("posicion", 2, envios);
+
+        difusor.suscribir(60000, dato -> true, List.of(1, 2, 3, 4));
+
+        assertTrue(difusor.haySuscripciones());
+    }
+}
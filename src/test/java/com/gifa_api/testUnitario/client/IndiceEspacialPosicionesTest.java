@@ -0,0 +1,96 @@
+package com.gifa_api.testUnitario.client;
+
+import com.gifa_api.client.IndiceEspacialPosiciones;
+import com.gifa_api.dto.traccar.PosicionRequestDTO;
+import org.junit.jupiter.api.Test;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndiceEspacialPosicionesTest {
+
+    private static final OffsetDateTime AHORA = OffsetDateTime.parse("2024-11-01T10:00:00Z");
+
+    // Obelisco de Buenos Aires
+    private static final double LATITUD = -34.6037;
+    private static final double LONGITUD = -58.3816;
+
+    private final IndiceEspacialPosiciones indice = new IndiceEspacialPosiciones(0.05);
+
+    @Test
+    void cercanos_devuelveSoloLosQueEstanDentroDelRadioOrdenadosPorDistancia() {
+        indice.actualizar(posicion(1, LATITUD + 0.02, LONGITUD, AHORA));   // ~2.2 km
+        indice.actualizar(posicion(2, LATITUD + 0.001, LONGITUD, AHORA));  // ~110 m
+        indice.actualizar(posicion(3, LATITUD + 0.2, LONGITUD, AHORA));    // ~22 km
+
+        List<IndiceEspacialPosiciones.Cercano> cercanos = indice.cercanos(LATITUD, LONGITUD, 5000, 10);
+
+        assertEquals(List.of(2, 1), cercanos.stream().map(cercano -> cercano.getPosicion().getDeviceId()).toList());
+        assertTrue(cercanos.get(0).getDistanciaMetros() < 150);
+    }
+
+    @Test
+    void cercanos_respetaElLimite() {
+        indice.actualizar(posicion(1, LATITUD + 0.01, LONGITUD, AHORA));
+        indice.actualizar(posicion(2, LATITUD + 0.001, LONGITUD, AHORA));
+
+        List<IndiceEspacialPosiciones.Cercano> cercanos = indice.cercanos(LATITUD, LONGITUD, 5000, 1);
+
+        assertEquals(1, cercanos.size());
+        assertEquals(2, cercanos.get(0).getPosicion().getDeviceId());
+    }
+
+    @Test
+    void actualizar_mueveElDispositivoDeCelda() {
+        indice.actualizar(posicion(1, LATITUD, LONGITUD, AHORA));
+        indice.actualizar(posicion(1, LATITUD + 1, LONGITUD, AHORA.plusMinutes(1)));
+
+        assertTrue(indice.cercanos(LATITUD, LONGITUD, 5000, 10).isEmpty());
+        assertEquals(1, indice.cercanos(LATITUD + 1, LONGITUD, 5000, 10).size());
+        assertEquals(1, indice.tamanio());
+    }
+
+    @Test
+    void actualizar_ignoraPosicionesMasViejas() {
+        indice.actualizar(posicion(1, LATITUD, LONGITUD, AHORA));
+        indice.actualizar(posicion(1, LATITUD + 1, LONGITUD, AHORA.minusMinutes(1)));
+
+        assertEquals(1, indice.cercanos(LATITUD, LONGITUD, 5000, 10).size());
+    }
+
+    @Test
+    void cercanos_encuentraVecinosEnCeldasContiguas() {
+        // A ambos lados del borde de una celda
+        indice.actualizar(posicion(1, -34.6001, LONGITUD, AHORA));
+        indice.actualizar(posicion(2, -34.5999, LONGITUD, AHORA));
+
+        assertEquals(2, indice.cercanos(-34.6, LONGITUD, 100, 10).size());
+    }
+
+    @Test
+    void enRectangulo_filtraPorLosLimites() {
+        indice.actualizar(posicion(1, LATITUD, LONGITUD, AHORA));
+        indice.actualizar(posicion(2, LATITUD + 0.5, LONGITUD, AHORA));
+
+        List<PosicionRequestDTO> dentro = indice.enRectangulo(LATITUD - 0.1, LONGITUD - 0.1, LATITUD + 0.1, LONGITUD + 0.1);
+
+        assertEquals(1, dentro.size());
+        assertEquals(1, dentro.get(0).getDeviceId());
+    }
+
+    @Test
+    void quitar_sacaAlDispositivoDelIndice() {
+        indice.actualizar(posicion(1, LATITUD, LONGITUD, AHORA));
+
+        indice.quitar(1);
+
+        assertTrue(indice.cercanos(LATITUD, LONGITUD, 5000, 10).isEmpty());
+        assertEquals(0, indice.tamanio());
+    }
+
+    private PosicionRequestDTO posicion(int deviceId, double latitud, double longitud, OffsetDateTime fixTime) {
+        return PosicionRequestDTO.builder().deviceId(deviceId).latitude(latitud).longitude(longitud).fixTime(fixTime).build();
+    }
+}
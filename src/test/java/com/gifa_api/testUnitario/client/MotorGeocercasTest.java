@@ -0,0 +1,92 @@
+package com.gifa_api.testUnitario.client;
+
+import com.gifa_api.client.MotorGeocercas;
+import com.gifa_api.dto.traccar.PosicionRequestDTO;
+import com.gifa_api.utils.enums.TipoEventoGeocerca;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MotorGeocercasTest {
+
+    private static final OffsetDateTime AHORA = OffsetDateTime.parse("2024-11-01T10:00:00Z");
+
+    private final MotorGeocercas motor = new MotorGeocercas(0.05);
+
+    @BeforeEach
+    void setUp() {
+        // Cuadrado de ~1 km alrededor del Obelisco y un triangulo solo para el vehiculo 7
+        motor.recargar(List.of(
+                new MotorGeocercas.Poligono(1, null,
+                        new double[]{-34.61, -34.61, -34.60, -34.60},
+                        new double[]{-58.39, -58.38, -58.38, -58.39}),
+                new MotorGeocercas.Poligono(2, 7,
+                        new double[]{-34.62, -34.62, -34.59},
+                        new double[]{-58.40, -58.37, -58.385})));
+    }
+
+    @Test
+    void evaluar_laPrimeraPosicionSoloFijaElEstado() {
+        assertTrue(motor.evaluar(posicion(10, -34.605, -58.385, AHORA), null).isEmpty());
+    }
+
+    @Test
+    void evaluar_detectaEntradaYSalida() {
+        motor.evaluar(posicion(10, -34.50, -58.385, AHORA), null);
+
+        List<MotorGeocercas.Transicion> entrada = motor.evaluar(posicion(10, -34.605, -58.385, AHORA.plusMinutes(1)), null);
+        List<MotorGeocercas.Transicion> sinCambios = motor.evaluar(posicion(10, -34.606, -58.385, AHORA.plusMinutes(2)), null);
+        List<MotorGeocercas.Transicion> salida = motor.evaluar(posicion(10, -34.50, -58.385, AHORA.plusMinutes(3)), null);
+
+        assertEquals(1, entrada.size());
+        assertEquals(1, entrada.get(0).getGeocercaId());
+        assertEquals(TipoEventoGeocerca.ENTRADA, entrada.get(0).getTipo());
+        assertTrue(sinCambios.isEmpty());
+        assertEquals(TipoEventoGeocerca.SALIDA, salida.get(0).getTipo());
+    }
+
+    @Test
+    void evaluar_lasGeocercasDeUnVehiculoNoAplicanAOtros() {
+        motor.evaluar(posicion(10, -34.50, -58.385, AHORA), 3);
+        motor.evaluar(posicion(11, -34.50, -58.385, AHORA), 7);
+
+        List<MotorGeocercas.Transicion> otroVehiculo = motor.evaluar(posicion(10, -34.605, -58.385, AHORA.plusMinutes(1)), 3);
+        List<MotorGeocercas.Transicion> vehiculoAsignado = motor.evaluar(posicion(11, -34.605, -58.385, AHORA.plusMinutes(1)), 7);
+
+        assertEquals(List.of(1), otroVehiculo.stream().map(MotorGeocercas.Transicion::getGeocercaId).toList());
+        assertEquals(List.of(1, 2), vehiculoAsignado.stream().map(MotorGeocercas.Transicion::getGeocercaId).toList());
+    }
+
+    @Test
+    void evaluar_ignoraPosicionesAtrasadas() {
+        motor.evaluar(posicion(10, -34.605, -58.385, AHORA), null);
+
+        assertTrue(motor.evaluar(posicion(10, -34.50, -58.385, AHORA.minusMinutes(1)), null).isEmpty());
+        assertEquals(TipoEventoGeocerca.SALIDA,
+                motor.evaluar(posicion(10, -34.50, -58.385, AHORA.plusMinutes(1)), null).get(0).getTipo());
+    }
+
+    @Test
+    void evaluar_unaGeocercaBorradaNoGeneraSalida() {
+        motor.evaluar(posicion(10, -34.605, -58.385, AHORA), null);
+        motor.recargar(List.of());
+
+        assertTrue(motor.evaluar(posicion(10, -34.50, -58.385, AHORA.plusMinutes(1)), null).isEmpty());
+    }
+
+    @Test
+    void evaluar_respetaLaFormaDelPoligonoYNoSoloSuCaja() {
+        motor.evaluar(posicion(11, -34.50, -58.385, AHORA), 7);
+
+        // Dentro de la caja del triangulo pero fuera del triangulo y del cuadrado
+        assertTrue(motor.evaluar(posicion(11, -34.595, -58.399, AHORA.plusMinutes(1)), 7).isEmpty());
+    }
+
+    private PosicionRequestDTO posicion(int deviceId, double latitud, double longitud, OffsetDateTime fixTime) {
+        return PosicionRequestDTO.builder().deviceId(deviceId).latitude(latitud).longitude(longitud).fixTime(fixTime).build();
+    }
+}
@@ -0,0 +1,76 @@
+package com.gifa_api.testUnitario.client;
+
+import com.gifa_api.client.PlanificadorSondeoTraccar;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlanificadorSondeoTraccarTest {
+
+    private final PlanificadorSondeoTraccar planificador = new PlanificadorSondeoTraccar(1000, 8000);
+
+    @Test
+    void losDispositivosNuevosVencenEnseguida() {
+        planificador.sincronizar(List.of(1, 2, 3), 0);
+
+        assertEquals(List.of(1, 2, 3), planificador.vencidos(0, 10).stream().sorted().toList());
+        assertTrue(planificador.vencidos(0, 10).isEmpty());
+    }
+
+    @Test
+    void respetaElMaximoPorTick() {
+        planificador.sincronizar(List.of(1, 2, 3), 0);
+
+        assertEquals(2, planificador.vencidos(0, 2).size());
+        assertEquals(1, planificador.vencidos(0, 2).size());
+    }
+
+    @Test
+    void unDispositivoQuietoDuplicaLaEsperaHastaElMaximo() {
+        planificador.sincronizar(List.of(1), 0);
+        long ahora = 0;
+        for (long espera : new long[]{2000, 4000, 8000, 8000}) {
+            assertEquals(List.of(1), planificador.vencidos(ahora, 10));
+            planificador.reprogramar(1, false, ahora);
+            assertTrue(planificador.vencidos(ahora + espera - 1, 10).isEmpty());
+            ahora += espera;
+        }
+    }
+
+    @Test
+    void alMoverseVuelveAlIntervaloActivo() {
+        planificador.sincronizar(List.of(1), 0);
+        planificador.vencidos(0, 10);
+        planificador.reprogramar(1, false, 0);
+        planificador.vencidos(2000, 10);
+        planificador.reprogramar(1, true, 2000);
+
+        assertEquals(List.of(1), planificador.vencidos(3000, 10));
+    }
+
+    @Test
+    void unSondeoFallidoMantieneLaEsperaSinDuplicarla() {
+        planificador.sincronizar(List.of(1), 0);
+        planificador.vencidos(0, 10);
+        planificador.reprogramar(1, false, 0);
+        planificador.vencidos(2000, 10);
+
+        planificador.reintentar(1, 2000);
+
+        assertTrue(planificador.vencidos(3999, 10).isEmpty());
+        assertEquals(List.of(1), planificador.vencidos(4000, 10));
+        planificador.reprogramar(1, false, 4000);
+        assertTrue(planificador.vencidos(7999, 10).isEmpty());
+        assertEquals(List.of(1), planificador.vencidos(8000, 10));
+    }
+
+    @Test
+    void losDispositivosQueYaNoEstanNoSeSondean() {
+        planificador.sincronizar(List.of(1, 2), 0);
+        planificador.sincronizar(List.of(2), 0);
+
+        assertEquals(List.of(2), planificador.vencidos(0, 10));
+    }
+}
@@ -0,0 +1,104 @@
+package com.gifa_api.testUnitario.client;
+
+import com.gifa_api.client.ITraccarCliente;
+import com.gifa_api.client.RegistroDispositivosTraccar;
+import com.gifa_api.dto.traccar.DispositivoResponseDTO;
+import com.gifa_api.exception.NotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RegistroDispositivosTraccarTest {
+
+    @Mock
+    private ITraccarCliente traccarCliente;
+
+    @InjectMocks
+    private RegistroDispositivosTraccar registro;
+
+    private DispositivoResponseDTO dispositivo;
+
+    @BeforeEach
+    void setUp() {
+        dispositivo = DispositivoResponseDTO.builder().id(10).uniqueId("AB123CD").name("a").build();
+        ReflectionTestUtils.setField(registro, "ttlInexistenteMs", 30000L);
+    }
+
+    @Test
+    void obtenerDeviceId_seResuelveSinConsultarTraccarCadaVez() {
+        when(traccarCliente.getDispositivos()).thenReturn(List.of(dispositivo));
+
+        assertEquals(10, registro.obtenerDeviceId("AB123CD"));
+        assertEquals(10, registro.obtenerDeviceId("AB123CD"));
+        assertEquals("AB123CD", registro.buscarPorDeviceId(10).get().getUniqueId());
+
+        verify(traccarCliente, times(1)).getDispositivos();
+        verify(traccarCliente, never()).obtenerDispositivoByUniqueId(anyString());
+    }
+
+    @Test
+    void obtenerDeviceId_siNoEstaSeConsultaSoloEseDispositivo() {
+        when(traccarCliente.getDispositivos()).thenReturn(List.of());
+        when(traccarCliente.obtenerDispositivoByUniqueId("AB123CD")).thenReturn(dispositivo);
+
+        assertEquals(10, registro.obtenerDeviceId("AB123CD"));
+        assertTrue(registro.existe("AB123CD"));
+
+        verify(traccarCliente, times(1)).obtenerDispositivoByUniqueId("AB123CD");
+    }
+
+    @Test
+    void obtenerDeviceId_dispositivoInexistenteLanzaExcepcionYNoSeVuelveAConsultar() {
+        when(traccarCliente.getDispositivos()).thenReturn(List.of());
+        when(traccarCliente.obtenerDispositivoByUniqueId("XX")).thenReturn(null);
+
+        assertThrows(NotFoundException.class, () -> registro.obtenerDeviceId("XX"));
+        assertThrows(NotFoundException.class, () -> registro.obtenerDeviceId("XX"));
+
+        verify(traccarCliente, times(1)).obtenerDispositivoByUniqueId("XX");
+    }
+
+    @Test
+    void obtenerDeviceId_unErrorDeTraccarNoSeConvierteEnNotFound() {
+        when(traccarCliente.getDispositivos()).thenReturn(List.of());
+        when(traccarCliente.obtenerDispositivoByUniqueId("AB123CD"))
+                .thenThrow(new ResourceAccessException("timeout"))
+                .thenReturn(dispositivo);
+
+        assertThrows(ResourceAccessException.class, () -> registro.obtenerDeviceId("AB123CD"));
+        // El error no queda recordado como inexistente
+        assertEquals(10, registro.obtenerDeviceId("AB123CD"));
+    }
+
+    @Test
+    void registrar_borraElInexistenteRecordado() {
+        when(traccarCliente.getDispositivos()).thenReturn(List.of());
+        when(traccarCliente.obtenerDispositivoByUniqueId("AB123CD")).thenReturn(null);
+        assertThrows(NotFoundException.class, () -> registro.obtenerDeviceId("AB123CD"));
+
+        registro.registrar(dispositivo);
+
+        assertEquals(10, registro.obtenerDeviceId("AB123CD"));
+    }
+
+    @Test
+    void registrar_agregaDispositivoCreado() {
+        when(traccarCliente.getDispositivos()).thenReturn(List.of());
+
+        assertFalse(registro.existe("AB123CD"));
+        registro.registrar(dispositivo);
+
+        assertTrue(registro.existe("AB123CD"));
+    }
+}
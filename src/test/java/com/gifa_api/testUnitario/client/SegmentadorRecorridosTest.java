@@ -0,0 +1,120 @@
+package com.gifa_api.testUnitario.client;
+
+import com.gifa_api.client.SegmentadorRecorridos;
+import com.gifa_api.model.Posicion;
+import com.gifa_api.utils.enums.TipoSegmento;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SegmentadorRecorridosTest {
+
+    private static final long AHORA = 1_730_455_200_000L;
+    private static final long MINUTO = 60_000L;
+
+    private final SegmentadorRecorridos segmentador = new SegmentadorRecorridos(3, 300, 200);
+
+    @Test
+    void procesar_cortaParadaViajeYParada() {
+        List<SegmentadorRecorridos.Segmento> segmentos = new ArrayList<>();
+        // 5 minutos detenido en marcha, 10 minutos avanzando ~111 m por minuto y de nuevo detenido
+        for (int minuto = 0; minuto <= 5; minuto++) {
+            procesar(posicion(minuto, 0, 0, true), segmentos);
+        }
+        for (int minuto = 6; minuto <= 15; minuto++) {
+            procesar(posicion(minuto, minuto - 5, 20, true), segmentos);
+        }
+        for (int minuto = 16; minuto <= 22; minuto++) {
+            procesar(posicion(minuto, 10, 0, true), segmentos);
+        }
+
+        assertEquals(2, segmentos.size());
+        SegmentadorRecorridos.Segmento parada = segmentos.get(0);
+        assertEquals(TipoSegmento.PARADA, parada.getTipo());
+        assertEquals(AHORA, parada.getInicio());
+        assertEquals(AHORA + 5 * MINUTO, parada.getFin());
+        assertEquals(5 * MINUTO, parada.getRalentiMs());
+
+        SegmentadorRecorridos.Segmento viaje = segmentos.get(1);
+        assertEquals(TipoSegmento.VIAJE, viaje.getTipo());
+        assertEquals(AHORA + 5 * MINUTO, viaje.getInicio());
+        assertEquals(AHORA + 16 * MINUTO, viaje.getFin());
+        assertEquals(1112, viaje.getDistanciaMetros(), 5);
+        assertEquals(20, viaje.getVelocidadMaximaNudos());
+        assertEquals(0, viaje.getRalentiMs());
+    }
+
+    @Test
+    void procesar_ignoraElRuidoDelGpsEstacionado() {
+        List<SegmentadorRecorridos.Segmento> segmentos = new ArrayList<>();
+        for (int minuto = 0; minuto <= 30; minuto++) {
+            // Saltos de ~10 m con velocidad espuria, siempre alrededor del mismo punto
+            procesar(posicion(minuto, (minuto % 2) * 0.1, minuto % 3 == 0 ? 0 : 5, true), segmentos);
+        }
+
+        assertTrue(segmentos.isEmpty());
+    }
+
+    @Test
+    void procesar_unHuecoSinPosicionesCierraElViajeEnLaUltimaConocida() {
+        List<SegmentadorRecorridos.Segmento> segmentos = new ArrayList<>();
+        for (int minuto = 0; minuto <= 5; minuto++) {
+            procesar(posicion(minuto, minuto, 20, true), segmentos);
+        }
+        procesar(posicion(30, 5, 0, false), segmentos);
+
+        assertEquals(1, segmentos.size());
+        assertEquals(TipoSegmento.VIAJE, segmentos.get(0).getTipo());
+        assertEquals(AHORA, segmentos.get(0).getInicio());
+        assertEquals(AHORA + 5 * MINUTO, segmentos.get(0).getFin());
+    }
+
+    @Test
+    void procesar_ignoraPosicionesQueNoAvanzan() {
+        segmentador.procesar(posicion(5, 0, 20, true));
+
+        assertTrue(segmentador.procesar(posicion(1, 3, 0, false)).isEmpty());
+        assertTrue(segmentador.conoce(10));
+    }
+
+    @Test
+    void cerrarVencidos_cierraLosViajesSinReportesRecientes() {
+        for (int minuto = 0; minuto <= 5; minuto++) {
+            segmentador.procesar(posicion(minuto, minuto, 20, true));
+        }
+
+        assertTrue(segmentador.cerrarVencidos(AHORA + 7 * MINUTO).isEmpty());
+        List<SegmentadorRecorridos.Segmento> cerrados = segmentador.cerrarVencidos(AHORA + 10 * MINUTO);
+        assertEquals(1, cerrados.size());
+        assertEquals(AHORA + 5 * MINUTO, cerrados.get(0).getFin());
+        assertTrue(segmentador.cerrarVencidos(AHORA + 20 * MINUTO).isEmpty());
+    }
+
+    @Test
+    void reiniciar_olvidaElEstadoDeLosDispositivos() {
+        segmentador.procesar(posicion(0, 0, 20, true));
+
+        segmentador.reiniciar();
+
+        assertFalse(segmentador.conoce(10));
+    }
+
+    private void procesar(Posicion posicion, List<SegmentadorRecorridos.Segmento> segmentos) {
+        segmentador.procesar(posicion).ifPresent(segmentos::add);
+    }
+
+    // Cada paso hacia el norte son 0.001 grados de latitud, unos 111 m
+    private Posicion posicion(int minuto, double pasos, double velocidad, Boolean encendido) {
+        return Posicion.builder()
+                .deviceId(10)
+                .fechaHora(AHORA + minuto * MINUTO)
+                .latitud(-34.60 + pasos * 0.001)
+                .longitud(-58.38)
+                .velocidad(velocidad)
+                .encendido(encendido)
+                .build();
+    }
+}
@@ -0,0 +1,124 @@
+package com.gifa_api.testUnitario.client;
+
+import com.gifa_api.client.SimuladorTraccar;
+import com.gifa_api.client.SimuladorTraccarReactivo;
+import com.gifa_api.dto.traccar.KilometrosResponseDTO;
+import com.gifa_api.dto.traccar.PosicionRequestDTO;
+import com.gifa_api.model.Dispositivo;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class SimuladorTraccarTest {
+
+    private static final OffsetDateTime DESDE = OffsetDateTime.parse("2024-11-01T00:00:00Z");
+    private static final OffsetDateTime HASTA = DESDE.plusHours(6);
+
+    private final ApplicationEventPublisher publisher = mock(ApplicationEventPublisher.class);
+
+    private SimuladorTraccar simulador(int dispositivos, double tasaError) {
+        return new SimuladorTraccar(publisher, dispositivos, 30, 0, 0, tasaError, -34.6037, -58.3816, 42, DESDE.minusDays(1));
+    }
+
+    @Test
+    void generaLaFlotaConPatentesValidas() {
+        SimuladorTraccar simulador = simulador(2000, 0);
+
+        assertEquals(2000, simulador.getDispositivos().size());
+        assertTrue(simulador.getDispositivos().stream()
+                .allMatch(d -> d.getUniqueId().matches("^[A-Z]{2}\\d{3}[A-Z]{2}$")));
+        assertEquals(2000, simulador.getDispositivos().stream().map(d -> d.getUniqueId()).distinct().count());
+    }
+
+    @Test
+    void lasPosicionesSonDeterministas() {
+        List<PosicionRequestDTO> primera = simulador(10, 0).getPosicionesDispositivoTraccar(3, DESDE, HASTA);
+        List<PosicionRequestDTO> segunda = simulador(10, 0).getPosicionesDispositivoTraccar(3, DESDE, HASTA);
+
+        assertEquals(6 * 60 * 2 + 1, primera.size());
+        assertEquals(primera, segunda);
+    }
+
+    @Test
+    void elResumenCoincideConElOdometroDeLasPosiciones() {
+        SimuladorTraccar simulador = simulador(10, 0);
+        List<PosicionRequestDTO> posiciones = simulador.getPosicionesDispositivoTraccar(5, DESDE, HASTA);
+
+        KilometrosResponseDTO resumen = simulador.getKilometros(5, DESDE, HASTA);
+
+        double odometroInicial = (double) posiciones.get(0).getAttributes().get("odometer");
+        double odometroFinal = (double) posiciones.get(posiciones.size() - 1).getAttributes().get("odometer");
+        assertEquals(Math.round(odometroFinal - odometroInicial), resumen.getDistance().longValue());
+        assertTrue(resumen.getDistance() > 0);
+    }
+
+    @Test
+    void losIdsDePosicionNoSeRepitenEntreDispositivos() {
+        SimuladorTraccar simulador = new SimuladorTraccar(publisher, 50, 30, 0, 0, 0, -34.6037, -58.3816, 42,
+                OffsetDateTime.now().minusDays(1));
+
+        long distintos = simulador.getUltimasPosiciones().stream().map(PosicionRequestDTO::getId).distinct().count();
+
+        assertEquals(50, distintos);
+    }
+
+    @Test
+    void losIdsDePosicionNoSeRepitenEntreMuestras() {
+        SimuladorTraccar simulador = simulador(10, 0);
+
+        List<Integer> ids = Stream.concat(
+                        simulador.getPosicionesDispositivoTraccar(1, DESDE, HASTA).stream(),
+                        simulador.getPosicionesDispositivoTraccar(2, DESDE, HASTA).stream())
+                .map(PosicionRequestDTO::getId)
+                .toList();
+
+        assertEquals(ids.size(), ids.stream().distinct().count());
+        assertTrue(ids.stream().allMatch(id -> id > 0));
+    }
+
+    @Test
+    void noHayPosicionesAntesDelOrigenDeLosIds() {
+        SimuladorTraccar simulador = simulador(10, 0);
+
+        assertTrue(simulador.getPosicionesDispositivoTraccar(1, DESDE.minusDays(3), DESDE.minusDays(2)).isEmpty());
+    }
+
+    @Test
+    void crearDispositivoEsIdempotentePorUniqueId() {
+        SimuladorTraccar simulador = simulador(10, 0);
+        Dispositivo dispositivo = Dispositivo.builder().unicoId("ABC123").nombre("Creacion automatica").build();
+
+        Integer id = simulador.postCrearDispositivoTraccar(dispositivo).getId();
+
+        assertEquals(id, simulador.postCrearDispositivoTraccar(dispositivo).getId());
+        assertEquals(id, simulador.obtenerDispositivoByUniqueId("ABC123").getId());
+        assertEquals(11, simulador.getDispositivos().size());
+    }
+
+    @Test
+    void inyectaErroresSegunLaTasaConfigurada() {
+        SimuladorTraccar simulador = simulador(10, 1);
+
+        assertThrows(HttpServerErrorException.class, simulador::getDispositivos);
+        assertThrows(WebClientResponseException.class,
+                () -> new SimuladorTraccarReactivo(simulador).getPosiciones(1, DESDE, HASTA).blockLast());
+    }
+
+    @Test
+    void laViaReactivaDevuelveLoMismo() {
+        SimuladorTraccar simulador = simulador(10, 0);
+
+        List<PosicionRequestDTO> reactivas = new SimuladorTraccarReactivo(simulador)
+                .getPosiciones(2, DESDE, HASTA).collectList().block();
+
+        assertEquals(simulador.getPosicionesDispositivoTraccar(2, DESDE, HASTA), reactivas);
+    }
+}
@@ -0,0 +1,61 @@
+package com.gifa_api.testUnitario.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.gifa_api.client.TraccarClient;
+import com.gifa_api.dto.traccar.PosicionRequestDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+class TraccarClientTest {
+
+    private MockRestServiceServer servidor;
+    private TraccarClient traccarClient;
+
+    @BeforeEach
+    void setUp() {
+        RestTemplate restTemplate = new RestTemplate();
+        servidor = MockRestServiceServer.bindTo(restTemplate).build();
+        traccarClient = new TraccarClient(restTemplate, new ObjectMapper().registerModule(new JavaTimeModule()));
+        ReflectionTestUtils.setField(traccarClient, "baseUrl", "http://traccar/api");
+    }
+
+    @Test
+    void getUltimasPosiciones_leeSoloLosCamposUsados() {
+        servidor.expect(requestTo("http://traccar/api/positions"))
+                .andRespond(withSuccess("""
+                        [
+                          {"id": 7, "deviceId": 10, "fixTime": "2024-11-01T10:00:00.000+00:00",
+                           "latitude": -34.6, "longitude": -58.4, "speed": 12.5, "course": 90, "address": null,
+                           "network": {"cellTowers": [{"cellId": 1}]}, "geofenceIds": [1, 2],
+                           "attributes": {"ignition": true, "io": {"a": 1}, "distance": 10.2}},
+                          {"id": 8, "deviceId": 11, "fixTime": "2024-11-01T10:00:05Z", "latitude": 1, "longitude": 2}
+                        ]
+                        """, MediaType.APPLICATION_JSON));
+
+        List<PosicionRequestDTO> posiciones = traccarClient.getUltimasPosiciones();
+
+        assertEquals(2, posiciones.size());
+        PosicionRequestDTO primera = posiciones.get(0);
+        assertEquals(10, primera.getDeviceId());
+        assertEquals(OffsetDateTime.parse("2024-11-01T10:00:00Z"), primera.getFixTime());
+        assertEquals(12.5, primera.getSpeed());
+        assertEquals(Map.of("ignition", true), primera.getAttributes());
+        assertNull(primera.getNetwork());
+        assertNull(primera.getGeofenceIds());
+        assertEquals(8, posiciones.get(1).getId());
+        servidor.verify();
+    }
+}
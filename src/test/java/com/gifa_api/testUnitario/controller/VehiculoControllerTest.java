@@ -3,6 +3,8 @@ package com.gifa_api.testUnitario.controller;
 import com.gifa_api.controller.VehiculoController;
 import com.gifa_api.dto.vehiculo.ListaVehiculosResponseDTO;
 import com.gifa_api.dto.vehiculo.RegistarVehiculoDTO;
+import com.gifa_api.dto.vehiculo.SegmentoRecorridoResponseDTO;
+import com.gifa_api.service.ISegmentacionRecorridosService;
 import com.gifa_api.service.IVehiculoService;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -12,6 +14,9 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 
+import java.time.OffsetDateTime;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.*;
 
@@ -23,6 +28,9 @@ class VehiculoControllerTest {
     @Mock
     private IVehiculoService vehiculoService;
 
+    @Mock
+    private ISegmentacionRecorridosService segmentacionRecorridosService;
+
     @Test
     void verVehiculos_ShouldReturnOk() {
         ListaVehiculosResponseDTO responseDTO = new ListaVehiculosResponseDTO();
@@ -63,4 +71,17 @@ class VehiculoControllerTest {
         assertEquals(HttpStatus.OK, response.getStatusCode());
         verify(vehiculoService).habilitar(1);
     }
+
+    @Test
+    void viajes_ShouldReturnOk() {
+        OffsetDateTime desde = OffsetDateTime.parse("2024-11-01T00:00:00Z");
+        OffsetDateTime hasta = OffsetDateTime.parse("2024-12-01T00:00:00Z");
+        List<SegmentoRecorridoResponseDTO> viajes = List.of(new SegmentoRecorridoResponseDTO());
+        when(segmentacionRecorridosService.obtenerViajes("AB123CD", desde, hasta, false)).thenReturn(viajes);
+
+        ResponseEntity<?> response = vehiculoController.viajes("AB123CD", desde, hasta, false);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(viajes, response.getBody());
+    }
 }
@@ -0,0 +1,48 @@
+package com.gifa_api.testUnitario.repository;
+
+import com.gifa_api.model.CandadoTarea;
+import com.gifa_api.repository.ICandadoTareaRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.annotation.Rollback;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+public class CandadoTareaRepositoryTest {
+
+    @Autowired
+    private ICandadoTareaRepository candadoRepository;
+
+    @Test
+    @Transactional
+    @Rollback
+    void tomar_soloSiElLeaseVencioEIncrementaElToken() {
+        candadoRepository.saveAndFlush(CandadoTarea.builder().nombre("tarea").expira(0).token(0).build());
+
+        assertEquals(1, candadoRepository.tomar("tarea", "nodo-a", 1000, 61000));
+        assertEquals(0, candadoRepository.tomar("tarea", "nodo-b", 2000, 62000));
+        assertEquals(Optional.of(1L), candadoRepository.findTokenByNombreAndDuenio("tarea", "nodo-a"));
+
+        assertEquals(1, candadoRepository.tomar("tarea", "nodo-b", 70000, 130000));
+        assertEquals(Optional.of(2L), candadoRepository.findTokenByNombreAndDuenio("tarea", "nodo-b"));
+    }
+
+    @Test
+    @Transactional
+    @Rollback
+    void renovar_soloElDuenioConElTokenVigente() {
+        candadoRepository.saveAndFlush(CandadoTarea.builder().nombre("tarea").expira(0).token(0).build());
+        candadoRepository.tomar("tarea", "nodo-a", 1000, 61000);
+
+        assertEquals(0, candadoRepository.renovar("tarea", "nodo-b", 1, 2000, 62000));
+        assertEquals(0, candadoRepository.renovar("tarea", "nodo-a", 0, 2000, 62000));
+        assertEquals(1, candadoRepository.renovar("tarea", "nodo-a", 1, 2000, 62000));
+        // Vencido ya no se renueva: hay que volver a tomarlo
+        assertEquals(0, candadoRepository.renovar("tarea", "nodo-a", 1, 63000, 123000));
+    }
+}
@@ -0,0 +1,88 @@
+package com.gifa_api.testUnitario.repository;
+
+import com.gifa_api.model.EventoGeocerca;
+import com.gifa_api.model.Geocerca;
+import com.gifa_api.repository.IEventoGeocercaRepository;
+import com.gifa_api.repository.IGeocercaRepository;
+import com.gifa_api.utils.enums.TipoEventoGeocerca;
+import com.gifa_api.utils.enums.TipoGeocerca;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.annotation.Rollback;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+public class EventoGeocercaRepositoryTest {
+
+    private static final OffsetDateTime AHORA = OffsetDateTime.parse("2024-11-01T10:00:00Z");
+
+    @Autowired
+    private IGeocercaRepository geocercaRepository;
+
+    @Autowired
+    private IEventoGeocercaRepository eventoGeocercaRepository;
+
+    private Geocerca geocerca;
+
+    @BeforeEach
+    void setUp() {
+        geocerca = geocercaRepository.save(Geocerca.builder()
+                .nombre("Deposito")
+                .tipo(TipoGeocerca.DEPOSITO)
+                .vertices("-34.61 -58.39,-34.61 -58.38,-34.6 -58.38")
+                .build());
+        eventoGeocercaRepository.saveAll(List.of(
+                evento(TipoEventoGeocerca.ENTRADA, AHORA),
+                evento(TipoEventoGeocerca.SALIDA, AHORA.plusHours(1)),
+                evento(TipoEventoGeocerca.ENTRADA, AHORA.plusDays(2))));
+    }
+
+    @Test
+    @Transactional
+    @Rollback
+    void findByGeocercaEntreFechas_devuelveLosEventosDelRangoOrdenados() {
+        List<EventoGeocerca> eventos = eventoGeocercaRepository.findByGeocercaEntreFechas(geocerca.getId(), AHORA, AHORA.plusDays(1));
+
+        assertEquals(2, eventos.size());
+        assertEquals(TipoEventoGeocerca.ENTRADA, eventos.get(0).getTipo());
+        assertEquals(TipoEventoGeocerca.SALIDA, eventos.get(1).getTipo());
+    }
+
+    @Test
+    @Transactional
+    @Rollback
+    void saveAndFlush_rechazaElMismoEventoGuardadoDosVeces() {
+        assertThrows(DataIntegrityViolationException.class,
+                () -> eventoGeocercaRepository.saveAndFlush(evento(TipoEventoGeocerca.ENTRADA, AHORA)));
+    }
+
+    @Test
+    @Transactional
+    @Rollback
+    void findByEliminadaFalse_noDevuelveGeocercasDadasDeBaja() {
+        geocerca.setEliminada(true);
+        geocercaRepository.save(geocerca);
+
+        assertTrue(geocercaRepository.findByEliminadaFalse().isEmpty());
+        assertEquals(3, eventoGeocercaRepository.findByGeocercaEntreFechas(geocerca.getId(), AHORA.minusDays(1), AHORA.plusDays(3)).size());
+    }
+
+    private EventoGeocerca evento(TipoEventoGeocerca tipo, OffsetDateTime fechaHora) {
+        return EventoGeocerca.builder()
+                .geocerca(geocerca)
+                .deviceId(10)
+                .tipo(tipo)
+                .fechaHora(fechaHora)
+                .latitud(-34.605)
+                .longitud(-58.385)
+                .build();
+    }
+}
@@ -0,0 +1,38 @@
+package com.gifa_api.testUnitario.repository;
+
+import com.gifa_api.model.KilometrajeDiario;
+import com.gifa_api.repository.IKilometrajeDiarioRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.annotation.Rollback;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+public class KilometrajeDiarioRepositoryTest {
+
+    @Autowired
+    private IKilometrajeDiarioRepository kilometrajeDiarioRepository;
+
+    @Test
+    @Transactional
+    @Rollback
+    void findByDeviceIdsAndFechaBetween_devuelveSoloLosDiasYDispositivosPedidos() {
+        kilometrajeDiarioRepository.saveAll(List.of(
+                KilometrajeDiario.builder().deviceId(1).fecha(LocalDate.of(2024, 11, 1)).distancia(10).build(),
+                KilometrajeDiario.builder().deviceId(1).fecha(LocalDate.of(2024, 11, 5)).distancia(20).build(),
+                KilometrajeDiario.builder().deviceId(2).fecha(LocalDate.of(2024, 11, 2)).distancia(30).build(),
+                KilometrajeDiario.builder().deviceId(3).fecha(LocalDate.of(2024, 11, 2)).distancia(40).build()));
+
+        List<KilometrajeDiario> dias = kilometrajeDiarioRepository.findByDeviceIdsAndFechaBetween(
+                List.of(1, 2), LocalDate.of(2024, 11, 1), LocalDate.of(2024, 11, 3));
+
+        assertEquals(2, dias.size());
+        assertTrue(dias.stream().noneMatch(dia -> dia.getDeviceId() == 3));
+    }
+}
@@ -0,0 +1,111 @@
+package com.gifa_api.testUnitario.repository;
+
+import com.gifa_api.repository.impl.DialectoBaseDatos;
+import com.gifa_api.repository.impl.PosicionLoteRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+// Las lecturas largas tienen que ir por cursor: se verifica el fetch size con el que se prepara la consulta
+@ExtendWith(MockitoExtension.class)
+class PosicionLoteRepositoryLecturaTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private DialectoBaseDatos dialecto;
+
+    @Mock
+    private Connection conexion;
+
+    @Mock
+    private DatabaseMetaData metaData;
+
+    @Mock
+    private PreparedStatement ps;
+
+    @Mock
+    private ResultSet rs;
+
+    @InjectMocks
+    private PosicionLoteRepository posicionLoteRepository;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        when(conexion.getMetaData()).thenReturn(metaData);
+        when(conexion.prepareStatement(anyString(), eq(ResultSet.TYPE_FORWARD_ONLY), eq(ResultSet.CONCUR_READ_ONLY))).thenReturn(ps);
+        // La consulta entrega dos filas al callback, una por vez
+        doAnswer(invocacion -> {
+            PreparedStatementCreator creador = invocacion.getArgument(0);
+            RowCallbackHandler porFila = invocacion.getArgument(1);
+            creador.createPreparedStatement(conexion);
+            // Todas las columnas que lee toPosicion, una por fila
+            when(rs.getLong("id")).thenReturn(11L, 12L);
+            when(rs.getLong("traccar_id")).thenReturn(1L, 2L);
+            when(rs.getInt("device_id")).thenReturn(10, 10);
+            when(rs.getLong("fecha_hora")).thenReturn(100L, 200L);
+            when(rs.getDouble("latitud")).thenReturn(-34.6, -34.7);
+            when(rs.getDouble("longitud")).thenReturn(-58.4, -58.5);
+            when(rs.getDouble("velocidad")).thenReturn(10.0, 20.0);
+            when(rs.getDouble("rumbo")).thenReturn(90.0, 180.0);
+            when(rs.getBoolean("encendido")).thenReturn(true, false);
+            porFila.processRow(rs);
+            porFila.processRow(rs);
+            return null;
+        }).when(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+    }
+
+    @Test
+    void recorrerEntreFechas_conCursorDelServidorLeeDeAMilFilas() throws Exception {
+        when(metaData.getDatabaseProductName()).thenReturn("MySQL");
+        when(metaData.getURL()).thenReturn("jdbc:mysql://db:3306/gifa?useCursorFetch=true");
+
+        List<Long> leidas = recorrer();
+
+        verify(ps).setFetchSize(1000);
+        assertEquals(List.of(1L, 2L), leidas);
+    }
+
+    @Test
+    void recorrerEntreFechas_enMySqlSinCursorTransmiteFilaAFila() throws Exception {
+        when(metaData.getDatabaseProductName()).thenReturn("MySQL");
+        when(metaData.getURL()).thenReturn("jdbc:mysql://db:3306/gifa");
+
+        recorrer();
+
+        verify(ps).setFetchSize(Integer.MIN_VALUE);
+    }
+
+    @Test
+    void recorrerEntreFechas_enOtraBaseUsaElFetchSizeComun() throws Exception {
+        when(metaData.getDatabaseProductName()).thenReturn("H2");
+        when(metaData.getURL()).thenReturn("jdbc:h2:mem:testdb");
+
+        recorrer();
+
+        verify(ps).setFetchSize(1000);
+    }
+
+    private List<Long> recorrer() {
+        List<Long> leidas = new ArrayList<>();
+        posicionLoteRepository.recorrerEntreFechas(10, 0, 1000, posicion -> leidas.add(posicion.getTraccarId()));
+        return leidas;
+    }
+}
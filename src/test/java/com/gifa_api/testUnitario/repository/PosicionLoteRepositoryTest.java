@@ -0,0 +1,41 @@
+package com.gifa_api.testUnitario.repository;
+
+import com.gifa_api.model.Posicion;
+import com.gifa_api.repository.impl.DialectoBaseDatos;
+import com.gifa_api.repository.impl.PosicionLoteRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.annotation.Rollback;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import({PosicionLoteRepository.class, DialectoBaseDatos.class})
+public class PosicionLoteRepositoryTest {
+
+    @Autowired
+    private PosicionLoteRepository posicionLoteRepository;
+
+    @Test
+    @Transactional
+    @Rollback
+    void insertarLote_salteaLasPosicionesYaGuardadasSinFallarElLote() {
+        posicionLoteRepository.insertarLote(List.of(posicion(1L, 1000), posicion(2L, 2000)));
+        posicionLoteRepository.insertarLote(List.of(posicion(2L, 2000), posicion(3L, 3000)));
+
+        List<Long> guardadas = new ArrayList<>();
+        posicionLoteRepository.recorrerEntreFechas(10, 0, 5000, posicion -> guardadas.add(posicion.getTraccarId()));
+
+        assertEquals(List.of(1L, 2L, 3L), guardadas);
+    }
+
+    private Posicion posicion(Long traccarId, long fechaHora) {
+        return Posicion.builder().traccarId(traccarId).deviceId(10).fechaHora(fechaHora).latitud(-34.6).longitud(-58.4).build();
+    }
+}
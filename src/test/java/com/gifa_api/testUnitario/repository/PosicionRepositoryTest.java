@@ -0,0 +1,60 @@
+package com.gifa_api.testUnitario.repository;
+
+import com.gifa_api.model.Posicion;
+import com.gifa_api.repository.IPosicionRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.annotation.Rollback;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+public class PosicionRepositoryTest {
+
+    @Autowired
+    private IPosicionRepository posicionRepository;
+
+    @Test
+    @Transactional
+    @Rollback
+    void findPaginaByDeviceId_recorreElRangoPorFechaYId() {
+        posicionRepository.saveAll(List.of(
+                posicion(1L, 1, 1000),
+                posicion(2L, 1, 2000),
+                posicion(3L, 1, 2000),
+                posicion(4L, 2, 2000),
+                posicion(5L, 1, 3000)));
+
+        List<Posicion> primera = posicionRepository.findPaginaByDeviceId(1, 999, -1, 2500, PageRequest.of(0, 2));
+        Posicion ultima = primera.get(1);
+        List<Posicion> segunda = posicionRepository.findPaginaByDeviceId(1, ultima.getFechaHora(), ultima.getId(), 2500, PageRequest.of(0, 2));
+
+        assertEquals(List.of(1L, 2L), primera.stream().map(Posicion::getTraccarId).toList());
+        assertEquals(List.of(3L), segunda.stream().map(Posicion::getTraccarId).toList());
+    }
+
+    @Test
+    @Transactional
+    @Rollback
+    void findRangoFechaHoraPorDispositivo_devuelveLaPrimeraYLaUltimaDeCadaDispositivo() {
+        posicionRepository.saveAll(List.of(
+                posicion(1L, 1, 1000),
+                posicion(2L, 1, 3000),
+                posicion(3L, 2, 2000)));
+
+        List<Object[]> marcas = posicionRepository.findRangoFechaHoraPorDispositivo();
+
+        assertEquals(2, marcas.size());
+        assertTrue(marcas.stream().anyMatch(fila -> fila[0].equals(1)
+                && ((Number) fila[1]).longValue() == 1000 && ((Number) fila[2]).longValue() == 3000));
+    }
+
+    private Posicion posicion(Long traccarId, Integer deviceId, long fechaHora) {
+        return Posicion.builder().traccarId(traccarId).deviceId(deviceId).fechaHora(fechaHora).build();
+    }
+}
@@ -0,0 +1,123 @@
+package com.gifa_api.testUnitario.service;
+
+import com.gifa_api.exception.LiderazgoPerdidoException;
+import com.gifa_api.model.CandadoTarea;
+import com.gifa_api.repository.ICandadoTareaRepository;
+import com.gifa_api.service.impl.CandadoTareaServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CandadoTareaServiceImplTest {
+
+    private static final String TAREA = "tarea";
+
+    @Mock
+    private ICandadoTareaRepository candadoRepository;
+
+    private CandadoTareaServiceImpl candadoTareaService;
+
+    @BeforeEach
+    void setUp() {
+        candadoTareaService = new CandadoTareaServiceImpl(candadoRepository, 60000, 20000);
+    }
+
+    @Test
+    void tomar_creaElLeaseSiNoExisteYDevuelveElToken() {
+        when(candadoRepository.existsById(TAREA)).thenReturn(false);
+        when(candadoRepository.tomar(eq(TAREA), anyString(), anyLong(), anyLong())).thenReturn(1);
+        when(candadoRepository.findTokenByNombreAndDuenio(eq(TAREA), anyString())).thenReturn(Optional.of(1L));
+
+        assertEquals(Optional.of(1L), candadoTareaService.tomar(TAREA));
+        verify(candadoRepository).saveAndFlush(any(CandadoTarea.class));
+    }
+
+    @Test
+    void tomar_siOtroNodoLoTieneNoEjecuta() {
+        when(candadoRepository.existsById(TAREA)).thenReturn(true);
+        when(candadoRepository.tomar(eq(TAREA), anyString(), anyLong(), anyLong())).thenReturn(0);
+
+        assertTrue(candadoTareaService.tomar(TAREA).isEmpty());
+    }
+
+    @Test
+    void tomar_siYaLoTieneLoRenuevaSinCambiarElToken() {
+        when(candadoRepository.existsById(TAREA)).thenReturn(true);
+        when(candadoRepository.tomar(eq(TAREA), anyString(), anyLong(), anyLong())).thenReturn(1);
+        when(candadoRepository.findTokenByNombreAndDuenio(eq(TAREA), anyString())).thenReturn(Optional.of(7L));
+        candadoTareaService.tomar(TAREA);
+        when(candadoRepository.renovar(eq(TAREA), anyString(), eq(7L), anyLong(), anyLong())).thenReturn(1);
+
+        assertEquals(Optional.of(7L), candadoTareaService.tomar(TAREA));
+        verify(candadoRepository, times(1)).tomar(eq(TAREA), anyString(), anyLong(), anyLong());
+    }
+
+    @Test
+    void renovar_dejaDeConsiderarLasTareasPerdidas() {
+        when(candadoRepository.existsById(TAREA)).thenReturn(true);
+        when(candadoRepository.tomar(eq(TAREA), anyString(), anyLong(), anyLong())).thenReturn(1, 0);
+        when(candadoRepository.findTokenByNombreAndDuenio(eq(TAREA), anyString())).thenReturn(Optional.of(3L));
+        candadoTareaService.tomar(TAREA);
+        when(candadoRepository.renovar(eq(TAREA), anyString(), eq(3L), anyLong(), anyLong())).thenReturn(0);
+
+        candadoTareaService.renovar();
+
+        // Al no tenerla mas, la proxima ejecucion intenta tomarla de nuevo
+        assertTrue(candadoTareaService.tomar(TAREA).isEmpty());
+        verify(candadoRepository, times(2)).tomar(eq(TAREA), anyString(), anyLong(), anyLong());
+    }
+
+    @Test
+    void validarToken_rechazaUnTokenViejo() {
+        when(candadoRepository.existsById(TAREA)).thenReturn(true);
+        when(candadoRepository.tomar(eq(TAREA), anyString(), anyLong(), anyLong())).thenReturn(1);
+        ArgumentCaptor<String> nodo = ArgumentCaptor.forClass(String.class);
+        when(candadoRepository.findTokenByNombreAndDuenio(eq(TAREA), nodo.capture())).thenReturn(Optional.of(3L));
+        candadoTareaService.tomar(TAREA);
+
+        when(candadoRepository.bloquear(TAREA))
+                .thenReturn(Optional.of(CandadoTarea.builder().nombre(TAREA).duenio(nodo.getValue()).token(3).build()));
+        assertDoesNotThrow(() -> candadoTareaService.validarToken(TAREA, 3));
+
+        when(candadoRepository.bloquear(TAREA))
+                .thenReturn(Optional.of(CandadoTarea.builder().nombre(TAREA).duenio("otro-nodo").token(4).build()));
+        assertThrows(LiderazgoPerdidoException.class, () -> candadoTareaService.validarToken(TAREA, 3));
+    }
+
+    @Test
+    void liberar_sueltaSoloLaTareaIndicada() {
+        when(candadoRepository.existsById(TAREA)).thenReturn(true);
+        when(candadoRepository.tomar(eq(TAREA), anyString(), anyLong(), anyLong())).thenReturn(1);
+        when(candadoRepository.findTokenByNombreAndDuenio(eq(TAREA), anyString())).thenReturn(Optional.of(2L));
+        candadoTareaService.tomar(TAREA);
+
+        candadoTareaService.liberar(TAREA);
+        candadoTareaService.liberar("otra-tarea");
+
+        verify(candadoRepository, times(1)).liberar(eq(TAREA), anyString(), eq(2L));
+        candadoTareaService.renovar();
+        verify(candadoRepository, never()).renovar(eq(TAREA), anyString(), anyLong(), anyLong(), anyLong());
+    }
+
+    @Test
+    void liberarTodo_liberaLasTareasTomadas() {
+        when(candadoRepository.existsById(TAREA)).thenReturn(true);
+        when(candadoRepository.tomar(eq(TAREA), anyString(), anyLong(), anyLong())).thenReturn(1);
+        when(candadoRepository.findTokenByNombreAndDuenio(eq(TAREA), anyString())).thenReturn(Optional.of(2L));
+        candadoTareaService.tomar(TAREA);
+
+        candadoTareaService.liberarTodo();
+
+        verify(candadoRepository).liberar(eq(TAREA), anyString(), eq(2L));
+    }
+}
@@ -0,0 +1,131 @@
+package com.gifa_api.testUnitario.service;
+
+import com.gifa_api.client.ITraccarCliente;
+import com.gifa_api.dto.traccar.FlotaPosicionesResponseDTO;
+import com.gifa_api.dto.traccar.PosicionEnVivoResponseDTO;
+import com.gifa_api.dto.traccar.PosicionRequestDTO;
+import com.gifa_api.repository.IDispositivoRepository;
+import com.gifa_api.service.IPosicionesEnVivoService;
+import com.gifa_api.service.impl.FlotaPosicionesServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FlotaPosicionesServiceImplTest {
+
+    @Mock
+    private ITraccarCliente traccarCliente;
+
+    @Mock
+    private IPosicionesEnVivoService posicionesEnVivoService;
+
+    @Mock
+    private IDispositivoRepository dispositivoRepository;
+
+    @InjectMocks
+    private FlotaPosicionesServiceImpl flotaPosicionesService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(flotaPosicionesService, "ttlMs", 60000L);
+        lenient().when(dispositivoRepository.findPatentesPorUnicoId())
+                .thenReturn(Collections.singletonList(new Object[]{"ABC123", "AB123CD"}));
+        lenient().when(posicionesEnVivoService.toPosicionEnVivo(any())).thenAnswer(invocacion -> {
+            PosicionRequestDTO posicion = invocacion.getArgument(0);
+            return PosicionEnVivoResponseDTO.builder()
+                    .deviceId(posicion.getDeviceId())
+                    .unicoId(posicion.getDeviceId() == 10 ? "ABC123" : "SIN-VEHICULO")
+                    .build();
+        });
+    }
+
+    @Test
+    void obtenerPosicionesDeFlota_soloIncluyeDispositivosConVehiculo() {
+        when(traccarCliente.getUltimasPosiciones()).thenReturn(List.of(
+                PosicionRequestDTO.builder().id(1).deviceId(10).build(),
+                PosicionRequestDTO.builder().id(2).deviceId(20).build()));
+
+        FlotaPosicionesResponseDTO flota = flotaPosicionesService.obtenerPosicionesDeFlota();
+
+        assertEquals(1, flota.getPosiciones().size());
+        assertEquals("AB123CD", flota.getPosiciones().get(0).getPatente());
+    }
+
+    @Test
+    void obtenerPosicionesDeFlota_reutilizaLaFotoMientrasNoVence() {
+        when(traccarCliente.getUltimasPosiciones()).thenReturn(List.of(PosicionRequestDTO.builder().id(1).deviceId(10).build()));
+
+        FlotaPosicionesResponseDTO primera = flotaPosicionesService.obtenerPosicionesDeFlota();
+        FlotaPosicionesResponseDTO segunda = flotaPosicionesService.obtenerPosicionesDeFlota();
+
+        assertSame(primera, segunda);
+        verify(traccarCliente, times(1)).getUltimasPosiciones();
+    }
+
+    @Test
+    void obtenerPosicionesDeFlota_conSocketConectadoNoConsultaTraccar() {
+        when(posicionesEnVivoService.disponible()).thenReturn(true);
+        when(posicionesEnVivoService.ultimasPosiciones()).thenReturn(List.of(PosicionRequestDTO.builder().id(1).deviceId(10).build()));
+
+        FlotaPosicionesResponseDTO flota = flotaPosicionesService.obtenerPosicionesDeFlota();
+
+        assertEquals(1, flota.getPosiciones().size());
+        verifyNoInteractions(traccarCliente);
+    }
+
+    @Test
+    void obtenerPosicionesDeFlota_pedidosConcurrentesCompartenUnaSolaConsulta() throws Exception {
+        CountDownLatch consultaIniciada = new CountDownLatch(1);
+        CountDownLatch liberarConsulta = new CountDownLatch(1);
+        when(traccarCliente.getUltimasPosiciones()).thenAnswer(invocacion -> {
+            consultaIniciada.countDown();
+            liberarConsulta.await(5, TimeUnit.SECONDS);
+            return List.of(PosicionRequestDTO.builder().id(1).deviceId(10).build());
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<FlotaPosicionesResponseDTO> primero = executor.submit(flotaPosicionesService::obtenerPosicionesDeFlota);
+            assertTrue(consultaIniciada.await(5, TimeUnit.SECONDS));
+            Future<FlotaPosicionesResponseDTO> segundo = executor.submit(flotaPosicionesService::obtenerPosicionesDeFlota);
+            Future<FlotaPosicionesResponseDTO> tercero = executor.submit(flotaPosicionesService::obtenerPosicionesDeFlota);
+            liberarConsulta.countDown();
+
+            assertSame(primero.get(5, TimeUnit.SECONDS), segundo.get(5, TimeUnit.SECONDS));
+            assertSame(primero.get(), tercero.get(5, TimeUnit.SECONDS));
+            verify(traccarCliente, times(1)).getUltimasPosiciones();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void obtenerPosicionesDeFlota_siTraccarFallaDevuelveLaFotoAnterior() {
+        ReflectionTestUtils.setField(flotaPosicionesService, "ttlMs", 0L);
+        when(traccarCliente.getUltimasPosiciones())
+                .thenReturn(List.of(PosicionRequestDTO.builder().id(1).deviceId(10).build()))
+                .thenThrow(new RuntimeException("Traccar caido"));
+
+        FlotaPosicionesResponseDTO primera = flotaPosicionesService.obtenerPosicionesDeFlota();
+        FlotaPosicionesResponseDTO segunda = flotaPosicionesService.obtenerPosicionesDeFlota();
+
+        assertSame(primera, segunda);
+    }
+}
@@ -0,0 +1,195 @@
+package com.gifa_api.testUnitario.service;
+
+import com.gifa_api.client.MotorGeocercas;
+import com.gifa_api.client.PosicionesRecibidasEvent;
+import com.gifa_api.client.RegistroDispositivosTraccar;
+import com.gifa_api.dto.geocerca.CoordenadaDTO;
+import com.gifa_api.dto.geocerca.GeocercaResponseDTO;
+import com.gifa_api.dto.geocerca.RegistrarGeocercaDTO;
+import com.gifa_api.dto.traccar.DispositivoResponseDTO;
+import com.gifa_api.dto.traccar.PosicionRequestDTO;
+import com.gifa_api.exception.BadRequestException;
+import com.gifa_api.exception.NotFoundException;
+import com.gifa_api.model.EventoGeocerca;
+import com.gifa_api.model.Geocerca;
+import com.gifa_api.repository.IDispositivoRepository;
+import com.gifa_api.repository.IEventoGeocercaRepository;
+import com.gifa_api.repository.IGeocercaRepository;
+import com.gifa_api.repository.IVehiculoRepository;
+import com.gifa_api.service.impl.GeocercaServiceImpl;
+import com.gifa_api.utils.enums.TipoEventoGeocerca;
+import com.gifa_api.utils.enums.TipoGeocerca;
+import com.gifa_api.utils.mappers.GeocercaMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class GeocercaServiceImplTest {
+
+    private static final OffsetDateTime AHORA = OffsetDateTime.parse("2024-11-01T10:00:00Z");
+    private static final String CUADRADO = "-34.61 -58.39,-34.61 -58.38,-34.6 -58.38,-34.6 -58.39";
+
+    @Mock
+    private IGeocercaRepository geocercaRepository;
+
+    @Mock
+    private IEventoGeocercaRepository eventoGeocercaRepository;
+
+    @Mock
+    private IVehiculoRepository vehiculoRepository;
+
+    @Mock
+    private IDispositivoRepository dispositivoRepository;
+
+    @Mock
+    private RegistroDispositivosTraccar registroDispositivos;
+
+    @Spy
+    private MotorGeocercas motorGeocercas = new MotorGeocercas(0.05);
+
+    @Spy
+    private GeocercaMapper geocercaMapper;
+
+    @InjectMocks
+    private GeocercaServiceImpl geocercaService;
+
+    @AfterEach
+    void tearDown() {
+        geocercaService.cerrar();
+    }
+
+    @Test
+    void registrar_guardaLosVerticesYRecargaElMotor() {
+        when(geocercaRepository.save(any())).thenAnswer(invocation -> {
+            Geocerca geocerca = invocation.getArgument(0);
+            geocerca.setId(1);
+            return geocerca;
+        });
+
+        GeocercaResponseDTO respuesta = geocercaService.registrar(RegistrarGeocercaDTO.builder()
+                .nombre("Deposito central")
+                .tipo(TipoGeocerca.DEPOSITO)
+                .vertices(List.of(new CoordenadaDTO(-34.61, -58.39), new CoordenadaDTO(-34.61, -58.38), new CoordenadaDTO(-34.6, -58.38)))
+                .build());
+
+        assertEquals(1, respuesta.getId());
+        assertEquals(3, respuesta.getVertices().size());
+        verify(motorGeocercas).recargar(any());
+    }
+
+    @Test
+    void registrar_conMenosDeTresVerticesLanzaExcepcion() {
+        assertThrows(BadRequestException.class, () -> geocercaService.registrar(RegistrarGeocercaDTO.builder()
+                .nombre("Linea")
+                .tipo(TipoGeocerca.ZONA_PROHIBIDA)
+                .vertices(List.of(new CoordenadaDTO(-34.61, -58.39), new CoordenadaDTO(-34.61, -58.38)))
+                .build()));
+        verify(geocercaRepository, never()).save(any());
+    }
+
+    @Test
+    void registrar_conVehiculoInexistenteLanzaExcepcion() {
+        when(vehiculoRepository.findById(9)).thenReturn(Optional.empty());
+
+        assertThrows(NotFoundException.class, () -> geocercaService.registrar(RegistrarGeocercaDTO.builder()
+                .nombre("Deposito")
+                .tipo(TipoGeocerca.DEPOSITO)
+                .vehiculoId(9)
+                .vertices(List.of(new CoordenadaDTO(-34.61, -58.39), new CoordenadaDTO(-34.61, -58.38), new CoordenadaDTO(-34.6, -58.38)))
+                .build()));
+    }
+
+    @Test
+    void eliminar_geocercaInexistenteLanzaExcepcion() {
+        when(geocercaRepository.findById(5)).thenReturn(Optional.empty());
+
+        assertThrows(NotFoundException.class, () -> geocercaService.eliminar(5));
+    }
+
+    @Test
+    void eliminar_daDeBajaLaGeocercaSinBorrarSusEventos() {
+        Geocerca deposito = Geocerca.builder().id(1).nombre("Deposito").tipo(TipoGeocerca.DEPOSITO).vertices(CUADRADO).build();
+        when(geocercaRepository.findById(1)).thenReturn(Optional.of(deposito));
+
+        geocercaService.eliminar(1);
+
+        assertTrue(deposito.isEliminada());
+        verify(geocercaRepository).save(deposito);
+        verify(geocercaRepository, never()).deleteById(any());
+        verifyNoInteractions(eventoGeocercaRepository);
+    }
+
+    @Test
+    void onPosicionesRecibidas_guardaLaEntradaALaGeocerca() {
+        Geocerca deposito = Geocerca.builder().id(1).nombre("Deposito").tipo(TipoGeocerca.DEPOSITO).vertices(CUADRADO).build();
+        cargarGeocerca(deposito);
+
+        geocercaService.onPosicionesRecibidas(new PosicionesRecibidasEvent(List.of(
+                posicion(-34.50, -58.385, AHORA),
+                posicion(-34.605, -58.385, AHORA.plusMinutes(1)))));
+
+        ArgumentCaptor<EventoGeocerca> captor = ArgumentCaptor.forClass(EventoGeocerca.class);
+        verify(eventoGeocercaRepository).save(captor.capture());
+        EventoGeocerca evento = captor.getValue();
+        assertEquals(TipoEventoGeocerca.ENTRADA, evento.getTipo());
+        assertEquals(deposito, evento.getGeocerca());
+        assertEquals(AHORA.plusMinutes(1), evento.getFechaHora());
+    }
+
+    @Test
+    void onPosicionesRecibidas_siOtroNodoYaGuardoElEventoSigueConLosDemas() {
+        Geocerca deposito = Geocerca.builder().id(1).nombre("Deposito").tipo(TipoGeocerca.DEPOSITO).vertices(CUADRADO).build();
+        cargarGeocerca(deposito);
+        when(eventoGeocercaRepository.save(any()))
+                .thenThrow(new DataIntegrityViolationException("uk_evento_geocerca"))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        geocercaService.onPosicionesRecibidas(new PosicionesRecibidasEvent(List.of(
+                posicion(-34.50, -58.385, AHORA),
+                posicion(-34.605, -58.385, AHORA.plusMinutes(1)),
+                posicion(-34.50, -58.385, AHORA.plusMinutes(2)))));
+
+        ArgumentCaptor<EventoGeocerca> captor = ArgumentCaptor.forClass(EventoGeocerca.class);
+        verify(eventoGeocercaRepository, times(2)).save(captor.capture());
+        assertEquals(TipoEventoGeocerca.SALIDA, captor.getAllValues().get(1).getTipo());
+    }
+
+    @Test
+    void onPosicionesRecibidas_sinGeocercasNoEvalua() {
+        geocercaService.onPosicionesRecibidas(new PosicionesRecibidasEvent(List.of(posicion(-34.605, -58.385, AHORA))));
+
+        verify(motorGeocercas, never()).evaluar(any(), any());
+        verifyNoInteractions(eventoGeocercaRepository);
+    }
+
+    @Test
+    void obtenerEventos_conRangoInvertidoLanzaExcepcion() {
+        assertThrows(BadRequestException.class, () -> geocercaService.obtenerEventos(1, AHORA, AHORA.minusDays(1)));
+    }
+
+    private void cargarGeocerca(Geocerca geocerca) {
+        when(geocercaRepository.findByEliminadaFalse()).thenReturn(List.of(geocerca));
+        when(dispositivoRepository.findVehiculoIdsPorUnicoId()).thenReturn(List.<Object[]>of(new Object[]{"AB123CD", 3}));
+        when(registroDispositivos.buscarPorUnicoId("AB123CD")).thenReturn(Optional.of(
+                DispositivoResponseDTO.builder().id(10).uniqueId("AB123CD").build()));
+        geocercaService.recargar();
+    }
+
+    private PosicionRequestDTO posicion(double latitud, double longitud, OffsetDateTime fixTime) {
+        return PosicionRequestDTO.builder().deviceId(10).latitude(latitud).longitude(longitud).fixTime(fixTime).build();
+    }
+}
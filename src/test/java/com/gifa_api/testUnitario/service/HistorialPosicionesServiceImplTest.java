@@ -0,0 +1,464 @@
+package com.gifa_api.testUnitario.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.gifa_api.client.ITraccarCliente;
+import com.gifa_api.client.PlanificadorSondeoTraccar;
+import com.gifa_api.client.RegistroDispositivosTraccar;
+import com.gifa_api.dto.traccar.DispositivoResponseDTO;
+import com.gifa_api.dto.traccar.PaginaPosicionesResponseDTO;
+import com.gifa_api.dto.traccar.PosicionRequestDTO;
+import com.gifa_api.dto.traccar.PosicionResponseDTO;
+import com.gifa_api.exception.BadRequestException;
+import com.gifa_api.exception.LiderazgoPerdidoException;
+import com.gifa_api.model.Posicion;
+import com.gifa_api.repository.IIngestaDispositivoRepository;
+import com.gifa_api.repository.IPosicionLoteRepository;
+import com.gifa_api.repository.IPosicionRepository;
+import com.gifa_api.service.ICandadoTareaService;
+import com.gifa_api.service.impl.HistorialPosicionesServiceImpl;
+import com.gifa_api.utils.mappers.PosicionMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class HistorialPosicionesServiceImplTest {
+
+    private static final OffsetDateTime MARCA = OffsetDateTime.parse("2024-11-01T10:00:00Z");
+
+    @Mock
+    private ITraccarCliente traccarCliente;
+
+    @Mock
+    private IPosicionRepository posicionRepository;
+
+    @Mock
+    private IPosicionLoteRepository posicionLoteRepository;
+
+    @Mock
+    private IIngestaDispositivoRepository ingestaDispositivoRepository;
+
+    @Mock
+    private RegistroDispositivosTraccar registroDispositivos;
+
+    @Spy
+    private PosicionMapper posicionMapper = new PosicionMapper();
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    // Con intervalos en cero cada dispositivo queda vencido en el tick siguiente
+    @Spy
+    private PlanificadorSondeoTraccar planificador = new PlanificadorSondeoTraccar(0, 0);
+
+    @Spy
+    private ExecutorService traccarExecutor = Executors.newFixedThreadPool(2);
+
+    // Pool propio de los lectores de tramos; se asigna a mano porque @InjectMocks resuelve por tipo
+    private ExecutorService tramosExecutor = Executors.newFixedThreadPool(2);
+
+    @Mock
+    private ICandadoTareaService candadoTareaService;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @InjectMocks
+    private HistorialPosicionesServiceImpl historialPosicionesService;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(candadoTareaService.tomar(any())).thenReturn(Optional.of(1L));
+        lenient().doAnswer(invocation -> {
+            Consumer<TransactionStatus> accion = invocation.getArgument(0);
+            accion.accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        ReflectionTestUtils.setField(historialPosicionesService, "horasHistorialInicial", 24L);
+        ReflectionTestUtils.setField(historialPosicionesService, "maximoPorTick", 50);
+        ReflectionTestUtils.setField(historialPosicionesService, "concurrenciaSondeo", 2);
+        ReflectionTestUtils.setField(historialPosicionesService, "horasPorTramo", 24L);
+        ReflectionTestUtils.setField(historialPosicionesService, "tramosEnParalelo", 2);
+        // Cola chica para que los tramos adelantados se frenen esperando al mas viejo
+        ReflectionTestUtils.setField(historialPosicionesService, "posicionesEnMemoriaPorTramo", 1);
+        ReflectionTestUtils.setField(historialPosicionesService, "esperaClienteMs", 30000L);
+        ReflectionTestUtils.setField(historialPosicionesService, "tramosExecutor", tramosExecutor);
+    }
+
+    @AfterEach
+    void tearDown() {
+        traccarExecutor.shutdownNow();
+        tramosExecutor.shutdownNow();
+    }
+
+    @Test
+    void ingerirPosiciones_sondeaDesdeLaMarcaYLaAvanza() {
+        when(posicionRepository.findRangoFechaHoraPorDispositivo())
+                .thenReturn(Collections.singletonList(new Object[]{10, MARCA.toInstant().toEpochMilli(), MARCA.toInstant().toEpochMilli()}));
+        when(registroDispositivos.todos()).thenReturn(List.of(DispositivoResponseDTO.builder().id(10).build()));
+        when(traccarCliente.getPosicionesDispositivoTraccar(eq(10), any(), any()))
+                .thenReturn(List.of(posicion(1, MARCA), posicion(2, MARCA.plusMinutes(1))))
+                .thenReturn(List.of(posicion(2, MARCA.plusMinutes(1))));
+
+        historialPosicionesService.ingerirPosiciones();
+
+        // El borde repetido va al insert, que saltea lo ya guardado
+        ArgumentCaptor<List<Posicion>> lote = ArgumentCaptor.forClass(List.class);
+        verify(posicionLoteRepository).insertarLote(lote.capture());
+        assertEquals(List.of(1L, 2L), lote.getValue().stream().map(Posicion::getTraccarId).toList());
+
+        historialPosicionesService.ingerirPosiciones();
+
+        verify(traccarCliente).getPosicionesDispositivoTraccar(eq(10), eq(MARCA), any());
+        verify(traccarCliente).getPosicionesDispositivoTraccar(eq(10), eq(MARCA.plusMinutes(1)), any());
+    }
+
+    @Test
+    void ingerirPosiciones_conElTokenVencidoNoGuardaLoSondeado() {
+        when(posicionRepository.findRangoFechaHoraPorDispositivo()).thenReturn(List.of());
+        when(registroDispositivos.todos()).thenReturn(List.of(DispositivoResponseDTO.builder().id(10).build()));
+        when(traccarCliente.getPosicionesDispositivoTraccar(eq(10), any(), any())).thenReturn(List.of(posicion(1, MARCA)));
+        doThrow(new LiderazgoPerdidoException("token viejo")).when(candadoTareaService).validarToken(any(), eq(1L));
+
+        historialPosicionesService.ingerirPosiciones();
+
+        verify(posicionLoteRepository, never()).insertarLote(anyList());
+    }
+
+    @Test
+    void ingerirPosiciones_reprogramaSegunSiElDispositivoSeMueve() {
+        when(posicionRepository.findRangoFechaHoraPorDispositivo()).thenReturn(List.of());
+        when(registroDispositivos.todos()).thenReturn(List.of(
+                DispositivoResponseDTO.builder().id(10).build(), DispositivoResponseDTO.builder().id(20).build()));
+        PosicionRequestDTO enMovimiento = PosicionRequestDTO.builder().id(5).deviceId(20).fixTime(MARCA).speed(30).build();
+        when(traccarCliente.getPosicionesDispositivoTraccar(anyInt(), any(), any()))
+                .thenAnswer(invocacion -> invocacion.getArgument(0, Integer.class) == 20
+                        ? List.of(enMovimiento)
+                        : List.of(posicion(1, MARCA)));
+
+        historialPosicionesService.ingerirPosiciones();
+
+        verify(planificador).reprogramar(eq(10), eq(false), anyLong());
+        verify(planificador).reprogramar(eq(20), eq(true), anyLong());
+    }
+
+    @Test
+    void ingerirPosiciones_unSondeoFallidoNoDuplicaLaEspera() {
+        when(posicionRepository.findRangoFechaHoraPorDispositivo()).thenReturn(List.of());
+        when(registroDispositivos.todos()).thenReturn(List.of(DispositivoResponseDTO.builder().id(10).build()));
+        when(traccarCliente.getPosicionesDispositivoTraccar(eq(10), any(), any())).thenThrow(new RuntimeException("Traccar caido"));
+
+        historialPosicionesService.ingerirPosiciones();
+
+        verify(planificador).reintentar(eq(10), anyLong());
+        verify(planificador, never()).reprogramar(anyInt(), anyBoolean(), anyLong());
+    }
+
+    @Test
+    void guardarPosiciones_insertaUnSoloLoteSinDuplicados() {
+        when(posicionRepository.findRangoFechaHoraPorDispositivo())
+                .thenReturn(Collections.singletonList(new Object[]{10, MARCA.toInstant().toEpochMilli(), MARCA.toInstant().toEpochMilli()}));
+        PosicionRequestDTO otroDispositivo = PosicionRequestDTO.builder().id(7).deviceId(20).fixTime(MARCA).build();
+
+        historialPosicionesService.guardarPosiciones(List.of(
+                posicion(1, MARCA), posicion(2, MARCA.plusMinutes(1)), posicion(2, MARCA.plusMinutes(1)), otroDispositivo));
+
+        ArgumentCaptor<List<Posicion>> lote = ArgumentCaptor.forClass(List.class);
+        verify(posicionLoteRepository).insertarLote(lote.capture());
+        assertEquals(List.of(1L, 2L, 7L), lote.getValue().stream().map(Posicion::getTraccarId).sorted().toList());
+    }
+
+    @Test
+    void guardarPosiciones_guardaPosicionesAtrasadasSinRetrocederLaMarca() {
+        when(posicionRepository.findRangoFechaHoraPorDispositivo())
+                .thenReturn(Collections.singletonList(new Object[]{10, MARCA.minusHours(4).toInstant().toEpochMilli(), MARCA.toInstant().toEpochMilli()}));
+
+        historialPosicionesService.guardarPosiciones(List.of(posicion(9, MARCA.minusHours(2))));
+
+        ArgumentCaptor<List<Posicion>> lote = ArgumentCaptor.forClass(List.class);
+        verify(posicionLoteRepository).insertarLote(lote.capture());
+        assertEquals(List.of(9L), lote.getValue().stream().map(Posicion::getTraccarId).toList());
+
+        // La marca sigue en MARCA: el historial hasta ahi se sirve desde la base
+        historialPosicionesService.obtenerPosiciones(10, MARCA.minusHours(3), MARCA);
+        verify(posicionLoteRepository).recorrerEntreFechas(eq(10), anyLong(), eq(MARCA.toInstant().toEpochMilli()), any());
+        verify(traccarCliente, never()).recorrerPosiciones(anyInt(), any(), any(), any());
+    }
+
+    @Test
+    void ingerirPosiciones_noSondeaDispositivosQueTraccarEstaReenviandoACualquierNodo() {
+        ReflectionTestUtils.setField(historialPosicionesService, "ventanaPushMs", 60000L);
+        when(posicionRepository.findRangoFechaHoraPorDispositivo()).thenReturn(List.of());
+        when(registroDispositivos.todos()).thenReturn(List.of(DispositivoResponseDTO.builder().id(10).build()));
+        when(ingestaDispositivoRepository.buscarReenviosDesde(anyLong())).thenReturn(Map.of(10, System.currentTimeMillis()));
+
+        historialPosicionesService.ingerirPosiciones();
+
+        verify(traccarCliente, never()).getPosicionesDispositivoTraccar(anyInt(), any(), any());
+    }
+
+    @Test
+    void guardarPosiciones_anotaElReenvioUnaVezPorVentana() {
+        ReflectionTestUtils.setField(historialPosicionesService, "ventanaPushMs", 60000L);
+        when(posicionRepository.findRangoFechaHoraPorDispositivo()).thenReturn(List.of());
+
+        historialPosicionesService.guardarPosiciones(List.of(posicion(1, MARCA)));
+        historialPosicionesService.guardarPosiciones(List.of(posicion(2, MARCA.plusMinutes(1))));
+
+        verify(ingestaDispositivoRepository, times(1)).registrarReenvios(argThat(reenvios -> reenvios.containsKey(10)));
+    }
+
+    @Test
+    void guardarPosiciones_siFallaElLoteNoAnotaElReenvio() {
+        when(posicionRepository.findRangoFechaHoraPorDispositivo()).thenReturn(List.of());
+        doThrow(new IllegalStateException("base caida")).when(posicionLoteRepository).insertarLote(anyList());
+
+        assertThrows(IllegalStateException.class, () -> historialPosicionesService.guardarPosiciones(List.of(posicion(1, MARCA))));
+
+        verifyNoInteractions(ingestaDispositivoRepository);
+    }
+
+    @Test
+    void obtenerPosiciones_sirveLoIngeridoDesdeLaBaseYPideATraccarSoloElTramoPosterior() {
+        long marca = MARCA.toInstant().toEpochMilli();
+        when(posicionRepository.findRangoFechaHoraPorDispositivo())
+                .thenReturn(Collections.singletonList(new Object[]{10, marca - 2 * 3600 * 1000L, marca}));
+        OffsetDateTime from = MARCA.minusHours(1);
+        OffsetDateTime to = MARCA.plusHours(1);
+        doAnswer(invocacion -> {
+            Consumer<Posicion> consumidor = invocacion.getArgument(3);
+            consumidor.accept(Posicion.builder().id(1L).traccarId(1L).deviceId(10).fechaHora(marca).build());
+            return null;
+        }).when(posicionLoteRepository).recorrerEntreFechas(eq(10), eq(from.toInstant().toEpochMilli()), eq(marca), any());
+        devolverDeTraccar(MARCA, to, posicion(1, MARCA), posicion(2, MARCA.plusMinutes(5)));
+
+        List<PosicionResponseDTO> posiciones = historialPosicionesService.obtenerPosiciones(10, from, to);
+
+        assertEquals(List.of(1, 2), posiciones.stream().map(PosicionResponseDTO::getId).toList());
+        verify(traccarCliente, never()).recorrerPosiciones(eq(10), eq(from), eq(to), any());
+    }
+
+    @Test
+    void obtenerPosiciones_rangoQueEmpiezaAntesDeLaIngestaPideATraccarElTramoAnterior() {
+        long primera = MARCA.minusHours(2).toInstant().toEpochMilli();
+        long marca = MARCA.toInstant().toEpochMilli();
+        when(posicionRepository.findRangoFechaHoraPorDispositivo())
+                .thenReturn(Collections.singletonList(new Object[]{10, primera, marca}));
+        OffsetDateTime from = MARCA.minusHours(5);
+        // Traccar incluye el extremo: la posicion de la primera ingerida ya esta en la base
+        devolverDeTraccar(from, MARCA.minusHours(2), posicion(1, MARCA.minusHours(4)), posicion(2, MARCA.minusHours(2)));
+        doAnswer(invocacion -> {
+            Consumer<Posicion> consumidor = invocacion.getArgument(3);
+            consumidor.accept(Posicion.builder().id(2L).traccarId(2L).deviceId(10).fechaHora(primera).build());
+            consumidor.accept(Posicion.builder().id(3L).traccarId(3L).deviceId(10).fechaHora(marca).build());
+            return null;
+        }).when(posicionLoteRepository).recorrerEntreFechas(eq(10), eq(primera), eq(marca), any());
+
+        List<PosicionResponseDTO> posiciones = historialPosicionesService.obtenerPosiciones(10, from, MARCA);
+
+        assertEquals(List.of(1, 2, 3), posiciones.stream().map(PosicionResponseDTO::getId).toList());
+    }
+
+    @Test
+    void obtenerPosiciones_sinNadaIngeridoConsultaTraccar() {
+        when(posicionRepository.findRangoFechaHoraPorDispositivo()).thenReturn(List.of());
+        devolverDeTraccar(MARCA, MARCA.plusHours(1), posicion(1, MARCA));
+
+        List<PosicionResponseDTO> posiciones = historialPosicionesService.obtenerPosiciones(10, MARCA, MARCA.plusHours(1));
+
+        assertEquals(1, posiciones.size());
+        verify(posicionLoteRepository, never()).recorrerEntreFechas(anyInt(), anyLong(), anyLong(), any());
+    }
+
+    @Test
+    void obtenerPosiciones_rangoLargoSeTransmiteEnTramosYSeEntregaEnOrden() {
+        when(posicionRepository.findRangoFechaHoraPorDispositivo()).thenReturn(List.of());
+        // Cada tramo transmite su inicio, el mediodia y el borde final, que Traccar incluye en los dos tramos
+        doAnswer(invocacion -> {
+            OffsetDateTime desde = invocacion.getArgument(1);
+            OffsetDateTime hasta = invocacion.getArgument(2);
+            Consumer<PosicionRequestDTO> consumidor = invocacion.getArgument(3);
+            int dia = (int) Duration.between(MARCA, desde).toDays();
+            if (dia == 0) {
+                // El primer tramo tarda mas: igual tiene que salir primero
+                Thread.sleep(100);
+            }
+            consumidor.accept(posicion(dia * 10, desde));
+            consumidor.accept(posicion(dia * 10 + 1, desde.plusHours(12)));
+            consumidor.accept(posicion(dia * 10 + 2, hasta));
+            return null;
+        }).when(traccarCliente).recorrerPosiciones(eq(10), any(), any(), any());
+
+        List<PosicionResponseDTO> posiciones = historialPosicionesService.obtenerPosiciones(10, MARCA, MARCA.plusDays(3));
+
+        assertEquals(List.of(0, 1, 10, 11, 20, 21, 22), posiciones.stream().map(PosicionResponseDTO::getId).toList());
+        verify(traccarCliente, times(3)).recorrerPosiciones(eq(10), any(), any(), any());
+        verify(traccarCliente, never()).getPosicionesDispositivoTraccar(anyInt(), any(), any());
+    }
+
+    @Test
+    void obtenerPosiciones_siUnTramoFallaSePropagaElError() {
+        when(posicionRepository.findRangoFechaHoraPorDispositivo()).thenReturn(List.of());
+        doAnswer(invocacion -> {
+            OffsetDateTime desde = invocacion.getArgument(1);
+            Consumer<PosicionRequestDTO> consumidor = invocacion.getArgument(3);
+            consumidor.accept(posicion(1, desde));
+            if (desde.equals(MARCA.plusDays(1))) {
+                throw new IllegalStateException("Traccar caido");
+            }
+            return null;
+        }).when(traccarCliente).recorrerPosiciones(eq(10), any(), any(), any());
+
+        IllegalStateException error = assertThrows(IllegalStateException.class,
+                () -> historialPosicionesService.obtenerPosiciones(10, MARCA, MARCA.plusDays(3)));
+        assertEquals("Traccar caido", error.getMessage());
+    }
+
+    @Test
+    void obtenerPosiciones_tramoQueFallaAntesDeEntregarSeReintenta() {
+        when(posicionRepository.findRangoFechaHoraPorDispositivo()).thenReturn(List.of());
+        doThrow(new IllegalStateException("timeout"))
+                .doAnswer(invocacion -> {
+                    Consumer<PosicionRequestDTO> consumidor = invocacion.getArgument(3);
+                    consumidor.accept(posicion(1, MARCA));
+                    return null;
+                })
+                .when(traccarCliente).recorrerPosiciones(eq(10), eq(MARCA), eq(MARCA.plusDays(1)), any());
+        doAnswer(invocacion -> null).when(traccarCliente).recorrerPosiciones(eq(10), eq(MARCA.plusDays(1)), any(), any());
+
+        List<PosicionResponseDTO> posiciones = historialPosicionesService.obtenerPosiciones(10, MARCA, MARCA.plusDays(2));
+
+        assertEquals(List.of(1), posiciones.stream().map(PosicionResponseDTO::getId).toList());
+        verify(traccarCliente, times(2)).recorrerPosiciones(eq(10), eq(MARCA), eq(MARCA.plusDays(1)), any());
+    }
+
+    @Test
+    void obtenerPosiciones_losTramosNoUsanElPoolDelSondeo() {
+        when(posicionRepository.findRangoFechaHoraPorDispositivo()).thenReturn(List.of());
+        doAnswer(invocacion -> null).when(traccarCliente).recorrerPosiciones(eq(10), any(), any(), any());
+
+        historialPosicionesService.obtenerPosiciones(10, MARCA, MARCA.plusDays(3));
+
+        verify(traccarExecutor, never()).execute(any());
+    }
+
+    @Test
+    void recorrerPosiciones_siElClienteNoLeeSeAbandonaLaLecturaDelTramo() {
+        ReflectionTestUtils.setField(historialPosicionesService, "esperaClienteMs", 200L);
+        when(posicionRepository.findRangoFechaHoraPorDispositivo()).thenReturn(List.of());
+        doAnswer(invocacion -> {
+            OffsetDateTime desde = invocacion.getArgument(1);
+            Consumer<PosicionRequestDTO> consumidor = invocacion.getArgument(3);
+            for (int minuto = 0; minuto < 5; minuto++) {
+                consumidor.accept(posicion(minuto, desde.plusMinutes(minuto)));
+            }
+            return null;
+        }).when(traccarCliente).recorrerPosiciones(eq(10), any(), any(), any());
+
+        // El cliente se traba con la primera posicion mas tiempo que la espera maxima
+        assertThrows(CancellationException.class, () -> historialPosicionesService.recorrerPosiciones(10, MARCA, MARCA.plusDays(2),
+                posicion -> sleep(1000)));
+    }
+
+    @Test
+    void obtenerPosiciones_conElPoolDeTramosLlenoSeLeeEnElHiloDelPedido() {
+        ExecutorService lleno = mock(ExecutorService.class);
+        doThrow(new RejectedExecutionException("lleno")).when(lleno).execute(any());
+        ReflectionTestUtils.setField(historialPosicionesService, "tramosExecutor", lleno);
+        when(posicionRepository.findRangoFechaHoraPorDispositivo()).thenReturn(List.of());
+        doAnswer(invocacion -> {
+            OffsetDateTime desde = invocacion.getArgument(1);
+            Consumer<PosicionRequestDTO> consumidor = invocacion.getArgument(3);
+            consumidor.accept(posicion((int) Duration.between(MARCA, desde).toDays(), desde));
+            return null;
+        }).when(traccarCliente).recorrerPosiciones(eq(10), any(), any(), any());
+
+        List<PosicionResponseDTO> posiciones = historialPosicionesService.obtenerPosiciones(10, MARCA, MARCA.plusDays(3));
+
+        assertEquals(List.of(0, 1, 2), posiciones.stream().map(PosicionResponseDTO::getId).toList());
+    }
+
+    @Test
+    void escribirPosiciones_escribeUnArregloJson() throws Exception {
+        when(posicionRepository.findRangoFechaHoraPorDispositivo()).thenReturn(List.of());
+        devolverDeTraccar(MARCA, MARCA.plusHours(1), posicion(1, MARCA), posicion(2, MARCA.plusMinutes(1)));
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+
+        historialPosicionesService.escribirPosiciones(10, MARCA, MARCA.plusHours(1), salida);
+
+        JsonNode arreglo = objectMapper.readTree(salida.toByteArray());
+        assertEquals(2, arreglo.size());
+        assertEquals(2, arreglo.get(1).get("id").asInt());
+    }
+
+    @Test
+    void obtenerPagina_devuelveCursorCuandoLaPaginaEstaLlena() {
+        long marca = MARCA.toInstant().toEpochMilli();
+        when(posicionRepository.findPaginaByDeviceId(eq(10), eq(marca - 1), eq(-1L), anyLong(), any(Pageable.class)))
+                .thenReturn(List.of(
+                        Posicion.builder().id(5L).traccarId(1L).deviceId(10).fechaHora(marca).build(),
+                        Posicion.builder().id(6L).traccarId(2L).deviceId(10).fechaHora(marca + 1000).build()));
+
+        PaginaPosicionesResponseDTO pagina = historialPosicionesService.obtenerPagina(10, MARCA, MARCA.plusHours(1), null, 2);
+
+        assertEquals(2, pagina.getPosiciones().size());
+        assertEquals((marca + 1000) + "_6", pagina.getSiguienteCursor());
+    }
+
+    @Test
+    void obtenerPagina_cursorInvalido_lanzaBadRequest() {
+        assertThrows(BadRequestException.class,
+                () -> historialPosicionesService.obtenerPagina(10, MARCA, MARCA.plusHours(1), "abc", 10));
+        assertThrows(BadRequestException.class,
+                () -> historialPosicionesService.obtenerPagina(10, MARCA, MARCA.plusHours(1), null, 0));
+    }
+
+    private void devolverDeTraccar(OffsetDateTime from, OffsetDateTime to, PosicionRequestDTO... posiciones) {
+        doAnswer(invocacion -> {
+            Consumer<PosicionRequestDTO> consumidor = invocacion.getArgument(3);
+            List.of(posiciones).forEach(consumidor);
+            return null;
+        }).when(traccarCliente).recorrerPosiciones(eq(10), eq(from), eq(to), any());
+    }
+
+    private PosicionRequestDTO posicion(int id, OffsetDateTime fixTime) {
+        return PosicionRequestDTO.builder().id(id).deviceId(10).fixTime(fixTime).build();
+    }
+
+    private void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
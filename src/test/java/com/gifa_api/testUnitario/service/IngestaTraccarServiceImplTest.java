@@ -0,0 +1,118 @@
+package com.gifa_api.testUnitario.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.gifa_api.client.PosicionesRecibidasEvent;
+import com.gifa_api.dto.traccar.PosicionRequestDTO;
+import com.gifa_api.exception.BadRequestException;
+import com.gifa_api.service.IHistorialPosicionesService;
+import com.gifa_api.service.impl.IngestaTraccarServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IngestaTraccarServiceImplTest {
+
+    private static final String POSICION = "{\"position\":{\"id\":%d,\"deviceId\":10,\"fixTime\":\"2024-11-01T10:00:00.000+00:00\"," +
+            "\"latitude\":-34.6,\"longitude\":-58.4,\"nuevoCampo\":true},\"device\":{\"id\":10,\"uniqueId\":\"ABC123\"}}";
+
+    @Mock
+    private IHistorialPosicionesService historialPosicionesService;
+
+    @Mock
+    private ApplicationEventPublisher publisher;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    private IngestaTraccarServiceImpl ingestaTraccarService;
+
+    @BeforeEach
+    void setUp() {
+        ingestaTraccarService = new IngestaTraccarServiceImpl(historialPosicionesService, publisher, objectMapper,
+                "secreto", 3, 2, 60000L);
+    }
+
+    @Test
+    void secretoValido_comparaContraElConfigurado() {
+        assertTrue(ingestaTraccarService.secretoValido("secreto"));
+        assertFalse(ingestaTraccarService.secretoValido("otro"));
+        assertFalse(ingestaTraccarService.secretoValido(null));
+    }
+
+    @Test
+    void secretoValido_sinSecretoConfiguradoRechazaTodo() {
+        IngestaTraccarServiceImpl sinSecreto = new IngestaTraccarServiceImpl(historialPosicionesService, publisher, objectMapper,
+                "", 3, 2, 60000L);
+
+        assertFalse(sinSecreto.secretoValido(""));
+    }
+
+    @Test
+    void vaciar_publicaYGuardaEnLotesLoEncolado() throws Exception {
+        assertTrue(ingestaTraccarService.encolar(json("[" + posicion(1) + "," + posicion(2) + "," + posicion(3) + "]")));
+        assertTrue(ingestaTraccarService.activa());
+
+        ingestaTraccarService.vaciar();
+
+        ArgumentCaptor<List<PosicionRequestDTO>> lotes = ArgumentCaptor.forClass(List.class);
+        verify(historialPosicionesService, times(2)).guardarPosiciones(lotes.capture());
+        assertEquals(List.of(1, 2), lotes.getAllValues().get(0).stream().map(PosicionRequestDTO::getId).toList());
+        assertEquals(List.of(3), lotes.getAllValues().get(1).stream().map(PosicionRequestDTO::getId).toList());
+        verify(publisher, times(2)).publishEvent(any(PosicionesRecibidasEvent.class));
+    }
+
+    @Test
+    void encolar_aceptaUnReenvioSueltoEIgnoraEventosSinPosicion() throws Exception {
+        assertTrue(ingestaTraccarService.encolar(json(posicion(1))));
+        assertTrue(ingestaTraccarService.encolar(json("{\"event\":{\"type\":\"deviceOnline\"},\"device\":{\"id\":10}}")));
+
+        ingestaTraccarService.vaciar();
+
+        ArgumentCaptor<List<PosicionRequestDTO>> lote = ArgumentCaptor.forClass(List.class);
+        verify(historialPosicionesService).guardarPosiciones(lote.capture());
+        assertEquals(1, lote.getValue().size());
+    }
+
+    @Test
+    void encolar_rechazaElLoteEnteroSiNoEntraEnElBuffer() throws Exception {
+        assertTrue(ingestaTraccarService.encolar(json("[" + posicion(1) + "," + posicion(2) + "]")));
+
+        assertFalse(ingestaTraccarService.encolar(json("[" + posicion(3) + "," + posicion(4) + "]")));
+    }
+
+    @Test
+    void encolar_reenvioMalformadoEsBadRequest() throws Exception {
+        assertThrows(BadRequestException.class,
+                () -> ingestaTraccarService.encolar(json("{\"position\":{\"fixTime\":\"no es fecha\"}}")));
+    }
+
+    @Test
+    void vaciar_siFallaLaBaseLaCacheEnVivoIgualSeActualiza() throws Exception {
+        doThrow(new RuntimeException("sin base")).when(historialPosicionesService).guardarPosiciones(any());
+        ingestaTraccarService.encolar(json(posicion(1)));
+
+        ingestaTraccarService.vaciar();
+
+        verify(publisher).publishEvent(any(PosicionesRecibidasEvent.class));
+    }
+
+    private String posicion(int id) {
+        return String.format(POSICION, id);
+    }
+
+    private JsonNode json(String texto) throws Exception {
+        return objectMapper.readTree(texto);
+    }
+}
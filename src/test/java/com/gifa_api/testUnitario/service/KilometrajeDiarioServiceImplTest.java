@@ -0,0 +1,165 @@
+package com.gifa_api.testUnitario.service;
+
+import com.gifa_api.client.ITraccarCliente;
+import com.gifa_api.client.RegistroDispositivosTraccar;
+import com.gifa_api.dto.traccar.DispositivoResponseDTO;
+import com.gifa_api.dto.traccar.KilometrosResponseDTO;
+import com.gifa_api.exception.LiderazgoPerdidoException;
+import com.gifa_api.model.KilometrajeDiario;
+import com.gifa_api.repository.IKilometrajeDiarioRepository;
+import com.gifa_api.service.ICandadoTareaService;
+import com.gifa_api.service.impl.KilometrajeDiarioServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class KilometrajeDiarioServiceImplTest {
+
+    @Mock
+    private ITraccarCliente traccarCliente;
+
+    @Mock
+    private IKilometrajeDiarioRepository kilometrajeDiarioRepository;
+
+    @Mock
+    private RegistroDispositivosTraccar registroDispositivos;
+
+    @Mock
+    private ICandadoTareaService candadoTareaService;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @InjectMocks
+    private KilometrajeDiarioServiceImpl kilometrajeDiarioService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(kilometrajeDiarioService, "zonaHoraria", "UTC");
+        ReflectionTestUtils.setField(kilometrajeDiarioService, "diasRecalculados", 3);
+        lenient().doAnswer(invocation -> {
+            Consumer<TransactionStatus> accion = invocation.getArgument(0);
+            accion.accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+    }
+
+    @Test
+    void kilometrosEntreFechas_diasCerradosGuardadosNoConsultanTraccar() {
+        OffsetDateTime from = OffsetDateTime.parse("2024-11-01T00:00:00Z");
+        OffsetDateTime to = OffsetDateTime.parse("2024-11-03T00:00:00Z");
+        when(kilometrajeDiarioRepository.findByDeviceIdsAndFechaBetween(List.of(10), LocalDate.of(2024, 11, 1), LocalDate.of(2024, 11, 2)))
+                .thenReturn(List.of(
+                        KilometrajeDiario.builder().deviceId(10).fecha(LocalDate.of(2024, 11, 1)).distancia(100).build(),
+                        KilometrajeDiario.builder().deviceId(10).fecha(LocalDate.of(2024, 11, 2)).distancia(50).build()));
+
+        Map<Integer, Double> kilometros = kilometrajeDiarioService.kilometrosEntreFechas(List.of(10), from, to);
+
+        assertEquals(150.0, kilometros.get(10));
+        verifyNoInteractions(traccarCliente);
+        verify(kilometrajeDiarioRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void kilometrosEntreFechas_diaFaltanteSeConsultaYSeGuarda() {
+        OffsetDateTime from = OffsetDateTime.parse("2024-11-01T00:00:00Z");
+        OffsetDateTime to = OffsetDateTime.parse("2024-11-03T00:00:00Z");
+        when(kilometrajeDiarioRepository.findByDeviceIdsAndFechaBetween(List.of(10), LocalDate.of(2024, 11, 1), LocalDate.of(2024, 11, 2)))
+                .thenReturn(List.of(KilometrajeDiario.builder().deviceId(10).fecha(LocalDate.of(2024, 11, 1)).distancia(100).build()));
+        when(traccarCliente.getKilometrosDeDispositivos(List.of(10), OffsetDateTime.parse("2024-11-02T00:00:00Z"), OffsetDateTime.parse("2024-11-03T00:00:00Z")))
+                .thenReturn(List.of(KilometrosResponseDTO.builder().deviceId(10).distance(70).build()));
+
+        Map<Integer, Double> kilometros = kilometrajeDiarioService.kilometrosEntreFechas(List.of(10), from, to);
+
+        assertEquals(170.0, kilometros.get(10));
+        verify(kilometrajeDiarioRepository, times(1)).saveAll(anyList());
+    }
+
+    @Test
+    void kilometrosEntreFechas_bordesParcialesSeConsultanEnVivo() {
+        OffsetDateTime from = OffsetDateTime.parse("2024-11-01T12:00:00Z");
+        OffsetDateTime to = OffsetDateTime.parse("2024-11-03T06:00:00Z");
+        when(kilometrajeDiarioRepository.findByDeviceIdsAndFechaBetween(List.of(10), LocalDate.of(2024, 11, 2), LocalDate.of(2024, 11, 2)))
+                .thenReturn(List.of(KilometrajeDiario.builder().deviceId(10).fecha(LocalDate.of(2024, 11, 2)).distancia(100).build()));
+        when(traccarCliente.getKilometrosDeDispositivos(List.of(10), from, OffsetDateTime.parse("2024-11-02T00:00:00Z")))
+                .thenReturn(List.of(KilometrosResponseDTO.builder().deviceId(10).distance(20).build()));
+        when(traccarCliente.getKilometrosDeDispositivos(List.of(10), OffsetDateTime.parse("2024-11-03T00:00:00Z"), to))
+                .thenReturn(List.of(KilometrosResponseDTO.builder().deviceId(10).distance(5).build()));
+
+        Map<Integer, Double> kilometros = kilometrajeDiarioService.kilometrosEntreFechas(List.of(10), from, to);
+
+        assertEquals(125.0, kilometros.get(10));
+    }
+
+    @Test
+    void kilometrosEntreFechas_rangoDentroDeUnDiaVaDirectoATraccar() {
+        OffsetDateTime from = OffsetDateTime.parse("2024-11-01T08:00:00Z");
+        OffsetDateTime to = OffsetDateTime.parse("2024-11-01T18:00:00Z");
+        when(traccarCliente.getKilometrosDeDispositivos(List.of(10), from, to))
+                .thenReturn(List.of(KilometrosResponseDTO.builder().deviceId(10).distance(42).build()));
+
+        Map<Integer, Double> kilometros = kilometrajeDiarioService.kilometrosEntreFechas(List.of(10), from, to);
+
+        assertEquals(42.0, kilometros.get(10));
+        verifyNoInteractions(kilometrajeDiarioRepository);
+    }
+
+    @Test
+    void completarDiaAnterior_conElTokenVencidoNoGuarda() {
+        when(candadoTareaService.tomar("kilometraje-diario")).thenReturn(Optional.of(3L));
+        when(registroDispositivos.todos()).thenReturn(List.of(DispositivoResponseDTO.builder().id(10).build()));
+        when(traccarCliente.getKilometrosDeDispositivos(eq(List.of(10)), any(), any()))
+                .thenReturn(List.of(KilometrosResponseDTO.builder().deviceId(10).distance(70).build()));
+        doThrow(new LiderazgoPerdidoException("token viejo")).when(candadoTareaService).validarToken("kilometraje-diario", 3L);
+
+        kilometrajeDiarioService.completarDiaAnterior();
+
+        verify(kilometrajeDiarioRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void completarDiaAnterior_recalculaLosDiasGuardadosDeLaVentana() {
+        LocalDate ayer = LocalDate.now(ZoneOffset.UTC).minusDays(1);
+        LocalDate anteayer = ayer.minusDays(1);
+        KilometrajeDiario guardado = KilometrajeDiario.builder().deviceId(10).fecha(anteayer).distancia(40).build();
+        when(candadoTareaService.tomar("kilometraje-diario")).thenReturn(Optional.of(3L));
+        when(registroDispositivos.todos()).thenReturn(List.of(DispositivoResponseDTO.builder().id(10).build()));
+        when(traccarCliente.getKilometrosDeDispositivos(eq(List.of(10)), any(), any()))
+                .thenReturn(List.of(KilometrosResponseDTO.builder().deviceId(10).distance(70).build()));
+        LocalDate primero = anteayer.minusDays(1);
+        when(kilometrajeDiarioRepository.findByDeviceIdsAndFechaBetween(List.of(10), primero, primero)).thenReturn(List.of());
+        when(kilometrajeDiarioRepository.findByDeviceIdsAndFechaBetween(List.of(10), anteayer, anteayer)).thenReturn(List.of(guardado));
+        when(kilometrajeDiarioRepository.findByDeviceIdsAndFechaBetween(List.of(10), ayer, ayer)).thenReturn(List.of());
+
+        kilometrajeDiarioService.completarDiaAnterior();
+
+        // Un dia por consulta, y anteayer se corrige con lo que llego tarde
+        verify(traccarCliente, times(3)).getKilometrosDeDispositivos(eq(List.of(10)), any(), any());
+        assertEquals(70.0, guardado.getDistancia());
+        // Cada dia de la ventana se guarda: si alguno fallara la tarea lo saltearia sin propagar el error
+        ArgumentCaptor<List<KilometrajeDiario>> guardados = ArgumentCaptor.forClass(List.class);
+        verify(kilometrajeDiarioRepository, times(3)).saveAll(guardados.capture());
+        assertEquals(List.of(primero, anteayer, ayer), guardados.getAllValues().stream()
+                .map(dias -> dias.get(0).getFecha())
+                .toList());
+    }
+}
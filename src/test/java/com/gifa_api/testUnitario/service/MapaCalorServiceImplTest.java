@@ -0,0 +1,274 @@
+package com.gifa_api.testUnitario.service;
+
+import com.gifa_api.client.RegistroDispositivosTraccar;
+import com.gifa_api.dto.traccar.CeldaMapaCalorResponseDTO;
+import com.gifa_api.dto.traccar.DispositivoResponseDTO;
+import com.gifa_api.dto.traccar.MapaCalorResponseDTO;
+import com.gifa_api.dto.traccar.PosicionResponseDTO;
+import com.gifa_api.exception.BadRequestException;
+import com.gifa_api.exception.LiderazgoPerdidoException;
+import com.gifa_api.exception.NotFoundException;
+import com.gifa_api.model.CeldaMapaCalor;
+import com.gifa_api.model.Posicion;
+import com.gifa_api.repository.IDispositivoRepository;
+import com.gifa_api.repository.IMapaCalorRepository;
+import com.gifa_api.repository.IPosicionLoteRepository;
+import com.gifa_api.service.ICandadoTareaService;
+import com.gifa_api.service.IHistorialPosicionesService;
+import com.gifa_api.service.impl.MapaCalorServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MapaCalorServiceImplTest {
+
+    private static final LocalDate DIA = LocalDate.of(2024, 11, 1);
+    private static final long INICIO_DIA = DIA.atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+    private static final long SEGUNDO = 1000;
+
+    @Mock
+    private IPosicionLoteRepository posicionLoteRepository;
+
+    @Mock
+    private IHistorialPosicionesService historialPosicionesService;
+
+    @Mock
+    private IMapaCalorRepository mapaCalorRepository;
+
+    @Mock
+    private IDispositivoRepository dispositivoRepository;
+
+    @Mock
+    private RegistroDispositivosTraccar registroDispositivos;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private ICandadoTareaService candadoTareaService;
+
+    @Mock
+    private ExecutorService mapaCalorExecutor;
+
+    @InjectMocks
+    private MapaCalorServiceImpl mapaCalorService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(mapaCalorService, "zonaHoraria", "UTC");
+        ReflectionTestUtils.setField(mapaCalorService, "celdaGrados", 0.01);
+        ReflectionTestUtils.setField(mapaCalorService, "permanenciaMaximaSegundos", 900L);
+        ReflectionTestUtils.setField(mapaCalorService, "margenCierreMinutos", 30L);
+        ReflectionTestUtils.setField(mapaCalorService, "diasMaximos", 366L);
+        ReflectionTestUtils.setField(mapaCalorService, "diasRecalculados", 3);
+        ReflectionTestUtils.setField(mapaCalorService, "calculosPorPedido", 200L);
+        lenient().when(candadoTareaService.tomar(any())).thenReturn(Optional.of(1L));
+    }
+
+    @Test
+    void obtenerMapaCalor_diaCerradoSinCalcularSeAgrupaYSeGuarda() {
+        dispositivos(Map.of("AB123CD", 10));
+        ejecutarTransaccionesDirecto();
+        when(mapaCalorRepository.findDiasCalculados(List.of(10), DIA, DIA, 10000)).thenReturn(Map.of());
+        long ocho = INICIO_DIA + 8 * 3600 * SEGUNDO;
+        recorrer(10, INICIO_DIA, List.of(
+                posicion(ocho, -34.6037, -58.3816),
+                posicion(ocho + 60 * SEGUNDO, -34.6031, -58.3811),
+                posicion(ocho + 120 * SEGUNDO, -34.5001, -58.4001)));
+        when(mapaCalorRepository.sumarCeldas(List.of(10), DIA, DIA, 10000)).thenReturn(List.of(
+                CeldaMapaCalor.builder().celdaLatitud(-3461).celdaLongitud(-5839).cantidad(2).permanenciaSegundos(120).build()));
+
+        MapaCalorResponseDTO respuesta = mapaCalorService.obtenerMapaCalor(DIA, DIA, List.of("AB123CD"));
+
+        ArgumentCaptor<List<CeldaMapaCalor>> celdas = ArgumentCaptor.forClass(List.class);
+        verify(mapaCalorRepository).insertarDias(anyList());
+        verify(mapaCalorRepository).insertarCeldas(celdas.capture());
+        List<CeldaMapaCalor> guardadas = celdas.getValue().stream()
+                .sorted(Comparator.comparingLong(CeldaMapaCalor::getCantidad).reversed())
+                .toList();
+        assertEquals(2, guardadas.size());
+        assertEquals(-3461, guardadas.get(0).getCeldaLatitud());
+        assertEquals(-5839, guardadas.get(0).getCeldaLongitud());
+        assertEquals(2, guardadas.get(0).getCantidad());
+        assertEquals(120, guardadas.get(0).getPermanenciaSegundos());
+        // La ultima posicion del dia suma el tope de permanencia
+        assertEquals(900, guardadas.get(1).getPermanenciaSegundos());
+
+        CeldaMapaCalorResponseDTO celda = respuesta.getCeldas().get(0);
+        assertEquals(-34.605, celda.getLatitud(), 1e-9);
+        assertEquals(-58.385, celda.getLongitud(), 1e-9);
+        assertEquals(120, celda.getPermanenciaSegundos());
+        assertEquals(1, respuesta.getDispositivos());
+    }
+
+    @Test
+    void obtenerMapaCalor_soloCalculaLosDispositivosQueFaltan() {
+        dispositivos(Map.of("AB123CD", 10, "EF456GH", 20));
+        ejecutarTransaccionesDirecto();
+        when(mapaCalorRepository.findDiasCalculados(anyList(), eq(DIA), eq(DIA), eq(10000))).thenReturn(Map.of(DIA, Set.of(10)));
+        recorrer(20, INICIO_DIA, List.of(posicion(INICIO_DIA + 3600 * SEGUNDO, -34.6037, -58.3816)));
+        when(mapaCalorRepository.sumarCeldas(anyList(), eq(DIA), eq(DIA), eq(10000))).thenReturn(List.of());
+
+        mapaCalorService.obtenerMapaCalor(DIA, DIA, List.of("AB123CD", "EF456GH"));
+
+        verify(historialPosicionesService, never()).recorrerPosiciones(eq(10), any(), any(), any());
+        verify(historialPosicionesService).recorrerPosiciones(eq(20), any(), any(), any());
+        verify(mapaCalorRepository).insertarDias(argThat(dias -> dias.size() == 1 && dias.get(0).getDeviceId() == 20));
+    }
+
+    @Test
+    void obtenerMapaCalor_diaEnCursoSeCalculaSinGuardar() {
+        dispositivos(Map.of("AB123CD", 10));
+        LocalDate hoy = LocalDate.now(ZoneOffset.UTC);
+        long inicioHoy = hoy.atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+        recorrerDeLaBase(10, inicioHoy, List.of(
+                posicion(inicioHoy, -34.6037, -58.3816),
+                posicion(inicioHoy + SEGUNDO, -34.6031, -58.3811)));
+
+        MapaCalorResponseDTO respuesta = mapaCalorService.obtenerMapaCalor(hoy, hoy, null);
+
+        assertEquals(1, respuesta.getCeldas().size());
+        assertEquals(2, respuesta.getCeldas().get(0).getCantidad());
+        verify(mapaCalorRepository, never()).insertarDias(anyList());
+        verify(mapaCalorRepository, never()).sumarCeldas(anyList(), any(), any(), anyInt());
+    }
+
+    @Test
+    void obtenerMapaCalor_superaLosCalculosPorPedidoYEncolaElResto() {
+        ReflectionTestUtils.setField(mapaCalorService, "calculosPorPedido", 1L);
+        dispositivos(Map.of("AB123CD", 10));
+        ejecutarTransaccionesDirecto();
+        when(mapaCalorRepository.findDiasCalculados(List.of(10), DIA, DIA.plusDays(2), 10000)).thenReturn(Map.of());
+        recorrer(10, INICIO_DIA, List.of(posicion(INICIO_DIA + 3600 * SEGUNDO, -34.6037, -58.3816)));
+
+        MapaCalorResponseDTO respuesta = mapaCalorService.obtenerMapaCalor(DIA, DIA.plusDays(2), List.of("AB123CD"));
+
+        verify(historialPosicionesService, times(1)).recorrerPosiciones(eq(10), any(), any(), any());
+        verify(mapaCalorExecutor, times(2)).execute(any());
+        assertTrue(respuesta.isParcial());
+        assertEquals(2, respuesta.getDiasPendientes());
+    }
+
+    @Test
+    void obtenerMapaCalor_diaQueTraccarNoCompletaNoSeGuardaYQuedaPendiente() {
+        dispositivos(Map.of("AB123CD", 10));
+        when(mapaCalorRepository.findDiasCalculados(List.of(10), DIA, DIA, 10000)).thenReturn(Map.of());
+        doThrow(new RuntimeException("Traccar no responde"))
+                .when(historialPosicionesService).recorrerPosiciones(eq(10), any(), any(), any());
+        when(mapaCalorRepository.sumarCeldas(List.of(10), DIA, DIA, 10000)).thenReturn(List.of());
+
+        MapaCalorResponseDTO respuesta = mapaCalorService.obtenerMapaCalor(DIA, DIA, List.of("AB123CD"));
+
+        // Sin el tramo anterior a la ingesta el dia quedaria guardado vacio
+        verify(mapaCalorRepository, never()).insertarDias(anyList());
+        verify(posicionLoteRepository, never()).recorrerEntreFechas(anyInt(), anyLong(), anyLong(), any());
+        verify(mapaCalorExecutor).execute(any());
+        assertTrue(respuesta.isParcial());
+        assertEquals(1, respuesta.getDiasPendientes());
+    }
+
+    @Test
+    void obtenerMapaCalor_patenteSinDispositivoLanzaNotFound() {
+        when(dispositivoRepository.findPatentesPorUnicoId()).thenReturn(List.<Object[]>of(new Object[]{"U10", "AB123CD"}));
+
+        assertThrows(NotFoundException.class, () -> mapaCalorService.obtenerMapaCalor(DIA, DIA, List.of("ZZ999ZZ")));
+    }
+
+    @Test
+    void obtenerMapaCalor_rangoInvalidoLanzaBadRequest() {
+        assertThrows(BadRequestException.class, () -> mapaCalorService.obtenerMapaCalor(DIA, DIA.minusDays(1), null));
+        assertThrows(BadRequestException.class, () -> mapaCalorService.obtenerMapaCalor(DIA, DIA.plusDays(400), null));
+        verifyNoInteractions(posicionLoteRepository, historialPosicionesService, mapaCalorRepository);
+    }
+
+    @Test
+    void completarDiaAnterior_conElTokenVencidoNoGuarda() {
+        when(registroDispositivos.todos()).thenReturn(List.of(DispositivoResponseDTO.builder().id(10).build()));
+        ejecutarTransaccionesDirecto();
+        doThrow(new LiderazgoPerdidoException("token viejo")).when(candadoTareaService).validarToken("mapa-calor", 1L);
+
+        mapaCalorService.completarDiaAnterior();
+
+        verify(mapaCalorRepository, never()).insertarDias(anyList());
+        verify(mapaCalorRepository, never()).insertarCeldas(anyList());
+    }
+
+    @Test
+    void completarDiaAnterior_reemplazaLosDiasDeLaVentana() {
+        when(registroDispositivos.todos()).thenReturn(List.of(DispositivoResponseDTO.builder().id(10).build()));
+        ejecutarTransaccionesDirecto();
+
+        mapaCalorService.completarDiaAnterior();
+
+        // Los dias ya guardados se borran y se vuelven a insertar con las posiciones que llegaron tarde
+        verify(mapaCalorRepository, times(3)).borrarDia(eq(List.of(10)), any(), eq(10000));
+        verify(mapaCalorRepository, times(3)).insertarDias(anyList());
+        verify(mapaCalorRepository, never()).findDiasCalculados(anyList(), any(), any(), anyInt());
+    }
+
+    private void dispositivos(Map<String, Integer> deviceIdPorPatente) {
+        List<Object[]> filas = deviceIdPorPatente.entrySet().stream()
+                .map(entrada -> new Object[]{"U" + entrada.getValue(), entrada.getKey()})
+                .toList();
+        when(dispositivoRepository.findPatentesPorUnicoId()).thenReturn(filas);
+        deviceIdPorPatente.values().forEach(deviceId -> when(registroDispositivos.buscarPorUnicoId("U" + deviceId))
+                .thenReturn(Optional.of(DispositivoResponseDTO.builder().id(deviceId).uniqueId("U" + deviceId).build())));
+    }
+
+    // Dias cerrados: el historial completa desde Traccar lo que la ingesta no cubre
+    private void recorrer(int deviceId, long inicioDia, List<Posicion> posiciones) {
+        doAnswer(invocation -> {
+            Consumer<PosicionResponseDTO> consumidor = invocation.getArgument(3);
+            posiciones.forEach(posicion -> consumidor.accept(PosicionResponseDTO.builder()
+                    .latitude(posicion.getLatitud())
+                    .longitude(posicion.getLongitud())
+                    .fechaHoraMs(posicion.getFechaHora())
+                    .build()));
+            return null;
+        }).when(historialPosicionesService).recorrerPosiciones(eq(deviceId),
+                eq(Instant.ofEpochMilli(inicioDia).atOffset(ZoneOffset.UTC)),
+                eq(Instant.ofEpochMilli(inicioDia + 24 * 3600 * SEGUNDO - 1).atOffset(ZoneOffset.UTC)), any());
+    }
+
+    private void recorrerDeLaBase(int deviceId, long inicioDia, List<Posicion> posiciones) {
+        doAnswer(invocation -> {
+            Consumer<Posicion> consumidor = invocation.getArgument(3);
+            posiciones.forEach(consumidor);
+            return null;
+        }).when(posicionLoteRepository).recorrerEntreFechas(eq(deviceId), eq(inicioDia), eq(inicioDia + 24 * 3600 * SEGUNDO - 1), any());
+    }
+
+    private Posicion posicion(long fechaHora, double latitud, double longitud) {
+        return Posicion.builder().deviceId(10).fechaHora(fechaHora).latitud(latitud).longitud(longitud).build();
+    }
+
+    private void ejecutarTransaccionesDirecto() {
+        doAnswer(invocation -> {
+            Consumer<TransactionStatus> accion = invocation.getArgument(0);
+            accion.accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+    }
+}
@@ -0,0 +1,186 @@
+package com.gifa_api.testUnitario.service;
+
+import com.gifa_api.exception.LiderazgoPerdidoException;
+import com.gifa_api.model.Dispositivo;
+import com.gifa_api.model.OutboxTraccar;
+import com.gifa_api.repository.IOutboxTraccarRepository;
+import com.gifa_api.service.ICandadoTareaService;
+import com.gifa_api.service.ITraccarService;
+import com.gifa_api.service.impl.OutboxTraccarServiceImpl;
+import com.gifa_api.utils.enums.EstadoOutbox;
+import com.gifa_api.utils.enums.TipoOperacionOutbox;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxTraccarServiceImplTest {
+
+    @Mock
+    private IOutboxTraccarRepository outboxRepository;
+
+    @Mock
+    private ITraccarService traccarService;
+
+    @Mock
+    private ICandadoTareaService candadoTareaService;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @InjectMocks
+    private OutboxTraccarServiceImpl outboxTraccarService;
+
+    private OutboxTraccar operacion;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(candadoTareaService.tomar(any())).thenReturn(Optional.of(1L));
+        lenient().doAnswer(invocation -> {
+            Consumer<TransactionStatus> accion = invocation.getArgument(0);
+            accion.accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        ReflectionTestUtils.setField(outboxTraccarService, "tamanioLote", 50);
+        ReflectionTestUtils.setField(outboxTraccarService, "intentosMaximos", 3);
+        ReflectionTestUtils.setField(outboxTraccarService, "esperaBaseMs", 1000L);
+        ReflectionTestUtils.setField(outboxTraccarService, "esperaMaximaMs", 60000L);
+        ReflectionTestUtils.setField(outboxTraccarService, "diasRetencion", 7);
+
+        operacion = OutboxTraccar.builder()
+                .id(1L)
+                .tipo(TipoOperacionOutbox.CREAR_DISPOSITIVO)
+                .unicoId("ABC123")
+                .nombre("Creacion automatica")
+                .estado(EstadoOutbox.PENDIENTE)
+                .intentos(0)
+                .proximoIntento(OffsetDateTime.now())
+                .creado(OffsetDateTime.now())
+                .build();
+    }
+
+    @Test
+    void registrarCreacionDeDispositivo_guardaOperacionPendiente() {
+        outboxTraccarService.registrarCreacionDeDispositivo(Dispositivo.builder()
+                .unicoId("ABC123")
+                .nombre("Creacion automatica")
+                .build());
+
+        ArgumentCaptor<OutboxTraccar> captor = ArgumentCaptor.forClass(OutboxTraccar.class);
+        verify(outboxRepository).save(captor.capture());
+        assertEquals(TipoOperacionOutbox.CREAR_DISPOSITIVO, captor.getValue().getTipo());
+        assertEquals(EstadoOutbox.PENDIENTE, captor.getValue().getEstado());
+        assertEquals("ABC123", captor.getValue().getUnicoId());
+        assertEquals(0, captor.getValue().getIntentos());
+        verifyNoInteractions(traccarService);
+    }
+
+    @Test
+    void despachar_marcaComoEnviadaCuandoTraccarResponde() {
+        when(outboxRepository.findListosParaEnviar(eq(EstadoOutbox.PENDIENTE), any(), any()))
+                .thenReturn(List.of(operacion));
+
+        outboxTraccarService.despachar();
+
+        verify(traccarService).crearDispositivo(argThat(d -> d.getUnicoId().equals("ABC123")));
+        assertEquals(EstadoOutbox.ENVIADO, operacion.getEstado());
+        assertNotNull(operacion.getEnviado());
+        verify(outboxRepository).saveAll(List.of(operacion));
+        verify(outboxRepository).borrarEnviadosAntesDe(eq(EstadoOutbox.ENVIADO), any());
+    }
+
+    @Test
+    void despachar_reprogramaConBackoffCuandoTraccarFalla() {
+        when(outboxRepository.findListosParaEnviar(eq(EstadoOutbox.PENDIENTE), any(), any()))
+                .thenReturn(List.of(operacion));
+        doThrow(new RuntimeException("Traccar caido")).when(traccarService).crearDispositivo(any());
+        OffsetDateTime antes = OffsetDateTime.now();
+
+        outboxTraccarService.despachar();
+
+        assertEquals(EstadoOutbox.PENDIENTE, operacion.getEstado());
+        assertEquals(1, operacion.getIntentos());
+        assertEquals("Traccar caido", operacion.getUltimoError());
+        assertTrue(operacion.getProximoIntento().isAfter(antes));
+    }
+
+    @Test
+    void despachar_marcaComoFallidaAlAgotarLosIntentos() {
+        operacion.setIntentos(2);
+        when(outboxRepository.findListosParaEnviar(eq(EstadoOutbox.PENDIENTE), any(), any()))
+                .thenReturn(List.of(operacion));
+        doThrow(new RuntimeException("Traccar caido")).when(traccarService).crearDispositivo(any());
+
+        outboxTraccarService.despachar();
+
+        assertEquals(EstadoOutbox.FALLIDO, operacion.getEstado());
+        assertEquals(3, operacion.getIntentos());
+    }
+
+    @Test
+    void despachar_continuaConElSiguienteLoteSiElActualVinoLleno() {
+        ReflectionTestUtils.setField(outboxTraccarService, "tamanioLote", 1);
+        OutboxTraccar otra = OutboxTraccar.builder()
+                .id(2L)
+                .tipo(TipoOperacionOutbox.CREAR_DISPOSITIVO)
+                .unicoId("AB123CD")
+                .estado(EstadoOutbox.PENDIENTE)
+                .build();
+        when(outboxRepository.findListosParaEnviar(eq(EstadoOutbox.PENDIENTE), any(), any()))
+                .thenReturn(List.of(operacion), List.of(otra), List.of());
+
+        outboxTraccarService.despachar();
+
+        verify(traccarService, times(2)).crearDispositivo(any());
+        assertEquals(EstadoOutbox.ENVIADO, operacion.getEstado());
+        assertEquals(EstadoOutbox.ENVIADO, otra.getEstado());
+    }
+
+    @Test
+    void despachar_enUnNodoSinLeaseNoHaceNada() {
+        when(candadoTareaService.tomar("outbox-traccar")).thenReturn(Optional.empty());
+
+        outboxTraccarService.despachar();
+
+        verifyNoInteractions(outboxRepository, traccarService);
+    }
+
+    @Test
+    void despachar_siPerdioElLeaseNoGuardaElLote() {
+        when(outboxRepository.findListosParaEnviar(eq(EstadoOutbox.PENDIENTE), any(), any()))
+                .thenReturn(List.of(operacion));
+        doThrow(new LiderazgoPerdidoException("token viejo")).when(candadoTareaService).validarToken("outbox-traccar", 1L);
+
+        outboxTraccarService.despachar();
+
+        verify(outboxRepository, never()).saveAll(any());
+        verify(outboxRepository, never()).borrarEnviadosAntesDe(any(), any());
+    }
+
+    @Test
+    void despachar_sinPendientesNoLlamaATraccar() {
+        when(outboxRepository.findListosParaEnviar(eq(EstadoOutbox.PENDIENTE), any(), any()))
+                .thenReturn(List.of());
+
+        outboxTraccarService.despachar();
+
+        verifyNoInteractions(traccarService);
+    }
+}
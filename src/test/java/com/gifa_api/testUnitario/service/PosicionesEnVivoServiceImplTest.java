@@ -0,0 +1,137 @@
+package com.gifa_api.testUnitario.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gifa_api.client.BufferPosicionesEnVivo;
+import com.gifa_api.client.IFuentePosicionesEnVivo;
+import com.gifa_api.client.IndiceEspacialPosiciones;
+import com.gifa_api.client.PosicionesRecibidasEvent;
+import com.gifa_api.client.RegistroDispositivosTraccar;
+import com.gifa_api.dto.traccar.DispositivoResponseDTO;
+import com.gifa_api.dto.traccar.PosicionEnVivoResponseDTO;
+import com.gifa_api.dto.traccar.PosicionRequestDTO;
+import com.gifa_api.service.IIngestaTraccarService;
+import com.gifa_api.service.impl.PosicionesEnVivoServiceImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PosicionesEnVivoServiceImplTest {
+
+    private static final OffsetDateTime AHORA = OffsetDateTime.parse("2024-11-01T10:00:00Z");
+
+    @Mock
+    private IFuentePosicionesEnVivo fuentePosiciones;
+
+    @Mock
+    private RegistroDispositivosTraccar registroDispositivos;
+
+    @Mock
+    private IIngestaTraccarService ingestaTraccarService;
+
+    @Mock
+    private IndiceEspacialPosiciones indiceEspacial;
+
+    @Spy
+    private BufferPosicionesEnVivo buffer = new BufferPosicionesEnVivo(4);
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @InjectMocks
+    private PosicionesEnVivoServiceImpl posicionesEnVivoService;
+
+    @AfterEach
+    void tearDown() {
+        posicionesEnVivoService.cerrar();
+    }
+
+    @Test
+    void onPosicionesRecibidas_guardaLaUltimaPosicionDeCadaDispositivo() {
+        posicionesEnVivoService.onPosicionesRecibidas(new PosicionesRecibidasEvent(List.of(
+                posicion(1, 10, AHORA),
+                posicion(2, 20, AHORA),
+                posicion(3, 10, AHORA.plusSeconds(30)))));
+
+        assertEquals(3, posicionesEnVivoService.ultimaPosicion(10).map(PosicionRequestDTO::getId).orElseThrow());
+        assertEquals(2, posicionesEnVivoService.ultimasPosiciones().size());
+    }
+
+    @Test
+    void onPosicionesRecibidas_ignoraPosicionesMasViejasQueLaConocida() {
+        posicionesEnVivoService.onPosicionesRecibidas(new PosicionesRecibidasEvent(List.of(posicion(2, 10, AHORA))));
+        posicionesEnVivoService.onPosicionesRecibidas(new PosicionesRecibidasEvent(List.of(posicion(1, 10, AHORA.minusMinutes(5)))));
+
+        assertEquals(2, posicionesEnVivoService.ultimaPosicion(10).map(PosicionRequestDTO::getId).orElseThrow());
+        verify(indiceEspacial, times(1)).actualizar(any());
+    }
+
+    @Test
+    void escribirRecientes_devuelveLasUltimasPosicionesEnOrden() throws IOException {
+        for (int i = 1; i <= 6; i++) {
+            posicionesEnVivoService.onPosicionesRecibidas(new PosicionesRecibidasEvent(List.of(posicion(i, 10, AHORA.plusSeconds(i)))));
+        }
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+
+        posicionesEnVivoService.escribirRecientes(10, 3, salida);
+
+        JsonNode recientes = new ObjectMapper().readTree(salida.toByteArray());
+        assertEquals(3, recientes.size());
+        assertEquals(4, recientes.get(0).get("id").asInt());
+        assertEquals(6, recientes.get(2).get("id").asInt());
+        assertEquals(AHORA.plusSeconds(6).toInstant().toEpochMilli(), recientes.get(2).get("fechaHoraMs").asLong());
+    }
+
+    @Test
+    void escribirRecientes_sinPosicionesDevuelveUnArregloVacio() throws IOException {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+
+        posicionesEnVivoService.escribirRecientes(99, 10, salida);
+
+        assertEquals("[]", salida.toString());
+    }
+
+    @Test
+    void disponible_dependeDelSocket() {
+        when(fuentePosiciones.estaConectado()).thenReturn(true);
+
+        assertTrue(posicionesEnVivoService.disponible());
+    }
+
+    @Test
+    void disponible_conReenvioActivoAunqueElSocketEsteCaido() {
+        when(fuentePosiciones.estaConectado()).thenReturn(false);
+        when(ingestaTraccarService.activa()).thenReturn(true);
+
+        assertTrue(posicionesEnVivoService.disponible());
+    }
+
+    @Test
+    void toPosicionEnVivo_completaElUnicoIdDesdeElRegistro() {
+        when(registroDispositivos.buscarPorDeviceId(10))
+                .thenReturn(Optional.of(DispositivoResponseDTO.builder().id(10).uniqueId("ABC123").build()));
+
+        PosicionEnVivoResponseDTO respuesta = posicionesEnVivoService.toPosicionEnVivo(posicion(1, 10, AHORA));
+
+        assertEquals("ABC123", respuesta.getUnicoId());
+        assertEquals(AHORA, respuesta.getFechaHora());
+    }
+
+    private PosicionRequestDTO posicion(int id, int deviceId, OffsetDateTime fixTime) {
+        return PosicionRequestDTO.builder().id(id).deviceId(deviceId).fixTime(fixTime).build();
+    }
+}
@@ -8,6 +8,7 @@ import com.gifa_api.model.Pedido;
 import com.gifa_api.model.Proveedor;
 import com.gifa_api.repository.IPedidoRepository;
 import com.gifa_api.repository.IProveedorRepository;
+import com.gifa_api.service.ICandadoTareaService;
 import com.gifa_api.service.impl.ProvedorServiceImpl;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -15,11 +16,14 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 import java.util.Random;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -36,6 +40,12 @@ class ProvedorServiceImplTest {
     @Mock
     private Random random;
 
+    @Mock
+    private ICandadoTareaService candadoTareaService;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
     @InjectMocks
     private ProvedorServiceImpl provedorService;
 
@@ -43,6 +53,12 @@ class ProvedorServiceImplTest {
 
     @BeforeEach
     void setUp(){
+        lenient().when(candadoTareaService.tomar(any())).thenReturn(Optional.of(1L));
+        lenient().doAnswer(invocation -> {
+            Consumer<TransactionStatus> accion = invocation.getArgument(0);
+            accion.accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
         proveedorRequestDTO = RegistroProveedorRequestDTO.builder()
                 .nombre("nombre")
                 .email("emailvalido@gmail.com")
@@ -0,0 +1,132 @@
+package com.gifa_api.testUnitario.service;
+
+import com.gifa_api.client.ITraccarCliente;
+import com.gifa_api.client.IndiceEspacialPosiciones;
+import com.gifa_api.dto.traccar.PosicionEnVivoResponseDTO;
+import com.gifa_api.dto.traccar.PosicionRequestDTO;
+import com.gifa_api.dto.traccar.VehiculoCercanoResponseDTO;
+import com.gifa_api.exception.BadRequestException;
+import com.gifa_api.repository.IDispositivoRepository;
+import com.gifa_api.service.IPosicionesEnVivoService;
+import com.gifa_api.service.impl.ProximidadVehiculosServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProximidadVehiculosServiceImplTest {
+
+    private static final OffsetDateTime AHORA = OffsetDateTime.parse("2024-11-01T10:00:00Z");
+
+    @Spy
+    private IndiceEspacialPosiciones indiceEspacial = new IndiceEspacialPosiciones(0.05);
+
+    @Mock
+    private IPosicionesEnVivoService posicionesEnVivoService;
+
+    @Mock
+    private ITraccarCliente traccarCliente;
+
+    @Mock
+    private IDispositivoRepository dispositivoRepository;
+
+    @InjectMocks
+    private ProximidadVehiculosServiceImpl proximidadService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(proximidadService, "radioMaximoMetros", 100000.0);
+        ReflectionTestUtils.setField(proximidadService, "ttlMs", 5000L);
+        lenient().when(dispositivoRepository.findPatentesPorUnicoId()).thenReturn(List.<Object[]>of(
+                new Object[]{"AB123CD", "AB123CD"}, new Object[]{"AC456DE", "AC456DE"}));
+        lenient().when(posicionesEnVivoService.toPosicionEnVivo(any())).thenAnswer(invocation -> {
+            PosicionRequestDTO posicion = invocation.getArgument(0);
+            return PosicionEnVivoResponseDTO.builder()
+                    .deviceId(posicion.getDeviceId())
+                    .unicoId(posicion.getDeviceId() == 10 ? "AB123CD" : posicion.getDeviceId() == 11 ? "AC456DE" : "SIN-VEHICULO")
+                    .latitude(posicion.getLatitude())
+                    .longitude(posicion.getLongitude())
+                    .fechaHora(posicion.getFixTime())
+                    .build();
+        });
+    }
+
+    @Test
+    void buscarEnRadio_devuelveLosVehiculosConPatenteYDistancia() {
+        when(posicionesEnVivoService.disponible()).thenReturn(true);
+        indiceEspacial.actualizar(posicion(10, -34.6037, -58.3816));
+        indiceEspacial.actualizar(posicion(11, -34.9, -58.3816));
+        indiceEspacial.actualizar(posicion(12, -34.6040, -58.3816));
+
+        List<VehiculoCercanoResponseDTO> vehiculos = proximidadService.buscarEnRadio(-34.6037, -58.3816, 5000, null);
+
+        assertEquals(1, vehiculos.size());
+        assertEquals("AB123CD", vehiculos.get(0).getPatente());
+        assertEquals(0.0, vehiculos.get(0).getDistanciaMetros(), 1.0);
+        verifyNoInteractions(traccarCliente);
+    }
+
+    @Test
+    void buscarEnRadio_losDispositivosSinVehiculoNoOcupanElLimite() {
+        when(posicionesEnVivoService.disponible()).thenReturn(true);
+        indiceEspacial.actualizar(posicion(12, -34.6037, -58.3816));
+        indiceEspacial.actualizar(posicion(10, -34.6100, -58.3816));
+
+        List<VehiculoCercanoResponseDTO> vehiculos = proximidadService.buscarEnRadio(-34.6037, -58.3816, 5000, 1);
+
+        assertEquals(1, vehiculos.size());
+        assertEquals("AB123CD", vehiculos.get(0).getPatente());
+    }
+
+    @Test
+    void buscarEnRadio_sinFeedRefrescaElIndiceDesdeTraccar() {
+        when(posicionesEnVivoService.disponible()).thenReturn(false);
+        when(traccarCliente.getUltimasPosiciones()).thenReturn(List.of(posicion(11, -34.6037, -58.3816)));
+
+        List<VehiculoCercanoResponseDTO> vehiculos = proximidadService.buscarEnRadio(-34.6037, -58.3816, 1000, 10);
+        proximidadService.buscarEnRadio(-34.6037, -58.3816, 1000, 10);
+
+        assertEquals("AC456DE", vehiculos.get(0).getPatente());
+        verify(traccarCliente, times(1)).getUltimasPosiciones();
+    }
+
+    @Test
+    void buscarEnRadio_rechazaRadiosFueraDeRango() {
+        assertThrows(BadRequestException.class, () -> proximidadService.buscarEnRadio(-34.6, -58.4, 0, null));
+        assertThrows(BadRequestException.class, () -> proximidadService.buscarEnRadio(-34.6, -58.4, 200000, null));
+        assertThrows(BadRequestException.class, () -> proximidadService.buscarEnRadio(-95, -58.4, 1000, null));
+    }
+
+    @Test
+    void buscarEnRectangulo_devuelveLosVehiculosDentro() {
+        when(posicionesEnVivoService.disponible()).thenReturn(true);
+        indiceEspacial.actualizar(posicion(10, -34.6037, -58.3816));
+        indiceEspacial.actualizar(posicion(11, -31.4, -64.18));
+
+        List<VehiculoCercanoResponseDTO> vehiculos = proximidadService.buscarEnRectangulo(-35, -59, -34, -58);
+
+        assertEquals(1, vehiculos.size());
+        assertEquals(10, vehiculos.get(0).getDeviceId());
+        assertNull(vehiculos.get(0).getDistanciaMetros());
+    }
+
+    @Test
+    void buscarEnRectangulo_rechazaRectangulosInvertidos() {
+        assertThrows(BadRequestException.class, () -> proximidadService.buscarEnRectangulo(-34, -58, -35, -59));
+    }
+
+    private PosicionRequestDTO posicion(int deviceId, double latitud, double longitud) {
+        return PosicionRequestDTO.builder().deviceId(deviceId).latitude(latitud).longitude(longitud).fixTime(AHORA).build();
+    }
+}
@@ -0,0 +1,210 @@
+package com.gifa_api.testUnitario.service;
+
+import com.gifa_api.client.RegistroDispositivosTraccar;
+import com.gifa_api.client.SegmentadorRecorridos;
+import com.gifa_api.dto.traccar.DispositivoResponseDTO;
+import com.gifa_api.dto.vehiculo.SegmentoRecorridoResponseDTO;
+import com.gifa_api.exception.BadRequestException;
+import com.gifa_api.exception.NotFoundException;
+import com.gifa_api.model.Posicion;
+import com.gifa_api.model.SegmentoRecorrido;
+import com.gifa_api.model.Vehiculo;
+import com.gifa_api.repository.IDispositivoRepository;
+import com.gifa_api.repository.IPosicionLoteRepository;
+import com.gifa_api.repository.ISegmentoRecorridoRepository;
+import com.gifa_api.repository.IVehiculoRepository;
+import com.gifa_api.service.ICandadoTareaService;
+import com.gifa_api.service.impl.SegmentacionRecorridosServiceImpl;
+import com.gifa_api.utils.enums.TipoSegmento;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SegmentacionRecorridosServiceImplTest {
+
+    private static final long INICIO = 1_730_455_200_000L;
+    private static final long MINUTO = 60_000L;
+    private static final OffsetDateTime DESDE = OffsetDateTime.parse("2024-11-01T00:00:00Z");
+    private static final OffsetDateTime HASTA = OffsetDateTime.parse("2024-12-01T00:00:00Z");
+
+    @Mock
+    private IPosicionLoteRepository posicionLoteRepository;
+
+    @Mock
+    private ISegmentoRecorridoRepository segmentoRecorridoRepository;
+
+    @Mock
+    private IVehiculoRepository vehiculoRepository;
+
+    @Mock
+    private IDispositivoRepository dispositivoRepository;
+
+    @Mock
+    private RegistroDispositivosTraccar registroDispositivos;
+
+    @Spy
+    private SegmentadorRecorridos segmentador = new SegmentadorRecorridos(3, 300, 200);
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private ICandadoTareaService candadoTareaService;
+
+    @InjectMocks
+    private SegmentacionRecorridosServiceImpl segmentacionService;
+
+    private Vehiculo vehiculo;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(segmentacionService, "tamanioLote", 5000);
+        ReflectionTestUtils.setField(segmentacionService, "horasReconstruccion", 24L);
+        lenient().when(candadoTareaService.tomar(any())).thenReturn(Optional.of(1L));
+        vehiculo = Vehiculo.builder().id(1).patente("AB123CD").build();
+    }
+
+    private void ejecutarTransaccionesDirecto() {
+        doAnswer(invocation -> {
+            Consumer<TransactionStatus> accion = invocation.getArgument(0);
+            accion.accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+    }
+
+    @Test
+    void segmentar_sinCandadoNoLeePosiciones() {
+        when(candadoTareaService.tomar(any())).thenReturn(Optional.empty());
+
+        segmentacionService.segmentar();
+
+        verifyNoInteractions(posicionLoteRepository, segmentoRecorridoRepository);
+    }
+
+    @Test
+    void segmentar_alTomarLaTareaArrancaDesdeLaUltimaPosicionGuardada() {
+        when(posicionLoteRepository.maximoId()).thenReturn(100L);
+
+        segmentacionService.segmentar();
+        segmentacionService.segmentar();
+
+        verify(posicionLoteRepository, times(1)).maximoId();
+        verify(posicionLoteRepository, times(2)).buscarDesdeId(100L, 5000);
+        verify(segmentoRecorridoRepository, never()).saveAll(any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void segmentar_reconstruyeElDispositivoYGuardaLosSegmentosCerrados() {
+        ejecutarTransaccionesDirecto();
+        when(posicionLoteRepository.maximoId()).thenReturn(100L);
+        when(posicionLoteRepository.buscarDesdeId(100L, 5000)).thenReturn(recorrido());
+        when(registroDispositivos.buscarPorDeviceId(10))
+                .thenReturn(Optional.of(DispositivoResponseDTO.builder().id(10).uniqueId("ABC123").build()));
+        when(dispositivoRepository.findVehiculoDeDispositivo("ABC123")).thenReturn(Optional.of(vehiculo));
+
+        segmentacionService.segmentar();
+
+        verify(posicionLoteRepository).recorrerEntreFechas(eq(10), eq(INICIO - 24 * 60 * MINUTO), eq(INICIO - 1), any());
+        verify(candadoTareaService, times(2)).validarToken("segmentacion-recorridos", 1L);
+        ArgumentCaptor<List<SegmentoRecorrido>> captor = ArgumentCaptor.forClass(List.class);
+        verify(segmentoRecorridoRepository, times(2)).saveAll(captor.capture());
+        List<SegmentoRecorrido> guardados = new ArrayList<>();
+        captor.getAllValues().forEach(guardados::addAll);
+
+        assertEquals(2, guardados.size());
+        SegmentoRecorrido parada = guardados.get(0);
+        assertEquals(TipoSegmento.PARADA, parada.getTipo());
+        assertEquals(vehiculo, parada.getVehiculo());
+        assertEquals(300, parada.getDuracionSegundos());
+        assertEquals(300, parada.getRalentiSegundos());
+
+        // El ultimo viaje se cierra porque el dispositivo dejo de reportar hace mucho
+        SegmentoRecorrido viaje = guardados.get(1);
+        assertEquals(TipoSegmento.VIAJE, viaje.getTipo());
+        assertEquals(120, viaje.getDuracionSegundos());
+        assertEquals(20 * 1.852, viaje.getVelocidadMaxima(), 0.001);
+
+        segmentacionService.segmentar();
+        verify(posicionLoteRepository).buscarDesdeId(108L, 5000);
+    }
+
+    @Test
+    void segmentar_siFallaElGuardadoVuelveAEmpezarDesdeLaBase() {
+        when(posicionLoteRepository.maximoId()).thenReturn(100L);
+        when(posicionLoteRepository.buscarDesdeId(100L, 5000)).thenReturn(recorrido());
+        doThrow(new RuntimeException("sin conexion")).when(transactionTemplate).executeWithoutResult(any());
+
+        segmentacionService.segmentar();
+        segmentacionService.segmentar();
+
+        verify(posicionLoteRepository, times(2)).maximoId();
+        verify(segmentador, times(2)).reiniciar();
+    }
+
+    @Test
+    void obtenerViajes_sinParadasSoloPideViajes() {
+        when(vehiculoRepository.findByPatente("AB123CD")).thenReturn(Optional.of(vehiculo));
+        SegmentoRecorrido viaje = SegmentoRecorrido.builder()
+                .id(5L).tipo(TipoSegmento.VIAJE).vehiculo(vehiculo).inicio(DESDE).fin(DESDE.plusMinutes(30))
+                .duracionSegundos(1800).distanciaMetros(12500).velocidadMaxima(60).build();
+        when(segmentoRecorridoRepository.findByVehiculoEntreFechas(1, EnumSet.of(TipoSegmento.VIAJE), DESDE, HASTA))
+                .thenReturn(List.of(viaje));
+
+        List<SegmentoRecorridoResponseDTO> viajes = segmentacionService.obtenerViajes("AB123CD", DESDE, HASTA, false);
+
+        assertEquals(1, viajes.size());
+        assertEquals(12.5, viajes.get(0).getDistanciaKilometros());
+        assertEquals(60, viajes.get(0).getVelocidadMaximaKmh());
+    }
+
+    @Test
+    void obtenerViajes_conVehiculoInexistente() {
+        when(vehiculoRepository.findByPatente("AB123CD")).thenReturn(Optional.empty());
+
+        assertThrows(NotFoundException.class, () -> segmentacionService.obtenerViajes("AB123CD", DESDE, HASTA, true));
+    }
+
+    @Test
+    void obtenerViajes_conRangoInvertido() {
+        assertThrows(BadRequestException.class, () -> segmentacionService.obtenerViajes("AB123CD", HASTA, DESDE, true));
+        verifyNoInteractions(vehiculoRepository);
+    }
+
+    // 5 minutos detenido en marcha y 3 minutos en movimiento, una posicion por minuto con ids 101 a 108
+    private List<Posicion> recorrido() {
+        List<Posicion> posiciones = new ArrayList<>();
+        for (int minuto = 0; minuto <= 7; minuto++) {
+            boolean enMovimiento = minuto > 5;
+            posiciones.add(Posicion.builder()
+                    .id(101L + minuto)
+                    .deviceId(10)
+                    .fechaHora(INICIO + minuto * MINUTO)
+                    .latitud(-34.60 + (enMovimiento ? (minuto - 5) * 0.001 : 0))
+                    .longitud(-58.38)
+                    .velocidad(enMovimiento ? 20 : 0)
+                    .encendido(true)
+                    .build());
+        }
+        return posiciones;
+    }
+}
@@ -0,0 +1,332 @@
+package com.gifa_api.testUnitario.service;
+
+import com.gifa_api.client.ITraccarCliente;
+import com.gifa_api.client.RegistroDispositivosTraccar;
+import com.gifa_api.dto.traccar.DispositivoResponseDTO;
+import com.gifa_api.dto.traccar.EstadisticasSincronizacionResponseDTO;
+import com.gifa_api.dto.traccar.KilometrosResponseDTO;
+import com.gifa_api.model.Dispositivo;
+import com.gifa_api.model.KilometrajeVehiculo;
+import com.gifa_api.model.Vehiculo;
+import com.gifa_api.exception.LiderazgoPerdidoException;
+import com.gifa_api.repository.IDispositivoRepository;
+import com.gifa_api.repository.IKilometrajeLoteRepository;
+import com.gifa_api.service.ICandadoTareaService;
+import com.gifa_api.service.impl.SincronizacionKilometrajeServiceImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SincronizacionKilometrajeServiceImplTest {
+
+    @Mock
+    private ITraccarCliente traccarCliente;
+
+    @Mock
+    private RegistroDispositivosTraccar registroDispositivos;
+
+    @Mock
+    private IDispositivoRepository dispositivoRepository;
+
+    @Mock
+    private IKilometrajeLoteRepository kilometrajeLoteRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private ICandadoTareaService candadoTareaService;
+
+    @Spy
+    private ExecutorService sincronizacionExecutor = Executors.newFixedThreadPool(2);
+
+    @InjectMocks
+    private SincronizacionKilometrajeServiceImpl sincronizacionService;
+
+    private Vehiculo vehiculo;
+    private Dispositivo dispositivo;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(sincronizacionService, "shards", 4);
+        ReflectionTestUtils.setField(sincronizacionService, "shardsPorNodo", 0);
+        lenient().when(candadoTareaService.tomar(any())).thenReturn(Optional.of(1L));
+        vehiculo = Vehiculo.builder().id(1).patente("AB123CD").kilometrajeRecorrido(100).build();
+        dispositivo = Dispositivo.builder().id(1).unicoId("AB123CD").vehiculo(vehiculo).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        sincronizacionExecutor.shutdownNow();
+    }
+
+    private void ejecutarTransaccionesDirecto() {
+        doAnswer(invocation -> {
+            Consumer<TransactionStatus> accion = invocation.getArgument(0);
+            accion.accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+    }
+
+    private void conDispositivoEnTraccar() {
+        when(dispositivoRepository.findAllConVehiculo()).thenReturn(List.of(dispositivo));
+        when(registroDispositivos.buscarPorUnicoId("AB123CD")).thenReturn(Optional.of(
+                DispositivoResponseDTO.builder().id(10).uniqueId("AB123CD").build()));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<KilometrajeVehiculo> kilometrajesInsertados() {
+        ArgumentCaptor<List<KilometrajeVehiculo>> captor = ArgumentCaptor.forClass(List.class);
+        verify(kilometrajeLoteRepository, atLeastOnce()).insertarLote(captor.capture());
+        return captor.getAllValues().stream().flatMap(List::stream).toList();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<Integer, Double> marcasActualizadas() {
+        ArgumentCaptor<Map<Integer, Double>> captor = ArgumentCaptor.forClass(Map.class);
+        verify(kilometrajeLoteRepository, atLeastOnce()).actualizarMarcasDeSincronizacion(captor.capture(), any());
+        return captor.getValue();
+    }
+
+    @Test
+    void sincronizarKilometraje_primeraSincronizacionUsaTodoElHistorial() {
+        ejecutarTransaccionesDirecto();
+        conDispositivoEnTraccar();
+        when(traccarCliente.getKilometrosDeDispositivos(eq(List.of(10)), eq(OffsetDateTime.parse("1970-01-01T00:00:00Z")), any()))
+                .thenReturn(List.of(KilometrosResponseDTO.builder().deviceId(10).distance(250).endOdometer(5000.0).build()));
+
+        sincronizacionService.sincronizarKilometraje();
+
+        List<KilometrajeVehiculo> kilometrajes = kilometrajesInsertados();
+        assertEquals(1, kilometrajes.size());
+        assertEquals(150.0, kilometrajes.get(0).getKilometrosRecorridos());
+        assertEquals(5000.0, marcasActualizadas().get(1));
+        assertNotNull(dispositivo.getUltimaSincronizacion());
+    }
+
+    @Test
+    void sincronizarKilometraje_soloPideLaVentanaDesdeLaUltimaSincronizacion() {
+        OffsetDateTime ultimaSincronizacion = OffsetDateTime.parse("2024-11-07T10:00:00Z");
+        dispositivo.setUltimaSincronizacion(ultimaSincronizacion);
+        dispositivo.setUltimoOdometro(5000.0);
+        ejecutarTransaccionesDirecto();
+        conDispositivoEnTraccar();
+        when(traccarCliente.getKilometrosDeDispositivos(eq(List.of(10)), eq(ultimaSincronizacion), any()))
+                .thenReturn(List.of(KilometrosResponseDTO.builder().deviceId(10).distance(30).endOdometer(5040.0).build()));
+
+        sincronizacionService.sincronizarKilometraje();
+
+        List<KilometrajeVehiculo> kilometrajes = kilometrajesInsertados();
+        assertEquals(1, kilometrajes.size());
+        assertEquals(40.0, kilometrajes.get(0).getKilometrosRecorridos());
+        verify(kilometrajeLoteRepository).sumarKilometrajesRecorridos(kilometrajes);
+    }
+
+    @Test
+    void sincronizarKilometraje_sinLeaseNoHaceNada() {
+        when(dispositivoRepository.findAllConVehiculo()).thenReturn(List.of(dispositivo));
+        when(candadoTareaService.tomar(any())).thenReturn(Optional.empty());
+
+        sincronizacionService.sincronizarKilometraje();
+
+        verifyNoInteractions(traccarCliente, kilometrajeLoteRepository);
+        assertEquals(4, sincronizacionService.obtenerUltimaEjecucion().orElseThrow().getShardsOmitidos());
+    }
+
+    @Test
+    void sincronizarKilometraje_conTokenVencidoNoEscribe() {
+        dispositivo.setUltimaSincronizacion(OffsetDateTime.parse("2024-11-07T10:00:00Z"));
+        dispositivo.setUltimoOdometro(5000.0);
+        ejecutarTransaccionesDirecto();
+        conDispositivoEnTraccar();
+        when(traccarCliente.getKilometrosDeDispositivos(eq(List.of(10)), any(), any()))
+                .thenReturn(List.of(KilometrosResponseDTO.builder().deviceId(10).distance(30).endOdometer(5040.0).build()));
+        doThrow(new LiderazgoPerdidoException("token vencido")).when(candadoTareaService).validarToken(any(), anyLong());
+
+        sincronizacionService.sincronizarKilometraje();
+
+        verifyNoInteractions(kilometrajeLoteRepository);
+        assertEquals(1, sincronizacionService.obtenerUltimaEjecucion().orElseThrow().getDispositivosFallidos());
+    }
+
+    @Test
+    void sincronizarKilometraje_sinMovimientoSoloAvanzaLaMarca() {
+        dispositivo.setUltimaSincronizacion(OffsetDateTime.parse("2024-11-07T10:00:00Z"));
+        dispositivo.setUltimoOdometro(5000.0);
+        ejecutarTransaccionesDirecto();
+        conDispositivoEnTraccar();
+        when(traccarCliente.getKilometrosDeDispositivos(eq(List.of(10)), any(), any())).thenReturn(List.of());
+
+        sincronizacionService.sincronizarKilometraje();
+
+        verify(kilometrajeLoteRepository).insertarLote(List.of());
+        verify(kilometrajeLoteRepository).sumarKilometrajesRecorridos(List.of());
+        assertEquals(5000.0, marcasActualizadas().get(1));
+    }
+
+    @Test
+    void sincronizarKilometraje_dispositivosConLaMismaVentanaSePidenEnUnaSolaConsulta() {
+        ReflectionTestUtils.setField(sincronizacionService, "shards", 1);
+        OffsetDateTime ultimaSincronizacion = OffsetDateTime.parse("2024-11-07T10:00:00Z");
+        dispositivo.setUltimaSincronizacion(ultimaSincronizacion);
+        Vehiculo otroVehiculo = Vehiculo.builder().id(2).patente("AC456DE").build();
+        Dispositivo otroDispositivo = Dispositivo.builder().id(2).unicoId("AC456DE").vehiculo(otroVehiculo)
+                .ultimaSincronizacion(ultimaSincronizacion).build();
+        ejecutarTransaccionesDirecto();
+        when(dispositivoRepository.findAllConVehiculo()).thenReturn(List.of(dispositivo, otroDispositivo));
+        when(registroDispositivos.buscarPorUnicoId("AB123CD")).thenReturn(Optional.of(
+                DispositivoResponseDTO.builder().id(10).uniqueId("AB123CD").build()));
+        when(registroDispositivos.buscarPorUnicoId("AC456DE")).thenReturn(Optional.of(
+                DispositivoResponseDTO.builder().id(11).uniqueId("AC456DE").build()));
+        when(traccarCliente.getKilometrosDeDispositivos(eq(List.of(10, 11)), eq(ultimaSincronizacion), any()))
+                .thenReturn(List.of(KilometrosResponseDTO.builder().deviceId(11).distance(15).build()));
+
+        sincronizacionService.sincronizarKilometraje();
+
+        verify(traccarCliente, times(1)).getKilometrosDeDispositivos(anyList(), any(), any());
+        verify(transactionTemplate, times(1)).executeWithoutResult(any());
+        List<KilometrajeVehiculo> kilometrajes = kilometrajesInsertados();
+        assertEquals(1, kilometrajes.size());
+        assertEquals(2, kilometrajes.get(0).getVehiculo().getId());
+        assertEquals(15.0, kilometrajes.get(0).getKilometrosRecorridos());
+        assertEquals(2, marcasActualizadas().size());
+    }
+
+    @Test
+    void sincronizarKilometraje_repartePorShardConUnLeaseCadaUno() {
+        Vehiculo otroVehiculo = Vehiculo.builder().id(2).patente("AC456DE").build();
+        Dispositivo otroDispositivo = Dispositivo.builder().id(2).unicoId("AC456DE").vehiculo(otroVehiculo).build();
+        ejecutarTransaccionesDirecto();
+        when(dispositivoRepository.findAllConVehiculo()).thenReturn(List.of(dispositivo, otroDispositivo));
+        when(registroDispositivos.buscarPorUnicoId("AB123CD")).thenReturn(Optional.of(
+                DispositivoResponseDTO.builder().id(10).uniqueId("AB123CD").build()));
+        when(registroDispositivos.buscarPorUnicoId("AC456DE")).thenReturn(Optional.of(
+                DispositivoResponseDTO.builder().id(11).uniqueId("AC456DE").build()));
+        when(traccarCliente.getKilometrosDeDispositivos(anyList(), any(), any())).thenReturn(List.of());
+
+        sincronizacionService.sincronizarKilometraje();
+
+        verify(candadoTareaService).tomar("sincronizacion-kilometraje-1");
+        verify(candadoTareaService).tomar("sincronizacion-kilometraje-2");
+        verify(candadoTareaService, times(2)).tomar(any());
+        verify(traccarCliente).getKilometrosDeDispositivos(eq(List.of(10)), any(), any());
+        verify(traccarCliente).getKilometrosDeDispositivos(eq(List.of(11)), any(), any());
+
+        EstadisticasSincronizacionResponseDTO estadisticas = sincronizacionService.obtenerUltimaEjecucion().orElseThrow();
+        assertEquals(2, estadisticas.getShardsEjecutados());
+        assertEquals(2, estadisticas.getShardsOmitidos());
+        assertEquals(2, estadisticas.getDispositivosSincronizados());
+    }
+
+    @Test
+    void sincronizarKilometraje_respetaElLimiteDeShardsPorNodo() {
+        ReflectionTestUtils.setField(sincronizacionService, "shardsPorNodo", 1);
+        Vehiculo otroVehiculo = Vehiculo.builder().id(2).patente("AC456DE").build();
+        Dispositivo otroDispositivo = Dispositivo.builder().id(2).unicoId("AC456DE").vehiculo(otroVehiculo).build();
+        ejecutarTransaccionesDirecto();
+        when(dispositivoRepository.findAllConVehiculo()).thenReturn(List.of(dispositivo, otroDispositivo));
+        when(registroDispositivos.buscarPorUnicoId("AB123CD")).thenReturn(Optional.of(
+                DispositivoResponseDTO.builder().id(10).uniqueId("AB123CD").build()));
+        when(traccarCliente.getKilometrosDeDispositivos(anyList(), any(), any())).thenReturn(List.of());
+
+        sincronizacionService.sincronizarKilometraje();
+
+        verify(candadoTareaService, times(1)).tomar(any());
+        assertEquals(1, sincronizacionService.obtenerUltimaEjecucion().orElseThrow().getShardsEjecutados());
+    }
+
+    @Test
+    void sincronizarKilometraje_sinTopeTomaTodosLosShardsLibres() {
+        Vehiculo otroVehiculo = Vehiculo.builder().id(2).patente("AC456DE").build();
+        Dispositivo otroDispositivo = Dispositivo.builder().id(2).unicoId("AC456DE").vehiculo(otroVehiculo).build();
+        Vehiculo tercerVehiculo = Vehiculo.builder().id(3).patente("AD789EF").build();
+        Dispositivo tercerDispositivo = Dispositivo.builder().id(3).unicoId("AD789EF").vehiculo(tercerVehiculo).build();
+        ejecutarTransaccionesDirecto();
+        when(dispositivoRepository.findAllConVehiculo()).thenReturn(List.of(dispositivo, otroDispositivo, tercerDispositivo));
+        when(registroDispositivos.buscarPorUnicoId(anyString())).thenReturn(Optional.of(
+                DispositivoResponseDTO.builder().id(10).uniqueId("AB123CD").build()));
+        when(traccarCliente.getKilometrosDeDispositivos(anyList(), any(), any())).thenReturn(List.of());
+        // El shard 2 lo esta corriendo otro nodo
+        when(candadoTareaService.tomar("sincronizacion-kilometraje-2")).thenReturn(Optional.empty());
+
+        sincronizacionService.sincronizarKilometraje();
+
+        EstadisticasSincronizacionResponseDTO estadisticas = sincronizacionService.obtenerUltimaEjecucion().orElseThrow();
+        assertEquals(2, estadisticas.getShardsEjecutados());
+        verify(candadoTareaService).liberar("sincronizacion-kilometraje-1");
+        verify(candadoTareaService).liberar("sincronizacion-kilometraje-3");
+        verify(candadoTareaService, never()).liberar("sincronizacion-kilometraje-2");
+    }
+
+    @Test
+    void sincronizarKilometraje_sueltaLosLeasesYRotaLosShardsEntreEjecuciones() {
+        ReflectionTestUtils.setField(sincronizacionService, "shards", 2);
+        ReflectionTestUtils.setField(sincronizacionService, "shardsPorNodo", 1);
+        Vehiculo otroVehiculo = Vehiculo.builder().id(2).patente("AC456DE").build();
+        Dispositivo otroDispositivo = Dispositivo.builder().id(2).unicoId("AC456DE").vehiculo(otroVehiculo).build();
+        ejecutarTransaccionesDirecto();
+        when(dispositivoRepository.findAllConVehiculo()).thenReturn(List.of(dispositivo, otroDispositivo));
+        when(registroDispositivos.buscarPorUnicoId(anyString())).thenReturn(Optional.of(
+                DispositivoResponseDTO.builder().id(10).uniqueId("AB123CD").build()));
+        when(traccarCliente.getKilometrosDeDispositivos(anyList(), any(), any())).thenReturn(List.of());
+
+        sincronizacionService.sincronizarKilometraje();
+        sincronizacionService.sincronizarKilometraje();
+
+        // Con un shard por nodo cada ejecucion toma uno, y la siguiente arranca por el otro
+        InOrder orden = inOrder(candadoTareaService);
+        orden.verify(candadoTareaService).tomar("sincronizacion-kilometraje-0");
+        orden.verify(candadoTareaService).tomar("sincronizacion-kilometraje-1");
+        verify(candadoTareaService, times(2)).tomar(any());
+        verify(candadoTareaService).liberar("sincronizacion-kilometraje-0");
+        verify(candadoTareaService).liberar("sincronizacion-kilometraje-1");
+    }
+
+    @Test
+    void sincronizarKilometraje_registraElRetrasoDeLasMarcas() {
+        dispositivo.setUltimaSincronizacion(OffsetDateTime.now().minusHours(2));
+        ejecutarTransaccionesDirecto();
+        conDispositivoEnTraccar();
+        when(traccarCliente.getKilometrosDeDispositivos(anyList(), any(), any())).thenReturn(List.of());
+
+        sincronizacionService.sincronizarKilometraje();
+
+        EstadisticasSincronizacionResponseDTO estadisticas = sincronizacionService.obtenerUltimaEjecucion().orElseThrow();
+        assertTrue(estadisticas.getRetrasoMaximoSegundos() >= 7200);
+        assertEquals(estadisticas.getRetrasoMaximoSegundos(), estadisticas.getRetrasoPromedioSegundos());
+    }
+
+    @Test
+    void sincronizarKilometraje_errorDeTraccarNoAvanzaLaMarca() {
+        conDispositivoEnTraccar();
+        when(traccarCliente.getKilometrosDeDispositivos(anyList(), any(), any())).thenThrow(new RuntimeException("timeout"));
+
+        sincronizacionService.sincronizarKilometraje();
+
+        verifyNoInteractions(kilometrajeLoteRepository);
+        assertNull(dispositivo.getUltimaSincronizacion());
+        assertEquals(1, sincronizacionService.obtenerUltimaEjecucion().orElseThrow().getDispositivosFallidos());
+    }
+}
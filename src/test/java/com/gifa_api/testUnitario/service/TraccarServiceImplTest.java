@@ -1,32 +1,57 @@
 package com.gifa_api.testUnitario.service;
 
+import com.gifa_api.client.ITraccarClienteReactivo;
+import com.gifa_api.client.RegistroDispositivosTraccar;
 import com.gifa_api.client.TraccarClient;
 import com.gifa_api.dto.traccar.DispositivoResponseDTO;
 import com.gifa_api.dto.traccar.InconsistenciasKMconCombustiblesResponseDTO;
 import com.gifa_api.dto.traccar.KilometrosResponseDTO;
+import com.gifa_api.dto.traccar.PosicionRequestDTO;
+import com.gifa_api.dto.traccar.PosicionResponseDTO;
+import com.gifa_api.dto.traccar.RecorridoResponseDTO;
+import com.gifa_api.dto.traccar.ReporteInconsistenciasResponseDTO;
+import com.gifa_api.exception.BadRequestException;
+import com.gifa_api.exception.NotFoundException;
 import com.gifa_api.model.Dispositivo;
+import com.gifa_api.model.GestorOperacional;
 import com.gifa_api.model.Tarjeta;
 import com.gifa_api.model.Vehiculo;
 import com.gifa_api.repository.IChoferRepository;
 import com.gifa_api.repository.IVehiculoRepository;
 import com.gifa_api.service.ICargaCombustibleService;
 import com.gifa_api.service.IDispositivoService;
+import com.gifa_api.service.IGestorOperacionalService;
+import com.gifa_api.service.IHistorialPosicionesService;
+import com.gifa_api.service.IKilometrajeDiarioService;
+import com.gifa_api.service.IPosicionesEnVivoService;
 import com.gifa_api.service.impl.TraccarServiceImpl;
+import com.gifa_api.utils.enums.FormatoRecorrido;
+import com.gifa_api.utils.mappers.PosicionMapper;
+import com.gifa_api.utils.mappers.VehiculoMapper;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.HttpClientErrorException;
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.io.OutputStream;
 import java.time.LocalDate;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.*;
@@ -48,6 +73,33 @@ public class TraccarServiceImplTest {
     @Mock
     private IChoferRepository choferRepository;
 
+    @Mock
+    private RegistroDispositivosTraccar registroDispositivos;
+
+    @Mock
+    private IGestorOperacionalService gestorOperacionalService;
+
+    @Mock
+    private VehiculoMapper vehiculoMapper;
+
+    @Mock
+    private IKilometrajeDiarioService kilometrajeDiarioService;
+
+    @Mock
+    private IHistorialPosicionesService historialPosicionesService;
+
+    @Mock
+    private IPosicionesEnVivoService posicionesEnVivoService;
+
+    @Mock
+    private ITraccarClienteReactivo traccarClienteReactivo;
+
+    @Spy
+    private PosicionMapper posicionMapper = new PosicionMapper();
+
+    @Spy
+    private ExecutorService traccarExecutor = Executors.newFixedThreadPool(2);
+
     @InjectMocks
     private TraccarServiceImpl serviceTraccar;
 
@@ -72,17 +124,48 @@ public class TraccarServiceImplTest {
 
         vehiculos = List.of(vehiculo1);
 
+        ReflectionTestUtils.setField(serviceTraccar, "timeoutSegundos", 5L);
+    }
 
+    @AfterEach
+    void tearDown(){
+        traccarExecutor.shutdownNow();
     }
 
     @Test
     void crearDispositivo(){
         Dispositivo dispositivo = new Dispositivo();
+        when(registroDispositivos.obtenerDeviceId(any())).thenThrow(new NotFoundException("no esta"));
+
         serviceTraccar.crearDispositivo(dispositivo);
 
         verify(traccarCliente,times(1)).postCrearDispositivoTraccar(dispositivo);
     }
 
+    @Test
+    void crearDispositivo_noSeCreaSiYaEstaEnTraccar(){
+        Dispositivo dispositivo = Dispositivo.builder().unicoId("AB123CD").build();
+        when(registroDispositivos.obtenerDeviceId("AB123CD")).thenReturn(7);
+
+        serviceTraccar.crearDispositivo(dispositivo);
+
+        verify(traccarCliente,never()).postCrearDispositivoTraccar(any());
+        verify(traccarCliente,never()).getDispositivos();
+    }
+
+    @Test
+    void crearDispositivo_uniqueIdRepetidoPorUnIntentoAnteriorCuentaComoCreado(){
+        Dispositivo dispositivo = Dispositivo.builder().unicoId("AB123CD").build();
+        // El uniqueId quedo recordado como inexistente, el POST choca con el que creo el intento anterior y Traccar si lo tiene
+        when(registroDispositivos.obtenerDeviceId("AB123CD")).thenThrow(new NotFoundException("sin respuesta"));
+        when(registroDispositivos.consultarTraccar("AB123CD"))
+                .thenReturn(Optional.of(DispositivoResponseDTO.builder().id(7).uniqueId("AB123CD").build()));
+        when(traccarCliente.postCrearDispositivoTraccar(dispositivo))
+                .thenThrow(HttpClientErrorException.create(HttpStatus.BAD_REQUEST, "Duplicate entry", null, null, null));
+
+        assertDoesNotThrow(() -> serviceTraccar.crearDispositivo(dispositivo));
+    }
+
     @Test
     void obtenerDispositivos_devuelveTresDispositivos(){
         DispositivoResponseDTO dispositivo1 = DispositivoResponseDTO.builder().id(1).name("a").status("a").uniqueId("1").build();
@@ -91,7 +174,7 @@ public class TraccarServiceImplTest {
 
         List<DispositivoResponseDTO> dispositivos = Arrays.asList(dispositivo1, dispositivo2, dispositivo3);
 
-        when(traccarCliente.getDispositivos()).thenReturn(dispositivos);
+        when(registroDispositivos.todos()).thenReturn(dispositivos);
         when(vehiculoRepository.findByPatente(anyString())).thenReturn(Optional.of(vehiculos.get(0)));
 
         List<DispositivoResponseDTO> dispositivosPrueba = serviceTraccar.obtenerDispositivos();
@@ -106,13 +189,169 @@ public class TraccarServiceImplTest {
 
         List<DispositivoResponseDTO> dispositivos = Arrays.asList(dispositivo1, dispositivo2, dispositivo3);
 
-        when(traccarCliente.getDispositivos()).thenReturn(dispositivos);
+        when(registroDispositivos.todos()).thenReturn(dispositivos);
         when(vehiculoRepository.findByPatente(anyString())).thenReturn(Optional.empty());
 
         List<DispositivoResponseDTO> dispositivosPrueba = serviceTraccar.obtenerDispositivos();
         assertEquals(0,dispositivosPrueba.size());
     }
 
+    @Test
+    void getInconsistencias_detectaVehiculoConMasLitrosQueKilometros(){
+        OffsetDateTime from = OffsetDateTime.now(ZoneOffset.UTC).minusDays(1);
+        OffsetDateTime to = OffsetDateTime.now(ZoneOffset.UTC);
+        when(vehiculoRepository.findAllConDispositivoYTarjeta()).thenReturn(vehiculos);
+        when(cargaCombustibleService.combustibleCargadoPorTarjetaEntreFechas(from, to)).thenReturn(Map.of(123, 50.0));
+        when(gestorOperacionalService.getGestorOperacional()).thenReturn(GestorOperacional.builder().consumoDeLitrosPorKm(1).build());
+        when(registroDispositivos.obtenerDeviceId("1")).thenReturn(10);
+        when(kilometrajeDiarioService.kilometrosEntreFechas(List.of(10), from, to)).thenReturn(Map.of(10, 30.0));
+        when(choferRepository.obtenerNombreDeChofersDeVehiculos(List.of(1))).thenReturn(List.<Object[]>of(new Object[]{1, "Chofer 1"}));
+
+        ReporteInconsistenciasResponseDTO reporte = serviceTraccar.getInconsistencias(from, to);
+
+        assertFalse(reporte.isParcial());
+        assertEquals(1, reporte.getInconsistencias().size());
+        assertEquals(20.0, reporte.getInconsistencias().get(0).getLitrosInconsistente());
+        assertEquals(List.of("Chofer 1"), reporte.getInconsistencias().get(0).getNombresDeResponsables());
+    }
+
+    @Test
+    void getInconsistencias_dispositivoConErrorMarcaElReporteComoParcial(){
+        OffsetDateTime from = OffsetDateTime.now(ZoneOffset.UTC).minusDays(1);
+        OffsetDateTime to = OffsetDateTime.now(ZoneOffset.UTC);
+        when(vehiculoRepository.findAllConDispositivoYTarjeta()).thenReturn(vehiculos);
+        when(cargaCombustibleService.combustibleCargadoPorTarjetaEntreFechas(from, to)).thenReturn(Map.of(123, 50.0));
+        when(gestorOperacionalService.getGestorOperacional()).thenReturn(GestorOperacional.builder().consumoDeLitrosPorKm(1).build());
+        when(registroDispositivos.obtenerDeviceId("1")).thenReturn(10);
+        when(kilometrajeDiarioService.kilometrosEntreFechas(List.of(10), from, to)).thenThrow(new RuntimeException("timeout"));
+
+        ReporteInconsistenciasResponseDTO reporte = serviceTraccar.getInconsistencias(from, to);
+
+        assertTrue(reporte.isParcial());
+        assertEquals(List.of("AB123CD"), reporte.getPatentesSinDatos());
+        assertTrue(reporte.getInconsistencias().isEmpty());
+        verify(choferRepository, never()).obtenerNombreDeChofersDeVehiculos(any());
+    }
+
+    @Test
+    void obtenerPosicionesEnVivo_conPosicionDelSocketNoConsultaTraccar(){
+        when(registroDispositivos.obtenerDeviceId("1")).thenReturn(10);
+        when(posicionesEnVivoService.ultimaPosicion(10)).thenReturn(Optional.of(PosicionRequestDTO.builder()
+                .id(5).deviceId(10).fixTime(OffsetDateTime.parse("2024-11-01T10:00:00Z")).build()));
+
+        List<PosicionResponseDTO> posiciones = serviceTraccar.obtenerPosicionesEnVivo("1");
+
+        assertEquals(1, posiciones.size());
+        assertEquals(5, posiciones.get(0).getId());
+        verify(traccarCliente, never()).getPosicionesDispositivoTraccar(any(), any(), any());
+    }
+
+    @Test
+    void streamPosicionesRecientes_escribeDesdeElBufferEnVivo() throws Exception {
+        when(registroDispositivos.obtenerDeviceId("1")).thenReturn(10);
+
+        serviceTraccar.streamPosicionesRecientes("1", 50).writeTo(OutputStream.nullOutputStream());
+
+        verify(posicionesEnVivoService).escribirRecientes(eq(10), eq(50), any());
+    }
+
+    @Test
+    void streamPosicionesRecientes_conCantidadInvalida(){
+        assertThrows(BadRequestException.class, () -> serviceTraccar.streamPosicionesRecientes("1", 0));
+        verify(registroDispositivos, never()).obtenerDeviceId(any());
+    }
+
+    @Test
+    void obtenerRecorrido_conToleranciaDescartaLosPuntosAlineados(){
+        OffsetDateTime from = OffsetDateTime.parse("2024-11-01T00:00:00Z");
+        OffsetDateTime to = OffsetDateTime.parse("2024-11-02T00:00:00Z");
+        when(registroDispositivos.obtenerDeviceId("1")).thenReturn(10);
+        // Dos tramos rectos con un vertice ~1 km al norte; 2 y 4 caen sobre los tramos
+        when(historialPosicionesService.obtenerPosiciones(10, from, to)).thenReturn(List.of(
+                posicion(1, -34.60, -58.40),
+                posicion(2, -34.595, -58.39),
+                posicion(3, -34.59, -58.38),
+                posicion(4, -34.595, -58.37),
+                posicion(5, -34.60, -58.36)));
+
+        RecorridoResponseDTO recorrido = serviceTraccar.obtenerRecorrido("1", from, to, 50.0, null, FormatoRecorrido.JSON);
+
+        assertEquals(5, recorrido.getPuntosOriginales());
+        assertEquals(List.of(1, 3, 5), recorrido.getPosiciones().stream().map(PosicionResponseDTO::getId).toList());
+        assertEquals(3, recorrido.getPuntosConservados());
+    }
+
+    @Test
+    void obtenerRecorrido_sinParametrosDevuelveTodo(){
+        OffsetDateTime from = OffsetDateTime.parse("2024-11-01T00:00:00Z");
+        OffsetDateTime to = OffsetDateTime.parse("2024-11-02T00:00:00Z");
+        when(registroDispositivos.obtenerDeviceId("1")).thenReturn(10);
+        when(historialPosicionesService.obtenerPosiciones(10, from, to)).thenReturn(List.of(
+                posicion(1, -34.60, -58.40), posicion(2, -34.60, -58.39), posicion(3, -34.60, -58.38)));
+
+        RecorridoResponseDTO recorrido = serviceTraccar.obtenerRecorrido("1", from, to, null, null, FormatoRecorrido.JSON);
+
+        assertEquals(3, recorrido.getPuntosConservados());
+    }
+
+    @Test
+    void obtenerRecorrido_zoomInvalido_lanzaBadRequest(){
+        assertThrows(BadRequestException.class, () -> serviceTraccar.obtenerRecorrido("1",
+                OffsetDateTime.now(ZoneOffset.UTC).minusDays(1), OffsetDateTime.now(ZoneOffset.UTC), null, 30, FormatoRecorrido.JSON));
+    }
+
+    @Test
+    void obtenerRecorrido_enPolilineaCodificaPuntosYFechas(){
+        OffsetDateTime from = OffsetDateTime.parse("2024-11-01T00:00:00Z");
+        OffsetDateTime to = OffsetDateTime.parse("2024-11-02T00:00:00Z");
+        long inicio = from.toInstant().toEpochMilli();
+        when(registroDispositivos.obtenerDeviceId("1")).thenReturn(10);
+        // Ejemplo de la documentacion del formato de polilineas de Google
+        when(historialPosicionesService.obtenerPosiciones(10, from, to)).thenReturn(List.of(
+                posicion(1, 38.5, -120.2, inicio),
+                posicion(2, 40.7, -120.95, inicio + 10_000),
+                posicion(3, 43.252, -126.453, inicio + 25_000)));
+
+        RecorridoResponseDTO recorrido = serviceTraccar.obtenerRecorrido("1", from, to, null, null, FormatoRecorrido.POLILINEA);
+
+        assertNull(recorrido.getPosiciones());
+        assertEquals("_p~iF~ps|U_ulLnnqC_mqNvxq`@", recorrido.getCodificado().getPolilinea());
+        assertArrayEquals(new long[]{inicio, 10_000, 15_000}, recorrido.getCodificado().getFechas());
+    }
+
+    @Test
+    void obtenerRecorrido_enBinarioEscribeDiferenciasEnVarint(){
+        OffsetDateTime from = OffsetDateTime.parse("2024-11-01T00:00:00Z");
+        OffsetDateTime to = OffsetDateTime.parse("2024-11-02T00:00:00Z");
+        when(registroDispositivos.obtenerDeviceId("1")).thenReturn(10);
+        when(historialPosicionesService.obtenerPosiciones(10, from, to)).thenReturn(List.of(
+                posicion(1, 0.000001, -0.000001, 1), posicion(2, 0.000002, -0.000001, 2)));
+
+        byte[] binario = serviceTraccar.obtenerRecorrido("1", from, to, null, null, FormatoRecorrido.BINARIO).getBinario();
+
+        // version, cantidad, (lat +1, lon -1, fecha +1) y luego (lat +1, lon 0, fecha +1) en zigzag
+        assertArrayEquals(new byte[]{1, 2, 2, 1, 2, 2, 0, 2}, binario);
+    }
+
+    @Test
+    void formatoRecorrido_seEligeSoloSiSePideExplicitamente(){
+        assertEquals(FormatoRecorrido.JSON, FormatoRecorrido.desdeAccept(null));
+        assertEquals(FormatoRecorrido.JSON, FormatoRecorrido.desdeAccept("*/*"));
+        assertEquals(FormatoRecorrido.JSON, FormatoRecorrido.desdeAccept("no es un media type"));
+        assertEquals(FormatoRecorrido.POLILINEA, FormatoRecorrido.desdeAccept("application/vnd.gifa.polilinea+json, application/json;q=0.5"));
+        assertEquals(FormatoRecorrido.BINARIO, FormatoRecorrido.desdeAccept("application/vnd.gifa.recorrido"));
+        assertEquals(FormatoRecorrido.POLILINEA, FormatoRecorrido.desdeAccept("application/json;q=0.5, application/vnd.gifa.polilinea+json"));
+        assertEquals(FormatoRecorrido.JSON, FormatoRecorrido.desdeAccept("application/vnd.gifa.recorrido;q=0.2, application/json"));
+    }
+
+    private PosicionResponseDTO posicion(int id, double latitud, double longitud) {
+        return PosicionResponseDTO.builder().id(id).latitude(latitud).longitude(longitud).build();
+    }
+
+    private PosicionResponseDTO posicion(int id, double latitud, double longitud, long fechaHoraMs) {
+        return PosicionResponseDTO.builder().id(id).latitude(latitud).longitude(longitud).fechaHoraMs(fechaHoraMs).build();
+    }
+
    //hacer los que faltan
 
 //    @Test
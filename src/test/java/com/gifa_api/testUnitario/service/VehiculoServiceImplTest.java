@@ -13,7 +13,7 @@ import com.gifa_api.model.Tarjeta;
 import com.gifa_api.model.Vehiculo;
 import com.gifa_api.repository.ITarjetaRepository;
 import com.gifa_api.repository.IVehiculoRepository;
-import com.gifa_api.service.ITraccarService;
+import com.gifa_api.service.IOutboxTraccarService;
 import com.gifa_api.service.impl.VehiculoServiceImpl;
 import com.gifa_api.utils.enums.EstadoDeHabilitacion;
 import com.gifa_api.utils.enums.EstadoVehiculo;
@@ -55,7 +55,7 @@ class VehiculoServiceImplTest {
     private Vehiculo vehiculoFlota;
 
     @Mock
-    private ITraccarService traccarService;
+    private IOutboxTraccarService outboxTraccarService;
 
     @InjectMocks
     private VehiculoServiceImpl vehiculoService;
@@ -176,6 +176,14 @@ class VehiculoServiceImplTest {
         verify(vehiculoRepository, times(1)).save(any(Vehiculo.class));
     }
 
+    @Test
+    void registrar_encolaLaCreacionDelDispositivoEnElOutbox() {
+        vehiculoService.registrar(vehiculoDTO);
+
+        verify(outboxTraccarService, times(1)).registrarCreacionDeDispositivo(argThat(d ->
+                d.getUnicoId().equals(vehiculoDTO.getPatente())));
+    }
+
     @Test
     void testRegistrarConPatenteNueva() {
         vehiculo.setPatente("AB123CD");
@@ -261,5 +269,6 @@ class VehiculoServiceImplTest {
     public void verificacionDeNoRegistroDeVehiculoInvalido(){
         assertThrows(BadRequestException.class,() -> vehiculoService.registrar(vehiculoDTO));
         verify(vehiculoRepository,never()).save(any(Vehiculo.class));
+        verify(outboxTraccarService,never()).registrarCreacionDeDispositivo(any());
     }
 }
\ No newline at end of file